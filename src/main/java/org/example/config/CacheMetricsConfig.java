@@ -0,0 +1,30 @@
+package org.example.config;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publica {@code cache.hit.ratio{cache}} para cada cache Caffeine declarado
+ * (requiere {@code recordStats} en el spec). Los contadores crudos
+ * ({@code cache.gets}, {@code cache.evictions}) los publica Actuator.
+ */
+@Configuration
+public class CacheMetricsConfig {
+
+    @Bean
+    public MeterBinder cacheHitRatioMetrics(CacheManager cacheManager) {
+        return registry -> cacheManager.getCacheNames().forEach(name -> {
+            if (cacheManager.getCache(name) instanceof CaffeineCache cache) {
+                Gauge.builder("cache.hit.ratio", cache, c -> c.getNativeCache().stats().hitRate())
+                        .tag("cache", name)
+                        .description("Proporción de lecturas servidas desde el cache")
+                        .register(registry);
+            }
+        });
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.config;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Optional;
+
+import org.example.dto.MessageDto;
+import org.example.service.chat.RecentMessageBuffer;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Replay opcional al suscribirse a {@code /user/queue/messages}: si el
+ * SUBSCRIBE trae el header {@code last-seen-id} (el último mensaje que
+ * recibió), se reenvían a esa sesión los que {@link RecentMessageBuffer}
+ * entregó después.
+ *
+ * Corre después de que {@link UserDestinationMessageHandler} registró la
+ * suscripción en el broker, así el replay no se pierde. Si el buffer no
+ * cubre el hueco no se manda nada y el cliente sincroniza por REST
+ * ({@code POST /api/v1/chats/sync}).
+ */
+@Component
+public class ChatReplayInterceptor implements ExecutorChannelInterceptor {
+
+    static final String LAST_SEEN_HEADER = "last-seen-id";
+
+    private static final String DESTINATION = "/user/queue/messages";
+
+    private final RecentMessageBuffer recentMessages;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // El template depende del broker que configura WebSocketConfig: se
+    // resuelve tarde para no armar un ciclo
+    public ChatReplayInterceptor(RecentMessageBuffer recentMessages, @Lazy SimpMessagingTemplate messagingTemplate,
+            MeterRegistry meterRegistry) {
+        this.recentMessages = recentMessages;
+        this.messagingTemplate = messagingTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler,
+            Exception ex) {
+
+        if (ex != null || !(handler instanceof UserDestinationMessageHandler)) {
+            return;
+        }
+
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.SUBSCRIBE.equals(accessor.getCommand())
+                || !DESTINATION.equals(accessor.getDestination())) {
+            return;
+        }
+
+        String lastSeen = accessor.getFirstNativeHeader(LAST_SEEN_HEADER);
+        Principal user = accessor.getUser();
+        if (lastSeen == null || user == null) {
+            return;
+        }
+
+        long lastSeenId;
+        try {
+            lastSeenId = Long.parseLong(lastSeen);
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        Optional<List<MessageDto>> missing = recentMessages.since(user.getName(), lastSeenId);
+        meterRegistry.counter("chat.replay", "result", missing.isPresent() ? "hit" : "miss").increment();
+
+        missing.ifPresent(messages -> messages.forEach(m -> messagingTemplate.convertAndSendToUser(
+                user.getName(), "/queue/messages", m, sessionHeaders(accessor.getSessionId()))));
+    }
+
+    // Solo a la sesión que se suscribió, no a todas las del usuario
+    private static MessageHeaders sessionHeaders(String sessionId) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setLeaveMutable(true);
+        return headers.getMessageHeaders();
+    }
+}
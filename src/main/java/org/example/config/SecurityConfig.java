@@ -10,6 +10,7 @@ import org.example.exception.customs.httpstatus.NotFoundException;
 import org.example.filter.ExceptionLoggingFilter;
 import org.example.filter.RateLimitingFilter;
 import org.example.repository.UserRepository;
+import org.example.security.AuthenticatedUser;
 import org.example.security.CustomAuthenticationEntryPoint;
 import org.example.security.CustomAccessDeniedHandler;
 import org.example.security.JwtUtil;
@@ -73,13 +74,12 @@ public class SecurityConfig {
             User user = userRepo.findByUsername(username)
                     .orElseThrow(() -> new NotFoundException("User not found"));
 
-            return new org.springframework.security.core.userdetails.User(
+            // con el id: presencia y demás lo toman del principal
+            return new AuthenticatedUser(
+                    user.getId(),
                     user.getUsername(),
                     user.getPassword(),
                     user.isEnabled(),
-                    true,
-                    true,
-                    true,
                     user.getRoles().stream()
                             .map(role -> new SimpleGrantedAuthority(role.getName()))
                             .collect(Collectors.toSet()));
@@ -0,0 +1,187 @@
+package org.example.config;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Clientes lentos en el canal de salida.
+ *
+ * Cuenta por sesión los frames MESSAGE encolados en el executor de salida
+ * que todavía no se escribieron en el socket. Con el executor lleno Spring
+ * escribe el frame en el hilo que lo manda (y se descuenta igual al
+ * terminar); los que no llegan a entregarse se descuentan en
+ * {@link #afterSendCompletion}. Pasado {@code max-pending}
+ * se aplica la política: {@code DROP} descarta los frames nuevos de esa
+ * sesión (el cliente recupera por historial o sync al ponerse al día) y
+ * {@code DISCONNECT} cierra la sesión. Los frames de control (CONNECTED,
+ * heartbeats, ERROR) no se cuentan ni se descartan.
+ *
+ * La escritura en el socket la acota Spring con el límite de tiempo y de
+ * buffer del transporte: quien lo pasa es desconectado con
+ * {@link CloseStatus#SESSION_NOT_RELIABLE}. Acá solo se cuenta.
+ */
+@Component
+@RequiredArgsConstructor
+public class SlowConsumerGuard implements ExecutorChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowConsumerGuard.class);
+
+    public enum Policy {
+        DROP, DISCONNECT
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${websocket.slow-consumer.max-pending:200}")
+    private int maxPending;
+
+    @Value("${websocket.slow-consumer.policy:DROP}")
+    private Policy policy;
+
+    // sessionId → frames en cola; solo sesiones abiertas
+    private final Map<String, AtomicInteger> pending = new ConcurrentHashMap<>();
+
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("websocket.outbound.pending", pending,
+                p -> p.values().stream().mapToInt(AtomicInteger::get).sum())
+                .description("Frames en cola de salida sin escribir")
+                .register(meterRegistry);
+        Gauge.builder("websocket.sessions", sessions, Map::size)
+                .description("Sesiones WebSocket abiertas")
+                .register(meterRegistry);
+    }
+
+    // -------------------------------------------------------
+    // CANAL DE SALIDA
+    // -------------------------------------------------------
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        AtomicInteger count = counterOf(message);
+        if (count == null) {
+            return message;
+        }
+        if (count.get() >= maxPending) {
+            overflow(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+            return null;
+        }
+        count.incrementAndGet();
+        return message;
+    }
+
+    // No se entregó al executor: otro interceptor lo cortó o el executor lo
+    // rechazó y la excepción llegó hasta acá. Nunca va a pasar por
+    // afterMessageHandled. Si falló el handler (ya descontado) no se toca
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (!sent && (ex == null || rejected(ex))) {
+            release(message);
+        }
+    }
+
+    // El frame se escribió (o falló): sale de la cola
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler,
+            Exception ex) {
+        release(message);
+    }
+
+    // -------------------------------------------------------
+    // SESIONES
+    // -------------------------------------------------------
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.put(session.getId(), session);
+                pending.put(session.getId(), new AtomicInteger());
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+                pending.remove(session.getId());
+                // si ya no estaba la desalojó overflow()
+                if (sessions.remove(session.getId()) != null && CloseStatus.SESSION_NOT_RELIABLE.equals(status)) {
+                    meterRegistry.counter("websocket.sessions.evicted", "reason", "send-limit").increment();
+                }
+                super.afterConnectionClosed(session, status);
+            }
+        };
+    }
+
+    // --- Helpers ---
+
+    private AtomicInteger counterOf(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return null;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        return sessionId == null ? null : pending.get(sessionId);
+    }
+
+    private void release(Message<?> message) {
+        AtomicInteger count = counterOf(message);
+        if (count != null) {
+            count.updateAndGet(n -> Math.max(0, n - 1));
+        }
+    }
+
+    private static boolean rejected(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof RejectedExecutionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void overflow(String sessionId) {
+        if (policy == Policy.DROP) {
+            meterRegistry.counter("websocket.outbound.dropped").increment();
+            return;
+        }
+
+        WebSocketSession session = sessions.remove(sessionId);
+        if (session == null) {
+            return; // ya se está cerrando
+        }
+        meterRegistry.counter("websocket.sessions.evicted", "reason", "backlog").increment();
+        log.warn("Slow WebSocket consumer, closing session {} ({} frames pending)", sessionId, maxPending);
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.debug("Error closing slow session {}", sessionId, e);
+        }
+    }
+}
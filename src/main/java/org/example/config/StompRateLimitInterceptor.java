@@ -0,0 +1,84 @@
+package org.example.config;
+
+import java.security.Principal;
+import java.util.Map;
+
+import org.example.service.chat.ChatRateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Límite de frames SEND por usuario (o por sesión si no hay login), antes
+ * de que lleguen al broker.
+ *
+ * Pasado el límite el frame se descarta y el usuario recibe un aviso en
+ * {@code /user/queue/errors}. Si sigue ({@code max-strikes} frames
+ * rechazados dentro de la ventana) se responde con un frame ERROR: Spring
+ * cierra la sesión después de mandarlo.
+ */
+@Component
+public class StompRateLimitInterceptor implements ChannelInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger("security");
+
+    private final ChatRateLimiter rateLimiter;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.rate-limit.max-strikes:3}")
+    private int maxStrikes;
+
+    // El template depende del broker que configura WebSocketConfig: se
+    // resuelve tarde para no armar un ciclo
+    public StompRateLimitInterceptor(ChatRateLimiter rateLimiter, @Lazy SimpMessagingTemplate messagingTemplate,
+            MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.messagingTemplate = messagingTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+
+        if (accessor == null || !StompCommand.SEND.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        Principal user = accessor.getUser();
+        String key = user != null ? user.getName() : "session:" + accessor.getSessionId();
+
+        if (rateLimiter.tryAcquire(ChatRateLimiter.Kind.FRAMES, key)) {
+            return message;
+        }
+
+        int strikes = rateLimiter.strike(key);
+        if (strikes >= maxStrikes) {
+            log.warn("STOMP flood, closing session: user={}, session={}, strikes={}", key, accessor.getSessionId(),
+                    strikes);
+            meterRegistry.counter("chat.rate-limit.disconnected").increment();
+            // frame ERROR y cierre de la sesión
+            throw new MessageDeliveryException(message, "Demasiados mensajes");
+        }
+
+        if (user != null) {
+            messagingTemplate.convertAndSendToUser(user.getName(), "/queue/errors",
+                    Map.of("error", "rate-limit", "detail", "Demasiados mensajes, esperá unos segundos"));
+        }
+        return null; // se descarta
+    }
+}
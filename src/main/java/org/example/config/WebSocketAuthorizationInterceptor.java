@@ -1,5 +1,6 @@
 package org.example.config;
 
+import org.example.service.chat.PublicRooms;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.support.ChannelInterceptor;
@@ -12,9 +13,14 @@ import org.springframework.security.core.Authentication;
 
 import org.springframework.stereotype.Component;
 
+import lombok.RequiredArgsConstructor;
+
 @Component
+@RequiredArgsConstructor
 public class WebSocketAuthorizationInterceptor implements ChannelInterceptor {
 
+    private final PublicRooms rooms;
+
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
 
@@ -24,6 +30,13 @@ public class WebSocketAuthorizationInterceptor implements ChannelInterceptor {
             return message;
         }
 
+        // destinos entre nodos (solo los usa el relay con su propia sesión)
+        if ((StompCommand.SUBSCRIBE.equals(accessor.getCommand()) || StompCommand.SEND.equals(accessor.getCommand()))
+                && accessor.getDestination() != null
+                && accessor.getDestination().startsWith(WebSocketConfig.CLUSTER_DESTINATION_PREFIX)) {
+            throw new AccessDeniedException("Destino reservado");
+        }
+
         if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
 
             String destination = accessor.getDestination();
@@ -39,11 +52,15 @@ public class WebSocketAuthorizationInterceptor implements ChannelInterceptor {
                 }
             }
 
-            // público autenticado
-            if (destination.equals("/topic/public")) {
+            // público autenticado, por sala (/topic/public = sala por defecto)
+            String room = rooms.roomOf(destination);
+            if (room != null) {
                 if (auth == null || !auth.isAuthenticated()) {
                     throw new AccessDeniedException("Login requerido");
                 }
+                if (!rooms.exists(room)) {
+                    throw new AccessDeniedException("Sala no encontrada");
+                }
             }
 
         }
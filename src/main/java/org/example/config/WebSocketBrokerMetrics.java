@@ -0,0 +1,52 @@
+package org.example.config;
+
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Profundidad de cola e hilos activos de los executors de los canales
+ * STOMP ({@code channel=inbound|outbound}).
+ */
+@Component
+public class WebSocketBrokerMetrics {
+
+    private final Executor inboundExecutor;
+    private final Executor outboundExecutor;
+    private final MeterRegistry meterRegistry;
+
+    public WebSocketBrokerMetrics(@Qualifier("clientInboundChannelExecutor") Executor inboundExecutor,
+            @Qualifier("clientOutboundChannelExecutor") Executor outboundExecutor,
+            MeterRegistry meterRegistry) {
+        this.inboundExecutor = inboundExecutor;
+        this.outboundExecutor = outboundExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        register("inbound", inboundExecutor);
+        register("outbound", outboundExecutor);
+    }
+
+    // Los canales de WebSocketConfig usan ThreadPoolTaskExecutor; otro tipo no se mide
+    private void register(String channel, Executor taskExecutor) {
+        if (!(taskExecutor instanceof ThreadPoolTaskExecutor executor)) {
+            return;
+        }
+        Gauge.builder("websocket.executor.queued", executor, e -> e.getQueueSize())
+                .description("Frames esperando hilo en el canal")
+                .tag("channel", channel)
+                .register(meterRegistry);
+        Gauge.builder("websocket.executor.active", executor, e -> e.getActiveCount())
+                .description("Hilos ocupados del canal")
+                .tag("channel", channel)
+                .register(meterRegistry);
+    }
+}
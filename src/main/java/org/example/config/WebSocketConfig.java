@@ -1,10 +1,17 @@
 package org.example.config;
 
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 
+import org.example.service.presence.PresenceService;
+import org.example.service.relay.ClusterRelay;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.socket.config.annotation.*;
 
 @Configuration
@@ -12,9 +19,70 @@ import org.springframework.web.socket.config.annotation.*;
 @RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // Cómo llegan los mensajes a las sesiones de los otros nodos
+    public enum RelayMode {
+        LOCAL, POSTGRES, ARTEMIS
+    }
+
+    // Destinos que usan los nodos entre sí (mensajes de usuario sin sesión
+    // local, registro de sesiones): ningún cliente los lee ni los escribe,
+    // lo controla WebSocketAuthorizationInterceptor
+    public static final String CLUSTER_DESTINATION_PREFIX = "/topic/cluster/";
+
+    public static final String UNRESOLVED_USER_DESTINATION = CLUSTER_DESTINATION_PREFIX + "unresolved-user";
+
+    public static final String USER_REGISTRY_DESTINATION = CLUSTER_DESTINATION_PREFIX + "user-registry";
+
     private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
     private final CustomHandshakeHandler customHandshakeHandler;
     private final WebSocketAuthorizationInterceptor authorizationInterceptor;
+    private final StompRateLimitInterceptor rateLimitInterceptor;
+    private final ChatReplayInterceptor chatReplayInterceptor;
+    private final SlowConsumerGuard slowConsumerGuard;
+    private final PresenceService presenceService;
+    private final ObjectProvider<ClusterRelay> clusterRelay;
+
+    @Value("${websocket.relay.mode:LOCAL}")
+    private RelayMode relayMode;
+
+    @Value("${websocket.relay.artemis.host:localhost}")
+    private String artemisHost;
+
+    @Value("${websocket.relay.artemis.port:61613}")
+    private int artemisPort;
+
+    @Value("${websocket.relay.artemis.login:guest}")
+    private String artemisLogin;
+
+    @Value("${websocket.relay.artemis.passcode:guest}")
+    private String artemisPasscode;
+
+    // Hilos de los canales: entrada (frames de los clientes) y salida
+    // (escritura a las sesiones). Cola acotada: lleno = rechazo, no heap
+    @Value("${websocket.inbound.pool-size:8}")
+    private int inboundPoolSize;
+
+    @Value("${websocket.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${websocket.outbound.pool-size:8}")
+    private int outboundPoolSize;
+
+    @Value("${websocket.outbound.queue-capacity:50000}")
+    private int outboundQueueCapacity;
+
+    // Límites por sesión al escribir en el socket (Spring desconecta al pasarlos)
+    @Value("${websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    // Heartbeats del broker en su propio scheduler, no en el de @Scheduled
+    private final ThreadPoolTaskScheduler heartbeatScheduler = new ThreadPoolTaskScheduler();
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
@@ -37,17 +105,79 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
 
-        // solo push privado
-        config.enableSimpleBroker("/queue", "/topic");
-
         // /user/queue/...
         config.setUserDestinationPrefix("/user");
+
+        if (relayMode == RelayMode.ARTEMIS) {
+            if (!ClassUtils.isPresent("reactor.netty.tcp.TcpClient", getClass().getClassLoader())) {
+                throw new IllegalStateException(
+                        "websocket.relay.mode=artemis necesita reactor-netty: compilar con -PartemisRelay");
+            }
+            // Artemis tiene las suscripciones de todos los nodos; los destinos
+            // de usuario sin sesión local se resuelven en el nodo que la tenga
+            config.enableStompBrokerRelay("/queue", "/topic")
+                    .setRelayHost(artemisHost)
+                    .setRelayPort(artemisPort)
+                    .setClientLogin(artemisLogin)
+                    .setClientPasscode(artemisPasscode)
+                    .setSystemLogin(artemisLogin)
+                    .setSystemPasscode(artemisPasscode)
+                    .setSystemHeartbeatSendInterval(heartbeatMs)
+                    .setSystemHeartbeatReceiveInterval(heartbeatMs)
+                    .setUserDestinationBroadcast(UNRESOLVED_USER_DESTINATION)
+                    .setUserRegistryBroadcast(USER_REGISTRY_DESTINATION);
+            return;
+        }
+
+        heartbeatScheduler.setPoolSize(1);
+        heartbeatScheduler.setThreadNamePrefix("ws-heartbeat-");
+        heartbeatScheduler.setDaemon(true);
+        heartbeatScheduler.initialize();
+
+        // solo push privado
+        config.enableSimpleBroker("/queue", "/topic")
+                .setHeartbeatValue(new long[] { heartbeatMs, heartbeatMs })
+                .setTaskScheduler(heartbeatScheduler);
+
+        // con varios nodos (websocket.relay.mode=postgres) publica a los demás
+        // lo que la app manda al broker
+        clusterRelay.ifAvailable(relay -> config.configureBrokerChannel().interceptors(relay));
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
 
-        // bloquea SUBSCRIBE a /user/** sin login
-        registration.interceptors(authorizationInterceptor);
+        // bloquea SUBSCRIBE a /user/** sin login; límite de SEND por
+        // usuario; replay de mensajes al suscribirse con last-seen-id;
+        // presencia (cualquier frame, heartbeats incluidos, renueva la sesión)
+        registration.interceptors(authorizationInterceptor, rateLimitInterceptor, chatReplayInterceptor,
+                presenceService);
+        registration.taskExecutor()
+                .corePoolSize(inboundPoolSize)
+                .maxPoolSize(inboundPoolSize)
+                .queueCapacity(inboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+
+        // descarta o desconecta sesiones con demasiados frames en cola
+        registration.interceptors(slowConsumerGuard);
+        registration.taskExecutor()
+                .corePoolSize(outboundPoolSize)
+                .maxPoolSize(outboundPoolSize)
+                .queueCapacity(outboundQueueCapacity);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .addDecoratorFactory(slowConsumerGuard);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatScheduler.shutdown();
     }
 }
@@ -1,21 +1,42 @@
 package org.example.controller;
 
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.example.dto.ChatPreviewDto;
+import org.example.dto.ChatSyncDto;
+import org.example.dto.ChatSyncRequest;
+import org.example.dto.MarkReadRequest;
+import org.example.dto.ReadCursorDto;
 import org.example.service.ChatService;
+import org.example.service.MessageService;
+import org.springframework.data.domain.Page;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/v1/chats")
 @RequiredArgsConstructor
 public class ChatController {
 
     private final ChatService chatService;
+    private final MessageService messageService;
 
     @GetMapping
-    public List<ChatPreviewDto> chats() {
-        return chatService.getChats();
+    public Page<ChatPreviewDto> chats(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return chatService.getChats(page, size);
+    }
+
+    @PostMapping("/{chatId}/read")
+    public ReadCursorDto markRead(
+            @PathVariable Long chatId,
+            @RequestBody(required = false) MarkReadRequest request) {
+        return chatService.markRead(chatId, request == null ? null : request.messageId());
+    }
+
+    // Reconexión: mensajes faltantes de varios chats de una vez
+    @PostMapping("/sync")
+    public ChatSyncDto sync(@RequestBody @Valid ChatSyncRequest request) {
+        return messageService.sync(request.lastSeen());
     }
 }
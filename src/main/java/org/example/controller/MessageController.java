@@ -2,13 +2,12 @@ package org.example.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.example.dto.CursorSliceDto;
 import org.example.dto.MessageDto;
 import org.example.dto.SendMessageRequest;
 import org.example.service.MessageService;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/v1/chats/{chatId}/messages")
 @RequiredArgsConstructor
@@ -16,15 +15,20 @@ public class MessageController {
 
     private final MessageService messageService;
 
+    // Sin cursor: los más recientes. before/after: id de mensaje
     @GetMapping
-    public List<MessageDto> getMessages(@PathVariable Long chatId) {
-        return messageService.getMessages(chatId);
+    public CursorSliceDto<MessageDto> getMessages(
+            @PathVariable Long chatId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "50") int size) {
+        return messageService.getMessages(chatId, before, after, size);
     }
 
     @PostMapping
     public MessageDto sendMessage(
             @PathVariable Long chatId,
             @RequestBody @Valid SendMessageRequest request) {
-        return messageService.sendMessage(chatId, request.content());
+        return messageService.sendMessage(chatId, request.content(), request.clientMessageId());
     }
 }
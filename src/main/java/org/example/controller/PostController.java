@@ -1,5 +1,6 @@
 package org.example.controller;
 
+import org.example.dto.CursorSliceDto;
 import org.example.dto.PostCreateRequest;
 import org.example.dto.PostDto;
 import org.example.entity.Privacy;
@@ -47,6 +48,14 @@ public class PostController {
         return ResponseEntity.ok(postService.getFeed(page, size));
     }
 
+    // Modo cursor: ?cursor= (vacío = primera página) → Slice sin COUNT
+    @GetMapping(value = "/feed", params = "cursor")
+    public ResponseEntity<CursorSliceDto<PostDto>> getFeedByCursor(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(postService.getFeedByCursor(cursor, size));
+    }
+
     @GetMapping("/me")
     public ResponseEntity<Page<PostDto>> getMyPosts(
             @RequestParam(defaultValue = "0") int page,
@@ -54,6 +63,13 @@ public class PostController {
         return ResponseEntity.ok(postService.getMyPosts(page, size));
     }
 
+    @GetMapping(value = "/me", params = "cursor")
+    public ResponseEntity<CursorSliceDto<PostDto>> getMyPostsByCursor(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(postService.getMyPostsByCursor(cursor, size));
+    }
+
     @GetMapping("/user/{username}")
     public ResponseEntity<Page<PostDto>> getPostsByUser(
             @PathVariable String username,
@@ -62,6 +78,14 @@ public class PostController {
         return ResponseEntity.ok(postService.getPostsByUsername(username, page, size));
     }
 
+    @GetMapping(value = "/user/{username}", params = "cursor")
+    public ResponseEntity<CursorSliceDto<PostDto>> getPostsByUserByCursor(
+            @PathVariable String username,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(postService.getPostsByUsernameByCursor(username, cursor, size));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deletePost(@PathVariable UUID id) {
         postService.deletePost(id);
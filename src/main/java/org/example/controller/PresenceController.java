@@ -0,0 +1,27 @@
+package org.example.controller;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.example.service.presence.PresenceService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/v1/presence")
+@RequiredArgsConstructor
+public class PresenceController {
+
+    private final PresenceService presenceService;
+
+    // De estos amigos, cuáles están online (los cambios llegan después por
+    // /user/queue/presence)
+    @GetMapping("/online")
+    public List<UUID> onlineFriends(@RequestParam List<UUID> ids) {
+        return presenceService.onlineFriends(ids);
+    }
+}
@@ -1,11 +1,19 @@
 package org.example.controller;
 
+import java.util.List;
+
+import org.example.dto.CursorSliceDto;
 import org.example.dto.PublicMessageDto;
+import org.example.dto.PublicRoomDto;
 import org.example.dto.SendMessageRequest;
 import org.example.service.PublicChatService;
+import org.example.service.chat.PublicRooms;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
@@ -17,11 +25,49 @@ import lombok.RequiredArgsConstructor;
 public class PublicChatController {
 
     private final PublicChatService publicChatService;
+    private final PublicRooms rooms;
+
+    // Salas disponibles con su topic y ocupación actual
+    @GetMapping("/rooms")
+    public List<PublicRoomDto> getRooms() {
+        return publicChatService.getRooms();
+    }
+
+    // Sin cursor: los más recientes. before/after: id de mensaje (after =
+    // lo que falta al reconectar)
+    @GetMapping("/rooms/{room}/messages")
+    public CursorSliceDto<PublicMessageDto> getMessages(
+            @PathVariable String room,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "50") int size) {
+
+        return publicChatService.getMessages(room, before, after, size);
+    }
+
+    @PostMapping("/rooms/{room}/messages")
+    public PublicMessageDto send(
+            @PathVariable String room,
+            @RequestBody @Valid SendMessageRequest request) {
+
+        return publicChatService.send(room, request.content());
+    }
+
+    // --- Sin sala: la sala por defecto (clientes anteriores a las salas) ---
+
+    @GetMapping("/messages")
+    public CursorSliceDto<PublicMessageDto> getMessages(
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "50") int size) {
+
+        return publicChatService.getMessages(rooms.defaultRoom(), before, after, size);
+    }
 
     @PostMapping("/messages")
     public PublicMessageDto send(
             @RequestBody @Valid SendMessageRequest request) {
 
-        return publicChatService.send(request.content());
+        return publicChatService.send(rooms.defaultRoom(), request.content());
     }
 }
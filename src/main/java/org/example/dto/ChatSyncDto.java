@@ -0,0 +1,10 @@
+package org.example.dto;
+
+import java.util.List;
+import java.util.Map;
+
+// truncated: chats con más faltantes que el tope; se siguen con ?after=
+public record ChatSyncDto(
+                Map<Long, List<MessageDto>> messages,
+                List<Long> truncated) {
+}
@@ -0,0 +1,11 @@
+package org.example.dto;
+
+import java.util.Map;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+// chatId → último id de mensaje visto (null o 0 = ninguno)
+public record ChatSyncRequest(
+        @NotNull @Size(max = 100) Map<Long, Long> lastSeen) {
+}
@@ -0,0 +1,10 @@
+package org.example.dto;
+
+import java.util.List;
+
+public record CursorSliceDto<T>(
+        List<T> content,
+        int size,
+        boolean hasNext,
+        String nextCursor) {
+}
@@ -0,0 +1,48 @@
+package org.example.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.example.entity.Post;
+import org.example.exception.customs.httpstatus.BadRequestException;
+
+/**
+ * Posición (createdAt, id) del último post entregado. Viaja al cliente como
+ * token opaco para pedir la página siguiente sin OFFSET ni COUNT.
+ */
+public record FeedCursor(
+        Instant createdAt,
+        UUID id) {
+
+    // Cursor inicial: anterior a cualquier post existente
+    public static final FeedCursor START = new FeedCursor(
+            Instant.parse("9999-12-31T23:59:59Z"),
+            new UUID(-1L, -1L));
+
+    public static FeedCursor of(Post post) {
+        return new FeedCursor(post.getCreatedAt(), post.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt.getEpochSecond() + ":" + createdAt.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // null o vacío = primera página
+    public static FeedCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            Instant createdAt = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new FeedCursor(createdAt, UUID.fromString(parts[2]));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Cursor inválido");
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.dto;
+
+import java.util.UUID;
+
+import org.example.entity.Friend.FriendStatus;
+
+// Fila de friends sin cargar los User (para el grafo en memoria)
+public record FriendEdge(UUID requesterId, UUID receiverId, FriendStatus status) {
+}
@@ -0,0 +1,5 @@
+package org.example.dto;
+
+// messageId null = hasta el último mensaje del chat
+public record MarkReadRequest(Long messageId) {
+}
@@ -0,0 +1,10 @@
+package org.example.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+// Amigos que cambiaron de estado desde el último diff
+public record PresenceDiffDto(
+        List<UUID> online,
+        List<UUID> offline) {
+}
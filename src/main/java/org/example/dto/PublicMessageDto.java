@@ -4,6 +4,8 @@ import java.time.Instant;
 import java.util.UUID;
 
 public record PublicMessageDto(
+        Long id,
+        String room,
         UUID senderId,
         String senderUsername,
         String senderDisplayName,
@@ -0,0 +1,9 @@
+package org.example.dto;
+
+public record PublicRoomDto(
+        String name,
+        String topic,
+        int occupancy,
+        // true: la sala manda arrays de mensajes en vez de uno por frame
+        boolean batched) {
+}
@@ -0,0 +1,7 @@
+package org.example.dto;
+
+public record ReadCursorDto(
+                Long friendId,
+                Long lastReadMessageId,
+                int unreadCount) {
+}
@@ -3,6 +3,9 @@ package org.example.dto;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
+// clientMessageId (opcional): lo genera el cliente por mensaje y lo repite
+// si reintenta el envío, para no duplicarlo
 public record SendMessageRequest(
-        @NotBlank @Size(max = 2000) String content) {
+        @NotBlank @Size(max = 2000) String content,
+        @Size(max = 64) String clientMessageId) {
 }
@@ -0,0 +1,14 @@
+package org.example.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record TimelineEntry(
+        UUID postId,
+        UUID authorId,
+        Instant createdAt) {
+
+    public FeedCursor toCursor() {
+        return new FeedCursor(createdAt, postId);
+    }
+}
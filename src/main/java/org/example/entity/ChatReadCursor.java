@@ -0,0 +1,57 @@
+package org.example.entity;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.UUID;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Hasta qué mensaje leyó cada participante de un chat (Friend = chat).
+ * Los ids de mensaje son crecientes, así que "no leídos" son los mensajes
+ * del otro con id mayor al cursor.
+ */
+@Entity
+@Table(name = "chat_read_cursors")
+@IdClass(ChatReadCursor.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChatReadCursor {
+
+    @Id
+    @Column(name = "friend_id")
+    private Long friendId;
+
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    // Solo para la FK: el cursor se borra con el chat
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "friend_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Friend friend;
+
+    @Column(name = "last_read_message_id", nullable = false)
+    private Long lastReadMessageId;
+
+    @Column(nullable = false)
+    private Instant readAt;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long friendId;
+        private UUID userId;
+    }
+}
@@ -1,7 +1,10 @@
 package org.example.entity;
 
 import java.time.Instant;
+import java.util.UUID;
 
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -10,8 +13,10 @@ import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
-@Table(name = "friends", uniqueConstraints = @UniqueConstraint(columnNames = { "requester_id",
-        "receiver_id" }), indexes = {
+@Table(name = "friends", uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "requester_id", "receiver_id" }),
+        @UniqueConstraint(name = "uk_friends_pair", columnNames = { "low_user_id", "high_user_id" })
+}, indexes = {
                 @Index(name = "idx_friends_requester", columnList = "requester_id"),
                 @Index(name = "idx_friends_receiver", columnList = "receiver_id"),
                 @Index(name = "idx_friends_status", columnList = "status")
@@ -38,6 +43,14 @@ public class Friend {
     @JoinColumn(name = "receiver_id", nullable = false)
     private User receiver;
 
+    // Par canónico (menor, mayor) sin importar la dirección: una sola fila
+    // por par y cada búsqueda de relación es un lookup al índice único
+    @Column(name = "low_user_id", nullable = false)
+    private UUID lowUserId;
+
+    @Column(name = "high_user_id", nullable = false)
+    private UUID highUserId;
+
     @CreatedDate
     private Instant createdAt;
 
@@ -48,6 +61,50 @@ public class Friend {
     @Column(nullable = false)
     private FriendStatus status;
 
+    // Resumen del chat para la lista: lo actualiza MessageService con cada
+    // mensaje, así la lista sale en una query ordenada sin buscar el último
+    // mensaje de cada chat
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "last_message_id")
+    @OnDelete(action = OnDeleteAction.SET_NULL)
+    private Message lastMessage;
+
+    @Column(name = "last_activity_at", nullable = false)
+    private Instant lastActivityAt;
+
+    @PrePersist
+    void onCreate() {
+        syncPair();
+        if (lastActivityAt == null) {
+            lastActivityAt = Instant.now();
+        }
+    }
+
+    // requester/receiver pueden invertirse (reintento, bloqueo): el par se
+    // recalcula en cada escritura
+    @PreUpdate
+    void syncPair() {
+        Pair pair = Pair.of(requester.getId(), receiver.getId());
+        this.lowUserId = pair.low();
+        this.highUserId = pair.high();
+    }
+
+    /**
+     * Par de usuarios ordenado como lo ordena la base (bytes sin signo, igual
+     * que LEAST/GREATEST sobre uuid), para que Java y SQL coincidan.
+     */
+    public record Pair(UUID low, UUID high) {
+
+        public static Pair of(UUID a, UUID b) {
+            return compare(a, b) <= 0 ? new Pair(a, b) : new Pair(b, a);
+        }
+
+        private static int compare(UUID a, UUID b) {
+            int msb = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+            return msb != 0 ? msb : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+        }
+    }
+
     public enum FriendStatus {
         PENDING,
         ACCEPTED,
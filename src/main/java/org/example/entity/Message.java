@@ -10,7 +10,7 @@ import org.hibernate.annotations.OnDeleteAction;
 
 @Entity
 @Table(name = "messages", indexes = {
-        @Index(name = "idx_messages_friend", columnList = "friend_id"),
+        @Index(name = "idx_messages_friend_id_id", columnList = "friend_id, id"),
         @Index(name = "idx_messages_sent_at", columnList = "sentAt")
 })
 @Getter
@@ -20,8 +20,11 @@ import org.hibernate.annotations.OnDeleteAction;
 @Builder
 public class Message {
 
+    // messages_seq de a uno, tomado con el chat bloqueado (ver MessageWriter):
+    // en cada chat los ids quedan en orden de commit y sirven de cursor
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "messages_seq")
+    @SequenceGenerator(name = "messages_seq", sequenceName = "messages_seq", allocationSize = 1)
     private Long id;
 
     // Chat (Friend = chat)
@@ -17,7 +17,13 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_created_at_id", columnList = "createdAt, id"),
+        @Index(name = "idx_posts_user_created_at_id", columnList = "user_id, createdAt, id"),
+        @Index(name = "idx_posts_privacy_created_at_id", columnList = "privacy, createdAt, id"),
+        @Index(name = "idx_posts_user_privacy_created_at_id", columnList = "user_id, privacy, createdAt, id")
+})
+@SecondaryTable(name = "post_stats", pkJoinColumns = @PrimaryKeyJoinColumn(name = "post_id"))
 @EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
@@ -70,6 +76,26 @@ public class Post {
         }
     }
 
+    // Contadores desnormalizados (post_stats, ver PostStats): vienen en el
+    // mismo select que el post, sin asociación que cargar aparte. Desde la
+    // entidad solo se insertan; se actualizan con UPDATE atómicos
+    @Column(table = "post_stats", name = "comment_count", updatable = false)
+    private Long commentCount;
+
+    @Column(table = "post_stats", name = "like_count", updatable = false)
+    private Long likeCount;
+
+    @Column(table = "post_stats", name = "updated_at", updatable = false)
+    private Instant statsUpdatedAt;
+
+    // Todo post nace con su fila de contadores en cero
+    @PrePersist
+    void initStats() {
+        commentCount = 0L;
+        likeCount = 0L;
+        statsUpdatedAt = Instant.now();
+    }
+
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     List<Comment> comments = new ArrayList<>();
@@ -0,0 +1,60 @@
+package org.example.entity;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.MapsId;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Contadores desnormalizados de un post (una fila por post).
+ *
+ * Se actualizan con UPDATE atómicos (comentarios en {@code CommentService},
+ * likes en el flush de {@code LikeBuffer}) y un job de reconciliación los
+ * corrige contra los COUNT reales. Para leerlos junto al post, {@link Post}
+ * mapea la misma fila como tabla secundaria (y la inserta al crearse).
+ */
+@Entity
+@Table(name = "post_stats", indexes = @Index(name = "idx_post_stats_updated_at", columnList = "updated_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class PostStats {
+
+    @Id
+    private UUID postId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "post_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Post post;
+
+    // Nombres explícitos: las mismas columnas las mapea Post como tabla secundaria
+    @Column(name = "comment_count", nullable = false)
+    private long commentCount;
+
+    @Column(name = "like_count", nullable = false)
+    private long likeCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public PostStats(Post post) {
+        this.post = post;
+        this.updatedAt = Instant.now();
+    }
+}
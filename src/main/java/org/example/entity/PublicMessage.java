@@ -0,0 +1,45 @@
+package org.example.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+// Mensaje del chat público. Lo escribe PublicChatLog en batch, fuera del
+// camino del broadcast
+@Entity
+@Table(name = "public_messages", indexes = {
+        @Index(name = "idx_public_messages_room_id", columnList = "room, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PublicMessage {
+
+    // De a uno: PublicChatLog toma el id al enviar, antes de escribir, y es
+    // el cursor del catch-up (tiene que seguir el orden de envío entre nodos)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "public_messages_seq")
+    @SequenceGenerator(name = "public_messages_seq", sequenceName = "public_messages_seq", allocationSize = 1)
+    private Long id;
+
+    // Sala (nombre configurado en public-chat.rooms)
+    @Column(nullable = false, length = 50)
+    private String room;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "sender_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User sender;
+
+    @Column(nullable = false, length = 2000)
+    private String content;
+
+    @Column(nullable = false, updatable = false)
+    private Instant sentAt;
+}
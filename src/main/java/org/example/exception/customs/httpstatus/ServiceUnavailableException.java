@@ -0,0 +1,9 @@
+package org.example.exception.customs.httpstatus;
+
+import org.springframework.http.HttpStatus;
+
+public class ServiceUnavailableException extends HttpStatusException {
+    public ServiceUnavailableException(String message) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, message);
+    }
+}
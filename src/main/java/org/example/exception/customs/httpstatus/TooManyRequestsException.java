@@ -0,0 +1,9 @@
+package org.example.exception.customs.httpstatus;
+
+import org.springframework.http.HttpStatus;
+
+public class TooManyRequestsException extends HttpStatusException {
+    public TooManyRequestsException(String message) {
+        super(HttpStatus.TOO_MANY_REQUESTS, message);
+    }
+}
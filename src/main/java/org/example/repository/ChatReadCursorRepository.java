@@ -0,0 +1,18 @@
+package org.example.repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import org.example.entity.ChatReadCursor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ChatReadCursorRepository extends JpaRepository<ChatReadCursor, ChatReadCursor.Key> {
+
+    @Query("""
+            SELECT c.lastReadMessageId FROM ChatReadCursor c
+            WHERE c.friendId = :friendId AND c.userId = :userId
+            """)
+    Optional<Long> findLastRead(@Param("friendId") Long friendId, @Param("userId") UUID userId);
+}
@@ -1,47 +1,47 @@
 package org.example.repository;
 
+import org.example.dto.FriendEdge;
 import org.example.entity.Friend;
 import org.example.entity.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface FriendRepository extends JpaRepository<Friend, Long> {
 
-        // Buscar relacion entre dos usuarios
+        // Relación de un par (en cualquier dirección): un lookup al índice único
         @Query("""
                         SELECT f FROM Friend f
-                        WHERE
-                            (f.requester = :a AND f.receiver = :b)
-                            OR
-                            (f.requester = :b AND f.receiver = :a)
+                        WHERE f.lowUserId = :low AND f.highUserId = :high
                         """)
-        Optional<Friend> findRelationBetween(@Param("a") User a, @Param("b") User b);
+        Optional<Friend> findByPair(@Param("low") UUID low, @Param("high") UUID high);
 
-        // // Buscar relacion entre dos usuarios por user id
-        @Query("""
-                            SELECT f FROM Friend f
-                            WHERE
-                                (f.requester.id = :id1 AND f.receiver.id = :id2)
-                                OR
-                                (f.requester.id = :id2 AND f.receiver.id = :id1)
-                        """)
-        Optional<Friend> findRelationBetweenUserIds(UUID id1, UUID id2);
+        // Buscar relacion entre dos usuarios
+        default Optional<Friend> findRelationBetween(User a, User b) {
+                return findRelationBetweenUserIds(a.getId(), b.getId());
+        }
+
+        // Buscar relacion entre dos usuarios por user id
+        default Optional<Friend> findRelationBetweenUserIds(UUID id1, UUID id2) {
+                Friend.Pair pair = Friend.Pair.of(id1, id2);
+                return findByPair(pair.low(), pair.high());
+        }
 
         // Buscar si hay una pending request enviada por usuario A a usuario B
-        @Query("""
-                            SELECT f FROM Friend f
-                            WHERE f.requester.id = :requesterId
-                              AND f.receiver.id = :receiverId
-                              AND f.status = 'PENDING'
-                        """)
-        Optional<Friend> findPendingRequest(
-                        UUID requesterId,
-                        UUID receiverId);
+        default Optional<Friend> findPendingRequest(UUID requesterId, UUID receiverId) {
+                return findRelationBetweenUserIds(requesterId, receiverId)
+                                .filter(f -> f.getStatus() == Friend.FriendStatus.PENDING)
+                                .filter(f -> f.getRequester().getId().equals(requesterId));
+        }
 
         @Query("""
                             SELECT f.receiver
@@ -58,6 +58,22 @@ public interface FriendRepository extends JpaRepository<Friend, Long> {
                         """)
         List<User> findAllFriends(UUID userId);
 
+        // Ids de amigos aceptados (sin cargar los User)
+        @Query("""
+                        SELECT CASE WHEN f.requester.id = :userId THEN f.receiver.id ELSE f.requester.id END
+                        FROM Friend f
+                        WHERE (f.requester.id = :userId OR f.receiver.id = :userId)
+                        AND f.status = 'ACCEPTED'
+                        """)
+        List<UUID> findFriendIds(UUID userId);
+
+        // Todas las relaciones como (requester, receiver, status)
+        @Query("""
+                        SELECT new org.example.dto.FriendEdge(f.requester.id, f.receiver.id, f.status)
+                        FROM Friend f
+                        """)
+        List<FriendEdge> findAllEdges();
+
         @Query("""
                         SELECT COUNT(f) FROM Friend f
                         WHERE (f.requester.id = :userId OR f.receiver.id = :userId)
@@ -72,15 +88,41 @@ public interface FriendRepository extends JpaRepository<Friend, Long> {
                         """)
         List<Friend> findPendingRequests(UUID userId);
 
-        // Buscar todas las relaciones de amigo de un usuario con cierto status
+        // Lista de chats: participantes en la misma query, ordenada por última
+        // actividad. El último mensaje sale de ConversationCache o de un
+        // batch aparte para los que no están en memoria
+        @EntityGraph(attributePaths = { "requester", "receiver" })
+        @Query(value = """
+                        SELECT f FROM Friend f
+                        WHERE (f.requester.id = :userId OR f.receiver.id = :userId)
+                        AND f.status = 'ACCEPTED'
+                        ORDER BY f.lastActivityAt DESC, f.id DESC
+                        """, countQuery = """
+                        SELECT COUNT(f) FROM Friend f
+                        WHERE (f.requester.id = :userId OR f.receiver.id = :userId)
+                        AND f.status = 'ACCEPTED'
+                        """)
+        Page<Friend> findChats(@Param("userId") UUID userId, Pageable pageable);
+
+        // Solo el id: no carga la amistad ni el mensaje
+        @Query("SELECT f.lastMessage.id FROM Friend f WHERE f.id = :friendId")
+        Optional<Long> findLastMessageId(@Param("friendId") Long friendId);
+
+        // Bloquea el chat hasta el commit: los mensajes que se escriben
+        // mientras tanto toman id después (ver MessageWriter)
+        @Query(value = "SELECT id FROM friends WHERE id = :friendId FOR UPDATE", nativeQuery = true)
+        Optional<Long> lockChat(@Param("friendId") Long friendId);
+
+        // Solo avanza: con envíos concurrentes queda el mensaje de id mayor
+        @Modifying
         @Query("""
-                            SELECT f FROM Friend f
-                            WHERE f.status = :status
-                              AND (f.requester = :user OR f.receiver = :user)
+                        UPDATE Friend f
+                        SET f.lastMessage.id = :messageId, f.lastActivityAt = :sentAt
+                        WHERE f.id = :friendId
+                        AND (f.lastMessage.id IS NULL OR f.lastMessage.id < :messageId)
                         """)
-        List<Friend> findAllByFriendRelationsOfUserByStatus(
-                        @Param("user") User user,
-                        @Param("status") Friend.FriendStatus status);
+        int touchChat(@Param("friendId") Long friendId, @Param("messageId") Long messageId,
+                        @Param("sentAt") Instant sentAt);
 
         @Query("""
                             SELECT f FROM Friend f
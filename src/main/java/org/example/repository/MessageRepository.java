@@ -1,15 +1,64 @@
 package org.example.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
-import org.example.entity.Friend;
 import org.example.entity.Message;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface MessageRepository extends JpaRepository<Message, Long> {
 
-    List<Message> findByFriendOrderBySentAtAsc(Friend friend);
+    // --- Historial keyset sobre (friend_id, id): en cada chat los ids están
+    // en orden de commit ---
 
-    // Último mensaje por chat
-    Message findTopByFriendOrderBySentAtDesc(Friend friend);
+    // Los más recientes, del más nuevo al más viejo
+    @EntityGraph(attributePaths = { "sender" })
+    @Query("""
+            SELECT m FROM Message m
+            WHERE m.friend.id = :friendId
+            ORDER BY m.id DESC
+            """)
+    Slice<Message> findLatest(@Param("friendId") Long friendId, Pageable pageable);
+
+    // Anteriores al cursor, del más nuevo al más viejo
+    @EntityGraph(attributePaths = { "sender" })
+    @Query("""
+            SELECT m FROM Message m
+            WHERE m.friend.id = :friendId AND m.id < :id
+            ORDER BY m.id DESC
+            """)
+    Slice<Message> findBefore(@Param("friendId") Long friendId, @Param("id") Long id, Pageable pageable);
+
+    // Posteriores al cursor, del más viejo al más nuevo
+    @EntityGraph(attributePaths = { "sender" })
+    @Query("""
+            SELECT m FROM Message m
+            WHERE m.friend.id = :friendId AND m.id > :id
+            ORDER BY m.id ASC
+            """)
+    Slice<Message> findAfter(@Param("friendId") Long friendId, @Param("id") Long id, Pageable pageable);
+
+    boolean existsByIdAndFriendId(Long id, Long friendId);
+
+    // Últimos mensajes de la lista de chats que no están en memoria
+    @EntityGraph(attributePaths = { "sender" })
+    List<Message> findByIdIn(Collection<Long> ids);
+
+    @Query("SELECT MAX(m.id) FROM Message m WHERE m.friend.id = :friendId")
+    Optional<Long> findLastMessageId(@Param("friendId") Long friendId);
+
+    // Mensajes del otro participante posteriores al cursor de lectura
+    @Query("""
+            SELECT COUNT(m) FROM Message m
+            WHERE m.friend.id = :friendId AND m.sender.id <> :userId AND m.id > :afterId
+            """)
+    long countUnread(@Param("friendId") Long friendId, @Param("userId") UUID userId,
+            @Param("afterId") Long afterId);
 }
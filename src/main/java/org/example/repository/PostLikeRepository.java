@@ -1,11 +1,16 @@
 package org.example.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import org.example.entity.Post;
 import org.example.entity.PostLike;
 import org.example.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface PostLikeRepository extends JpaRepository<PostLike, Long> {
 
@@ -13,5 +18,15 @@ public interface PostLikeRepository extends JpaRepository<PostLike, Long> {
 
     Optional<PostLike> findByPostAndUser(Post post, User user);
 
+    boolean existsByPostIdAndUserId(UUID postId, UUID userId);
+
     long countByPost(Post post);
+
+    // Posts de la página a los que el usuario dio like
+    @Query("""
+            SELECT l.post.id FROM PostLike l
+            WHERE l.user.id = :userId
+            AND l.post.id IN :postIds
+            """)
+    List<UUID> findLikedPostIds(@Param("userId") UUID userId, @Param("postIds") Collection<UUID> postIds);
 }
@@ -1,64 +1,120 @@
 package org.example.repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
+import org.example.dto.TimelineEntry;
 import org.example.entity.Post;
+import org.example.entity.Privacy;
 import org.example.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 public interface PostRepository extends JpaRepository<Post, UUID> {
+    @EntityGraph(attributePaths = { "user", "fileMetadata" })
     Page<Post> findByUser(User user, Pageable pageable);
 
-    // 1) Todos los posts visibles en el feed
-    @EntityGraph(attributePaths = "user")
+    // El feed (todos los posts visibles) lo arma FeedQueryEngine con SQL por rangos
+
+    // 1) Ids de posts de un autor con ciertas privacidades: la misma página
+    // sirve a todos los viewers con el mismo alcance (propio, amigo, resto)
+    @Query(value = """
+            SELECT p.id FROM Post p
+            WHERE p.user.id = :authorId
+            AND p.privacy IN :privacies
+            ORDER BY p.createdAt DESC, p.id DESC
+            """, countQuery = """
+            SELECT COUNT(p) FROM Post p
+            WHERE p.user.id = :authorId
+            AND p.privacy IN :privacies
+            """)
+    Page<UUID> findIdsByAuthorAndPrivacyIn(@Param("authorId") UUID authorId,
+            @Param("privacies") Collection<Privacy> privacies, Pageable pageable);
+
+    // --- Keyset (cursor): (createdAt, id) < cursor, sin COUNT ---
+
+    @EntityGraph(attributePaths = { "user", "fileMetadata" })
     @Query("""
-                SELECT p FROM Post p
-                WHERE
-                    p.privacy = org.example.entity.Privacy.PUBLIC
-                    OR p.user = :currentUser
-                    OR (
-                        p.privacy = org.example.entity.Privacy.FRIENDS
-                        AND EXISTS (
-                            SELECT f FROM Friend f
-                            WHERE (
-                                (f.requester = p.user AND f.receiver = :currentUser)
-                                OR (f.requester = :currentUser AND f.receiver = p.user)
-                            )
-                            AND f.status = org.example.entity.Friend.FriendStatus.ACCEPTED
-                        )
-                    )
-                ORDER BY p.createdAt DESC
+            SELECT p FROM Post p
+            WHERE p.user = :user
+            AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id))
+            ORDER BY p.createdAt DESC, p.id DESC
             """)
-    Page<Post> findFeed(@Param("currentUser") User currentUser, Pageable pageable);
+    Slice<Post> findByUserBefore(@Param("user") User user,
+            @Param("createdAt") Instant createdAt, @Param("id") UUID id, Pageable pageable);
 
-    // 2) Posts visibles de un usuario específico para otro
+    @EntityGraph(attributePaths = { "user", "fileMetadata" })
     @Query("""
             SELECT p FROM Post p
             WHERE p.user = :author
+            AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id))
             AND (
                 p.privacy = org.example.entity.Privacy.PUBLIC
-                OR :currentUser = :author
                 OR (
                     p.privacy = org.example.entity.Privacy.FRIENDS
                     AND EXISTS (
                         SELECT f FROM Friend f
-                        WHERE (
-                            (f.requester = p.user AND f.receiver = :currentUser)
-                            OR (f.requester = :currentUser AND f.receiver = p.user)
-                        )
+                        WHERE f.lowUserId = least(p.user.id, :viewerId)
+                        AND f.highUserId = greatest(p.user.id, :viewerId)
                         AND f.status = org.example.entity.Friend.FriendStatus.ACCEPTED
                     )
                 )
             )
-            ORDER BY p.createdAt DESC
+            ORDER BY p.createdAt DESC, p.id DESC
             """)
-    Page<Post> findVisibleByUser(@Param("author") User author, @Param("currentUser") User currentUser,
-            Pageable pageable);
+    Slice<Post> findVisibleByUserBefore(@Param("author") User author, @Param("viewerId") UUID viewerId,
+            @Param("createdAt") Instant createdAt, @Param("id") UUID id, Pageable pageable);
+
+    // --- Timelines en memoria: solo (id, autor, createdAt) ---
+
+    // Lo que se empuja al timeline de un usuario: sus posts no públicos
+    // y los posts FRIENDS de sus amigos (lo PUBLIC va al stream público)
+    @Query("""
+                SELECT new org.example.dto.TimelineEntry(p.id, p.user.id, p.createdAt)
+                FROM Post p
+                WHERE
+                    (p.user.id = :userId AND p.privacy <> org.example.entity.Privacy.PUBLIC)
+                    OR (
+                        p.privacy = org.example.entity.Privacy.FRIENDS
+                        AND EXISTS (
+                            SELECT f FROM Friend f
+                            WHERE f.lowUserId = least(p.user.id, :userId)
+                            AND f.highUserId = greatest(p.user.id, :userId)
+                            AND f.status = org.example.entity.Friend.FriendStatus.ACCEPTED
+                        )
+                    )
+                ORDER BY p.createdAt DESC, p.id DESC
+            """)
+    List<TimelineEntry> findTimelineEntries(@Param("userId") UUID userId, Pageable pageable);
+
+    @Query("""
+            SELECT new org.example.dto.TimelineEntry(p.id, p.user.id, p.createdAt)
+            FROM Post p
+            WHERE p.privacy = org.example.entity.Privacy.PUBLIC
+            ORDER BY p.createdAt DESC, p.id DESC
+            """)
+    List<TimelineEntry> findPublicTimelineEntries(Pageable pageable);
+
+    @Query("""
+            SELECT new org.example.dto.TimelineEntry(p.id, p.user.id, p.createdAt)
+            FROM Post p
+            WHERE p.user.id = :authorId
+            AND p.privacy = org.example.entity.Privacy.FRIENDS
+            ORDER BY p.createdAt DESC, p.id DESC
+            """)
+    List<TimelineEntry> findFriendsOnlyEntriesByAuthor(@Param("authorId") UUID authorId, Pageable pageable);
+
+    // Hidratar ids de timeline en una sola query
+    @EntityGraph(attributePaths = { "user", "fileMetadata" })
+    @Query("SELECT p FROM Post p WHERE p.id IN :ids")
+    List<Post> findAllWithAuthorByIdIn(@Param("ids") Collection<UUID> ids);
 
     // Contar posts de un usuario por su id
     long countByUserId(UUID userId);
@@ -0,0 +1,27 @@
+package org.example.repository;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.example.entity.PostStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface PostStatsRepository extends JpaRepository<PostStats, UUID> {
+
+    // Valor de la base (no el de una entidad ya cargada en el contexto)
+    @Query("SELECT s.commentCount FROM PostStats s WHERE s.postId = :postId")
+    Optional<Long> findCommentCount(@Param("postId") UUID postId);
+
+    // Incremento atómico en la base: sin leer-modificar-escribir la entidad
+    @Modifying
+    @Query("""
+            UPDATE PostStats s
+            SET s.commentCount = s.commentCount + :delta, s.updatedAt = :now
+            WHERE s.postId = :postId
+            """)
+    int addComments(@Param("postId") UUID postId, @Param("delta") long delta, @Param("now") Instant now);
+}
@@ -0,0 +1,29 @@
+package org.example.repository;
+
+import org.example.entity.PublicMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface PublicMessageRepository extends JpaRepository<PublicMessage, Long> {
+
+    // --- Historial por sala sobre (room, id): el id sigue el orden de envío ---
+
+    // Los más recientes, del más nuevo al más viejo
+    @EntityGraph(attributePaths = { "sender" })
+    @Query("SELECT m FROM PublicMessage m WHERE m.room = :room ORDER BY m.id DESC")
+    Slice<PublicMessage> findLatest(@Param("room") String room, Pageable pageable);
+
+    // Anteriores al cursor, del más nuevo al más viejo
+    @EntityGraph(attributePaths = { "sender" })
+    @Query("SELECT m FROM PublicMessage m WHERE m.room = :room AND m.id < :id ORDER BY m.id DESC")
+    Slice<PublicMessage> findBefore(@Param("room") String room, @Param("id") Long id, Pageable pageable);
+
+    // Posteriores al cursor, del más viejo al más nuevo
+    @EntityGraph(attributePaths = { "sender" })
+    @Query("SELECT m FROM PublicMessage m WHERE m.room = :room AND m.id > :id ORDER BY m.id ASC")
+    Slice<PublicMessage> findAfter(@Param("room") String room, @Param("id") Long id, Pageable pageable);
+}
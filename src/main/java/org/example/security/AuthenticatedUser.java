@@ -0,0 +1,39 @@
+package org.example.security;
+
+import java.security.Principal;
+import java.util.Collection;
+import java.util.UUID;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+/**
+ * Principal de las requests y sesiones STOMP autenticadas: además del
+ * username trae el id, para que quien lo necesite no vuelva a la base.
+ */
+public class AuthenticatedUser extends User {
+
+    private static final long serialVersionUID = 1L;
+
+    private final UUID id;
+
+    public AuthenticatedUser(UUID id, String username, String password, boolean enabled,
+            Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, enabled, true, true, true, authorities);
+        this.id = id;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    // Id del usuario autenticado; null si el principal no lo trae
+    public static UUID idOf(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.getId();
+        }
+        return null;
+    }
+}
@@ -3,58 +3,147 @@ package org.example.service;
 import lombok.RequiredArgsConstructor;
 import org.example.dto.ChatPreviewDto;
 import org.example.dto.LastMessageDto;
+import org.example.dto.MessageDto;
+import org.example.dto.ReadCursorDto;
 import org.example.dto.UserSummaryDto;
 import org.example.entity.Friend;
 import org.example.entity.Message;
 import org.example.entity.User;
+import org.example.exception.customs.httpstatus.BadRequestException;
+import org.example.repository.ChatReadCursorRepository;
 import org.example.repository.MessageRepository;
+import org.example.service.chat.ConversationCache;
+import org.example.service.chat.ReadCursorStore;
+import org.example.service.chat.UnreadCounters;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class ChatService {
 
+        private static final int MAX_PAGE_SIZE = 50;
+
         private final FriendService friendService;
         private final MessageRepository messageRepository;
+        private final ChatReadCursorRepository readCursorRepository;
+        private final ReadCursorStore readCursorStore;
+        private final UnreadCounters unreadCounters;
+        private final ConversationCache conversationCache;
         private final AuthService authService;
 
+        /**
+         * Chats del usuario por última actividad. Participantes en la misma
+         * query; el último mensaje sale de memoria si el chat está activo y,
+         * para el resto, de una sola query aparte.
+         */
         @Transactional(readOnly = true)
-        public List<ChatPreviewDto> getChats() {
+        public Page<ChatPreviewDto> getChats(int page, int size) {
 
-                User me = authService.getCurrentUser();
-                List<Friend> friends = friendService.getAllAcceptedFriends(me);
+                UUID me = authService.getCurrentUserId();
+                Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+
+                Page<Friend> chats = friendService.getChats(me, pageable);
+                Map<Long, LastMessageDto> lastMessages = lastMessages(chats.getContent());
 
-                return friends.stream().map(friend -> {
+                return chats.map(friend -> {
 
-                        User other = friend.getRequester().equals(me)
+                        User other = friend.getRequester().getId().equals(me)
                                         ? friend.getReceiver()
                                         : friend.getRequester();
 
-                        Message last = messageRepository
-                                        .findTopByFriendOrderBySentAtDesc(friend);
-
-                        LastMessageDto lastDto = last == null ? null
-                                        : new LastMessageDto(
-                                                        new UserSummaryDto(
-                                                                        last.getSender().getId(),
-                                                                        last.getSender().getUsername(),
-                                                                        last.getSender().getDisplayName(),
-                                                                        "/api/v1/avatars/" + last.getSender()
-                                                                                        .getAvatarKey()),
-                                                        last.getContent(),
-                                                        last.getSentAt());
-
                         return new ChatPreviewDto(
                                         friend.getId(),
                                         other.getId(),
                                         other.getUsername(),
                                         other.getDisplayName(),
                                         "/api/v1/avatars/" + other.getAvatarKey(),
-                                        lastDto,
-                                        0);
-                }).toList();
+                                        lastMessages.get(friend.getId()),
+                                        unreadCounters.unread(friend.getId(), me));
+                });
+        }
+
+        // Por chat: la ventana en memoria sirve si llega al último mensaje
+        // que registra friends; si no, se busca en la base
+        private Map<Long, LastMessageDto> lastMessages(List<Friend> chats) {
+                Map<Long, LastMessageDto> byChat = new HashMap<>();
+                List<Long> missing = new ArrayList<>();
+
+                for (Friend friend : chats) {
+                        if (friend.getLastMessage() == null) {
+                                continue;
+                        }
+                        Long lastId = friend.getLastMessage().getId(); // no inicializa el proxy
+                        conversationCache.lastMessage(friend.getId())
+                                        .filter(m -> m.id() >= lastId)
+                                        .ifPresentOrElse(
+                                                        m -> byChat.put(friend.getId(), toLastMessage(m)),
+                                                        () -> missing.add(lastId));
+                }
+
+                if (!missing.isEmpty()) {
+                        messageRepository.findByIdIn(missing).forEach(
+                                        m -> byChat.put(m.getFriend().getId(), toLastMessage(m)));
+                }
+                return byChat;
+        }
+
+        private static LastMessageDto toLastMessage(MessageDto m) {
+                return new LastMessageDto(
+                                new UserSummaryDto(m.senderId(), m.senderUsername(), m.senderDisplayName(),
+                                                m.senderAvatarUrl()),
+                                m.content(),
+                                m.sentAt());
+        }
+
+        private static LastMessageDto toLastMessage(Message m) {
+                return new LastMessageDto(
+                                new UserSummaryDto(
+                                                m.getSender().getId(),
+                                                m.getSender().getUsername(),
+                                                m.getSender().getDisplayName(),
+                                                "/api/v1/avatars/" + m.getSender().getAvatarKey()),
+                                m.getContent(),
+                                m.getSentAt());
+        }
+
+        /**
+         * Avanza el cursor de lectura del usuario actual hasta
+         * {@code messageId} (o el último mensaje del chat si es null).
+         */
+        @Transactional
+        public ReadCursorDto markRead(Long chatId, Long messageId) {
+
+                User me = authService.getCurrentUser();
+                Friend friend = friendService.getAcceptedFriendForUser(chatId, me);
+
+                Long upTo = messageId;
+                if (upTo == null) {
+                        upTo = messageRepository.findLastMessageId(friend.getId()).orElse(null);
+                        if (upTo == null) {
+                                return new ReadCursorDto(friend.getId(), null, 0);
+                        }
+                } else if (!messageRepository.existsByIdAndFriendId(upTo, friend.getId())) {
+                        throw new BadRequestException("El mensaje no pertenece a este chat");
+                }
+
+                readCursorStore.advance(friend.getId(), me.getId(), upTo, Instant.now());
+
+                // El cursor nunca retrocede: puede haber quedado más adelante
+                long lastRead = readCursorRepository.findLastRead(friend.getId(), me.getId()).orElse(upTo);
+                long remaining = messageRepository.countUnread(friend.getId(), me.getId(), lastRead);
+                unreadCounters.onRead(friend.getId(), me.getId(), remaining);
+
+                return new ReadCursorDto(friend.getId(), lastRead, (int) remaining);
         }
 }
@@ -1,5 +1,6 @@
 package org.example.service;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -12,7 +13,8 @@ import org.example.exception.customs.httpstatus.ForbiddenException;
 import org.example.exception.customs.httpstatus.NotFoundException;
 import org.example.repository.CommentRepository;
 import org.example.repository.PostRepository;
-import org.springframework.cache.annotation.CacheEvict;
+import org.example.repository.PostStatsRepository;
+import org.example.service.cache.CacheInvalidationService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,12 +26,13 @@ public class CommentService {
 
     private final CommentRepository commentRepo;
     private final PostRepository postRepo;
+    private final PostStatsRepository postStatsRepo;
     private final AuthService authService;
     private final PostService postService; // para validaciones canView
+    private final CacheInvalidationService cacheInvalidation;
 
     // CREAR COMENTARIO
     @Transactional
-    @CacheEvict(value = { "feeds", "posts", "postsByUser" }, allEntries = true)
     public CommentDto createComment(UUID postId, String content) {
 
         if (content == null || content.isBlank()) {
@@ -53,6 +56,8 @@ public class CommentService {
 
         post.addComment(comment); // asegura la relación bidireccional
         Comment saved = commentRepo.save(comment);
+        postStatsRepo.addComments(postId, 1, Instant.now());
+        cacheInvalidation.onCommentChanged(postId);
 
         return CommentDto.from(saved);
     }
@@ -78,7 +83,6 @@ public class CommentService {
 
     // ELIMINAR COMENTARIO
     @Transactional
-    @CacheEvict(value = { "feeds", "posts", "postsByUser" }, allEntries = true)
     public void deleteComment(Long commentId) {
         User currentUser = authService.getCurrentUser();
         Comment comment = commentRepo.findById(commentId)
@@ -88,16 +92,17 @@ public class CommentService {
             throw new ForbiddenException("No podés eliminar un comentario que no es tuyo");
         }
 
+        UUID postId = comment.getPost().getId();
         comment.getPost().removeComment(comment);
         commentRepo.delete(comment);
+        postStatsRepo.addComments(postId, -1, Instant.now());
+        cacheInvalidation.onCommentChanged(postId);
     }
 
-    // CONTAR COMENTARIOS
+    // CONTAR COMENTARIOS (contador desnormalizado, sin COUNT)
     @Transactional(readOnly = true)
     public long countComments(UUID postId) {
-        Post post = postRepo.findById(postId)
+        return postStatsRepo.findCommentCount(postId)
                 .orElseThrow(() -> new NotFoundException("Post no encontrado"));
-
-        return commentRepo.countByPost(post);
     }
 }
@@ -6,15 +6,14 @@ import java.util.UUID;
 import org.apache.tika.Tika;
 import org.example.dto.FileWithContentType;
 import org.example.entity.FileMetadata;
-import org.example.entity.Friend;
 import org.example.entity.Post;
 import org.example.entity.Privacy;
 import org.example.entity.User;
 import org.example.exception.customs.httpstatus.BadRequestException;
 import org.example.exception.customs.httpstatus.NotFoundException;
 import org.example.repository.FileMetadataRepository;
-import org.example.repository.FriendRepository;
 import org.example.repository.UserRepository;
+import org.example.service.graph.FriendGraphService;
 import org.springframework.core.io.Resource;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
@@ -29,7 +28,7 @@ public class FileService {
     private final StorageService storageService;
     private final FileMetadataRepository fileRepo;
     private final UserRepository userRepo;
-    private final FriendRepository friendRepo;
+    private final FriendGraphService friendGraph;
     private final AuthService authAuthService;
 
     /**
@@ -88,8 +87,7 @@ public class FileService {
             } else if (post.getPrivacy() == Privacy.FRIENDS) {
                 User current = userRepo.findByUsername(currentUsername)
                         .orElseThrow(() -> new AccessDeniedException("Acceso denegado"));
-                var rel = friendRepo.findRelationBetween(owner, current);
-                if (rel.isEmpty() || rel.get().getStatus() != Friend.FriendStatus.ACCEPTED) {
+                if (!friendGraph.areFriends(owner.getId(), current.getId())) {
                     throw new AccessDeniedException("Acceso denegado");
                 }
             } else {
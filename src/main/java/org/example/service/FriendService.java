@@ -9,12 +9,19 @@ import org.example.exception.customs.httpstatus.ForbiddenException;
 import org.example.exception.customs.httpstatus.NotFoundException;
 import org.example.repository.FriendRepository;
 import org.example.repository.UserRepository;
-import org.springframework.cache.annotation.CacheEvict;
+import org.example.service.cache.CacheInvalidationService;
+import org.example.service.feed.TimelineService;
+import org.example.service.graph.FriendGraphService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import lombok.RequiredArgsConstructor;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -27,6 +34,9 @@ public class FriendService {
     private final FriendRepository friendRepo;
     private final UserRepository userRepo;
     private final AuthService authService;
+    private final TimelineService timelineService;
+    private final CacheInvalidationService cacheInvalidation;
+    private final FriendGraphService friendGraph;
 
     public void sendRequest(UUID receiverId) {
 
@@ -62,7 +72,11 @@ public class FriendService {
                     } else {
                         // 🔥 el otro me envió → auto-aceptar
                         relation.setStatus(FriendStatus.ACCEPTED);
+                        relation.setLastActivityAt(Instant.now()); // el chat nuevo sube en la lista
                         friendRepo.save(relation);
+                        friendGraph.onRelationChanged(requesterId, receiverId, FriendStatus.ACCEPTED);
+                        timelineService.onFriendshipAccepted(requesterId, receiverId);
+                        cacheInvalidation.onFriendshipChanged(requesterId, receiverId);
                         return;
                     }
                 }
@@ -73,6 +87,7 @@ public class FriendService {
                     relation.setReceiver(receiver);
                     relation.setStatus(FriendStatus.PENDING);
                     friendRepo.save(relation);
+                    friendGraph.onRelationChanged(requesterId, receiverId, FriendStatus.PENDING);
                     return;
                 }
             }
@@ -86,9 +101,9 @@ public class FriendService {
                 .build();
 
         friendRepo.save(friend);
+        friendGraph.onRelationChanged(requesterId, receiverId, FriendStatus.PENDING);
     }
 
-    @CacheEvict(value = { "feeds", "posts", "postsByUser" }, allEntries = true)
     public void acceptRequest(UUID requesterId) {
         UUID receiverId = authService.getCurrentUserId();
 
@@ -97,7 +112,11 @@ public class FriendService {
                 .orElseThrow(() -> new NotFoundException("Solicitud no encontrada"));
 
         relation.setStatus(FriendStatus.ACCEPTED);
+        relation.setLastActivityAt(Instant.now()); // el chat nuevo sube en la lista
         friendRepo.save(relation);
+        friendGraph.onRelationChanged(requesterId, receiverId, FriendStatus.ACCEPTED);
+        timelineService.onFriendshipAccepted(requesterId, receiverId);
+        cacheInvalidation.onFriendshipChanged(requesterId, receiverId);
     }
 
     public void rejectRequest(UUID requesterId) {
@@ -109,6 +128,7 @@ public class FriendService {
 
         relation.setStatus(FriendStatus.REJECTED);
         friendRepo.save(relation);
+        friendGraph.onRelationChanged(requesterId, receiverId, FriendStatus.REJECTED);
     }
 
     public void cancelRequest(UUID receiverId) {
@@ -120,9 +140,9 @@ public class FriendService {
                         "No existe una solicitud enviada por este usuario"));
 
         friendRepo.delete(relation); // se elimina la relación
+        friendGraph.onRelationRemoved(requesterId, receiverId);
     }
 
-    @CacheEvict(value = { "feeds", "posts", "postsByUser" }, allEntries = true)
     public void removeFriend(UUID userId2) {
         UUID userId1 = authService.getCurrentUserId();
 
@@ -132,9 +152,11 @@ public class FriendService {
             throw new ConflictException("No son amigos");
         }
         friendRepo.delete(relation.get());
+        friendGraph.onRelationRemoved(userId1, userId2);
+        timelineService.onFriendshipRemoved(userId1, userId2);
+        cacheInvalidation.onFriendshipChanged(userId1, userId2);
     }
 
-    @CacheEvict(value = { "feeds", "posts", "postsByUser" }, allEntries = true)
     public void blockUser(UUID blockedId) {
 
         UUID blockerId = authService.getCurrentUserId();
@@ -160,6 +182,9 @@ public class FriendService {
                     .build();
         }
         friendRepo.save(relation);
+        friendGraph.onRelationChanged(blockerId, blockedId, FriendStatus.BLOCKED);
+        timelineService.onFriendshipRemoved(blockerId, blockedId);
+        cacheInvalidation.onFriendshipChanged(blockerId, blockedId);
     }
 
     // Validacion ¿Este usuario puede acceder a este chat?
@@ -167,23 +192,53 @@ public class FriendService {
         Friend friend = friendRepo.findById(friendId)
                 .orElseThrow(() -> new NotFoundException("Chat no encontrado"));
 
+        checkChatAccess(friend, user.getId());
+        return friend;
+    }
+
+    // Misma validación para varios chats, en una sola query
+    public List<Friend> getAcceptedFriendsForUser(Collection<Long> friendIds, UUID userId) {
+        List<Friend> friends = friendRepo.findAllById(friendIds);
+
+        if (friends.size() != new HashSet<>(friendIds).size()) {
+            throw new NotFoundException("Chat no encontrado");
+        }
+
+        friends.forEach(friend -> checkChatAccess(friend, userId));
+        return friends;
+    }
+
+    private static void checkChatAccess(Friend friend, UUID userId) {
         if (friend.getStatus() != Friend.FriendStatus.ACCEPTED) {
             throw new ForbiddenException("Chat no disponible");
         }
 
-        boolean participant = friend.getRequester().getId().equals(user.getId()) ||
-                friend.getReceiver().getId().equals(user.getId());
+        // Par canónico: no hace falta cargar los User
+        boolean participant = friend.getLowUserId().equals(userId) ||
+                friend.getHighUserId().equals(userId);
 
         if (!participant) {
             throw new ForbiddenException("No perteneces a este chat");
         }
+    }
 
-        return friend;
+    // Antes de tomar el id de un mensaje, en la misma transacción
+    public void lockChat(Long friendId) {
+        friendRepo.lockChat(friendId);
+    }
+
+    // Último mensaje y actividad del chat (resumen para la lista)
+    public void touchChat(Long friendId, Long messageId, Instant sentAt) {
+        friendRepo.touchChat(friendId, messageId, sentAt);
+    }
+
+    // Id del último mensaje del chat (null si todavía no tiene)
+    public Long getLastMessageId(Long friendId) {
+        return friendRepo.findLastMessageId(friendId).orElse(null);
     }
 
-    public List<Friend> getAllAcceptedFriends(User user) {
-        return friendRepo.findAllByFriendRelationsOfUserByStatus(
-                user,
-                Friend.FriendStatus.ACCEPTED);
+    // Chats (amistades aceptadas) por última actividad, con el último mensaje
+    public Page<Friend> getChats(UUID userId, Pageable pageable) {
+        return friendRepo.findChats(userId, pageable);
     }
 }
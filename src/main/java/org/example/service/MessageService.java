@@ -1,47 +1,305 @@
 package org.example.service;
 
 import lombok.RequiredArgsConstructor;
+import org.example.dto.ChatSyncDto;
+import org.example.dto.CursorSliceDto;
 import org.example.dto.MessageDto;
 import org.example.entity.Friend;
 import org.example.entity.Message;
 import org.example.entity.User;
 import org.example.exception.customs.httpstatus.BadRequestException;
+import org.example.exception.customs.httpstatus.ServiceUnavailableException;
 import org.example.repository.MessageRepository;
+import org.example.service.chat.ChatRateLimiter;
+import org.example.service.chat.ChatSyncQuery;
+import org.example.service.chat.ConversationCache;
+import org.example.service.chat.MessageWriter;
+import org.example.service.chat.RecentMessageBuffer;
+import org.example.service.chat.UnreadCounters;
+import org.example.service.graph.FriendGraphService;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.example.util.TransactionUtils.afterCommit;
 
 @Service
 @RequiredArgsConstructor
 public class MessageService {
 
+        private static final Logger log = LoggerFactory.getLogger(MessageService.class);
+
+        private static final int MAX_PAGE_SIZE = 100;
+
+        // Tope de mensajes por chat en una sincronización
+        private static final int MAX_SYNC_PER_CHAT = 200;
+
         private final MessageRepository messageRepository;
         private final FriendService friendService;
         private final AuthService authService;
         private final SimpMessagingTemplate messagingTemplate;
+        private final UnreadCounters unreadCounters;
+        private final RecentMessageBuffer recentMessages;
+        private final ChatSyncQuery chatSyncQuery;
+        private final MessageWriter messageWriter;
+        private final ConversationCache conversationCache;
+        private final FriendGraphService friendGraph;
+        private final TransactionTemplate transactionTemplate;
+        private final ChatRateLimiter chatRateLimiter;
 
+        // Cuánto se espera la confirmación del writer antes de responder 503
+        @Value("${chat.writer.ack-timeout-ms:5000}")
+        private long ackTimeoutMs;
+
+        // (remitente, id del cliente) → envío: un reintento del cliente después
+        // de un 503 espera el mismo mensaje en vez de escribir otro
+        private final Cache<String, CompletableFuture<MessageDto>> sends = Caffeine.newBuilder()
+                        .maximumSize(100_000)
+                        .expireAfterWrite(Duration.ofMinutes(10))
+                        .build();
+
+        /**
+         * Página del historial por cursor de mensaje: sin cursor, los
+         * {@code size} más recientes; con {@code before}, los anteriores; con
+         * {@code after}, los posteriores. El contenido va siempre del más
+         * viejo al más nuevo y {@code nextCursor} es el id desde el que seguir
+         * en la misma dirección.
+         */
         @Transactional(readOnly = true)
-        public List<MessageDto> getMessages(Long friendId) {
+        public CursorSliceDto<MessageDto> getMessages(Long friendId, Long before, Long after, int size) {
+
+                if (before != null && after != null) {
+                        throw new BadRequestException("No se puede combinar before y after");
+                }
 
                 User me = authService.getCurrentUser();
+                Pageable pageable = PageRequest.of(0, Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+
+                // Chat activo: la página más nueva sale de memoria si la ventana
+                // llega hasta el último mensaje que registra la base. La amistad
+                // se valida contra el grafo en memoria
+                if (before == null && after == null) {
+                        Optional<ConversationCache.Page> cached = conversationCache.latest(
+                                        friendId, me.getId(), pageable.getPageSize(),
+                                        () -> friendService.getLastMessageId(friendId));
+                        if (cached.isPresent() && friendGraph.areFriends(
+                                        cached.get().lowUserId(), cached.get().highUserId())) {
+                                return toDtoSlice(cached.get().ascending(), cached.get().hasOlder(), 0);
+                        }
+                }
+
                 Friend friend = friendService.getAcceptedFriendForUser(friendId, me);
 
-                return messageRepository.findByFriendOrderBySentAtAsc(friend)
-                                .stream()
-                                .map(this::toDto)
-                                .toList();
+                if (after != null) {
+                        requireInChat(after, friend);
+                        Slice<Message> newer = messageRepository.findAfter(friend.getId(), after, pageable);
+                        List<Message> ascending = newer.getContent();
+                        // hacia adelante se sigue desde el más nuevo de la página
+                        return toSlice(ascending, newer.hasNext(), ascending.size() - 1);
+                }
+
+                if (before != null) {
+                        requireInChat(before, friend);
+                        Slice<Message> older = messageRepository.findBefore(friend.getId(), before, pageable);
+                        List<Message> ascending = new ArrayList<>(older.getContent());
+                        Collections.reverse(ascending);
+
+                        // hacia atrás se sigue desde el más viejo de la página
+                        return toSlice(ascending, older.hasNext(), 0);
+                }
+
+                return latestFromDb(friend, pageable.getPageSize());
         }
 
-        @Transactional
+        /**
+         * Página más nueva desde la base. Se leen al menos los mensajes que
+         * entran en la ventana del chat y se cargan en memoria para las
+         * próximas lecturas.
+         */
+        private CursorSliceDto<MessageDto> latestFromDb(Friend friend, int size) {
+                Slice<Message> latest = messageRepository.findLatest(
+                                friend.getId(), PageRequest.of(0, Math.max(size, conversationCache.capacity())));
+
+                List<MessageDto> ascending = new ArrayList<>(latest.getContent().stream().map(this::toDto).toList());
+                Collections.reverse(ascending);
+                conversationCache.onLoaded(friend.getId(), friend.getLowUserId(), friend.getHighUserId(),
+                                ascending, !latest.hasNext());
+
+                List<MessageDto> page = ascending.subList(Math.max(0, ascending.size() - size), ascending.size());
+                return toDtoSlice(page, latest.hasNext() || ascending.size() > size, 0);
+        }
+
+        /**
+         * Lo que falta en cada chat desde el último mensaje visto, en una sola
+         * query para todos (reconexión del cliente).
+         */
+        @Transactional(readOnly = true)
+        public ChatSyncDto sync(Map<Long, Long> lastSeen) {
+
+                UUID me = authService.getCurrentUserId();
+                friendService.getAcceptedFriendsForUser(lastSeen.keySet(), me);
+
+                Map<Long, List<MessageDto>> byChat = new LinkedHashMap<>();
+                lastSeen.keySet().forEach(chatId -> byChat.put(chatId, new ArrayList<>()));
+                for (MessageDto m : chatSyncQuery.missing(lastSeen, MAX_SYNC_PER_CHAT + 1)) {
+                        byChat.get(m.friendId()).add(m);
+                }
+
+                List<Long> truncated = new ArrayList<>();
+                byChat.forEach((chatId, messages) -> {
+                        if (messages.size() > MAX_SYNC_PER_CHAT) {
+                                messages.subList(MAX_SYNC_PER_CHAT, messages.size()).clear();
+                                truncated.add(chatId);
+                        }
+                });
+
+                return new ChatSyncDto(byChat, truncated);
+        }
+
+        /**
+         * Envía un mensaje y lo entrega a los dos usuarios del chat.
+         *
+         * Fuera de una transacción (el caso normal, desde el controller) el
+         * mensaje se escribe en batch con {@link MessageWriter} y se entrega
+         * por WebSocket cuando el writer lo confirma: solo sale lo que ya es
+         * durable. Si la confirmación no llega a tiempo se responde 503, pero
+         * la entrega queda enganchada al writer y ocurre igual si el mensaje
+         * se termina escribiendo. Con {@code clientMessageId}, el reintento
+         * de ese 503 devuelve el mismo mensaje en vez de escribir otro.
+         *
+         * Dentro de una transacción del llamador se escribe en ella, para que
+         * quede atómico con lo demás que haga.
+         */
         public MessageDto sendMessage(Long friendId, String content) {
+                return sendMessage(friendId, content, null);
+        }
+
+        public MessageDto sendMessage(Long friendId, String content, String clientMessageId) {
 
                 if (content == null || content.isBlank()) {
                         throw new BadRequestException("Mensaje vacío");
                 }
 
+                Participants chat = transactionTemplate.execute(status -> participants(friendId));
+
+                String sendKey = clientMessageId == null ? null : chat.sender().getId() + ":" + clientMessageId;
+                CompletableFuture<MessageDto> previous = sendKey == null ? null : sends.getIfPresent(sendKey);
+                if (previous != null) {
+                        return awaitDurable(previous); // reintento: el mismo envío
+                }
+
+                chatRateLimiter.check(ChatRateLimiter.Kind.PRIVATE, chat.sender().getUsername());
+
+                MessageDto dto;
+                if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                        // el id se toma con el chat bloqueado (orden de commit) y el
+                        // flush lo inserta antes del UPDATE de friends que lo referencia
+                        friendService.lockChat(friendId);
+                        Message message = messageRepository.saveAndFlush(Message.builder()
+                                        .friend(chat.friend())
+                                        .sender(chat.sender())
+                                        .content(content)
+                                        .sentAt(Instant.now())
+                                        .build());
+                        friendService.touchChat(friendId, message.getId(), message.getSentAt());
+                        dto = toDto(message);
+                } else {
+                        return awaitDurable(submit(chat, content, sendKey));
+                }
+
+                deliver(chat, dto);
+                return dto;
+        }
+
+        // La entrega va atada a la confirmación del writer, no al request
+        private CompletableFuture<MessageDto> submit(Participants chat, String content, String sendKey) {
+                CompletableFuture<MessageDto> send = new CompletableFuture<>();
+                if (sendKey != null) {
+                        CompletableFuture<MessageDto> raced = sends.asMap().putIfAbsent(sendKey, send);
+                        if (raced != null) {
+                                return raced;
+                        }
+                }
+
+                try {
+                        messageWriter.submit(chat.friend().getId(), chat.sender().getId(), content)
+                                        .whenComplete((written, error) -> {
+                                                if (error != null) {
+                                                        send.completeExceptionally(error);
+                                                        return;
+                                                }
+                                                MessageDto dto = toDto(written, chat.sender());
+                                                try {
+                                                        deliver(chat, dto);
+                                                } catch (RuntimeException e) {
+                                                        // ya es durable: el cliente lo ve en el próximo sync
+                                                        log.warn("No se pudo entregar el mensaje {}", dto.id(), e);
+                                                }
+                                                send.complete(dto);
+                                        });
+                } catch (RuntimeException e) {
+                        send.completeExceptionally(e); // cola llena: no se escribió
+                }
+
+                // lo que no se escribió se puede reintentar con la misma clave
+                send.whenComplete((dto, error) -> {
+                        if (error != null && sendKey != null) {
+                                sends.asMap().remove(sendKey, send);
+                        }
+                });
+                return send;
+        }
+
+        // Con transacción del llamador, todo esto corre al confirmarla
+        private void deliver(Participants chat, MessageDto dto) {
+                unreadCounters.onMessageSent(dto.friendId(), chat.recipient().getId());
+                conversationCache.onSent(dto.friendId(), chat.friend().getLowUserId(),
+                                chat.friend().getHighUserId(), dto);
+
+                // Para el replay al reconectar
+                recentMessages.onDelivered(chat.recipient().getUsername(), dto);
+                recentMessages.onDelivered(chat.sender().getUsername(), dto);
+
+                afterCommit(() -> {
+                        messagingTemplate.convertAndSendToUser(
+                                        chat.recipient().getUsername(),
+                                        "/queue/messages",
+                                        dto);
+
+                        messagingTemplate.convertAndSendToUser(
+                                        chat.sender().getUsername(),
+                                        "/queue/messages",
+                                        dto);
+                });
+        }
+
+        private Participants participants(Long friendId) {
                 User sender = authService.getCurrentUser();
                 Friend friend = friendService.getAcceptedFriendForUser(friendId, sender);
 
@@ -49,28 +307,60 @@ public class MessageService {
                                 ? friend.getReceiver()
                                 : friend.getRequester();
 
-                Message message = Message.builder()
-                                .friend(friend)
-                                .sender(sender)
-                                .content(content)
-                                .sentAt(Instant.now())
-                                .build();
+                // se inicializan acá: después se usan fuera de la transacción
+                Hibernate.initialize(recipient);
+                return new Participants(friend, sender, recipient);
+        }
+
+        private MessageDto awaitDurable(CompletableFuture<MessageDto> pending) {
+                try {
+                        return pending.get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                        throw new ServiceUnavailableException("El mensaje no se pudo confirmar a tiempo");
+                } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new ServiceUnavailableException("El mensaje no se pudo confirmar a tiempo");
+                } catch (ExecutionException e) {
+                        if (e.getCause() instanceof RuntimeException cause) {
+                                throw cause;
+                        }
+                        throw new IllegalStateException(e.getCause());
+                }
+        }
+
+        private void requireInChat(Long messageId, Friend friend) {
+                if (!messageRepository.existsByIdAndFriendId(messageId, friend.getId())) {
+                        throw new BadRequestException("El mensaje no pertenece a este chat");
+                }
+        }
 
-                message = messageRepository.save(message);
+        private CursorSliceDto<MessageDto> toSlice(List<Message> ascending, boolean hasNext, int nextFrom) {
+                return toDtoSlice(ascending.stream().map(this::toDto).toList(), hasNext, nextFrom);
+        }
 
-                MessageDto dto = toDto(message);
+        private static CursorSliceDto<MessageDto> toDtoSlice(List<MessageDto> ascending, boolean hasNext,
+                        int nextFrom) {
+                String next = hasNext && !ascending.isEmpty()
+                                ? String.valueOf(ascending.get(nextFrom).id())
+                                : null;
 
-                messagingTemplate.convertAndSendToUser(
-                                recipient.getUsername(),
-                                "/queue/messages",
-                                dto);
+                return new CursorSliceDto<>(
+                                List.copyOf(ascending),
+                                ascending.size(),
+                                hasNext,
+                                next);
+        }
 
-                messagingTemplate.convertAndSendToUser(
+        private MessageDto toDto(MessageWriter.NewMessage m, User sender) {
+                return new MessageDto(
+                                m.id(),
+                                m.friendId(),
+                                sender.getId(),
                                 sender.getUsername(),
-                                "/queue/messages",
-                                dto);
-
-                return dto;
+                                sender.getDisplayName(),
+                                "/api/v1/avatars/" + sender.getAvatarKey(),
+                                m.content(),
+                                m.sentAt());
         }
 
         private MessageDto toDto(Message m) {
@@ -84,4 +374,7 @@ public class MessageService {
                                 m.getContent(),
                                 m.getSentAt());
         }
+
+        private record Participants(Friend friend, User sender, User recipient) {
+        }
 }
@@ -0,0 +1,338 @@
+package org.example.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+import org.example.dto.PostDto;
+import org.example.entity.Post;
+import org.example.entity.Privacy;
+import org.example.entity.User;
+import org.example.exception.customs.httpstatus.NotFoundException;
+import org.example.repository.PostLikeRepository;
+import org.example.repository.PostRepository;
+import org.example.repository.UserRepository;
+import org.example.service.cache.CacheInvalidationService;
+import org.example.service.cache.PostSnapshot;
+import org.example.service.cache.PostViewerOverlay;
+import org.example.service.feed.FeedQueryEngine;
+import org.example.service.graph.FriendGraphService;
+import org.example.service.like.LikeBuffer;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Lecturas cacheadas de posts.
+ *
+ * Viven en un bean aparte de {@link PostService} para que las llamadas pasen
+ * por el proxy de Spring (transacción de solo lectura). Los caches se llenan
+ * a mano con {@link CacheInvalidationService#put}: las dependencias quedan
+ * registradas antes de escribir y un valor leído durante una invalidación
+ * no queda cacheado, cosa que {@code @Cacheable} no permite.
+ *
+ * Post por id y posts de un usuario usan dos capas: un {@link PostSnapshot}
+ * compartido por post y un {@link PostViewerOverlay} chico por viewer (liked,
+ * visibilidad). Las páginas de un autor se guardan como ids por alcance
+ * (propio, amigo, resto), no por viewer. Todo se combina al responder.
+ */
+@Service
+@RequiredArgsConstructor
+public class PostReadService {
+
+    private final PostRepository postRepo;
+    private final UserRepository userRepo;
+    private final FriendGraphService friendGraph;
+    private final PostLikeRepository postLikeRepository;
+    private final PostStatsLoader postStatsLoader;
+    private final CacheInvalidationService cacheInvalidation;
+    private final CacheManager cacheManager;
+    private final LikeBuffer likeBuffer;
+    private final FeedQueryEngine feedQuery;
+
+    // -------------------------------------------------------
+    // POST POR ID (snapshot compartido + capa del viewer)
+    // -------------------------------------------------------
+
+    @Transactional(readOnly = true)
+    public PostDto getPostById(UUID postId, UUID viewerId) {
+        PostSnapshot snapshot = requireSnapshot(postId);
+
+        PostViewerOverlay overlay = overlay(snapshot, viewerId);
+        if (!overlay.visible()) {
+            throw new AccessDeniedException("No tenés permiso para ver este post");
+        }
+
+        return combine(snapshot, overlay, viewerId);
+    }
+
+    // -------------------------------------------------------
+    // FEED
+    // -------------------------------------------------------
+
+    @SuppressWarnings("unchecked")
+    @Transactional(readOnly = true)
+    public Page<PostDto> getFeed(UUID userId, int page, int size) {
+        String key = userId + "-" + page + "-" + size;
+        Cache.ValueWrapper cached = cache(CacheInvalidationService.FEEDS).get(key);
+        if (cached != null) {
+            return (Page<PostDto>) cached.get();
+        }
+
+        long stamp = cacheInvalidation.stamp();
+        Page<UUID> ids = feedQuery.page(userId, PageRequest.of(page, size));
+        Page<PostDto> result = toDtoPage(hydrate(ids), userId);
+
+        List<String> tags = postTags(result);
+        tags.add(CacheInvalidationService.feedTag(userId));
+        if (page == 0) {
+            tags.add(CacheInvalidationService.feedHeadTag());
+        }
+        cacheInvalidation.put(CacheInvalidationService.FEEDS, key, result, tags, stamp);
+
+        return result;
+    }
+
+    // -------------------------------------------------------
+    // POSTS DE UN USUARIO (ids por alcance + snapshots + capa del viewer)
+    // -------------------------------------------------------
+
+    @Transactional(readOnly = true)
+    public Page<PostDto> getPostsByUsername(String username, UUID viewerId, int page, int size) {
+
+        User author = userRepo.findByUsernameIgnoreCase(username.trim())
+                .orElseThrow(() -> new NotFoundException("Usuario no encontrado: " + username));
+
+        Page<UUID> ids = postIdsByAuthor(author.getId(), scopeOf(author.getId(), viewerId), page, size);
+
+        Map<UUID, PostSnapshot> snapshots = snapshots(ids.getContent());
+        Map<UUID, PostViewerOverlay> overlays = listedOverlays(snapshots.values(), viewerId);
+
+        // Un post borrado entre el cache de ids y el snapshot se saltea
+        List<PostDto> content = ids.getContent().stream()
+                .filter(snapshots::containsKey)
+                .map(id -> combine(snapshots.get(id), overlays.get(id), viewerId))
+                .toList();
+
+        return new PageImpl<>(content, ids.getPageable(), ids.getTotalElements());
+    }
+
+    // -------------------------------------------------------
+    // VISIBILIDAD
+    // -------------------------------------------------------
+
+    // Chequeo desde las capas del cache (sin cargar el Post)
+    @Transactional(readOnly = true)
+    public boolean canView(UUID postId, UUID viewerId) {
+        return overlay(requireSnapshot(postId), viewerId).visible();
+    }
+
+    public boolean canView(Post post, User currentUser) {
+        return canView(post.getUser().getId(), post.getPrivacy(), currentUser.getId());
+    }
+
+    private boolean canView(UUID authorId, Privacy privacy, UUID viewerId) {
+
+        if (privacy == Privacy.PUBLIC)
+            return true;
+
+        if (authorId.equals(viewerId))
+            return true;
+
+        if (privacy == Privacy.PRIVATE)
+            return false;
+
+        return friendGraph.areFriends(authorId, viewerId);
+    }
+
+    // Qué privacidades ve un viewer en los posts de un autor
+    private enum Scope {
+        SELF(EnumSet.allOf(Privacy.class)),
+        FRIEND(EnumSet.of(Privacy.PUBLIC, Privacy.FRIENDS)),
+        OTHER(EnumSet.of(Privacy.PUBLIC));
+
+        private final Set<Privacy> privacies;
+
+        Scope(Set<Privacy> privacies) {
+            this.privacies = privacies;
+        }
+    }
+
+    private Scope scopeOf(UUID authorId, UUID viewerId) {
+        if (authorId.equals(viewerId)) {
+            return Scope.SELF;
+        }
+        return friendGraph.areFriends(authorId, viewerId) ? Scope.FRIEND : Scope.OTHER;
+    }
+
+    // -------------------------------------------------------
+    // CAPAS DEL CACHE
+    // -------------------------------------------------------
+
+    // Página de ids compartida por todos los viewers con el mismo alcance
+    @SuppressWarnings("unchecked")
+    private Page<UUID> postIdsByAuthor(UUID authorId, Scope scope, int page, int size) {
+        Cache cache = cache(CacheInvalidationService.POSTS_BY_USER);
+        String key = authorId + "-" + scope + "-" + page + "-" + size;
+
+        Cache.ValueWrapper cached = cache.get(key);
+        if (cached != null) {
+            return (Page<UUID>) cached.get();
+        }
+
+        long stamp = cacheInvalidation.stamp();
+        Page<UUID> ids = postRepo.findIdsByAuthorAndPrivacyIn(authorId, scope.privacies, PageRequest.of(page, size));
+        cacheInvalidation.put(CacheInvalidationService.POSTS_BY_USER, key, ids,
+                List.of(CacheInvalidationService.authorTag(authorId)), stamp);
+        return ids;
+    }
+
+    // Snapshots por id; los que faltan se cargan juntos (post + contadores)
+    private Map<UUID, PostSnapshot> snapshots(List<UUID> ids) {
+        Cache cache = cache(CacheInvalidationService.POST_SNAPSHOTS);
+        Map<UUID, PostSnapshot> result = new LinkedHashMap<>();
+        List<UUID> missing = new ArrayList<>();
+
+        for (UUID id : ids) {
+            PostSnapshot snapshot = cache.get(id, PostSnapshot.class);
+            if (snapshot != null) {
+                result.put(id, snapshot);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long stamp = cacheInvalidation.stamp();
+            List<Post> posts = postRepo.findAllWithAuthorByIdIn(missing);
+            PostStatsLoader.PageStats stats = postStatsLoader.loadCounts(posts);
+            for (Post post : posts) {
+                PostSnapshot snapshot = PostSnapshot.from(post,
+                        stats.commentCounts().getOrDefault(post.getId(), 0L),
+                        stats.likeCounts().getOrDefault(post.getId(), 0L));
+                cacheInvalidation.put(CacheInvalidationService.POST_SNAPSHOTS, post.getId(), snapshot,
+                        List.of(CacheInvalidationService.postTag(post.getId())), stamp);
+                result.put(post.getId(), snapshot);
+            }
+        }
+        return result;
+    }
+
+    private PostViewerOverlay overlay(PostSnapshot snapshot, UUID viewerId) {
+        Cache cache = cache(CacheInvalidationService.POST_OVERLAYS);
+        String key = snapshot.id() + "-" + viewerId;
+
+        PostViewerOverlay overlay = cache.get(key, PostViewerOverlay.class);
+        if (overlay != null) {
+            return overlay;
+        }
+
+        long stamp = cacheInvalidation.stamp();
+        boolean visible = canView(snapshot.authorId(), snapshot.privacy(), viewerId);
+        boolean liked = visible
+                && !postLikeRepository.findLikedPostIds(viewerId, List.of(snapshot.id())).isEmpty();
+
+        overlay = new PostViewerOverlay(visible, liked);
+        putOverlay(key, snapshot, viewerId, overlay, stamp);
+        return overlay;
+    }
+
+    // Posts ya filtrados por alcance: visibles; "liked" de los que faltan en una query
+    private Map<UUID, PostViewerOverlay> listedOverlays(Collection<PostSnapshot> snapshots, UUID viewerId) {
+        Cache cache = cache(CacheInvalidationService.POST_OVERLAYS);
+        Map<UUID, PostViewerOverlay> result = new HashMap<>();
+        List<PostSnapshot> missing = new ArrayList<>();
+
+        for (PostSnapshot snapshot : snapshots) {
+            PostViewerOverlay overlay = cache.get(snapshot.id() + "-" + viewerId, PostViewerOverlay.class);
+            if (overlay != null) {
+                result.put(snapshot.id(), overlay);
+            } else {
+                missing.add(snapshot);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long stamp = cacheInvalidation.stamp();
+            Set<UUID> liked = new HashSet<>(postLikeRepository.findLikedPostIds(viewerId,
+                    missing.stream().map(PostSnapshot::id).toList()));
+            for (PostSnapshot snapshot : missing) {
+                PostViewerOverlay overlay = new PostViewerOverlay(true, liked.contains(snapshot.id()));
+                putOverlay(snapshot.id() + "-" + viewerId, snapshot, viewerId, overlay, stamp);
+                result.put(snapshot.id(), overlay);
+            }
+        }
+        return result;
+    }
+
+    // La capa del viewer cae con el post (likes) y con la amistad autor-viewer
+    private void putOverlay(String key, PostSnapshot snapshot, UUID viewerId, PostViewerOverlay overlay,
+            long stamp) {
+        cacheInvalidation.put(CacheInvalidationService.POST_OVERLAYS, key, overlay, List.of(
+                CacheInvalidationService.postTag(snapshot.id()),
+                CacheInvalidationService.pairTag(snapshot.authorId(), viewerId)), stamp);
+    }
+
+    private PostSnapshot requireSnapshot(UUID postId) {
+        PostSnapshot snapshot = snapshots(List.of(postId)).get(postId);
+        if (snapshot == null) {
+            throw new NotFoundException("Post no encontrado");
+        }
+        return snapshot;
+    }
+
+    // Las capas guardan el estado de la base; los likes en el buffer se
+    // aplican al responder
+    private PostDto combine(PostSnapshot snapshot, PostViewerOverlay overlay, UUID viewerId) {
+        boolean liked = likeBuffer.pendingState(snapshot.id(), viewerId).orElse(overlay.liked());
+        return snapshot.toDto(liked, likeBuffer.pendingDelta(snapshot.id()));
+    }
+
+    private Cache cache(String name) {
+        return Objects.requireNonNull(cacheManager.getCache(name), name);
+    }
+
+    // --- Helpers ---
+
+    // Stats de toda la página en queries agrupadas (constante por página)
+    private Page<PostDto> toDtoPage(Page<Post> posts, UUID viewerId) {
+        PostStatsLoader.PageStats stats = postStatsLoader.load(posts.getContent(), viewerId);
+        return posts.map(stats::toDto);
+    }
+
+    // Ids del feed -> posts en una sola query, respetando el orden
+    private Page<Post> hydrate(Page<UUID> ids) {
+        Map<UUID, Post> byId = new HashMap<>();
+        for (Post post : postRepo.findAllWithAuthorByIdIn(ids.getContent())) {
+            byId.put(post.getId(), post);
+        }
+        // Si un post se borró entre las dos queries, se saltea
+        List<Post> posts = ids.getContent().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(posts, ids.getPageable(), ids.getTotalElements());
+    }
+
+    // Un tag por post de la página (comentarios/likes/borrado lo invalidan)
+    private static List<String> postTags(Page<PostDto> page) {
+        List<String> tags = new ArrayList<>();
+        page.forEach(dto -> tags.add(CacheInvalidationService.postTag(dto.getId())));
+        return tags;
+    }
+}
@@ -1,49 +1,63 @@
 package org.example.service;
 
 import lombok.RequiredArgsConstructor;
+import org.example.dto.CursorSliceDto;
+import org.example.dto.FeedCursor;
 import org.example.dto.PostDto;
+import org.example.dto.TimelineEntry;
 import org.example.entity.*;
 import org.example.exception.customs.httpstatus.BadRequestException;
 import org.example.exception.customs.httpstatus.ForbiddenException;
 import org.example.exception.customs.httpstatus.NotFoundException;
-import org.example.repository.FriendRepository;
 import org.example.repository.PostLikeRepository;
 import org.example.repository.PostRepository;
 import org.example.repository.UserRepository;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.example.service.cache.CacheInvalidationService;
+import org.example.service.feed.FeedQueryEngine;
+import org.example.service.feed.TimelineService;
+import org.example.service.like.LikeBuffer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import jakarta.persistence.EntityNotFoundException;
-
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class PostService {
 
+    private static final int MAX_SLICE_SIZE = 50;
+
     private final PostRepository postRepo;
     private final UserRepository userRepo;
     private final FileService fileService;
-    private final FriendRepository friendRepo;
     private final StorageService storageService;
     private final AuthService authService;
     private final PostLikeRepository postLikeRepository;
+    private final PostStatsLoader postStatsLoader;
+    private final TimelineService timelineService;
+    private final CacheInvalidationService cacheInvalidation;
+    private final PostReadService postReadService;
+    private final LikeBuffer likeBuffer;
+    private final FeedQueryEngine feedQuery;
 
     // -------------------------------------------------------
     // CREATE POST
     // -------------------------------------------------------
 
-    @CacheEvict(value = { "feeds", "postsByUser", "posts" }, allEntries = true)
     @Transactional
     public PostDto createPost(String content, Privacy privacy, MultipartFile file) throws IOException {
 
@@ -65,66 +79,30 @@ public class PostService {
             FileMetadata meta = fileService.uploadForPost(file, author, saved);
             saved.setFileMetadata(meta);
         }
-        long count = postRepo.countComments(post.getId());
-        long likeCount = postLikeRepository.countByPost(post);
-        boolean liked = postLikeRepository.existsByPostAndUser(post, author);
 
-        return PostDto.from(post, count, likeCount, liked);
+        timelineService.onPostCreated(saved);
+        cacheInvalidation.onPostCreated(saved);
+        // Post recién creado: todavía sin comentarios ni likes
+        return PostDto.from(saved, 0, 0, false);
 
     }
 
     // -------------------------------------------------------
-    // GET POST BY ID (PROXY + CACHEADO)
+    // GET POST BY ID (CACHEADO EN PostReadService)
     // -------------------------------------------------------
 
-    @Transactional(readOnly = true)
     public PostDto getPostById(UUID postId) {
         UUID userId = authService.getCurrentUserId();
-        return getPostByIdCached(postId, userId);
-    }
-
-    @Cacheable(value = "posts", key = "#postId + '-' + #userId")
-    @Transactional(readOnly = true)
-    public PostDto getPostByIdCached(UUID postId, UUID userId) {
-        User currentUser = userRepo.getReferenceById(userId);
-
-        Post post = postRepo.findById(postId)
-                .orElseThrow(() -> new NotFoundException("Post no encontrado"));
-
-        if (!canView(post, currentUser)) {
-            throw new AccessDeniedException("No tenés permiso para ver este post");
-        }
-
-        long count = postRepo.countComments(post.getId());
-        long likeCount = postLikeRepository.countByPost(post);
-        boolean liked = postLikeRepository.existsByPostAndUser(post, currentUser);
-
-        return PostDto.from(post, count, likeCount, liked);
-
+        return postReadService.getPostById(postId, userId);
     }
 
     // -------------------------------------------------------
-    // FEED (PROXY + CACHEADO)
+    // FEED (CACHEADO EN PostReadService)
     // -------------------------------------------------------
 
     public Page<PostDto> getFeed(int page, int size) {
         UUID userId = authService.getCurrentUserId();
-        return getFeedCached(userId, page, size);
-    }
-
-    @Cacheable(value = "feeds", key = "#userId + '-' + #page + '-' + #size")
-    @Transactional(readOnly = true)
-    public Page<PostDto> getFeedCached(UUID userId, int page, int size) {
-        User currentUser = userRepo.getReferenceById(userId);
-        Pageable pageable = PageRequest.of(page, size);
-        return postRepo.findFeed(currentUser, pageable).map(post -> {
-            long count = postRepo.countComments(post.getId());
-            long likeCount = postLikeRepository.countByPost(post);
-            boolean liked = postLikeRepository.existsByPostAndUser(post, currentUser);
-
-            return PostDto.from(post, count, likeCount, liked);
-
-        });
+        return postReadService.getFeed(userId, page, size);
     }
 
     // -------------------------------------------------------
@@ -138,64 +116,68 @@ public class PostService {
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
 
-        return postRepo.findByUser(currentUser, pageable).map(post -> {
-            long count = postRepo.countComments(post.getId());
-            long likeCount = postLikeRepository.countByPost(post);
-            boolean liked = postLikeRepository.existsByPostAndUser(post, currentUser);
-
-            return PostDto.from(post, count, likeCount, liked);
-
-        });
+        return toDtoPage(postRepo.findByUser(currentUser, pageable), currentUser.getId());
     }
 
     // -------------------------------------------------------
-    // POSTS DE OTRO USUARIO (PROXY + CACHEADO)
+    // POSTS DE OTRO USUARIO (CACHEADO EN PostReadService)
     // -------------------------------------------------------
 
     public Page<PostDto> getPostsByUsername(String username, int page, int size) {
         UUID viewerId = authService.getCurrentUserId();
-        return getPostsByUsernameCached(username, viewerId, page, size);
+        return postReadService.getPostsByUsername(username, viewerId, page, size);
     }
 
-    @Cacheable(value = "postsByUser", key = "#username + '-' + #viewerId + '-' + #page + '-' + #size")
-    @Transactional(readOnly = true)
-    public Page<PostDto> getPostsByUsernameCached(
-            String username, UUID viewerId, int page, int size) {
+    // -------------------------------------------------------
+    // KEYSET (CURSOR): latencia constante sin importar la profundidad
+    // -------------------------------------------------------
 
-        User viewer = userRepo.getReferenceById(viewerId);
+    @Transactional(readOnly = true)
+    public CursorSliceDto<PostDto> getFeedByCursor(String cursor, int size) {
+        UUID userId = authService.getCurrentUserId();
+        FeedCursor from = FeedCursor.decode(cursor);
+        int limit = sliceRequest(size).getPageSize();
 
-        User author = userRepo.findByUsernameIgnoreCase(username.trim())
-                .orElseThrow(() -> new NotFoundException("Usuario no encontrado: " + username));
+        // Timeline en memoria: lookup por clave + hidratación en lote
+        Optional<List<TimelineEntry>> entries = timelineService.homeTimeline(userId, from, limit + 1);
+        if (entries.isPresent()) {
+            return hydrate(entries.get(), limit, userId);
+        }
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
+        // Más allá de lo que hay en memoria: rangos keyset contra la base
+        return hydrate(feedQuery.before(userId, from, limit + 1), limit, userId);
+    }
 
+    @Transactional(readOnly = true)
+    public CursorSliceDto<PostDto> getMyPostsByCursor(String cursor, int size) {
         User currentUser = authService.getCurrentUser();
+        FeedCursor from = FeedCursor.decode(cursor);
 
-        if (author.getId().equals(viewerId)) {
-            return postRepo.findByUser(author, pageable).map(post -> {
-                long count = postRepo.countComments(post.getId());
-                long likeCount = postLikeRepository.countByPost(post);
-                boolean liked = postLikeRepository.existsByPostAndUser(post, currentUser);
+        return toDtoSlice(postRepo.findByUserBefore(
+                currentUser, from.createdAt(), from.id(), sliceRequest(size)), currentUser.getId());
+    }
 
-                return PostDto.from(post, count, likeCount, liked);
-            });
-        }
+    @Transactional(readOnly = true)
+    public CursorSliceDto<PostDto> getPostsByUsernameByCursor(String username, String cursor, int size) {
+        UUID viewerId = authService.getCurrentUserId();
+
+        User author = userRepo.findByUsernameIgnoreCase(username.trim())
+                .orElseThrow(() -> new NotFoundException("Usuario no encontrado: " + username));
 
-        return postRepo.findVisibleByUser(author, viewer, pageable).map(post -> {
-            long count = postRepo.countComments(post.getId());
-            long likeCount = postLikeRepository.countByPost(post);
-            boolean liked = postLikeRepository.existsByPostAndUser(post, currentUser);
+        FeedCursor from = FeedCursor.decode(cursor);
 
-            return PostDto.from(post, count, likeCount, liked);
+        Slice<Post> posts = author.getId().equals(viewerId)
+                ? postRepo.findByUserBefore(author, from.createdAt(), from.id(), sliceRequest(size))
+                : postRepo.findVisibleByUserBefore(author, viewerId, from.createdAt(), from.id(),
+                        sliceRequest(size));
 
-        });
+        return toDtoSlice(posts, viewerId);
     }
 
     // -------------------------------------------------------
     // DELETE POST
     // -------------------------------------------------------
 
-    @CacheEvict(value = { "feeds", "posts", "postsByUser" }, allEntries = true)
     @Transactional
     public void deletePost(UUID postId) {
         User currentUser = authService.getCurrentUser();
@@ -216,49 +198,79 @@ public class PostService {
             }
         }
 
+        timelineService.onPostDeleted(post);
+        cacheInvalidation.onPostDeleted(post);
         postRepo.delete(post);
     }
 
-    @Transactional
+    // Write-behind: el toggle queda en LikeBuffer y se escribe en batch
     public void toggleLike(UUID postId) {
-        User currentUser = authService.getCurrentUser();
-
-        Post post = postRepo.findById(postId)
-                .orElseThrow(() -> new EntityNotFoundException("Post no encontrado"));
+        UUID userId = authService.getCurrentUserId();
 
-        if (!canView(post, currentUser)) {
+        if (!postReadService.canView(postId, userId)) {
             throw new ForbiddenException("No tenés permiso para ver este post");
         }
 
-        postLikeRepository.findByPostAndUser(post, currentUser)
-                .ifPresentOrElse(
-                        postLikeRepository::delete,
-                        () -> postLikeRepository.save(
-                                PostLike.builder()
-                                        .post(post)
-                                        .user(currentUser)
-                                        .build()));
+        likeBuffer.toggle(postId, userId,
+                () -> postLikeRepository.existsByPostIdAndUserId(postId, userId));
     }
 
     // -------------------------------------------------------
     // HELPERS
     // -------------------------------------------------------
 
-    public boolean canView(Post post, User currentUser) {
+    // Stats de toda la página en queries agrupadas (constante por página)
+    private Page<PostDto> toDtoPage(Page<Post> posts, UUID viewerId) {
+        PostStatsLoader.PageStats stats = postStatsLoader.load(posts.getContent(), viewerId);
+        return posts.map(stats::toDto);
+    }
 
-        if (post.getPrivacy() == Privacy.PUBLIC)
-            return true;
+    private CursorSliceDto<PostDto> toDtoSlice(Slice<Post> posts, UUID viewerId) {
+        List<Post> content = posts.getContent();
+        PostStatsLoader.PageStats stats = postStatsLoader.load(content, viewerId);
+
+        String next = posts.hasNext() && !content.isEmpty()
+                ? FeedCursor.of(content.get(content.size() - 1)).encode()
+                : null;
+
+        return new CursorSliceDto<>(
+                content.stream().map(stats::toDto).toList(),
+                content.size(),
+                posts.hasNext(),
+                next);
+    }
 
-        if (post.getUser().getId().equals(currentUser.getId()))
-            return true;
+    private CursorSliceDto<PostDto> hydrate(List<TimelineEntry> entries, int limit, UUID viewerId) {
+        List<TimelineEntry> page = entries.subList(0, Math.min(limit, entries.size()));
 
-        if (post.getPrivacy() == Privacy.PRIVATE)
-            return false;
+        Map<UUID, Post> byId = postRepo.findAllWithAuthorByIdIn(
+                page.stream().map(TimelineEntry::postId).toList())
+                .stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
 
-        Optional<Friend> rel = friendRepo.findRelationBetween(currentUser, post.getUser());
+        // Si un post se borró entre el lookup y la hidratación, se saltea
+        List<Post> posts = page.stream()
+                .map(e -> byId.get(e.postId()))
+                .filter(Objects::nonNull)
+                .toList();
 
-        return rel.isPresent() &&
-                rel.get().getStatus() == Friend.FriendStatus.ACCEPTED;
+        PostStatsLoader.PageStats stats = postStatsLoader.load(posts, viewerId);
+        boolean hasNext = entries.size() > limit;
+
+        return new CursorSliceDto<>(
+                posts.stream().map(stats::toDto).toList(),
+                posts.size(),
+                hasNext,
+                hasNext ? page.get(page.size() - 1).toCursor().encode() : null);
+    }
+
+    // Sin orden: el ORDER BY (createdAt, id) está en la query
+    private static Pageable sliceRequest(int size) {
+        return PageRequest.of(0, Math.min(Math.max(size, 1), MAX_SLICE_SIZE));
+    }
+
+    public boolean canView(Post post, User currentUser) {
+        return postReadService.canView(post, currentUser);
     }
 
 }
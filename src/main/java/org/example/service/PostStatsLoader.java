@@ -0,0 +1,95 @@
+package org.example.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.example.dto.PostDto;
+import org.example.entity.Post;
+import org.example.repository.PostLikeRepository;
+import org.example.service.like.LikeBuffer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Arma comentarios, likes y el flag "liked" de una página entera de posts.
+ *
+ * Los contadores vienen de {@code post_stats}, que llega en el mismo select
+ * que el post (tabla secundaria de {@link Post}); lo único que se consulta
+ * aparte es el "liked" del viewer, con una sola query por página.
+ */
+@Component
+@RequiredArgsConstructor
+public class PostStatsLoader {
+
+    private final PostLikeRepository postLikeRepository;
+    private final LikeBuffer likeBuffer;
+
+    @Transactional(readOnly = true)
+    public PageStats load(Collection<Post> posts, UUID viewerId) {
+
+        if (posts.isEmpty()) {
+            return PageStats.EMPTY;
+        }
+
+        PageStats counts = loadCounts(posts);
+        Map<UUID, Long> likes = counts.likeCounts();
+        Set<UUID> liked = new HashSet<>(postLikeRepository.findLikedPostIds(viewerId, likes.keySet()));
+
+        // Likes todavía en el buffer (write-behind): base + pendiente
+        for (UUID id : likes.keySet()) {
+            long delta = likeBuffer.pendingDelta(id);
+            if (delta != 0) {
+                likes.merge(id, delta, Long::sum);
+            }
+            likeBuffer.pendingState(id, viewerId).ifPresent(state -> {
+                if (state) {
+                    liked.add(id);
+                } else {
+                    liked.remove(id);
+                }
+            });
+        }
+
+        return new PageStats(counts.commentCounts(), likes, liked);
+    }
+
+    // Solo contadores de la base (sin "liked" ni likes pendientes): para
+    // datos compartidos entre viewers que se cachean
+    public PageStats loadCounts(Collection<Post> posts) {
+
+        if (posts.isEmpty()) {
+            return PageStats.EMPTY;
+        }
+
+        Map<UUID, Long> comments = new HashMap<>();
+        Map<UUID, Long> likes = new HashMap<>();
+        for (Post post : posts) {
+            // sin fila (todavía no la creó el reconciliador): cero
+            comments.put(post.getId(), post.getCommentCount() == null ? 0L : post.getCommentCount());
+            likes.put(post.getId(), post.getLikeCount() == null ? 0L : post.getLikeCount());
+        }
+        return new PageStats(comments, likes, Set.of());
+    }
+
+    public record PageStats(
+            Map<UUID, Long> commentCounts,
+            Map<UUID, Long> likeCounts,
+            Set<UUID> likedPostIds) {
+
+        static final PageStats EMPTY = new PageStats(Map.of(), Map.of(), Set.of());
+
+        public PostDto toDto(Post post) {
+            UUID id = post.getId();
+            return PostDto.from(post,
+                    commentCounts.getOrDefault(id, 0L),
+                    likeCounts.getOrDefault(id, 0L),
+                    likedPostIds.contains(id));
+        }
+    }
+}
@@ -1,41 +1,153 @@
 package org.example.service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 
+import org.example.dto.CursorSliceDto;
 import org.example.dto.PublicMessageDto;
+import org.example.dto.PublicRoomDto;
+import org.example.entity.PublicMessage;
 import org.example.entity.User;
 import org.example.exception.customs.httpstatus.BadRequestException;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.example.repository.PublicMessageRepository;
+import org.example.service.chat.ChatRateLimiter;
+import org.example.service.chat.PublicBroadcaster;
+import org.example.service.chat.PublicChatLog;
+import org.example.service.chat.PublicRooms;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 
 @Service
 @RequiredArgsConstructor
 public class PublicChatService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final AuthService authService;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final PublicBroadcaster publicBroadcaster;
+    private final ChatRateLimiter chatRateLimiter;
+    private final PublicChatLog publicChatLog;
+    private final PublicRooms rooms;
+    private final PublicMessageRepository publicMessageRepository;
+    private final MeterRegistry meterRegistry;
+
+    public List<PublicRoomDto> getRooms() {
+        return rooms.names().stream()
+                .map(room -> new PublicRoomDto(room, PublicRooms.topic(room), rooms.occupancy(room),
+                        publicBroadcaster.isBatched(room)))
+                .toList();
+    }
 
-    public PublicMessageDto send(String content) {
+    /**
+     * Envía a una sala: solo la reciben las sesiones suscriptas a
+     * {@code /topic/public/{room}}. El historial se escribe después, en
+     * batch: el envío no espera a la base.
+     */
+    public PublicMessageDto send(String room, String content) {
 
         if (content == null || content.isBlank()) {
             throw new BadRequestException("Mensaje vacío");
         }
 
+        rooms.require(room);
         User sender = authService.getCurrentUser();
+        chatRateLimiter.check(ChatRateLimiter.Kind.PUBLIC, sender.getUsername());
 
-        PublicMessageDto dto = new PublicMessageDto(
+        PublicMessageDto dto = publicChatLog.append(new PublicMessageDto(
+                null,
+                room,
                 sender.getId(),
                 sender.getUsername(),
                 sender.getDisplayName(),
                 "/api/v1/avatars/" + sender.getAvatarKey(),
                 content.trim(),
-                Instant.now());
+                Instant.now()));
 
-        // 🔥 broadcast a TODOS
-        messagingTemplate.convertAndSend("/topic/public", dto);
+        // 🔥 broadcast a la sala (y a /topic/public si es la sala por defecto)
+        publicBroadcaster.publish(room, dto);
+
+        meterRegistry.counter("public-chat.room.messages", "room", room).increment();
+        meterRegistry.counter("public-chat.room.deliveries", "room", room).increment(rooms.occupancy(room));
 
         return dto;
     }
+
+    /**
+     * Historial por cursor de mensaje, igual que los chats privados: sin
+     * cursor, los más recientes; con {@code before}, los anteriores; con
+     * {@code after}, los posteriores (lo que se perdió un cliente que
+     * reconecta). Sale de memoria si el buffer lo cubre.
+     */
+    @Transactional(readOnly = true)
+    public CursorSliceDto<PublicMessageDto> getMessages(String room, Long before, Long after, int size) {
+
+        if (before != null && after != null) {
+            throw new BadRequestException("No se puede combinar before y after");
+        }
+        rooms.require(room);
+
+        Pageable pageable = PageRequest.of(0, Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+
+        if (after != null) {
+            Optional<PublicChatLog.Page> cached = publicChatLog.after(room, after, pageable.getPageSize());
+            count(cached);
+            return cached.map(page -> toSlice(page.ascending(), page.hasNext(), page.ascending().size() - 1))
+                    .orElseGet(() -> afterFromDb(room, after, pageable));
+        }
+
+        Optional<PublicChatLog.Page> cached = publicChatLog.before(room, before, pageable.getPageSize());
+        count(cached);
+        if (cached.isPresent()) {
+            return toSlice(cached.get().ascending(), cached.get().hasNext(), 0);
+        }
+
+        Slice<PublicMessage> older = before == null
+                ? publicMessageRepository.findLatest(room, pageable)
+                : publicMessageRepository.findBefore(room, before, pageable);
+
+        List<PublicMessageDto> ascending = new ArrayList<>(older.getContent().stream().map(PublicChatLog::toDto).toList());
+        Collections.reverse(ascending);
+        return toSlice(ascending, older.hasNext(), 0);
+    }
+
+    // Hueco más viejo que el buffer: la base, y al llegar al final lo que
+    // todavía no se escribió sale del buffer
+    private CursorSliceDto<PublicMessageDto> afterFromDb(String room, long after, Pageable pageable) {
+        Slice<PublicMessage> newer = publicMessageRepository.findAfter(room, after, pageable);
+        List<PublicMessageDto> ascending = new ArrayList<>(newer.getContent().stream().map(PublicChatLog::toDto).toList());
+        boolean hasNext = newer.hasNext();
+
+        if (!hasNext) {
+            long last = ascending.isEmpty() ? after : ascending.get(ascending.size() - 1).id();
+            Optional<PublicChatLog.Page> tail = publicChatLog.after(room, last,
+                    pageable.getPageSize() - ascending.size());
+            if (tail.isPresent()) {
+                ascending.addAll(tail.get().ascending());
+                hasNext = tail.get().hasNext();
+            }
+        }
+        return toSlice(ascending, hasNext, ascending.size() - 1);
+    }
+
+    private void count(Optional<PublicChatLog.Page> cached) {
+        meterRegistry.counter("public-chat.history", "source", cached.isPresent() ? "memory" : "db").increment();
+    }
+
+    private static CursorSliceDto<PublicMessageDto> toSlice(List<PublicMessageDto> ascending, boolean hasNext,
+            int nextFrom) {
+        String next = hasNext && !ascending.isEmpty()
+                ? String.valueOf(ascending.get(nextFrom).id())
+                : null;
+
+        return new CursorSliceDto<>(List.copyOf(ascending), ascending.size(), hasNext, next);
+    }
 }
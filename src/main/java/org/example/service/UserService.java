@@ -4,13 +4,13 @@ import lombok.RequiredArgsConstructor;
 import org.example.dto.FriendDto;
 import org.example.dto.FriendRequestDto;
 import org.example.dto.UserProfileDto;
-import org.example.entity.Friend;
 import org.example.entity.ThemeMode;
 import org.example.entity.User;
 import org.example.exception.customs.httpstatus.NotFoundException;
 import org.example.repository.FriendRepository;
 import org.example.repository.PostRepository;
 import org.example.repository.UserRepository;
+import org.example.service.graph.FriendGraphService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -27,6 +27,7 @@ public class UserService {
         private final FriendRepository friendRepository;
         private final AuthService authService;
         private final PostRepository postRepository;
+        private final FriendGraphService friendGraph;
 
         // ----------------- PERFIL PÚBLICO -----------------
 
@@ -67,24 +68,13 @@ public class UserService {
                 User profileUser = userRepository.findByUsernameIgnoreCase(username.trim())
                                 .orElseThrow(() -> new NotFoundException("Usuario no encontrado"));
 
-                // Obtener la relación de amistad entre ambos usuarios (bidireccional)
-                Optional<Friend> relationOpt = friendRepository.findRelationBetween(currentUser, profileUser);
-
-                boolean isFriend = false;
-                boolean sentRequest = false;
-                boolean receivedRequest = false;
-
-                if (relationOpt.isPresent()) {
-                        Friend rel = relationOpt.get();
-                        isFriend = rel.getStatus() == Friend.FriendStatus.ACCEPTED;
-                        sentRequest = rel.getRequester().equals(currentUser)
-                                        && rel.getStatus() == Friend.FriendStatus.PENDING;
-                        receivedRequest = rel.getReceiver().equals(currentUser)
-                                        && rel.getStatus() == Friend.FriendStatus.PENDING;
-                }
+                // Relación entre ambos usuarios desde el grafo en memoria (sin query)
+                boolean isFriend = friendGraph.areFriends(currentUser.getId(), profileUser.getId());
+                boolean sentRequest = friendGraph.hasPendingRequest(currentUser.getId(), profileUser.getId());
+                boolean receivedRequest = friendGraph.hasPendingRequest(profileUser.getId(), currentUser.getId());
 
                 long postCount = postRepository.countByUserId(profileUser.getId());
-                long friendCount = friendRepository.countFriends(profileUser.getId());
+                long friendCount = friendGraph.friendCount(profileUser.getId());
 
                 String avatarUrl = "/api/v1/avatars/" + profileUser.getAvatarKey();
                 String bio = Optional.ofNullable(profileUser.getBio()).orElse("");
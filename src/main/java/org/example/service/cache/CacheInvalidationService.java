@@ -0,0 +1,261 @@
+package org.example.service.cache;
+
+import static org.example.util.TransactionUtils.afterCommit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.example.entity.Post;
+import org.example.entity.Privacy;
+import org.example.repository.FriendRepository;
+import org.example.service.relay.ClusterEvents;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Invalidación dirigida de los caches de posts.
+ *
+ * Al llenar una entrada de cache se registra de qué depende (posts que
+ * contiene, autor, viewer, par de usuarios cuya amistad decide la
+ * visibilidad). Cada mutación evicta solo las entradas que dependen de lo
+ * que cambió, en vez de vaciar los caches completos.
+ *
+ * Las entradas se guardan con {@link #put}: primero se registran las
+ * dependencias y después se escribe, y si alguna de ellas se invalidó
+ * mientras se leía de la base ({@link #stamp()} tomado antes de leer) la
+ * entrada se descarta. Si el índice de dependencias pierde un tag por
+ * tamaño o vencimiento, se evictan también las entradas que colgaban de él:
+ * una entrada nunca queda cacheada sin su vínculo.
+ *
+ * Con varios nodos las evicciones se publican por {@link ClusterEvents}:
+ * cada nodo evicta los mismos tags en sus caches.
+ *
+ * Métricas: {@code cache.invalidations{cache, cause}} cuenta entradas
+ * evictadas por causa; los hits/misses por cache los publica Caffeine
+ * ({@code recordStats}) vía Actuator.
+ */
+@Service
+@RequiredArgsConstructor
+public class CacheInvalidationService {
+
+    public static final String FEEDS = "feeds";
+    public static final String POST_SNAPSHOTS = "postSnapshots";
+    public static final String POST_OVERLAYS = "postOverlays";
+    public static final String POSTS_BY_USER = "postsByUser";
+
+    private final CacheManager cacheManager;
+    private final FriendRepository friendRepo;
+    private final ClusterEvents clusterEvents;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${cache.invalidation.max-tags:100000}")
+    private long maxTags;
+
+    // tag de dependencia -> entradas de cache que dependen de él
+    private com.github.benmanes.caffeine.cache.Cache<String, Set<CacheRef>> dependents;
+
+    // tag -> momento (del reloj) de su última invalidación
+    private com.github.benmanes.caffeine.cache.Cache<String, Long> invalidatedAt;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        this.dependents = Caffeine.newBuilder()
+                .maximumSize(maxTags)
+                .expireAfterAccess(6, TimeUnit.MINUTES)
+                // en el mismo hilo: la entrada cae junto con su vínculo
+                .executor(Runnable::run)
+                .removalListener(this::onTagRemoved)
+                .build();
+        // una lectura de la base dura mucho menos que esto
+        this.invalidatedAt = Caffeine.newBuilder()
+                .expireAfterWrite(1, TimeUnit.MINUTES)
+                .build();
+
+        clusterEvents.subscribe(Evicted.class, e -> evict(e.cause(), e.tags()));
+        clusterEvents.onReconnect(this::clear);
+    }
+
+    // -------------------------------------------------------
+    // TAGS
+    // -------------------------------------------------------
+
+    public static String postTag(UUID postId) {
+        return "post:" + postId;
+    }
+
+    // Páginas de posts de un autor (postsByUser)
+    public static String authorTag(UUID authorId) {
+        return "author:" + authorId;
+    }
+
+    // Páginas de feed de un viewer
+    public static String feedTag(UUID viewerId) {
+        return "feed:" + viewerId;
+    }
+
+    // Primeras páginas de feed de todos los viewers
+    public static String feedHeadTag() {
+        return "feed:head";
+    }
+
+    // Visibilidad entre dos usuarios (orden canónico)
+    public static String pairTag(UUID a, UUID b) {
+        return a.compareTo(b) < 0 ? "pair:" + a + ":" + b : "pair:" + b + ":" + a;
+    }
+
+    // -------------------------------------------------------
+    // REGISTRO
+    // -------------------------------------------------------
+
+    // Se toma antes de leer de la base lo que se va a cachear
+    public long stamp() {
+        return clock.get();
+    }
+
+    /**
+     * Cachea {@code value} con sus dependencias. Si alguna se invalidó
+     * después de {@code stamp} el valor puede estar viejo y no queda en cache.
+     */
+    public void put(String cacheName, Object key, Object value, Collection<String> tags, long stamp) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return;
+        }
+        CacheRef ref = new CacheRef(cacheName, key);
+        for (String tag : tags) {
+            dependents.asMap().compute(tag, (t, refs) -> {
+                Set<CacheRef> next = refs == null ? ConcurrentHashMap.newKeySet() : refs;
+                next.add(ref);
+                return next;
+            });
+        }
+        cache.put(key, value);
+
+        for (String tag : tags) {
+            Long at = invalidatedAt.getIfPresent(tag);
+            if (at != null && at > stamp) {
+                cache.evict(key);
+                meterRegistry.counter("cache.invalidations", "cache", cacheName, "cause", "stale_put").increment();
+                return;
+            }
+        }
+    }
+
+    // -------------------------------------------------------
+    // MUTACIONES
+    // -------------------------------------------------------
+
+    public void onPostCreated(Post post) {
+        evictAfterCommit("post_created", tagsForNewOrDeleted(post));
+    }
+
+    public void onPostDeleted(Post post) {
+        List<String> tags = tagsForNewOrDeleted(post);
+        tags.add(postTag(post.getId()));
+        evictAfterCommit("post_deleted", tags);
+    }
+
+    public void onCommentChanged(UUID postId) {
+        evictAfterCommit("comment", List.of(postTag(postId)));
+    }
+
+    public void onLikeChanged(UUID postId) {
+        evictAfterCommit("like", List.of(postTag(postId)));
+    }
+
+    public void onStatsRepaired(UUID postId) {
+        evictAfterCommit("stats_repair", List.of(postTag(postId)));
+    }
+
+    public void onFriendshipChanged(UUID a, UUID b) {
+        evictAfterCommit("friendship", List.of(feedTag(a), feedTag(b), pairTag(a, b)));
+    }
+
+    // --- Helpers ---
+
+    // Un post nuevo o borrado corre las páginas del autor y el feed de quienes
+    // lo ven. Si es PUBLIC solo se evictan las primeras páginas de feed de
+    // todos: las siguientes pueden quedar corridas hasta que expiren.
+    private List<String> tagsForNewOrDeleted(Post post) {
+        UUID authorId = post.getUser().getId();
+
+        List<String> tags = new ArrayList<>();
+        tags.add(authorTag(authorId));
+        tags.add(feedTag(authorId));
+
+        if (post.getPrivacy() == Privacy.PUBLIC) {
+            tags.add(feedHeadTag());
+        } else if (post.getPrivacy() == Privacy.FRIENDS) {
+            friendRepo.findFriendIds(authorId).forEach(id -> tags.add(feedTag(id)));
+        }
+        return tags;
+    }
+
+    private void evictAfterCommit(String cause, List<String> tags) {
+        afterCommit(() -> evict(cause, tags));
+        clusterEvents.publish(new Evicted(cause, tags));
+    }
+
+    private void evict(String cause, List<String> tags) {
+        for (String tag : tags) {
+            // antes de sacar los vínculos: un put en curso lo ve y se descarta
+            invalidatedAt.put(tag, clock.incrementAndGet());
+            Set<CacheRef> refs = dependents.asMap().remove(tag);
+            if (refs != null) {
+                refs.forEach(ref -> evictRef(ref, cause));
+            }
+        }
+    }
+
+    // Evicciones perdidas (relay caído): se vacían los caches de posts
+    private void clear() {
+        for (String name : List.of(FEEDS, POST_SNAPSHOTS, POST_OVERLAYS, POSTS_BY_USER)) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+        dependents.invalidateAll();
+    }
+
+    // Tag perdido por tamaño o vencimiento: sus entradas no pueden quedar
+    // sin vínculo
+    private void onTagRemoved(String tag, Set<CacheRef> refs, RemovalCause cause) {
+        if (cause.wasEvicted() && refs != null) {
+            refs.forEach(ref -> evictRef(ref, "tag_evicted"));
+        }
+    }
+
+    private void evictRef(CacheRef ref, String cause) {
+        Cache cache = cacheManager.getCache(ref.cacheName());
+        if (cache != null && cache.evictIfPresent(ref.key())) {
+            meterRegistry.counter("cache.invalidations",
+                    "cache", ref.cacheName(),
+                    "cause", cause)
+                    .increment();
+        }
+    }
+
+    private record CacheRef(String cacheName, Object key) {
+    }
+
+    record Evicted(String cause, List<String> tags) {
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.service.cache;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.example.dto.FileMetadataDto;
+import org.example.dto.PostAuthorDto;
+import org.example.dto.PostDto;
+import org.example.entity.Post;
+import org.example.entity.Privacy;
+import org.example.entity.User;
+
+/**
+ * Capa compartida del cache de posts: todo lo que es igual para cualquier
+ * viewer (contenido, autor, archivo, contadores). Se guarda una vez por post.
+ */
+public record PostSnapshot(
+        UUID id,
+        String content,
+        Privacy privacy,
+        PostAuthorDto author,
+        FileMetadataDto file,
+        Instant createdAt,
+        long commentCount,
+        long likeCount) {
+
+    public static PostSnapshot from(Post post, long commentCount, long likeCount) {
+        User u = post.getUser();
+        return new PostSnapshot(
+                post.getId(),
+                post.getContent(),
+                post.getPrivacy(),
+                new PostAuthorDto(
+                        u.getId(),
+                        u.getUsername(),
+                        u.getDisplayName(),
+                        "/api/v1/avatars/" + u.getAvatarKey()),
+                post.getFileMetadata() != null
+                        ? FileMetadataDto.from(post.getFileMetadata())
+                        : null,
+                post.getCreatedAt(),
+                commentCount,
+                likeCount);
+    }
+
+    public UUID authorId() {
+        return author.id();
+    }
+
+    // Combina con la capa del viewer y los likes aún sin escribir; PostDto es
+    // mutable, se arma uno nuevo
+    public PostDto toDto(boolean liked, long pendingLikes) {
+        return PostDto.builder()
+                .id(id)
+                .content(content)
+                .privacy(privacy)
+                .author(author)
+                .file(file)
+                .createdAt(createdAt)
+                .commentCount(commentCount)
+                .likeCount(likeCount + pendingLikes)
+                .liked(liked)
+                .build();
+    }
+}
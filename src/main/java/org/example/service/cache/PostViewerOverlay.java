@@ -0,0 +1,7 @@
+package org.example.service.cache;
+
+/**
+ * Capa por viewer del cache de posts: solo lo que depende de quién mira.
+ */
+public record PostViewerOverlay(boolean visible, boolean liked) {
+}
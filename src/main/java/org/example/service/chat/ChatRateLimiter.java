@@ -0,0 +1,111 @@
+package org.example.service.chat;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.example.exception.customs.httpstatus.TooManyRequestsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Límites por usuario del chat, con buckets de bucket4j como
+ * {@code RateLimitingFilter} (que no mira {@code /ws/}).
+ *
+ * Un bucket por usuario y tipo: frames SEND por WebSocket, envíos al chat
+ * público y envíos a chats privados. Las infracciones de frames se cuentan
+ * por ventana ({@code strikes}): el interceptor corta la conexión cuando se
+ * acumulan.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChatRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger("security");
+
+    public enum Kind {
+        FRAMES("frames"),
+        PUBLIC("public"),
+        PRIVATE("private");
+
+        private final String tag;
+
+        Kind(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.rate-limit.window-seconds:10}")
+    private int windowSeconds;
+
+    // Frames SEND por sesión de usuario en la ventana
+    @Value("${chat.rate-limit.frames.limit:50}")
+    private int framesLimit;
+
+    // Mensajes (público o privado) por usuario en la ventana
+    @Value("${chat.rate-limit.send.limit:20}")
+    private int sendLimit;
+
+    private Cache<String, Bucket> buckets;
+
+    private Cache<String, AtomicInteger> strikes;
+
+    @PostConstruct
+    public void init() {
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(windowSeconds * 2L, TimeUnit.SECONDS)
+                .maximumSize(100_000)
+                .build();
+        this.strikes = Caffeine.newBuilder()
+                .expireAfterWrite(windowSeconds, TimeUnit.SECONDS)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public boolean tryAcquire(Kind kind, String user) {
+        Bucket bucket = buckets.get(kind.tag + ":" + user, k -> createBucket(kind));
+        if (bucket.tryConsume(1)) {
+            return true;
+        }
+        meterRegistry.counter("chat.rate-limit.rejected", "kind", kind.tag).increment();
+        return false;
+    }
+
+    // Para los servicios: 429 si el usuario se pasó
+    public void check(Kind kind, String user) {
+        if (!tryAcquire(kind, user)) {
+            log.warn("Chat rate limit exceeded: user={}, kind={}", user, kind.tag);
+            throw new TooManyRequestsException("Demasiados mensajes, esperá unos segundos");
+        }
+    }
+
+    /**
+     * Registra una infracción y devuelve cuántas lleva el usuario en la
+     * ventana actual.
+     */
+    public int strike(String user) {
+        return strikes.get(user, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    // --- Helpers ---
+
+    private Bucket createBucket(Kind kind) {
+        int limit = kind == Kind.FRAMES ? framesLimit : sendLimit;
+        Refill refill = Refill.greedy(limit, Duration.ofSeconds(windowSeconds));
+        return Bucket.builder().addLimit(Bandwidth.classic(limit, refill)).build();
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.service.chat;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.example.dto.MessageDto;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Mensajes faltantes de varios chats en una sola query: un rango
+ * {@code (friend_id = ? AND id > ?)} por chat sobre el índice de friend_id,
+ * numerado por chat para cortar cada uno en {@code perChat} filas.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChatSyncQuery {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * Hasta {@code perChat} mensajes posteriores a cada cursor, ordenados
+     * por chat e id. {@code lastSeen}: chatId → último id visto (0 = ninguno).
+     */
+    public List<MessageDto> missing(Map<Long, Long> lastSeen, int perChat) {
+        if (lastSeen.isEmpty()) {
+            return List.of();
+        }
+        SyncSql sql = syncSql(lastSeen, perChat);
+        return jdbc.query(sql.sql(), sql.params(), ChatSyncQuery::mapMessage);
+    }
+
+    static SyncSql syncSql(Map<Long, Long> lastSeen, int perChat) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        List<String> ranges = new ArrayList<>();
+
+        int i = 0;
+        for (Map.Entry<Long, Long> entry : lastSeen.entrySet()) {
+            params.addValue("chat" + i, entry.getKey());
+            params.addValue("seen" + i, entry.getValue() == null ? 0L : entry.getValue());
+            ranges.add("(m.friend_id = :chat" + i + " AND m.id > :seen" + i + ")");
+            i++;
+        }
+
+        // El tope va como literal (es int), igual que en el feed
+        String sql = """
+                SELECT x.id, x.friend_id, x.sender_id, u.username, u.display_name, u.avatar_key,
+                       x.content, x.sent_at
+                FROM (
+                    SELECT m.id, m.friend_id, m.sender_id, m.content, m.sent_at,
+                           ROW_NUMBER() OVER (PARTITION BY m.friend_id ORDER BY m.id) AS rn
+                    FROM messages m
+                    WHERE %s
+                ) x
+                JOIN users u ON u.id = x.sender_id
+                WHERE x.rn <= %d
+                ORDER BY x.friend_id, x.id
+                """.formatted(String.join(" OR ", ranges), perChat);
+        return new SyncSql(sql, params);
+    }
+
+    private static MessageDto mapMessage(ResultSet rs, int row) throws SQLException {
+        return new MessageDto(
+                rs.getLong("id"),
+                rs.getLong("friend_id"),
+                rs.getObject("sender_id", UUID.class),
+                rs.getString("username"),
+                rs.getString("display_name"),
+                "/api/v1/avatars/" + rs.getString("avatar_key"),
+                rs.getString("content"),
+                rs.getTimestamp("sent_at").toInstant());
+    }
+
+    record SyncSql(String sql, MapSqlParameterSource params) {
+    }
+}
@@ -0,0 +1,250 @@
+package org.example.service.chat;
+
+import static org.example.util.TransactionUtils.afterCommit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.example.dto.MessageDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Últimos mensajes de los chats activos, en memoria: la página más nueva
+ * del historial y el último mensaje de la lista de chats salen de acá sin
+ * ir a la base.
+ *
+ * Cada chat guarda hasta {@code capacity} mensajes en orden de id (los más
+ * viejos se descartan). Se llena al enviar (después del commit) y con la
+ * primera lectura desde la base. El total se acota por un presupuesto de
+ * memoria estimado: cuando se pasa, Caffeine descarta los chats menos
+ * usados.
+ *
+ * Un chat solo responde una página si la cubre entera; si no, la lectura
+ * va a la base y vuelve a cargar la ventana.
+ *
+ * Los envíos de otro nodo (o los que no pasaron por {@link #onSent}) no
+ * llegan a la ventana: antes de responder se compara su mensaje más nuevo
+ * con {@code friends.last_message_id} y, si la base va adelante, la
+ * ventana se descarta. Un mensaje de id menor confirmado tarde no mueve
+ * ese id: para esos la ventana vence a los {@code ttl-ms} de su última
+ * carga desde la base.
+ */
+@Service
+@RequiredArgsConstructor
+public class ConversationCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.cache.capacity:50}")
+    private int capacity;
+
+    @Value("${chat.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${chat.cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    private Cache<Long, ChatWindow> windows;
+
+    @PostConstruct
+    public void init() {
+        this.windows = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long friendId, ChatWindow window) -> window.weight())
+                .build();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // -------------------------------------------------------
+    // LECTURA
+    // -------------------------------------------------------
+
+    /**
+     * Los {@code size} mensajes más nuevos del chat en orden ascendente, si
+     * la ventana los tiene y sabe si hay anteriores. Solo para
+     * {@code userId} participante del chat; que la amistad siga vigente lo
+     * valida quien llama. {@code lastMessageId} (el id que tiene la base,
+     * null si el chat no tiene mensajes) solo se consulta si hay ventana.
+     */
+    public Optional<Page> latest(Long friendId, UUID userId, int size, Supplier<Long> lastMessageId) {
+        ChatWindow window = windows.getIfPresent(friendId);
+        if (window == null || !window.isParticipant(userId)) {
+            return result(Optional.empty(), "miss");
+        }
+
+        long loadedAfter = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        if (window.loadedAt < loadedAfter || window.isBehind(lastMessageId.get())) {
+            windows.asMap().remove(friendId, window);
+            return result(Optional.empty(), "stale");
+        }
+
+        Optional<Page> page = window.latest(size);
+        return result(page, page.isPresent() ? "hit" : "miss");
+    }
+
+    private Optional<Page> result(Optional<Page> page, String result) {
+        meterRegistry.counter("chat.cache", "result", result).increment();
+        return page;
+    }
+
+    // Último mensaje conocido del chat (para la lista de chats)
+    public Optional<MessageDto> lastMessage(Long friendId) {
+        ChatWindow window = windows.getIfPresent(friendId);
+        return window == null ? Optional.empty() : window.last();
+    }
+
+    // -------------------------------------------------------
+    // CARGA
+    // -------------------------------------------------------
+
+    public void onSent(Long friendId, UUID lowUserId, UUID highUserId, MessageDto message) {
+        afterCommit(() -> windows.asMap().compute(friendId, (id, window) -> {
+            ChatWindow target = window != null ? window : new ChatWindow(lowUserId, highUserId, false);
+            target.add(message, capacity);
+            return target; // se vuelve a pesar
+        }));
+    }
+
+    /**
+     * Mensajes leídos de la base (ascendentes), al confirmarse la lectura.
+     * {@code complete}: son toda la historia del chat. Se combina con lo que
+     * haya llegado por envíos mientras tanto.
+     */
+    public void onLoaded(Long friendId, UUID lowUserId, UUID highUserId, List<MessageDto> ascending,
+            boolean complete) {
+        afterCommit(() -> {
+            ChatWindow loaded = new ChatWindow(lowUserId, highUserId, complete);
+            ascending.forEach(m -> loaded.add(m, capacity));
+
+            windows.asMap().merge(friendId, loaded, (current, fresh) -> {
+                current.snapshot().forEach(m -> fresh.add(m, capacity));
+                return fresh;
+            });
+        });
+    }
+
+    public record Page(List<MessageDto> ascending, boolean hasOlder, UUID lowUserId, UUID highUserId) {
+    }
+
+    // -------------------------------------------------------
+    // VENTANA POR CHAT
+    // -------------------------------------------------------
+
+    private static final class ChatWindow {
+
+        // Estimación por mensaje: objeto, Instant, UUID y strings (2 bytes
+        // por char en el peor caso)
+        private static final int MESSAGE_OVERHEAD = 160;
+
+        private final UUID lowUserId;
+        private final UUID highUserId;
+
+        private final Deque<MessageDto> messages = new ArrayDeque<>();
+
+        // true mientras la ventana tenga todos los mensajes del chat
+        private boolean complete;
+
+        private int weight = 64;
+
+        // Última carga desde la base (los envíos no la renuevan)
+        private final long loadedAt = System.nanoTime();
+
+        ChatWindow(UUID lowUserId, UUID highUserId, boolean complete) {
+            this.lowUserId = lowUserId;
+            this.highUserId = highUserId;
+            this.complete = complete;
+        }
+
+        boolean isParticipant(UUID userId) {
+            return userId.equals(lowUserId) || userId.equals(highUserId);
+        }
+
+        // La base tiene un mensaje más nuevo que el último de la ventana
+        synchronized boolean isBehind(Long lastMessageId) {
+            MessageDto newest = messages.peekLast();
+            return lastMessageId != null && (newest == null || newest.id() < lastMessageId);
+        }
+
+        synchronized void add(MessageDto message, int capacity) {
+            MessageDto newest = messages.peekLast();
+            if (newest == null || message.id() > newest.id()) {
+                messages.addLast(message);
+            } else if (!insertInOrder(message)) {
+                return;
+            }
+            weight += weigh(message);
+
+            while (messages.size() > capacity) {
+                weight -= weigh(messages.removeFirst());
+                complete = false;
+            }
+        }
+
+        // Envíos confirmados fuera de orden (raro): se ubica por id
+        private boolean insertInOrder(MessageDto message) {
+            MessageDto oldest = messages.peekFirst();
+            if (!complete && message.id() < oldest.id()) {
+                return false; // más viejo que lo que la ventana conoce
+            }
+            List<MessageDto> sorted = new ArrayList<>(messages);
+            int pos = 0;
+            while (pos < sorted.size() && sorted.get(pos).id() < message.id()) {
+                pos++;
+            }
+            if (pos < sorted.size() && sorted.get(pos).id().equals(message.id())) {
+                return false; // ya estaba
+            }
+            sorted.add(pos, message);
+            messages.clear();
+            messages.addAll(sorted);
+            return true;
+        }
+
+        synchronized Optional<Page> latest(int size) {
+            if (messages.size() < size || (messages.size() == size && !complete)) {
+                return Optional.empty();
+            }
+            List<MessageDto> all = new ArrayList<>(messages);
+            return Optional.of(new Page(List.copyOf(all.subList(all.size() - size, all.size())), all.size() > size,
+                    lowUserId, highUserId));
+        }
+
+        synchronized Optional<MessageDto> last() {
+            return Optional.ofNullable(messages.peekLast());
+        }
+
+        synchronized List<MessageDto> snapshot() {
+            return new ArrayList<>(messages);
+        }
+
+        synchronized int weight() {
+            return weight;
+        }
+
+        private static int weigh(MessageDto m) {
+            return MESSAGE_OVERHEAD + 2 * (length(m.content()) + length(m.senderUsername())
+                    + length(m.senderDisplayName()) + length(m.senderAvatarUrl()));
+        }
+
+        private static int length(String s) {
+            return s == null ? 0 : s.length();
+        }
+    }
+}
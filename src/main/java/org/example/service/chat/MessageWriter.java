@@ -0,0 +1,248 @@
+package org.example.service.chat;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.example.exception.customs.httpstatus.ServiceUnavailableException;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Escritura de mensajes privados en batch.
+ *
+ * Cada envío entra a una cola acotada. Un único hilo la vacía: espera el
+ * primer mensaje y se lleva todo lo que se acumuló mientras escribía el
+ * batch anterior, así bajo carga los batches crecen solos y sin carga cada
+ * mensaje se escribe enseguida.
+ *
+ * Cada batch es una transacción: bloquea las filas de sus chats, toma los
+ * ids de {@code messages_seq} en una sola query, INSERT en batch JDBC de
+ * los mensajes y un UPDATE por chat del último mensaje. El futuro de cada
+ * mensaje se completa recién después del commit: quien espera puede
+ * entregarlo sabiendo que ya es durable. Si el batch falla se reintenta
+ * mensaje por mensaje y solo fallan los que no entran (por ejemplo un chat
+ * borrado en el medio).
+ *
+ * Cola llena: se rechaza el envío con 503 en vez de encolar sin límite.
+ *
+ * Orden de ids: el id se toma con el chat bloqueado, acá y en el camino
+ * inline (JPA, dentro de una transacción del llamador), en cualquier nodo.
+ * Quien escribe en el mismo chat espera al commit y toma un id mayor: en
+ * cada chat los ids quedan en orden de commit y lo que lee con
+ * {@code id > cursor} (historial, sync, replay, no leídos) no saltea nada.
+ * Entre chats distintos no hay orden.
+ */
+@Service
+@RequiredArgsConstructor
+public class MessageWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageWriter.class);
+
+    private static final String INSERT_SQL = """
+            INSERT INTO messages (id, friend_id, sender_id, content, sent_at)
+            VALUES (?, ?, ?, ?, ?)
+            """;
+
+    // En orden de id: dos transacciones que bloquean chats en común no se traban
+    private static final String LOCK_SQL = "SELECT id FROM friends WHERE id IN (%s) ORDER BY id FOR UPDATE";
+
+    private static final String TOUCH_SQL = """
+            UPDATE friends SET last_message_id = ?, last_activity_at = ?
+            WHERE id = ? AND (last_message_id IS NULL OR last_message_id < ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory emf;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.writer.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${chat.writer.batch-size:500}")
+    private int batchSize;
+
+    private BlockingQueue<Pending> queue;
+
+    // n ids de messages_seq en una query
+    private String nextIdsSql;
+
+    private DistributionSummary batchSizes;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        Dialect dialect = emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        String nextVal = dialect.getSequenceSupport().getSelectSequenceNextValString("messages_seq");
+        // generate_series en Postgres; system_range en H2 (tests)
+        this.nextIdsSql = "SELECT " + nextVal + " FROM "
+                + (dialect instanceof PostgreSQLDialect ? "generate_series(1, ?)" : "system_range(1, ?)");
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("chat.writer.queued", queue, BlockingQueue::size)
+                .description("Mensajes esperando ser escritos")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("chat.writer.batch.size")
+                .description("Mensajes por transacción del writer")
+                .register(meterRegistry);
+
+        this.running = true;
+        this.writer = new Thread(this::run, "message-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // -------------------------------------------------------
+    // ENCOLAR
+    // -------------------------------------------------------
+
+    /**
+     * Encola el mensaje. El futuro se completa con el mensaje ya confirmado
+     * en la base (id y fecha asignados al escribirlo), o con el error si no
+     * se pudo escribir.
+     */
+    public CompletableFuture<NewMessage> submit(Long friendId, UUID senderId, String content) {
+        Pending pending = new Pending(friendId, senderId, content, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            meterRegistry.counter("chat.writer.rejected").increment();
+            throw new ServiceUnavailableException("Demasiados mensajes en espera, intentá de nuevo");
+        }
+        return pending.future();
+    }
+
+    // -------------------------------------------------------
+    // WRITER
+    // -------------------------------------------------------
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // no debería pasar (write atrapa lo suyo): que el hilo no muera
+                log.error("Writer de mensajes: error inesperado", e);
+                batch.forEach(p -> p.future().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<NewMessage> messages;
+        try {
+            messages = transactionTemplate.execute(status -> insert(batch));
+        } catch (RuntimeException e) {
+            log.warn("Batch de {} mensajes falló, se reintenta de a uno", batch.size(), e);
+            writeOneByOne(batch);
+            return;
+        }
+
+        batchSizes.record(batch.size());
+        meterRegistry.counter("chat.writer.written").increment(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).future().complete(messages.get(i));
+        }
+    }
+
+    private void writeOneByOne(List<Pending> batch) {
+        for (Pending pending : batch) {
+            NewMessage message;
+            try {
+                message = transactionTemplate.execute(status -> insert(List.of(pending)).get(0));
+            } catch (RuntimeException e) {
+                meterRegistry.counter("chat.writer.failed").increment();
+                pending.future().completeExceptionally(e);
+                continue;
+            }
+            meterRegistry.counter("chat.writer.written").increment();
+            pending.future().complete(message);
+        }
+    }
+
+    // Mensajes escritos, en el orden del batch
+    private List<NewMessage> insert(List<Pending> batch) {
+        List<Long> chats = batch.stream().map(Pending::friendId).distinct().sorted().toList();
+        jdbcTemplate.queryForList(LOCK_SQL.formatted(String.join(",", Collections.nCopies(chats.size(), "?"))),
+                Long.class, chats.toArray());
+
+        // con los chats bloqueados: nadie más escribe en ellos hasta el commit
+        List<Long> ids = new ArrayList<>(jdbcTemplate.queryForList(nextIdsSql, Long.class, batch.size()));
+        Collections.sort(ids);
+        Instant now = Instant.now();
+        List<NewMessage> messages = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Pending p = batch.get(i);
+            messages.add(new NewMessage(ids.get(i), p.friendId(), p.senderId(), p.content(), now));
+        }
+
+        List<Object[]> rows = new ArrayList<>(messages.size());
+        // Último mensaje de cada chat del batch (vienen en orden de id)
+        Map<Long, NewMessage> latest = new LinkedHashMap<>();
+
+        for (NewMessage m : messages) {
+            rows.add(new Object[] { m.id(), m.friendId(), m.senderId(), m.content(), Timestamp.from(m.sentAt()) });
+            latest.put(m.friendId(), m);
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+
+        List<Object[]> touches = new ArrayList<>(latest.size());
+        latest.values().forEach(m -> touches.add(
+                new Object[] { m.id(), Timestamp.from(m.sentAt()), m.friendId(), m.id() }));
+        jdbcTemplate.batchUpdate(TOUCH_SQL, touches);
+        return messages;
+    }
+
+    // Shutdown ordenado: se escribe lo que quedó en la cola
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    // --- Helpers ---
+
+    public record NewMessage(long id, Long friendId, UUID senderId, String content, Instant sentAt) {
+    }
+
+    record Pending(Long friendId, UUID senderId, String content, CompletableFuture<NewMessage> future) {
+    }
+}
@@ -0,0 +1,178 @@
+package org.example.service.chat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.example.dto.PublicMessageDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Difusión del chat público a las salas.
+ *
+ * Por defecto cada mensaje es un frame STOMP para cada sesión de la sala:
+ * con mucho tráfico son mensajes × sesiones escrituras. Las salas de
+ * {@code public-chat.broadcast.batched-rooms} juntan lo que llega dentro de
+ * una ventana corta ({@code window-ms}) y lo mandan como un único frame con
+ * un array JSON: el payload se serializa una vez por ventana y el broker
+ * reusa esos bytes para todas las sesiones. Si la ventana junta
+ * {@code max-batch} mensajes se manda antes.
+ *
+ * Los clientes de una sala en batch reciben arrays (lo informa
+ * {@code GET /rooms}). El alias {@code /topic/public} siempre va mensaje por
+ * mensaje: lo usan clientes viejos.
+ */
+@Service
+@RequiredArgsConstructor
+public class PublicBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(PublicBroadcaster.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PublicRooms rooms;
+    private final MeterRegistry meterRegistry;
+
+    // Salas que se difunden en batch (vacío = todas mensaje por mensaje)
+    @Value("${public-chat.broadcast.batched-rooms:}")
+    private List<String> batchedRooms;
+
+    @Value("${public-chat.broadcast.window-ms:25}")
+    private long windowMs;
+
+    @Value("${public-chat.broadcast.max-batch:200}")
+    private int maxBatch;
+
+    // room → mensajes de la ventana abierta (bajo el lock de this)
+    private final Map<String, List<Pending>> open = new HashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        for (String room : batchedRooms) {
+            if (!rooms.exists(room)) {
+                throw new IllegalStateException("public-chat.broadcast.batched-rooms no está en public-chat.rooms: " + room);
+            }
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "public-broadcast");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isBatched(String room) {
+        return batchedRooms.contains(room);
+    }
+
+    // -------------------------------------------------------
+    // DIFUSIÓN
+    // -------------------------------------------------------
+
+    public void publish(String room, PublicMessageDto message) {
+        if (room.equals(rooms.defaultRoom())) {
+            send(room, PublicRooms.LEGACY_TOPIC, message, "single");
+        }
+
+        if (!isBatched(room)) {
+            send(room, PublicRooms.topic(room), message, "single");
+            return;
+        }
+
+        List<Pending> full = null;
+        synchronized (this) {
+            List<Pending> window = open.get(room);
+            if (window == null) {
+                window = new ArrayList<>();
+                open.put(room, window);
+                scheduler.schedule(() -> flush(room), windowMs, TimeUnit.MILLISECONDS);
+            }
+            window.add(new Pending(message, System.nanoTime()));
+            if (window.size() >= maxBatch) {
+                full = open.remove(room); // el flush programado encuentra la ventana vacía
+            }
+        }
+        if (full != null) {
+            sendBatch(room, full);
+        }
+    }
+
+    void flush(String room) {
+        List<Pending> window;
+        synchronized (this) {
+            window = open.remove(room);
+        }
+        if (window != null) {
+            sendBatch(room, window);
+        }
+    }
+
+    // Shutdown ordenado: se mandan las ventanas abiertas
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        List<String> pendingRooms;
+        synchronized (this) {
+            pendingRooms = new ArrayList<>(open.keySet());
+        }
+        pendingRooms.forEach(this::flush);
+    }
+
+    // --- Helpers ---
+
+    private void sendBatch(String room, List<Pending> window) {
+        // los envíos concurrentes pueden llegar fuera de orden: el cliente
+        // usa el último id como cursor
+        List<PublicMessageDto> messages = window.stream()
+                .map(Pending::message)
+                .sorted(Comparator.comparing(PublicMessageDto::id))
+                .toList();
+
+        try {
+            messagingTemplate.convertAndSend(PublicRooms.topic(room), messages);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo difundir el batch de la sala {} ({} mensajes)", room, messages.size(), e);
+            return;
+        }
+
+        long now = System.nanoTime();
+        Timer delay = meterRegistry.timer("public-chat.broadcast.delay", "room", room);
+        window.forEach(p -> delay.record(now - p.enqueuedAt(), TimeUnit.NANOSECONDS));
+
+        DistributionSummary.builder("public-chat.broadcast.batch.size")
+                .description("Mensajes por frame en las salas en batch")
+                .tag("room", room)
+                .register(meterRegistry)
+                .record(messages.size());
+        countFrame(room, "batch");
+    }
+
+    private void send(String room, String destination, PublicMessageDto message, String mode) {
+        messagingTemplate.convertAndSend(destination, message);
+        countFrame(room, mode);
+    }
+
+    // Frames difundidos (cada uno llega a todas las sesiones de la sala)
+    private void countFrame(String room, String mode) {
+        meterRegistry.counter("public-chat.broadcast.frames", "room", room, "mode", mode).increment();
+    }
+
+    private record Pending(PublicMessageDto message, long enqueuedAt) {
+    }
+}
@@ -0,0 +1,333 @@
+package org.example.service.chat;
+
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.example.dto.PublicMessageDto;
+import org.example.entity.PublicMessage;
+import org.example.repository.PublicMessageRepository;
+import org.example.service.relay.ClusterEvents;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Historial del chat público: los últimos {@code capacity} mensajes de cada
+ * sala en memoria y escritura diferida a {@code public_messages}.
+ *
+ * Enviar no escribe en la base: toma el id con un nextval (sin transacción
+ * ni fila escrita), el mensaje entra al buffer y a la cola de pendientes,
+ * y se difunde. Cada pocos cientos de ms
+ * el flush escribe los pendientes en un batch JDBC. Si el batch falla se
+ * reintenta de a un mensaje: los que la base rechaza por sus datos
+ * (remitente borrado, contenido inválido) se descartan y quedan en el log
+ * de errores; ante un error transitorio lo que falta vuelve a la cola.
+ * Caída del proceso: se pierden como mucho los mensajes del último
+ * intervalo (el shutdown ordenado hace flush).
+ *
+ * Al arrancar se carga lo más nuevo de la base, así el historial reciente
+ * sobrevive reinicios. Las lecturas que el buffer no cubre van a la base.
+ * Con varios nodos el buffer solo ve lo que se envió por este: todas las
+ * lecturas van a la base.
+ *
+ * Orden de ids: {@code public_messages_seq} va de a uno y en cada sala el
+ * id se toma y el mensaje entra al buffer bajo el mismo lock, así el
+ * buffer de una sala crece en orden de id y {@code id > cursor} no saltea
+ * nada. Entre nodos los ids siguen el orden de envío; lo que queda abierto
+ * es el intervalo de flush: un mensaje de otro nodo con id menor puede
+ * llegar a la base después de que un cliente leyó uno mayor.
+ */
+@Service
+@RequiredArgsConstructor
+public class PublicChatLog {
+
+    private static final Logger log = LoggerFactory.getLogger(PublicChatLog.class);
+
+    private static final String INSERT_SQL = """
+            INSERT INTO public_messages (id, room, sender_id, content, sent_at)
+            VALUES (?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory emf;
+    private final PublicMessageRepository publicMessageRepository;
+    private final PublicRooms rooms;
+    private final ClusterEvents clusterEvents;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${public-chat.log.capacity:1000}")
+    private int capacity;
+
+    // Tope de pendientes si la base no responde: después se descartan los más viejos
+    @Value("${public-chat.log.max-pending:50000}")
+    private int maxPending;
+
+    private final Map<String, RoomHistory> histories = new HashMap<>();
+
+    private final Deque<PublicMessageDto> pending = new ArrayDeque<>();
+
+    // Ya se avisó que se están descartando pendientes (hasta el próximo flush ok)
+    private boolean dropping;
+
+    // Id y alta en el buffer de cada sala, en orden (nombre → lock)
+    private final Map<String, Object> sendLocks = new HashMap<>();
+
+    private String nextIdSql;
+
+    @PostConstruct
+    public void init() {
+        Dialect dialect = emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        this.nextIdSql = dialect.getSequenceSupport().getSequenceNextValString("public_messages_seq");
+
+        rooms.names().forEach(room -> sendLocks.put(room, new Object()));
+        load();
+
+        Gauge.builder("public-chat.pending", this, PublicChatLog::pendingCount)
+                .description("Mensajes del chat público sin escribir")
+                .register(meterRegistry);
+    }
+
+    // -------------------------------------------------------
+    // ENVÍO (sin base)
+    // -------------------------------------------------------
+
+    /**
+     * Asigna id al mensaje, lo guarda en el buffer y lo deja pendiente de
+     * escritura. {@code message} llega sin id.
+     *
+     * El nextval va bajo el lock de la sala y no bajo el de la clase: las
+     * lecturas y las demás salas no esperan a la base.
+     */
+    public PublicMessageDto append(PublicMessageDto message) {
+        synchronized (sendLocks.get(message.room())) {
+            long id = jdbcTemplate.queryForObject(nextIdSql, Long.class);
+            return store(new PublicMessageDto(id, message.room(), message.senderId(), message.senderUsername(),
+                    message.senderDisplayName(), message.senderAvatarUrl(), message.content(), message.sentAt()));
+        }
+    }
+
+    private synchronized PublicMessageDto store(PublicMessageDto stored) {
+        histories.get(stored.room()).add(stored, capacity);
+
+        pending.addLast(stored);
+        if (pending.size() > maxPending) {
+            PublicMessageDto dropped = pending.removeFirst();
+            meterRegistry.counter("public-chat.dropped").increment();
+            if (!dropping) {
+                dropping = true;
+                log.error("Chat público: {} pendientes sin escribir, se descartan los más viejos (desde el id {})",
+                        maxPending, dropped.id());
+            }
+        }
+        return stored;
+    }
+
+    // -------------------------------------------------------
+    // LECTURA (desde memoria)
+    // -------------------------------------------------------
+
+    /**
+     * Hasta {@code size} mensajes anteriores a {@code beforeId} (null = los
+     * más nuevos), ascendentes. Vacío si el buffer no sabe si hay más viejos.
+     */
+    public synchronized Optional<Page> before(String room, Long beforeId, int size) {
+        return clusterEvents.isClustered() ? Optional.empty() : histories.get(room).before(beforeId, size);
+    }
+
+    /**
+     * Hasta {@code size} mensajes posteriores a {@code afterId}, ascendentes.
+     * Vacío si el buffer ya descartó mensajes posteriores a ese id.
+     */
+    public synchronized Optional<Page> after(String room, long afterId, int size) {
+        return clusterEvents.isClustered() ? Optional.empty() : histories.get(room).after(afterId, size);
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    // -------------------------------------------------------
+    // FLUSH
+    // -------------------------------------------------------
+
+    @Scheduled(fixedDelayString = "${public-chat.flush-interval-ms:250}", initialDelayString = "${public-chat.flush-interval-ms:250}")
+    public void flush() {
+        List<PublicMessageDto> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        try {
+            write(batch);
+        } catch (RuntimeException e) {
+            log.warn("Flush del chat público falló ({} mensajes), se reintenta de a uno", batch.size(), e);
+            writeOneByOne(batch);
+        }
+    }
+
+    /**
+     * Un batch que falló, de a un mensaje por transacción. Los que no se
+     * pueden escribir nunca se descartan (quedan en el log para
+     * recuperarlos a mano) y salen del buffer; ante un error transitorio
+     * (base caída) lo que falta vuelve al frente de la cola sin seguir
+     * probando.
+     */
+    private void writeOneByOne(List<PublicMessageDto> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            PublicMessageDto message = batch.get(i);
+            try {
+                write(List.of(message));
+            } catch (NonTransientDataAccessException e) {
+                log.error("Mensaje público descartado: id {}, sala {}, remitente {}, enviado {}, contenido: {}",
+                        message.id(), message.room(), message.senderId(), message.sentAt(), message.content(), e);
+                meterRegistry.counter("public-chat.discarded").increment();
+                synchronized (this) {
+                    histories.get(message.room()).remove(message.id());
+                }
+            } catch (RuntimeException e) {
+                requeue(batch.subList(i, batch.size()));
+                return;
+            }
+        }
+    }
+
+    private void write(List<PublicMessageDto> batch) {
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        batch.forEach(m -> rows.add(new Object[] { m.id(), m.room(), m.senderId(), m.content(),
+                Timestamp.from(m.sentAt()) }));
+
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, rows));
+
+        meterRegistry.counter("public-chat.persisted").increment(batch.size());
+        synchronized (this) {
+            dropping = false;
+        }
+    }
+
+    // Al frente y en el mismo orden: se reintentan antes que los nuevos
+    private synchronized void requeue(List<PublicMessageDto> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            pending.addFirst(messages.get(i));
+        }
+    }
+
+    // Shutdown ordenado: no se pierde nada
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // --- Helpers ---
+
+    private void load() {
+        for (String room : rooms.names()) {
+            Slice<PublicMessage> latest = publicMessageRepository.findLatest(room, PageRequest.of(0, capacity));
+            List<PublicMessage> descending = latest.getContent();
+
+            RoomHistory history = new RoomHistory(!latest.hasNext());
+            for (int i = descending.size() - 1; i >= 0; i--) {
+                history.add(toDto(descending.get(i)), capacity);
+            }
+            history.floor = history.messages.isEmpty() ? 0 : history.messages.peekFirst().id();
+
+            synchronized (this) {
+                histories.put(room, history);
+            }
+        }
+    }
+
+    public static PublicMessageDto toDto(PublicMessage m) {
+        return new PublicMessageDto(
+                m.getId(),
+                m.getRoom(),
+                m.getSender().getId(),
+                m.getSender().getUsername(),
+                m.getSender().getDisplayName(),
+                "/api/v1/avatars/" + m.getSender().getAvatarKey(),
+                m.getContent(),
+                m.getSentAt());
+    }
+
+    public record Page(List<PublicMessageDto> ascending, boolean hasNext) {
+    }
+
+    // -------------------------------------------------------
+    // HISTORIA POR SALA (bajo el lock de PublicChatLog)
+    // -------------------------------------------------------
+
+    private static final class RoomHistory {
+
+        private final Deque<PublicMessageDto> messages = new ArrayDeque<>();
+
+        // Id desde el que el buffer vio todo; complete = tiene toda la historia
+        private long floor;
+        private boolean complete;
+
+        RoomHistory(boolean complete) {
+            this.complete = complete;
+        }
+
+        void add(PublicMessageDto message, int capacity) {
+            messages.addLast(message);
+            while (messages.size() > capacity) {
+                floor = Math.max(floor, messages.removeFirst().id());
+                complete = false;
+            }
+        }
+
+        // Descartado al escribir: no se sigue sirviendo desde memoria
+        void remove(long id) {
+            messages.removeIf(m -> m.id() == id);
+        }
+
+        Optional<Page> before(Long beforeId, int size) {
+            List<PublicMessageDto> older = new ArrayList<>();
+            for (PublicMessageDto m : messages) {
+                if (beforeId == null || m.id() < beforeId) {
+                    older.add(m);
+                }
+            }
+            if (older.size() <= size && !complete) {
+                return Optional.empty();
+            }
+            int from = Math.max(0, older.size() - size);
+            return Optional.of(new Page(List.copyOf(older.subList(from, older.size())), from > 0));
+        }
+
+        Optional<Page> after(long afterId, int size) {
+            if (!complete && afterId < floor) {
+                return Optional.empty();
+            }
+            List<PublicMessageDto> newer = messages.stream().filter(m -> m.id() > afterId).toList();
+            return Optional.of(new Page(List.copyOf(newer.subList(0, Math.min(size, newer.size()))),
+                    newer.size() > size));
+        }
+    }
+}
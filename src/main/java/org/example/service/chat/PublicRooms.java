@@ -0,0 +1,170 @@
+package org.example.service.chat;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.example.exception.customs.httpstatus.NotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Salas del chat público: cada una es su propio topic
+ * ({@code /topic/public/{room}}), así un mensaje solo se difunde a las
+ * sesiones de su sala y el lobby se puede partir a medida que crece.
+ *
+ * Las salas son fijas (configuración): el nombre va como tag de las
+ * métricas y no puede salir del cliente. La ocupación (sesiones suscriptas
+ * por sala) se sigue con los eventos STOMP de suscripción y desconexión.
+ *
+ * {@code /topic/public} a secas queda como alias de la sala por defecto
+ * para los clientes que todavía no eligen sala.
+ */
+@Service
+@RequiredArgsConstructor
+public class PublicRooms {
+
+    public static final String TOPIC_PREFIX = "/topic/public/";
+
+    public static final String LEGACY_TOPIC = "/topic/public";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${public-chat.rooms:lobby}")
+    private List<String> names;
+
+    @Value("${public-chat.default-room:lobby}")
+    private String defaultRoom;
+
+    // room → sesiones suscriptas (con cuántas suscripciones cada una)
+    private final Map<String, Map<String, Integer>> members = new LinkedHashMap<>();
+
+    // sessionId → (subscriptionId → room), para UNSUBSCRIBE y DISCONNECT
+    private final Map<String, Map<String, String>> subscriptions = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (!names.contains(defaultRoom)) {
+            throw new IllegalStateException("public-chat.default-room no está en public-chat.rooms: " + defaultRoom);
+        }
+        for (String room : names) {
+            members.put(room, new HashMap<>());
+            Gauge.builder("public-chat.room.occupancy", this, rooms -> rooms.occupancy(room))
+                    .description("Sesiones suscriptas a la sala")
+                    .tag("room", room)
+                    .register(meterRegistry);
+        }
+    }
+
+    // -------------------------------------------------------
+    // SALAS
+    // -------------------------------------------------------
+
+    public List<String> names() {
+        return List.copyOf(names);
+    }
+
+    public String defaultRoom() {
+        return defaultRoom;
+    }
+
+    public boolean exists(String room) {
+        return members.containsKey(room);
+    }
+
+    public String require(String room) {
+        if (!exists(room)) {
+            throw new NotFoundException("Sala no encontrada");
+        }
+        return room;
+    }
+
+    public static String topic(String room) {
+        return TOPIC_PREFIX + room;
+    }
+
+    /**
+     * Sala de un destino de suscripción: {@code /topic/public/{room}} o el
+     * alias {@code /topic/public}. Null si el destino no es del chat público.
+     */
+    public String roomOf(String destination) {
+        if (LEGACY_TOPIC.equals(destination)) {
+            return defaultRoom;
+        }
+        if (destination != null && destination.startsWith(TOPIC_PREFIX)) {
+            return destination.substring(TOPIC_PREFIX.length());
+        }
+        return null;
+    }
+
+    public synchronized int occupancy(String room) {
+        Map<String, Integer> sessions = members.get(room);
+        return sessions == null ? 0 : sessions.size();
+    }
+
+    // -------------------------------------------------------
+    // MEMBRESÍA (eventos STOMP)
+    // -------------------------------------------------------
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String room = roomOf(accessor.getDestination());
+        if (room != null && exists(room)) {
+            join(accessor.getSessionId(), accessor.getSubscriptionId(), room);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        leave(accessor.getSessionId(), accessor.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        leaveAll(event.getSessionId());
+    }
+
+    synchronized void join(String sessionId, String subscriptionId, String room) {
+        String previous = subscriptions.computeIfAbsent(sessionId, id -> new HashMap<>()).put(subscriptionId, room);
+        if (previous != null) {
+            release(sessionId, previous); // mismo id de suscripción reutilizado
+        }
+        members.get(room).merge(sessionId, 1, Integer::sum);
+    }
+
+    synchronized void leave(String sessionId, String subscriptionId) {
+        Map<String, String> bySubscription = subscriptions.get(sessionId);
+        String room = bySubscription == null ? null : bySubscription.remove(subscriptionId);
+        if (room != null) {
+            release(sessionId, room);
+        }
+        if (bySubscription != null && bySubscription.isEmpty()) {
+            subscriptions.remove(sessionId);
+        }
+    }
+
+    synchronized void leaveAll(String sessionId) {
+        Map<String, String> bySubscription = subscriptions.remove(sessionId);
+        if (bySubscription != null) {
+            new HashSet<>(bySubscription.values()).forEach(room -> members.get(room).remove(sessionId));
+        }
+    }
+
+    private void release(String sessionId, String room) {
+        members.get(room).computeIfPresent(sessionId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.service.chat;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Cursor de lectura por (chat, participante) en una sola sentencia: crea la
+ * fila si no existe y, si existe, solo la avanza. Dos mark-read
+ * concurrentes del mismo participante no chocan en la PK y una marca vieja
+ * que llega tarde no retrocede el cursor.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReadCursorStore {
+
+    private static final String POSTGRES_SQL = """
+            INSERT INTO chat_read_cursors (friend_id, user_id, last_read_message_id, read_at)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (friend_id, user_id) DO UPDATE
+            SET last_read_message_id = EXCLUDED.last_read_message_id, read_at = EXCLUDED.read_at
+            WHERE chat_read_cursors.last_read_message_id < EXCLUDED.last_read_message_id
+            """;
+
+    // MERGE estándar (H2 en dev y tests): no es atómico frente a otro insert
+    private static final String MERGE_SQL = """
+            MERGE INTO chat_read_cursors c
+            USING (VALUES (CAST(? AS BIGINT), CAST(? AS UUID), CAST(? AS BIGINT), CAST(? AS TIMESTAMP WITH TIME ZONE)))
+                AS v (friend_id, user_id, last_read_message_id, read_at)
+            ON c.friend_id = v.friend_id AND c.user_id = v.user_id
+            WHEN MATCHED AND c.last_read_message_id < v.last_read_message_id THEN
+                UPDATE SET last_read_message_id = v.last_read_message_id, read_at = v.read_at
+            WHEN NOT MATCHED THEN
+                INSERT (friend_id, user_id, last_read_message_id, read_at)
+                VALUES (v.friend_id, v.user_id, v.last_read_message_id, v.read_at)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory emf;
+
+    private String upsertSql;
+
+    @PostConstruct
+    public void init() {
+        Dialect dialect = emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        this.upsertSql = dialect instanceof PostgreSQLDialect ? POSTGRES_SQL : MERGE_SQL;
+    }
+
+    /**
+     * Lleva el cursor hasta {@code messageId} si estaba antes (o no existía).
+     */
+    public void advance(Long friendId, UUID userId, long messageId, Instant now) {
+        try {
+            jdbcTemplate.update(upsertSql, friendId, userId, messageId, Timestamp.from(now));
+        } catch (DuplicateKeyException e) {
+            // Solo el MERGE: dos inserts pueden cruzarse. La fila ya existe,
+            // el reintento cae en la rama que avanza
+            jdbcTemplate.update(upsertSql, friendId, userId, messageId, Timestamp.from(now));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.service.chat;
+
+import static org.example.util.TransactionUtils.afterCommit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.example.dto.MessageDto;
+import org.example.service.relay.ClusterEvents;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Últimos mensajes privados entregados a cada usuario (enviados y
+ * recibidos), para reenviarlos al reconectar sin ir a la base.
+ *
+ * Acotado por usuario (los más viejos se descartan) y por cantidad de
+ * usuarios (los inactivos expiran). Solo responde si puede probar que
+ * cubre todo el hueco pedido; si no, el cliente tiene que sincronizar por
+ * REST.
+ *
+ * Con varios nodos las entregas de los demás llegan por
+ * {@link ClusterEvents}: el usuario puede reconectar en cualquier nodo. Si
+ * el relay se corta, los buffers se descartan (no sabrían qué les falta).
+ */
+@Service
+@RequiredArgsConstructor
+public class RecentMessageBuffer {
+
+    private final ClusterEvents clusterEvents;
+
+    @Value("${chat.replay.capacity:100}")
+    private int capacity;
+
+    @Value("${chat.replay.max-users:10000}")
+    private int maxUsers;
+
+    private Cache<String, UserMessages> buffers;
+
+    @PostConstruct
+    public void init() {
+        this.buffers = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(30, TimeUnit.MINUTES)
+                .build();
+
+        clusterEvents.subscribe(Delivered.class, e -> add(e.username(), e.message()));
+        clusterEvents.onReconnect(buffers::invalidateAll);
+    }
+
+    // Por username: es el nombre del Principal de la sesión STOMP
+    public void onDelivered(String username, MessageDto message) {
+        afterCommit(() -> add(username, message));
+        clusterEvents.publish(new Delivered(username, message));
+    }
+
+    /**
+     * Mensajes entregados después de {@code lastSeenId}, en orden de entrega.
+     *
+     * Los ids solo van en orden dentro de cada chat: uno de otro chat puede
+     * entregarse después con un id menor, y {@code id > lastSeenId} lo
+     * saltearía. Por eso se ubica el mensaje visto en el orden de entrega y
+     * se devuelve lo que vino después. Vacío si no se puede ubicar (no lo
+     * registró este buffer o ya descartó mensajes posteriores).
+     */
+    public Optional<List<MessageDto>> since(String username, long lastSeenId) {
+        UserMessages messages = buffers.getIfPresent(username);
+        return messages == null ? Optional.empty() : messages.since(lastSeenId);
+    }
+
+    private void add(String username, MessageDto message) {
+        buffers.get(username, k -> new UserMessages()).add(message, capacity);
+    }
+
+    record Delivered(String username, MessageDto message) {
+    }
+
+    private static final class UserMessages {
+
+        private final Deque<MessageDto> messages = new ArrayDeque<>();
+
+        // Último descartado (null si no hubo): lo que queda en el buffer vino
+        // todo después
+        private Long lastEvictedId;
+
+        synchronized void add(MessageDto message, int capacity) {
+            messages.addLast(message);
+            while (messages.size() > capacity) {
+                lastEvictedId = messages.removeFirst().id();
+            }
+        }
+
+        synchronized Optional<List<MessageDto>> since(long lastSeenId) {
+            if (lastEvictedId != null && lastEvictedId == lastSeenId) {
+                return Optional.of(List.copyOf(messages));
+            }
+            List<MessageDto> after = new ArrayList<>();
+            boolean found = false;
+            for (MessageDto m : messages) {
+                if (found) {
+                    after.add(m);
+                } else {
+                    found = m.id() == lastSeenId;
+                }
+            }
+            return found ? Optional.of(after) : Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.service.chat;
+
+import static org.example.util.TransactionUtils.afterCommit;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.example.service.relay.ClusterEvents;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Mensajes no leídos por (chat, participante), en memoria.
+ *
+ * {@code MessageService} suma uno al destinatario con cada mensaje y el
+ * mark-read deja el contador en lo que queda después del cursor; ambos al
+ * confirmarse la transacción. Al arrancar se reconstruye desde la base
+ * (mensajes posteriores al cursor de lectura de cada participante), así
+ * que la lista de chats no necesita un COUNT por chat.
+ *
+ * Con varios nodos los envíos y lecturas de los demás llegan por
+ * {@link ClusterEvents}; si el relay se corta, al reconectar se vuelve a
+ * cargar desde la base. El COUNT es
+ * {@code id > cursor}: en cada chat los ids se toman con el chat bloqueado
+ * y quedan en orden de commit (ver {@code MessageWriter}).
+ */
+@Service
+@RequiredArgsConstructor
+public class UnreadCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(UnreadCounters.class);
+
+    // Destinatario de cada mensaje = el participante que no lo envió
+    private static final String REBUILD_SQL = """
+            SELECT x.friend_id, x.recipient_id, COUNT(*) AS unread
+            FROM (
+                SELECT m.friend_id,
+                       CASE WHEN m.sender_id = f.requester_id THEN f.receiver_id ELSE f.requester_id END AS recipient_id,
+                       m.id AS message_id
+                FROM messages m
+                JOIN friends f ON f.id = m.friend_id
+                WHERE f.status = 'ACCEPTED'
+            ) x
+            LEFT JOIN chat_read_cursors c ON c.friend_id = x.friend_id AND c.user_id = x.recipient_id
+            WHERE x.message_id > COALESCE(c.last_read_message_id, 0)
+            GROUP BY x.friend_id, x.recipient_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ClusterEvents clusterEvents;
+
+    private volatile Map<ChatKey, AtomicInteger> counters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+        clusterEvents.subscribe(MessageSent.class, e -> counter(e.friendId(), e.recipientId()).incrementAndGet());
+        clusterEvents.subscribe(Read.class, e -> counter(e.friendId(), e.userId()).set((int) e.remaining()));
+        clusterEvents.onReconnect(this::rebuild);
+    }
+
+    // -------------------------------------------------------
+    // LECTURA
+    // -------------------------------------------------------
+
+    public int unread(Long friendId, UUID userId) {
+        AtomicInteger counter = counters.get(new ChatKey(friendId, userId));
+        return counter == null ? 0 : counter.get();
+    }
+
+    // -------------------------------------------------------
+    // MUTACIONES (después del commit)
+    // -------------------------------------------------------
+
+    public void onMessageSent(Long friendId, UUID recipientId) {
+        afterCommit(() -> counter(friendId, recipientId).incrementAndGet());
+        clusterEvents.publish(new MessageSent(friendId, recipientId));
+    }
+
+    /**
+     * {@code remaining}: mensajes del otro que siguen después del cursor.
+     * Un mensaje confirmado entre el COUNT y este set puede quedar sin
+     * sumar hasta la próxima lectura o el próximo arranque.
+     */
+    public void onRead(Long friendId, UUID userId, long remaining) {
+        afterCommit(() -> counter(friendId, userId).set((int) remaining));
+        clusterEvents.publish(new Read(friendId, userId, remaining));
+    }
+
+    // -------------------------------------------------------
+    // REBUILD DESDE LA BASE
+    // -------------------------------------------------------
+
+    // Mutaciones concurrentes con un rebuild pueden perderse: solo al arrancar
+    // y al reconectar el relay (que ya perdió eventos)
+    public void rebuild() {
+        Map<ChatKey, AtomicInteger> fresh = new ConcurrentHashMap<>();
+        jdbcTemplate.query(REBUILD_SQL, rs -> {
+            fresh.put(
+                    new ChatKey(rs.getLong("friend_id"), rs.getObject("recipient_id", UUID.class)),
+                    new AtomicInteger(rs.getInt("unread")));
+        });
+        counters = fresh;
+
+        log.info("Contadores de no leídos cargados: {} chats con pendientes", fresh.size());
+    }
+
+    private AtomicInteger counter(Long friendId, UUID userId) {
+        return counters.computeIfAbsent(new ChatKey(friendId, userId), k -> new AtomicInteger());
+    }
+
+    private record ChatKey(Long friendId, UUID userId) {
+    }
+
+    record MessageSent(Long friendId, UUID recipientId) {
+    }
+
+    record Read(Long friendId, UUID userId, long remaining) {
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.service.feed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+import org.example.dto.TimelineEntry;
+
+/**
+ * Merge de k fuentes de timeline (cada una de más nueva a más vieja) por
+ * (createdAt, id) descendente. Es reanudable: cada fuente ya viene cortada
+ * en el cursor de la página pedida.
+ */
+public final class FeedMerger {
+
+    private FeedMerger() {
+        // evita instanciación
+    }
+
+    /**
+     * Hasta {@code limit} entradas sin duplicados. Vacío si alguna entrada
+     * necesaria cae por debajo del horizonte de alguna fuente: esa parte del
+     * feed no está completa en memoria.
+     */
+    public static Optional<List<TimelineEntry>> merge(List<TimelineBuffer.Window> sources, int limit) {
+
+        PriorityQueue<Head> heads = new PriorityQueue<>();
+        for (TimelineBuffer.Window source : sources) {
+            if (!source.entries().isEmpty()) {
+                heads.add(new Head(source.entries(), 0));
+            }
+        }
+
+        List<TimelineEntry> result = new ArrayList<>(limit);
+        TimelineEntry last = null;
+
+        while (result.size() < limit && !heads.isEmpty()) {
+            Head head = heads.poll();
+            TimelineEntry next = head.current();
+
+            if (head.index + 1 < head.entries.size()) {
+                heads.add(new Head(head.entries, head.index + 1));
+            }
+
+            // el mismo post puede venir empujado y también de un índice de autor
+            if (last != null && last.postId().equals(next.postId())) {
+                continue;
+            }
+
+            for (TimelineBuffer.Window source : sources) {
+                if (!source.covers(next)) {
+                    return Optional.empty();
+                }
+            }
+
+            result.add(next);
+            last = next;
+        }
+
+        if (result.size() < limit && sources.stream().anyMatch(s -> s.horizon() != null)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(result);
+    }
+
+    private record Head(List<TimelineEntry> entries, int index) implements Comparable<Head> {
+
+        TimelineEntry current() {
+            return entries.get(index);
+        }
+
+        // el más nuevo primero
+        @Override
+        public int compareTo(Head other) {
+            return TimelineBuffer.compare(other.current().toCursor(), current().toCursor());
+        }
+    }
+}
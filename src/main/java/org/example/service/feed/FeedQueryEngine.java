@@ -0,0 +1,157 @@
+package org.example.service.feed;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.example.dto.FeedCursor;
+import org.example.dto.TimelineEntry;
+import org.example.service.graph.FriendGraphService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Feed contra la base sin EXISTS correlacionado por fila.
+ *
+ * Primero se resuelven los amigos del viewer (grafo en memoria, sin query)
+ * y después se arma un UNION ALL de rangos que recorren un índice ya
+ * ordenado por (created_at, id), cada uno cortado en el tamaño pedido:
+ * - posts PUBLIC: idx_posts_privacy_created_at_id
+ * - posts no públicos propios: idx_posts_user_created_at_id
+ * - posts FRIENDS de los amigos: idx_posts_user_privacy_created_at_id
+ *
+ * Las ramas son disjuntas (por privacy), así que no hace falta deduplicar;
+ * el merge final ordena solo lo que devolvió cada rama.
+ */
+@Component
+@RequiredArgsConstructor
+public class FeedQueryEngine {
+
+    // Tope de parámetros por lista IN: más amigos = más ramas
+    static final int MAX_IN_LIST = 1000;
+
+    private static final String COLUMNS = "SELECT id, user_id, created_at FROM posts WHERE ";
+
+    private static final String KEYSET = " AND (created_at, id) < (:createdAt, :id)";
+
+    private static final String ORDER = " ORDER BY created_at DESC, id DESC";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final FriendGraphService friendGraph;
+
+    // -------------------------------------------------------
+    // LECTURA
+    // -------------------------------------------------------
+
+    /**
+     * Hasta {@code limit} entradas visibles anteriores al cursor, ordenadas
+     * por (createdAt, id) descendente.
+     */
+    public List<TimelineEntry> before(UUID viewerId, FeedCursor cursor, int limit) {
+        FeedSql sql = feedSql(viewerId, friendGraph.friendIds(viewerId), cursor, 0, limit);
+        return jdbc.query(sql.sql(), sql.params(), FeedQueryEngine::mapEntry);
+    }
+
+    /**
+     * Página por OFFSET (API clásica). Cada rama trae offset + size filas;
+     * el COUNT solo corre si la página no alcanza para deducir el total.
+     */
+    public Page<UUID> page(UUID viewerId, Pageable pageable) {
+        List<UUID> friends = friendGraph.friendIds(viewerId);
+        FeedSql sql = feedSql(viewerId, friends, null, (int) pageable.getOffset(), pageable.getPageSize());
+
+        List<UUID> ids = jdbc.query(sql.sql(), sql.params(), (rs, row) -> rs.getObject("id", UUID.class));
+
+        return PageableExecutionUtils.getPage(ids, pageable, () -> {
+            FeedSql count = countSql(viewerId, friends);
+            Long total = jdbc.queryForObject(count.sql(), count.params(), Long.class);
+            return total == null ? 0 : total;
+        });
+    }
+
+    // -------------------------------------------------------
+    // SQL
+    // -------------------------------------------------------
+
+    // cursor null = sin keyset (primera página o paginado por OFFSET)
+    static FeedSql feedSql(UUID viewerId, Collection<UUID> friendIds, FeedCursor cursor, int offset,
+            int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("viewerId", viewerId);
+
+        String keyset = "";
+        if (cursor != null) {
+            keyset = KEYSET;
+            params.addValue("createdAt", cursor.createdAt().atOffset(ZoneOffset.UTC));
+            params.addValue("id", cursor.id());
+        }
+
+        List<String> branches = new ArrayList<>();
+        // Los LIMIT van como literales (son int): H2 reutiliza el valor del
+        // primer bind en subconsultas de un statement cacheado
+        int branchLimit = offset + limit;
+        branches.add(branch("privacy = 'PUBLIC'", keyset, branchLimit));
+        branches.add(branch("user_id = :viewerId AND privacy <> 'PUBLIC'", keyset, branchLimit));
+
+        List<List<UUID>> chunks = chunks(friendIds);
+        for (int i = 0; i < chunks.size(); i++) {
+            params.addValue("friends" + i, chunks.get(i));
+            branches.add(branch("user_id IN (:friends" + i + ") AND privacy = 'FRIENDS'", keyset, branchLimit));
+        }
+
+        String sql = "SELECT id, user_id, created_at FROM ("
+                + String.join(" UNION ALL ", branches)
+                + ") feed" + ORDER + " LIMIT " + limit + " OFFSET " + offset;
+        return new FeedSql(sql, params);
+    }
+
+    static FeedSql countSql(UUID viewerId, Collection<UUID> friendIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource("viewerId", viewerId);
+
+        List<String> counts = new ArrayList<>();
+        counts.add("(SELECT COUNT(*) FROM posts WHERE privacy = 'PUBLIC')");
+        counts.add("(SELECT COUNT(*) FROM posts WHERE user_id = :viewerId AND privacy <> 'PUBLIC')");
+
+        List<List<UUID>> chunks = chunks(friendIds);
+        for (int i = 0; i < chunks.size(); i++) {
+            params.addValue("friends" + i, chunks.get(i));
+            counts.add("(SELECT COUNT(*) FROM posts WHERE user_id IN (:friends" + i + ") AND privacy = 'FRIENDS')");
+        }
+
+        return new FeedSql("SELECT " + String.join(" + ", counts), params);
+    }
+
+    // --- Helpers ---
+
+    private static String branch(String filter, String keyset, int limit) {
+        return "(" + COLUMNS + filter + keyset + ORDER + " LIMIT " + limit + ")";
+    }
+
+    private static List<List<UUID>> chunks(Collection<UUID> ids) {
+        List<UUID> all = new ArrayList<>(ids);
+        List<List<UUID>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += MAX_IN_LIST) {
+            chunks.add(all.subList(from, Math.min(from + MAX_IN_LIST, all.size())));
+        }
+        return chunks;
+    }
+
+    private static TimelineEntry mapEntry(ResultSet rs, int row) throws SQLException {
+        return new TimelineEntry(
+                rs.getObject("id", UUID.class),
+                rs.getObject("user_id", UUID.class),
+                rs.getTimestamp("created_at").toInstant());
+    }
+
+    record FeedSql(String sql, MapSqlParameterSource params) {
+    }
+}
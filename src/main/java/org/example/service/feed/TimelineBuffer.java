@@ -0,0 +1,249 @@
+package org.example.service.feed;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.example.dto.FeedCursor;
+import org.example.dto.TimelineEntry;
+
+/**
+ * Tabla compacta y acotada de entradas de timeline, ordenada por
+ * (createdAt, id) ascendente en arrays primitivos paralelos.
+ *
+ * Cuando se descartan entradas viejas (capacidad llena o carga parcial desde
+ * la base) se guarda un "horizonte": por debajo de él el buffer ya no sabe
+ * qué posts existen y la lectura tiene que ir a la base.
+ */
+public class TimelineBuffer {
+
+    private final int capacity;
+
+    // createdAt en microsegundos (precisión de timestamp(6) en la base)
+    private final long[] created;
+    private final long[] postHi;
+    private final long[] postLo;
+    private final long[] authorHi;
+    private final long[] authorLo;
+    private int size;
+
+    // Clave más nueva descartada; null = el buffer tiene toda la historia
+    private long[] horizon;
+
+    public TimelineBuffer(int capacity) {
+        this.capacity = capacity;
+        this.created = new long[capacity];
+        this.postHi = new long[capacity];
+        this.postLo = new long[capacity];
+        this.authorHi = new long[capacity];
+        this.authorLo = new long[capacity];
+    }
+
+    public synchronized void add(TimelineEntry entry) {
+        long micros = toMicros(entry.createdAt());
+        long hi = entry.postId().getMostSignificantBits();
+        long lo = entry.postId().getLeastSignificantBits();
+
+        if (horizon != null && compare(micros, hi, lo, horizon[0], horizon[1], horizon[2]) <= 0) {
+            return; // más viejo que lo que este buffer conoce
+        }
+
+        int pos = search(micros, hi, lo);
+        if (pos >= 0) {
+            return; // ya estaba
+        }
+        pos = -pos - 1;
+
+        if (size == capacity) {
+            if (pos == 0) {
+                markHorizon(micros, hi, lo);
+                return;
+            }
+            markHorizon(created[0], postHi[0], postLo[0]);
+            shiftLeft(1);
+            pos--;
+        }
+
+        System.arraycopy(created, pos, created, pos + 1, size - pos);
+        System.arraycopy(postHi, pos, postHi, pos + 1, size - pos);
+        System.arraycopy(postLo, pos, postLo, pos + 1, size - pos);
+        System.arraycopy(authorHi, pos, authorHi, pos + 1, size - pos);
+        System.arraycopy(authorLo, pos, authorLo, pos + 1, size - pos);
+
+        created[pos] = micros;
+        postHi[pos] = hi;
+        postLo[pos] = lo;
+        authorHi[pos] = entry.authorId().getMostSignificantBits();
+        authorLo[pos] = entry.authorId().getLeastSignificantBits();
+        size++;
+    }
+
+    /**
+     * Carga una página de entradas ordenadas de más nueva a más vieja. Si la
+     * página vino llena puede haber más historia: la más vieja pasa a ser el
+     * horizonte en lugar de insertarse.
+     */
+    public synchronized void addAll(List<TimelineEntry> newestFirst, boolean mayHaveMore) {
+        int last = newestFirst.size() - 1;
+        for (int i = 0; i <= last; i++) {
+            TimelineEntry e = newestFirst.get(i);
+            if (i == last && mayHaveMore) {
+                markHorizon(toMicros(e.createdAt()),
+                        e.postId().getMostSignificantBits(),
+                        e.postId().getLeastSignificantBits());
+                dropUpToHorizon();
+            } else {
+                add(e);
+            }
+        }
+    }
+
+    public synchronized void removePost(UUID postId) {
+        long hi = postId.getMostSignificantBits();
+        long lo = postId.getLeastSignificantBits();
+        removeIf((i) -> postHi[i] == hi && postLo[i] == lo);
+    }
+
+    public synchronized void removeAuthor(UUID authorId) {
+        long hi = authorId.getMostSignificantBits();
+        long lo = authorId.getLeastSignificantBits();
+        removeIf((i) -> authorHi[i] == hi && authorLo[i] == lo);
+    }
+
+    /**
+     * Hasta {@code limit} entradas estrictamente anteriores al cursor, de la
+     * más nueva a la más vieja, y solo por encima del horizonte.
+     */
+    public synchronized Window before(FeedCursor cursor, int limit) {
+        long micros = toMicros(cursor.createdAt());
+        long hi = cursor.id().getMostSignificantBits();
+        long lo = cursor.id().getLeastSignificantBits();
+
+        int pos = search(micros, hi, lo);
+        int from = (pos >= 0 ? pos : -pos - 1) - 1;
+
+        List<TimelineEntry> entries = new ArrayList<>(Math.min(limit, Math.max(from + 1, 0)));
+        for (int i = from; i >= 0 && entries.size() < limit; i--) {
+            entries.add(entryAt(i));
+        }
+
+        FeedCursor known = horizon == null ? null
+                : new FeedCursor(fromMicros(horizon[0]), new UUID(horizon[1], horizon[2]));
+
+        return new Window(entries, known);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Entradas anteriores a un cursor y el horizonte del buffer en ese momento
+     * (null si el buffer es completo).
+     */
+    public record Window(List<TimelineEntry> entries, FeedCursor horizon) {
+
+        // ¿la entrada está en la zona que el buffer conoce completa?
+        public boolean covers(TimelineEntry entry) {
+            return horizon == null || compare(entry.toCursor(), horizon) > 0;
+        }
+    }
+
+    static int compare(FeedCursor a, FeedCursor b) {
+        return compare(toMicros(a.createdAt()), a.id().getMostSignificantBits(), a.id().getLeastSignificantBits(),
+                toMicros(b.createdAt()), b.id().getMostSignificantBits(), b.id().getLeastSignificantBits());
+    }
+
+    // --- Helpers ---
+
+    private TimelineEntry entryAt(int i) {
+        return new TimelineEntry(
+                new UUID(postHi[i], postLo[i]),
+                new UUID(authorHi[i], authorLo[i]),
+                fromMicros(created[i]));
+    }
+
+    private interface IndexPredicate {
+        boolean test(int i);
+    }
+
+    private void removeIf(IndexPredicate predicate) {
+        int w = 0;
+        for (int r = 0; r < size; r++) {
+            if (!predicate.test(r)) {
+                if (w != r) {
+                    created[w] = created[r];
+                    postHi[w] = postHi[r];
+                    postLo[w] = postLo[r];
+                    authorHi[w] = authorHi[r];
+                    authorLo[w] = authorLo[r];
+                }
+                w++;
+            }
+        }
+        size = w;
+    }
+
+    private void markHorizon(long micros, long hi, long lo) {
+        if (horizon == null || compare(micros, hi, lo, horizon[0], horizon[1], horizon[2]) > 0) {
+            horizon = new long[] { micros, hi, lo };
+        }
+    }
+
+    private void dropUpToHorizon() {
+        int drop = 0;
+        while (drop < size
+                && compare(created[drop], postHi[drop], postLo[drop], horizon[0], horizon[1], horizon[2]) <= 0) {
+            drop++;
+        }
+        if (drop > 0) {
+            shiftLeft(drop);
+        }
+    }
+
+    private void shiftLeft(int n) {
+        System.arraycopy(created, n, created, 0, size - n);
+        System.arraycopy(postHi, n, postHi, 0, size - n);
+        System.arraycopy(postLo, n, postLo, 0, size - n);
+        System.arraycopy(authorHi, n, authorHi, 0, size - n);
+        System.arraycopy(authorLo, n, authorLo, 0, size - n);
+        size -= n;
+    }
+
+    // Búsqueda binaria; mismo contrato que Arrays.binarySearch
+    private int search(long micros, long hi, long lo) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = compare(created[mid], postHi[mid], postLo[mid], micros, hi, lo);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // Mismo orden que la base: uuid se compara como bytes sin signo
+    static int compare(long m1, long h1, long l1, long m2, long h2, long l2) {
+        int c = Long.compare(m1, m2);
+        if (c != 0) {
+            return c;
+        }
+        c = Long.compareUnsigned(h1, h2);
+        return c != 0 ? c : Long.compareUnsigned(l1, l2);
+    }
+
+    static long toMicros(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000;
+    }
+
+    static Instant fromMicros(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+}
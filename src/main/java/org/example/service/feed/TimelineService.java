@@ -0,0 +1,321 @@
+package org.example.service.feed;
+
+import static org.example.util.TransactionUtils.afterCommit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.example.dto.FeedCursor;
+import org.example.dto.TimelineEntry;
+import org.example.entity.Post;
+import org.example.entity.Privacy;
+import org.example.repository.PostRepository;
+import org.example.service.graph.FriendGraphService;
+import org.example.service.relay.ClusterEvents;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Timelines de inicio en memoria, híbrido push/pull.
+ *
+ * Cada usuario tiene un buffer acotado con sus posts no públicos y los posts
+ * FRIENDS de sus amigos (push). Los autores con muchos amigos no hacen
+ * fan-out: sus posts quedan en un índice chico por autor y se leen al armar
+ * el feed (pull), igual que el stream compartido de posts PUBLIC. El feed es
+ * el merge de todas esas fuentes por (createdAt, id).
+ *
+ * Los buffers se arman desde la base la primera vez que se leen (arranque en
+ * frío) y después se mantienen con cada post creado/borrado y cada cambio de
+ * amistad. Amigos y clasificación de autores salen de
+ * {@link FriendGraphService}: ni leer el feed ni publicar van a la base por
+ * la lista de amigos. Los posts y cambios de amistad de los otros nodos
+ * llegan por {@link ClusterEvents} y se aplican igual.
+ */
+@Service
+@RequiredArgsConstructor
+public class TimelineService {
+
+    private static final Logger log = LoggerFactory.getLogger(TimelineService.class);
+
+    private final PostRepository postRepo;
+    private final FriendGraphService friendGraph;
+    private final ClusterEvents clusterEvents;
+
+    @Value("${feed.timeline.capacity:200}")
+    private int capacity;
+
+    @Value("${feed.timeline.public-capacity:1000}")
+    private int publicCapacity;
+
+    @Value("${feed.timeline.max-users:10000}")
+    private int maxUsers;
+
+    @Value("${feed.timeline.heavy-author-threshold:1000}")
+    private long heavyAuthorThreshold;
+
+    @Value("${feed.timeline.author-index-capacity:50}")
+    private int authorIndexCapacity;
+
+    private Cache<UUID, TimelineBuffer> timelines;
+
+    // Índices de posts recientes de autores "pesados" (pull)
+    private Cache<UUID, TimelineBuffer> authorIndexes;
+
+    // Autores que publicaron sin fan-out y después bajaron del umbral: sus
+    // posts de esa época no están en los timelines ya armados, se siguen
+    // leyendo de su índice hasta el próximo rebuild
+    private final Set<UUID> heavyAuthors = ConcurrentHashMap.newKeySet();
+
+    private volatile TimelineBuffer publicStream;
+
+    @PostConstruct
+    public void init() {
+        this.timelines = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(30, TimeUnit.MINUTES)
+                .build();
+        this.authorIndexes = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(30, TimeUnit.MINUTES)
+                .build();
+
+        clusterEvents.subscribe(PostCreated.class, e -> postCreated(e.entry(), e.privacy()));
+        clusterEvents.subscribe(PostDeleted.class, e -> postDeleted(e.postId(), e.authorId(), e.privacy()));
+        clusterEvents.subscribe(FriendshipAccepted.class, e -> friendshipAccepted(e.userA(), e.userB()));
+        clusterEvents.subscribe(FriendshipRemoved.class, e -> friendshipRemoved(e.userA(), e.userB()));
+        clusterEvents.onReconnect(this::rebuild);
+    }
+
+    // -------------------------------------------------------
+    // LECTURA
+    // -------------------------------------------------------
+
+    /**
+     * Hasta {@code limit} entradas del feed anteriores al cursor. Vacío si la
+     * página cae por debajo de lo que los buffers conocen (hay que ir a la base).
+     */
+    public Optional<List<TimelineEntry>> homeTimeline(UUID userId, FeedCursor cursor, int limit) {
+
+        List<TimelineBuffer.Window> sources = new ArrayList<>();
+        sources.add(timelines.get(userId, this::loadTimeline).before(cursor, limit));
+        sources.add(publicStream().before(cursor, limit));
+
+        for (UUID friendId : friendGraph.friendIds(userId)) {
+            if (isHeavyAuthor(friendId) || heavyAuthors.contains(friendId)) {
+                sources.add(authorIndexes.get(friendId, this::loadAuthorIndex).before(cursor, limit));
+            }
+        }
+
+        return FeedMerger.merge(sources, limit);
+    }
+
+    // -------------------------------------------------------
+    // FAN-OUT (después del commit)
+    // -------------------------------------------------------
+
+    public void onPostCreated(Post post) {
+        TimelineEntry entry = new TimelineEntry(post.getId(), post.getUser().getId(), post.getCreatedAt());
+        postCreated(entry, post.getPrivacy());
+        clusterEvents.publish(new PostCreated(entry, post.getPrivacy()));
+    }
+
+    public void onPostDeleted(Post post) {
+        postDeleted(post.getId(), post.getUser().getId(), post.getPrivacy());
+        clusterEvents.publish(new PostDeleted(post.getId(), post.getUser().getId(), post.getPrivacy()));
+    }
+
+    // Backfill: los posts FRIENDS recientes de cada uno entran al timeline del otro
+    public void onFriendshipAccepted(UUID userA, UUID userB) {
+        friendshipAccepted(userA, userB);
+        clusterEvents.publish(new FriendshipAccepted(userA, userB));
+    }
+
+    public void onFriendshipRemoved(UUID userA, UUID userB) {
+        friendshipRemoved(userA, userB);
+        clusterEvents.publish(new FriendshipRemoved(userA, userB));
+    }
+
+    private void postCreated(TimelineEntry entry, Privacy privacy) {
+        if (privacy == Privacy.PUBLIC) {
+            afterCommit(() -> {
+                TimelineBuffer stream = publicStream;
+                if (stream != null) {
+                    stream.add(entry);
+                }
+            });
+            return;
+        }
+
+        List<UUID> targets = new ArrayList<>();
+        targets.add(entry.authorId());
+
+        if (privacy == Privacy.FRIENDS) {
+            if (isHeavyAuthor(entry.authorId())) {
+                // sin fan-out: los amigos lo leen del índice del autor
+                heavyAuthors.add(entry.authorId());
+                afterCommit(() -> {
+                    pushTo(authorIndexes, entry.authorId(), entry);
+                    pushTo(timelines, entry.authorId(), entry);
+                });
+                return;
+            }
+            targets.addAll(friendGraph.friendIds(entry.authorId()));
+        }
+
+        afterCommit(() -> targets.forEach(userId -> pushTo(timelines, userId, entry)));
+    }
+
+    private void postDeleted(UUID postId, UUID authorId, Privacy privacy) {
+        List<UUID> targets = new ArrayList<>();
+        targets.add(authorId);
+        if (privacy == Privacy.FRIENDS) {
+            targets.addAll(friendGraph.friendIds(authorId));
+        }
+
+        afterCommit(() -> {
+            TimelineBuffer stream = publicStream;
+            if (stream != null) {
+                stream.removePost(postId);
+            }
+            TimelineBuffer index = authorIndexes.getIfPresent(authorId);
+            if (index != null) {
+                index.removePost(postId);
+            }
+            targets.forEach(userId -> {
+                TimelineBuffer buffer = timelines.getIfPresent(userId);
+                if (buffer != null) {
+                    buffer.removePost(postId);
+                }
+            });
+        });
+    }
+
+    private void friendshipAccepted(UUID userA, UUID userB) {
+        Optional<List<TimelineEntry>> forA = backfillFor(userA, userB);
+        Optional<List<TimelineEntry>> forB = backfillFor(userB, userA);
+
+        afterCommit(() -> {
+            forA.ifPresent(entries -> pushAll(userA, entries));
+            forB.ifPresent(entries -> pushAll(userB, entries));
+        });
+    }
+
+    private void friendshipRemoved(UUID userA, UUID userB) {
+        afterCommit(() -> {
+            TimelineBuffer a = timelines.getIfPresent(userA);
+            if (a != null) {
+                a.removeAuthor(userB);
+            }
+            TimelineBuffer b = timelines.getIfPresent(userB);
+            if (b != null) {
+                b.removeAuthor(userA);
+            }
+        });
+    }
+
+    // -------------------------------------------------------
+    // REBUILD DESDE LA BASE
+    // -------------------------------------------------------
+
+    // Descarta todo: cada timeline se vuelve a armar desde la base al leerse.
+    // También al reconectar el relay (eventos de otros nodos perdidos)
+    public void rebuild() {
+        timelines.invalidateAll();
+        authorIndexes.invalidateAll();
+        heavyAuthors.clear(); // los timelines nuevos ya traen esos posts de la base
+        publicStream = loadPublicStream();
+        log.info("Timelines reiniciados; stream público con {} posts", publicStream.size());
+    }
+
+    private TimelineBuffer loadTimeline(UUID userId) {
+        TimelineBuffer buffer = new TimelineBuffer(capacity);
+        List<TimelineEntry> entries = postRepo.findTimelineEntries(userId, PageRequest.of(0, capacity + 1));
+        buffer.addAll(entries, entries.size() > capacity);
+        return buffer;
+    }
+
+    private TimelineBuffer loadAuthorIndex(UUID authorId) {
+        TimelineBuffer buffer = new TimelineBuffer(authorIndexCapacity);
+        List<TimelineEntry> entries = postRepo.findFriendsOnlyEntriesByAuthor(
+                authorId, PageRequest.of(0, authorIndexCapacity + 1));
+        buffer.addAll(entries, entries.size() > authorIndexCapacity);
+        return buffer;
+    }
+
+    private TimelineBuffer loadPublicStream() {
+        TimelineBuffer buffer = new TimelineBuffer(publicCapacity);
+        List<TimelineEntry> entries = postRepo.findPublicTimelineEntries(PageRequest.of(0, publicCapacity + 1));
+        buffer.addAll(entries, entries.size() > publicCapacity);
+        return buffer;
+    }
+
+    private TimelineBuffer publicStream() {
+        TimelineBuffer stream = publicStream;
+        if (stream == null) {
+            synchronized (this) {
+                stream = publicStream;
+                if (stream == null) {
+                    stream = loadPublicStream();
+                    publicStream = stream;
+                }
+            }
+        }
+        return stream;
+    }
+
+    // --- Helpers ---
+
+    // Clasificación por cantidad de amigos aceptados: sale del grafo, así
+    // todos los nodos clasifican igual
+    boolean isHeavyAuthor(UUID authorId) {
+        return friendGraph.friendCount(authorId) >= heavyAuthorThreshold;
+    }
+
+    // Solo se toca el buffer si ya está en memoria; si no, se arma al leerse
+    private static void pushTo(Cache<UUID, TimelineBuffer> buffers, UUID key, TimelineEntry entry) {
+        buffers.asMap().computeIfPresent(key, (id, buffer) -> {
+            buffer.add(entry);
+            return buffer;
+        });
+    }
+
+    private void pushAll(UUID userId, List<TimelineEntry> newestFirst) {
+        timelines.asMap().computeIfPresent(userId, (id, buffer) -> {
+            buffer.addAll(newestFirst, newestFirst.size() > capacity);
+            return buffer;
+        });
+    }
+
+    private Optional<List<TimelineEntry>> backfillFor(UUID userId, UUID friendId) {
+        if (timelines.getIfPresent(userId) == null) {
+            return Optional.empty();
+        }
+        return Optional.of(postRepo.findFriendsOnlyEntriesByAuthor(friendId, PageRequest.of(0, capacity + 1)));
+    }
+
+    record PostCreated(TimelineEntry entry, Privacy privacy) {
+    }
+
+    record PostDeleted(UUID postId, UUID authorId, Privacy privacy) {
+    }
+
+    record FriendshipAccepted(UUID userA, UUID userB) {
+    }
+
+    record FriendshipRemoved(UUID userA, UUID userB) {
+    }
+}
@@ -0,0 +1,230 @@
+package org.example.service.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.example.entity.Friend.FriendStatus;
+
+/**
+ * Grafo de relaciones entre usuarios en memoria.
+ *
+ * Cada UUID se mapea a un id int denso y cada usuario tiene arrays int
+ * ordenados con sus vecinos: amigos (simétrico), bloqueados y solicitudes
+ * pendientes (dirigidos, de requester a receiver). Las consultas son una
+ * búsqueda binaria: O(log d).
+ *
+ * Los arrays de vecinos son inmutables (copy-on-write): las lecturas no
+ * toman locks y las escrituras se serializan.
+ */
+public class FriendGraph {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<UUID, Integer> ids = new ConcurrentHashMap<>();
+
+    // id int -> UUID (se escribe antes de publicar el id en las listas)
+    private volatile UUID[] uuids = new UUID[1024];
+
+    private final Adjacency friends = new Adjacency();
+    private final Adjacency blocks = new Adjacency();
+    private final Adjacency pending = new Adjacency();
+
+    // -------------------------------------------------------
+    // CONSULTAS
+    // -------------------------------------------------------
+
+    public boolean areFriends(UUID a, UUID b) {
+        int x = idOf(a);
+        int y = idOf(b);
+        if (x < 0 || y < 0) {
+            return false;
+        }
+        // se busca en la lista más corta de las dos
+        return friends.degree(x) <= friends.degree(y)
+                ? friends.contains(x, y)
+                : friends.contains(y, x);
+    }
+
+    public boolean hasBlocked(UUID blocker, UUID blocked) {
+        int x = idOf(blocker);
+        int y = idOf(blocked);
+        return x >= 0 && y >= 0 && blocks.contains(x, y);
+    }
+
+    public boolean hasPendingRequest(UUID requester, UUID receiver) {
+        int x = idOf(requester);
+        int y = idOf(receiver);
+        return x >= 0 && y >= 0 && pending.contains(x, y);
+    }
+
+    public int friendCount(UUID userId) {
+        int x = idOf(userId);
+        return x < 0 ? 0 : friends.degree(x);
+    }
+
+    public List<UUID> friendsOf(UUID userId) {
+        int x = idOf(userId);
+        if (x < 0) {
+            return List.of();
+        }
+        int[] list = friends.list(x);
+        UUID[] names = uuids;
+        List<UUID> result = new ArrayList<>(list.length);
+        for (int friend : list) {
+            result.add(names[friend]);
+        }
+        return result;
+    }
+
+    // -------------------------------------------------------
+    // MUTACIONES
+    // -------------------------------------------------------
+
+    /**
+     * Deja la relación del par en el estado dado (reemplaza la anterior, como
+     * la fila única de {@code friends}). REJECTED no guarda arista.
+     */
+    public synchronized void setRelation(UUID requester, UUID receiver, FriendStatus status) {
+        int x = intern(requester);
+        int y = intern(receiver);
+
+        clear(x, y);
+
+        switch (status) {
+            case ACCEPTED -> {
+                friends.add(x, y);
+                friends.add(y, x);
+            }
+            case BLOCKED -> blocks.add(x, y);
+            case PENDING -> pending.add(x, y);
+            case REJECTED -> {
+                // sin arista
+            }
+        }
+    }
+
+    public synchronized void removeRelation(UUID a, UUID b) {
+        int x = idOf(a);
+        int y = idOf(b);
+        if (x >= 0 && y >= 0) {
+            clear(x, y);
+        }
+    }
+
+    public int userCount() {
+        return ids.size();
+    }
+
+    // --- Helpers ---
+
+    private void clear(int x, int y) {
+        friends.remove(x, y);
+        friends.remove(y, x);
+        blocks.remove(x, y);
+        blocks.remove(y, x);
+        pending.remove(x, y);
+        pending.remove(y, x);
+    }
+
+    private int idOf(UUID userId) {
+        Integer id = ids.get(userId);
+        return id == null ? -1 : id;
+    }
+
+    // Solo se llama con el lock tomado: los ids son consecutivos
+    private int intern(UUID userId) {
+        Integer existing = ids.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        int id = ids.size();
+        UUID[] names = uuids;
+        if (id >= names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+        }
+        names[id] = userId;
+        uuids = names;
+        ids.put(userId, id);
+        return id;
+    }
+
+    /**
+     * Vecinos por id int: un array ordenado por usuario. El array externo
+     * crece por duplicación.
+     */
+    private static final class Adjacency {
+
+        private volatile AtomicReferenceArray<int[]> lists = new AtomicReferenceArray<>(1024);
+
+        boolean contains(int from, int to) {
+            return Arrays.binarySearch(get(from), to) >= 0;
+        }
+
+        int degree(int from) {
+            return get(from).length;
+        }
+
+        int[] list(int from) {
+            return get(from);
+        }
+
+        void add(int from, int to) {
+            int[] current = get(from);
+            int pos = Arrays.binarySearch(current, to);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+
+            int[] next = new int[current.length + 1];
+            System.arraycopy(current, 0, next, 0, pos);
+            next[pos] = to;
+            System.arraycopy(current, pos, next, pos + 1, current.length - pos);
+            set(from, next);
+        }
+
+        void remove(int from, int to) {
+            int[] current = get(from);
+            int pos = Arrays.binarySearch(current, to);
+            if (pos < 0) {
+                return;
+            }
+
+            int[] next = current.length == 1 ? EMPTY : new int[current.length - 1];
+            System.arraycopy(current, 0, next, 0, pos);
+            System.arraycopy(current, pos + 1, next, pos, current.length - pos - 1);
+            set(from, next);
+        }
+
+        private int[] get(int from) {
+            AtomicReferenceArray<int[]> snapshot = lists;
+            if (from >= snapshot.length()) {
+                return EMPTY;
+            }
+            int[] list = snapshot.get(from);
+            return list == null ? EMPTY : list;
+        }
+
+        private void set(int from, int[] list) {
+            AtomicReferenceArray<int[]> snapshot = lists;
+            if (from >= snapshot.length()) {
+                int size = snapshot.length();
+                while (size <= from) {
+                    size *= 2;
+                }
+                AtomicReferenceArray<int[]> grown = new AtomicReferenceArray<>(size);
+                for (int i = 0; i < snapshot.length(); i++) {
+                    grown.set(i, snapshot.get(i));
+                }
+                lists = grown;
+                snapshot = grown;
+            }
+            snapshot.set(from, list);
+        }
+    }
+}
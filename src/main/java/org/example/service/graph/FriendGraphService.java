@@ -0,0 +1,108 @@
+package org.example.service.graph;
+
+import static org.example.util.TransactionUtils.afterCommit;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.example.dto.FriendEdge;
+import org.example.entity.Friend.FriendStatus;
+import org.example.repository.FriendRepository;
+import org.example.service.relay.ClusterEvents;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Relaciones de amistad en memoria para los chequeos de visibilidad
+ * (posts, archivos, perfiles) sin ir a la base en cada request.
+ *
+ * Se arma completo al arrancar y después lo mantiene {@code FriendService}
+ * con cada mutación, al confirmarse la transacción. Las mutaciones de los
+ * otros nodos llegan por {@link ClusterEvents}.
+ */
+@Service
+@RequiredArgsConstructor
+public class FriendGraphService {
+
+    private static final Logger log = LoggerFactory.getLogger(FriendGraphService.class);
+
+    private final FriendRepository friendRepo;
+    private final ClusterEvents clusterEvents;
+
+    private volatile FriendGraph graph = new FriendGraph();
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+        clusterEvents.subscribe(RelationChanged.class,
+                e -> graph.setRelation(e.requesterId(), e.receiverId(), e.status()));
+        clusterEvents.subscribe(RelationRemoved.class, e -> graph.removeRelation(e.a(), e.b()));
+        clusterEvents.onReconnect(this::rebuild);
+    }
+
+    // -------------------------------------------------------
+    // LECTURA
+    // -------------------------------------------------------
+
+    public boolean areFriends(UUID a, UUID b) {
+        return graph.areFriends(a, b);
+    }
+
+    public boolean hasBlocked(UUID blocker, UUID blocked) {
+        return graph.hasBlocked(blocker, blocked);
+    }
+
+    public boolean hasPendingRequest(UUID requester, UUID receiver) {
+        return graph.hasPendingRequest(requester, receiver);
+    }
+
+    public int friendCount(UUID userId) {
+        return graph.friendCount(userId);
+    }
+
+    public List<UUID> friendIds(UUID userId) {
+        return graph.friendsOf(userId);
+    }
+
+    // -------------------------------------------------------
+    // MUTACIONES (después del commit)
+    // -------------------------------------------------------
+
+    public void onRelationChanged(UUID requesterId, UUID receiverId, FriendStatus status) {
+        afterCommit(() -> graph.setRelation(requesterId, receiverId, status));
+        clusterEvents.publish(new RelationChanged(requesterId, receiverId, status));
+    }
+
+    public void onRelationRemoved(UUID a, UUID b) {
+        afterCommit(() -> graph.removeRelation(a, b));
+        clusterEvents.publish(new RelationRemoved(a, b));
+    }
+
+    // -------------------------------------------------------
+    // REBUILD DESDE LA BASE
+    // -------------------------------------------------------
+
+    // Mutaciones concurrentes con un rebuild pueden perderse: solo al arrancar
+    // y al reconectar el relay (que ya perdió eventos)
+    public void rebuild() {
+        List<FriendEdge> edges = friendRepo.findAllEdges();
+
+        FriendGraph fresh = new FriendGraph();
+        for (FriendEdge edge : edges) {
+            fresh.setRelation(edge.requesterId(), edge.receiverId(), edge.status());
+        }
+        graph = fresh;
+
+        log.info("Grafo de amistades cargado: {} relaciones, {} usuarios", edges.size(), fresh.userCount());
+    }
+
+    record RelationChanged(UUID requesterId, UUID receiverId, FriendStatus status) {
+    }
+
+    record RelationRemoved(UUID a, UUID b) {
+    }
+}
@@ -0,0 +1,457 @@
+package org.example.service.like;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import org.example.service.cache.CacheInvalidationService;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Likes con escritura diferida (write-behind).
+ *
+ * Cada toggle se anota en memoria por (postId, userId), repartido en stripes
+ * con su propio lock. Los toggles del mismo par se compensan: like + unlike
+ * antes del flush no escribe nada. Cada pocos cientos de ms el flush manda
+ * los cambios netos a {@code post_likes} en batches JDBC, en una sola
+ * transacción junto con el {@code like_count} de {@code post_stats}.
+ *
+ * Mientras tanto los contadores se sirven como "base + pendiente": el delta
+ * no escrito de cada post vive en un {@link LongAdder} y se suma a lo que
+ * diga la base. Al confirmarse el flush se descuenta y se evicta el cache
+ * del post para que la base vuelva a ser la fuente.
+ *
+ * Caída del proceso: se pierden como mucho los toggles del último intervalo
+ * sin flush (el shutdown ordenado hace flush). Lo ya escrito es consistente
+ * porque cada flush es atómico. Si el batch falla se reintenta fila por
+ * fila: una fila inválida (FK, unique) se descarta sola y no bloquea al
+ * resto; ante un error transitorio lo que falta vuelve al buffer.
+ */
+@Service
+@RequiredArgsConstructor
+public class LikeBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(LikeBuffer.class);
+
+    private static final int STRIPES = 64;
+
+    // Mismo incremento que post_likes_seq (allocationSize de @GeneratedValue)
+    private static final int SEQUENCE_INCREMENT = 50;
+
+    private static final String INSERT_SQL = """
+            INSERT INTO post_likes (id, post_id, user_id, created_at)
+            SELECT ?, ?, ?, ?
+            WHERE EXISTS (SELECT 1 FROM posts WHERE id = ?)
+            AND NOT EXISTS (SELECT 1 FROM post_likes WHERE post_id = ? AND user_id = ?)
+            """;
+
+    private static final String DELETE_SQL = "DELETE FROM post_likes WHERE post_id = ? AND user_id = ?";
+
+    private static final String STATS_SQL = "UPDATE post_stats SET like_count = like_count + ?, updated_at = ? WHERE post_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory emf;
+    private final CacheInvalidationService cacheInvalidation;
+    private final MeterRegistry meterRegistry;
+
+    private final Stripe[] stripes = newStripes();
+
+    // Lo que el flush en curso está escribiendo: es el estado "de la base"
+    // hasta que confirme
+    private final Map<LikeKey, Boolean> inflight = new ConcurrentHashMap<>();
+
+    // Likes netos todavía no escritos, por post
+    private final Map<UUID, LongAdder> pendingDeltas = new ConcurrentHashMap<>();
+
+    private String nextIdSql;
+
+    @PostConstruct
+    public void init() {
+        Dialect dialect = emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        this.nextIdSql = dialect.getSequenceSupport().getSequenceNextValString("post_likes_seq");
+
+        Gauge.builder("likes.pending", this, LikeBuffer::pendingCount)
+                .description("Toggles de like en memoria sin escribir")
+                .register(meterRegistry);
+    }
+
+    // -------------------------------------------------------
+    // TOGGLE
+    // -------------------------------------------------------
+
+    /**
+     * Invierte el like de un usuario sobre un post y devuelve el estado
+     * nuevo. {@code likedInDb} solo se consulta si el par no tiene nada
+     * pendiente ni en vuelo, y fuera del lock del stripe: si mientras tanto
+     * otro toggle tocó el stripe, se vuelve a mirar.
+     */
+    public boolean toggle(UUID postId, UUID userId, BooleanSupplier likedInDb) {
+        LikeKey key = new LikeKey(postId, userId);
+        Stripe stripe = stripeOf(key);
+        Boolean fromDb = null;
+        long seen;
+
+        while (true) {
+            synchronized (stripe) {
+                Pending pending = stripe.entries.get(key);
+                Boolean flushing = inflight.get(key);
+
+                if (pending != null || flushing != null || fromDb != null) {
+                    boolean current;
+                    boolean original;
+                    if (pending != null) {
+                        current = pending.desired();
+                        original = pending.original();
+                    } else {
+                        // sin nada en vuelo, el último flush de este par ya confirmó
+                        current = flushing != null ? flushing : fromDb;
+                        original = current;
+                    }
+
+                    boolean desired = !current;
+                    if (desired == original) {
+                        stripe.entries.remove(key); // se compensó: nada que escribir
+                    } else {
+                        stripe.entries.put(key, new Pending(original, desired));
+                    }
+                    stripe.version++;
+
+                    delta(postId).add(desired ? 1 : -1);
+                    return desired;
+                }
+                seen = stripe.version;
+            }
+
+            fromDb = likedInDb.getAsBoolean();
+
+            synchronized (stripe) {
+                if (stripe.version != seen) {
+                    fromDb = null; // pudo haber un toggle y un flush en el medio: se relee
+                }
+            }
+        }
+    }
+
+    // -------------------------------------------------------
+    // LECTURA (base + pendiente)
+    // -------------------------------------------------------
+
+    public long pendingDelta(UUID postId) {
+        LongAdder adder = pendingDeltas.get(postId);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    // Estado del like si todavía no está en la base; vacío = preguntar a la base
+    public Optional<Boolean> pendingState(UUID postId, UUID userId) {
+        LikeKey key = new LikeKey(postId, userId);
+        Stripe stripe = stripeOf(key);
+
+        synchronized (stripe) {
+            Pending pending = stripe.entries.get(key);
+            if (pending != null) {
+                return Optional.of(pending.desired());
+            }
+        }
+        return Optional.ofNullable(inflight.get(key));
+    }
+
+    public int pendingCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.entries.size();
+            }
+        }
+        return count;
+    }
+
+    // -------------------------------------------------------
+    // FLUSH
+    // -------------------------------------------------------
+
+    @Scheduled(fixedDelayString = "${likes.flush-interval-ms:250}", initialDelayString = "${likes.flush-interval-ms:250}")
+    public void flush() {
+        Map<LikeKey, Pending> batch = drain();
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            write(batch);
+        } catch (RuntimeException e) {
+            log.warn("Flush de likes falló ({} cambios), se reintenta fila por fila", batch.size(), e);
+            writeOneByOne(batch);
+            return;
+        }
+        confirm(batch);
+    }
+
+    /**
+     * Un batch que falló, de a una fila por transacción. Las filas con un
+     * dato inválido (post o usuario borrado, unique) se descartan; ante un
+     * error transitorio (base caída) lo que falta vuelve al buffer para el
+     * próximo ciclo sin seguir probando.
+     */
+    private void writeOneByOne(Map<LikeKey, Pending> batch) {
+        List<Map.Entry<LikeKey, Pending>> entries = new ArrayList<>(batch.entrySet());
+        boolean discarded = false;
+
+        for (int i = 0; i < entries.size(); i++) {
+            LikeKey key = entries.get(i).getKey();
+            Pending pending = entries.get(i).getValue();
+            Map<LikeKey, Pending> single = Map.of(key, pending);
+            try {
+                write(single);
+                confirm(single);
+            } catch (NonTransientDataAccessException e) {
+                log.warn("Like descartado: no se puede escribir (post {}, usuario {})", key.postId(), key.userId(), e);
+                meterRegistry.counter("likes.discarded").increment();
+                discard(key, pending);
+                discarded = true;
+            } catch (RuntimeException e) {
+                Map<LikeKey, Pending> rest = new HashMap<>();
+                entries.subList(i, entries.size()).forEach(entry -> rest.put(entry.getKey(), entry.getValue()));
+                restore(rest);
+                break;
+            }
+        }
+
+        if (discarded) {
+            reconcile(); // los deltas del descarte se recalculan desde lo pendiente
+        }
+    }
+
+    private void write(Map<LikeKey, Pending> batch) {
+        List<LikeKey> inserts = new ArrayList<>();
+        List<LikeKey> deletes = new ArrayList<>();
+        batch.forEach((key, pending) -> (pending.desired() ? inserts : deletes).add(key));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<UUID, Long> applied = new HashMap<>();
+            writeInserts(inserts, applied);
+            writeDeletes(deletes, applied);
+            writeStats(applied);
+        });
+
+        meterRegistry.counter("likes.flushed", "op", "insert").increment(inserts.size());
+        meterRegistry.counter("likes.flushed", "op", "delete").increment(deletes.size());
+    }
+
+    // Escrito: la base vuelve a ser la fuente
+    private void confirm(Map<LikeKey, Pending> written) {
+        Set<UUID> posts = new HashSet<>();
+        written.forEach((key, pending) -> {
+            delta(key.postId()).add(pending.desired() ? -1 : 1);
+            inflight.remove(key, pending.desired());
+            posts.add(key.postId());
+        });
+        posts.forEach(cacheInvalidation::onLikeChanged);
+    }
+
+    /**
+     * Repara los deltas contra lo que realmente queda pendiente (por ejemplo
+     * tras un flush fallido a medias) y libera los contadores en cero.
+     */
+    @Scheduled(fixedDelayString = "${likes.reconcile-interval-ms:60000}", initialDelayString = "${likes.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        Map<UUID, Long> expected = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.entries.forEach((key, pending) -> expected.merge(key.postId(),
+                        pending.desired() ? 1L : -1L, Long::sum));
+            }
+        }
+        inflight.forEach((key, desired) -> expected.merge(key.postId(), desired ? 1L : -1L, Long::sum));
+
+        Set<UUID> posts = new HashSet<>(pendingDeltas.keySet());
+        posts.addAll(expected.keySet());
+
+        for (UUID postId : posts) {
+            LongAdder adder = delta(postId);
+            long drift = adder.sum() - expected.getOrDefault(postId, 0L);
+            if (drift != 0) {
+                adder.add(-drift);
+                meterRegistry.counter("likes.reconciled").increment(Math.abs(drift));
+            }
+            if (!expected.containsKey(postId) && adder.sum() == 0) {
+                pendingDeltas.remove(postId, adder);
+            }
+        }
+    }
+
+    // Shutdown ordenado: no se pierde nada
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // --- Helpers ---
+
+    private Map<LikeKey, Pending> drain() {
+        Map<LikeKey, Pending> batch = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                if (stripe.entries.isEmpty()) {
+                    continue;
+                }
+                stripe.entries.forEach((key, pending) -> inflight.put(key, pending.desired()));
+                batch.putAll(stripe.entries);
+                stripe.entries = new HashMap<>();
+            }
+        }
+        return batch;
+    }
+
+    // Fila descartada: la base quedó en el estado original; los toggles
+    // posteriores del par parten de ahí
+    private void discard(LikeKey key, Pending failed) {
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            Pending newer = stripe.entries.get(key);
+            if (newer != null) {
+                if (newer.desired() == failed.original()) {
+                    stripe.entries.remove(key);
+                } else {
+                    stripe.entries.put(key, new Pending(failed.original(), newer.desired()));
+                }
+            }
+            inflight.remove(key);
+            stripe.version++;
+        }
+    }
+
+    // Flush fallido: se vuelve a encolar combinando con toggles posteriores
+    private void restore(Map<LikeKey, Pending> batch) {
+        batch.forEach((key, failed) -> {
+            Stripe stripe = stripeOf(key);
+            synchronized (stripe) {
+                Pending newer = stripe.entries.get(key);
+                boolean desired = newer != null ? newer.desired() : failed.desired();
+                if (desired == failed.original()) {
+                    stripe.entries.remove(key);
+                } else {
+                    stripe.entries.put(key, new Pending(failed.original(), desired));
+                }
+                inflight.remove(key);
+                stripe.version++;
+            }
+        });
+    }
+
+    private void writeInserts(List<LikeKey> keys, Map<UUID, Long> applied) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<Long> ids = allocateIds(keys.size());
+        Timestamp now = Timestamp.from(Instant.now());
+
+        List<Object[]> args = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            LikeKey key = keys.get(i);
+            args.add(new Object[] { ids.get(i), key.postId(), key.userId(), now,
+                    key.postId(), key.postId(), key.userId() });
+        }
+        countApplied(keys, jdbcTemplate.batchUpdate(INSERT_SQL, args), 1, applied);
+    }
+
+    private void writeDeletes(List<LikeKey> keys, Map<UUID, Long> applied) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(keys.size());
+        for (LikeKey key : keys) {
+            args.add(new Object[] { key.postId(), key.userId() });
+        }
+        countApplied(keys, jdbcTemplate.batchUpdate(DELETE_SQL, args), -1, applied);
+    }
+
+    // Solo cuentan las filas que realmente cambiaron (el INSERT condicional
+    // puede no insertar); si el driver no informa, lo corrige la reconciliación
+    private static void countApplied(List<LikeKey> keys, int[] rows, long sign, Map<UUID, Long> applied) {
+        for (int i = 0; i < keys.size(); i++) {
+            if (rows[i] > 0) {
+                applied.merge(keys.get(i).postId(), sign * rows[i], Long::sum);
+            }
+        }
+    }
+
+    private void writeStats(Map<UUID, Long> applied) {
+        applied.values().removeIf(delta -> delta == 0);
+        if (applied.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> args = new ArrayList<>(applied.size());
+        applied.forEach((postId, delta) -> args.add(new Object[] { delta, now, postId }));
+        jdbcTemplate.batchUpdate(STATS_SQL, args);
+    }
+
+    // Un nextval reserva el bloque (v - 49 .. v], igual que el optimizador
+    // pooled de Hibernate: no choca con los ids que asigna JPA
+    private List<Long> allocateIds(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            long hi = jdbcTemplate.queryForObject(nextIdSql, Long.class);
+            for (long id = Math.max(1, hi - SEQUENCE_INCREMENT + 1); id <= hi && ids.size() < count; id++) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private LongAdder delta(UUID postId) {
+        return pendingDeltas.computeIfAbsent(postId, id -> new LongAdder());
+    }
+
+    private Stripe stripeOf(LikeKey key) {
+        return stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    private static Stripe[] newStripes() {
+        Stripe[] stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        return stripes;
+    }
+
+    private static final class Stripe {
+        private Map<LikeKey, Pending> entries = new HashMap<>();
+
+        // Cambia con cada toggle, restore o descarte (bajo el lock del stripe)
+        private long version;
+    }
+
+    private record LikeKey(UUID postId, UUID userId) {
+    }
+
+    // original = estado en la base; desired = estado al que hay que llevarlo
+    private record Pending(boolean original, boolean desired) {
+    }
+}
@@ -0,0 +1,450 @@
+package org.example.service.presence;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.example.dto.PresenceDiffDto;
+import org.example.entity.User;
+import org.example.exception.customs.httpstatus.BadRequestException;
+import org.example.exception.customs.httpstatus.NotFoundException;
+import org.example.exception.customs.httpstatus.UnauthorizedException;
+import org.example.repository.UserRepository;
+import org.example.security.AuthenticatedUser;
+import org.example.service.graph.FriendGraphService;
+import org.example.service.relay.ClusterEvents;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Quién está conectado, a partir de las sesiones STOMP.
+ *
+ * Cada usuario cuenta sus sesiones abiertas (varias pestañas o
+ * dispositivos): está online mientras tenga al menos una. Las sesiones se
+ * abren con CONNECTED, se cierran con DISCONNECT y cualquier frame del
+ * cliente (heartbeats incluidos) las mantiene vivas. Un barrido cierra las
+ * que no mandan nada hace más de {@code session-ttl-ms}, por si se pierde
+ * el evento de desconexión. Las sesiones que no negociaron heartbeat del
+ * cliente no vencen.
+ *
+ * Con varios nodos cada uno sigue sus sesiones y publica por
+ * {@link ClusterEvents} cuándo un usuario empieza o deja de tener sesiones
+ * en él, más la lista completa de sus usuarios online en cada barrido. La
+ * lista corrige eventos perdidos y hace de heartbeat: un nodo del que no
+ * llega nada en {@code session-ttl-ms} (caído) deja de contar.
+ *
+ * Los cambios se juntan y cada {@code debounce-ms} se manda un único diff
+ * en {@code /user/queue/presence} a cada amigo conectado en cualquier nodo
+ * (el relay lo lleva al nodo de sus sesiones). Lo manda el nodo donde
+ * cambió el estado, o por un nodo caído el de menor id de los que quedan;
+ * los demás solo registran qué se anunció. Quien recarga
+ * la página (sale y vuelve dentro de la ventana) no genera nada.
+ *
+ * La consulta de amigos online no va a la base: estado en memoria, amistad
+ * en {@link FriendGraphService} y el id del usuario tomado del principal
+ * ({@link AuthenticatedUser}).
+ */
+@Service
+public class PresenceService implements ChannelInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(PresenceService.class);
+
+    public static final String DESTINATION = "/queue/presence";
+
+    private final UserRepository userRepository;
+    private final FriendGraphService friendGraph;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ClusterEvents clusterEvents;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${presence.session-ttl-ms:90000}")
+    private long sessionTtlMs;
+
+    @Value("${presence.query.max-ids:500}")
+    private int maxQueryIds;
+
+    // userId → usuario online (solo con sesiones abiertas)
+    private final Map<UUID, Online> users = new ConcurrentHashMap<>();
+
+    // sessionId → sesión abierta
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    // Usuarios que cambiaron desde el último diff
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+
+    // Usuarios que los amigos ya vieron online (lo que se mandó por último)
+    private final Set<UUID> announced = ConcurrentHashMap.newKeySet();
+
+    // nodeId → usuarios online en otro nodo
+    private final Map<String, RemoteNode> remote = new ConcurrentHashMap<>();
+
+    // Identifica a este nodo en los eventos de presencia
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // username → id, para principals que no traen el id
+    private Cache<String, UUID> userIds;
+
+    // El template depende del broker que configura WebSocketConfig: se
+    // resuelve tarde para no armar un ciclo
+    public PresenceService(UserRepository userRepository, FriendGraphService friendGraph,
+            @Lazy SimpMessagingTemplate messagingTemplate, ClusterEvents clusterEvents,
+            MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.friendGraph = friendGraph;
+        this.messagingTemplate = messagingTemplate;
+        this.clusterEvents = clusterEvents;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.userIds = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+
+        Gauge.builder("presence.users.online", users, Map::size)
+                .description("Usuarios con al menos una sesión abierta")
+                .register(meterRegistry);
+        Gauge.builder("presence.sessions", sessions, Map::size)
+                .description("Sesiones STOMP seguidas por presencia")
+                .register(meterRegistry);
+
+        clusterEvents.subscribe(NodeChanged.class, this::nodeChanged);
+        clusterEvents.subscribe(NodeSnapshot.class, this::nodeSnapshot);
+        clusterEvents.onReconnect(this::announceNode);
+    }
+
+    // -------------------------------------------------------
+    // CONSULTA
+    // -------------------------------------------------------
+
+    public boolean isOnline(UUID userId) {
+        return usernameOf(userId) != null;
+    }
+
+    /**
+     * De los ids pedidos, los que son amigos del usuario actual y están
+     * online. Los que no son amigos no se informan.
+     */
+    public List<UUID> onlineFriends(Collection<UUID> ids) {
+        if (ids.size() > maxQueryIds) {
+            throw new BadRequestException("Demasiados ids (máximo " + maxQueryIds + ")");
+        }
+        UUID me = currentUserId();
+
+        List<UUID> online = new ArrayList<>();
+        for (UUID id : new LinkedHashSet<>(ids)) {
+            if (isOnline(id) && friendGraph.areFriends(me, id)) {
+                online.add(id);
+            }
+        }
+        return online;
+    }
+
+    // -------------------------------------------------------
+    // SESIONES (eventos STOMP)
+    // -------------------------------------------------------
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        if (event.getUser() == null || accessor.getSessionId() == null) {
+            return;
+        }
+
+        // el CONNECTED trae el CONNECT original con el heart-beat del cliente
+        Message<?> connect = (Message<?>) accessor.getHeader(SimpMessageHeaderAccessor.CONNECT_MESSAGE_HEADER);
+        boolean expires = connect != null && StompHeaderAccessor.wrap(connect).getHeartbeat()[0] > 0;
+
+        UUID userId;
+        try {
+            userId = userIdOf(event.getUser());
+        } catch (NotFoundException e) {
+            return;
+        }
+        connect(accessor.getSessionId(), userId, event.getUser().getName(), expires);
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        disconnect(event.getSessionId());
+    }
+
+    // Cualquier frame del cliente, heartbeats incluidos, renueva la sesión
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        Session session = sessionId == null ? null : sessions.get(sessionId);
+        if (session != null) {
+            session.lastSeen = System.currentTimeMillis();
+        }
+        return message;
+    }
+
+    void connect(String sessionId, UUID userId, String username, boolean expires) {
+        if (sessions.putIfAbsent(sessionId, new Session(userId, expires)) != null) {
+            return;
+        }
+        userIds.put(username, userId);
+        Online online = users.compute(userId,
+                (id, current) -> new Online(username, current == null ? 1 : current.sessions() + 1));
+        if (online.sessions() == 1) {
+            clusterEvents.publish(new NodeChanged(nodeId, userId, username, true));
+        }
+        dirty.add(userId);
+    }
+
+    void disconnect(String sessionId) {
+        Session session = sessions.remove(sessionId);
+        if (session == null) {
+            return;
+        }
+        Online[] closed = new Online[1];
+        users.computeIfPresent(session.userId, (id, online) -> {
+            if (online.sessions() > 1) {
+                return new Online(online.username(), online.sessions() - 1);
+            }
+            closed[0] = online;
+            return null;
+        });
+        if (closed[0] != null) {
+            clusterEvents.publish(new NodeChanged(nodeId, session.userId, closed[0].username(), false));
+        }
+        dirty.add(session.userId);
+    }
+
+    // Sesiones sin frames del cliente más allá del TTL (desconexión perdida)
+    @Scheduled(fixedDelayString = "${presence.sweep-interval-ms:30000}")
+    public void sweep() {
+        long cutoff = System.currentTimeMillis() - sessionTtlMs;
+        sessions.forEach((sessionId, session) -> {
+            if (session.expires && session.lastSeen < cutoff) {
+                log.debug("Presence: sesión {} vencida", sessionId);
+                meterRegistry.counter("presence.sessions.expired").increment();
+                disconnect(sessionId);
+            }
+        });
+
+        // Nodos que no mandaron su lista en el TTL (caídos): sus usuarios
+        // dejan de contar
+        Set<UUID> orphaned = new HashSet<>();
+        remote.forEach((node, state) -> {
+            if (state.lastSeen < cutoff && remote.remove(node, state)) {
+                log.warn("Presence: nodo {} sin noticias, {} usuarios offline", node, state.users.size());
+                orphaned.addAll(state.users.keySet());
+            }
+        });
+        if (!orphaned.isEmpty()) {
+            // El offline lo manda uno solo de los que quedan (el de menor
+            // nodeId): si no, cada amigo lo recibiría una vez por nodo
+            if (isLowestNode()) {
+                dirty.addAll(orphaned);
+            } else {
+                orphaned.forEach(this::syncAnnounced);
+            }
+        }
+        announceNode();
+    }
+
+    // -------------------------------------------------------
+    // OTROS NODOS (ClusterEvents)
+    // -------------------------------------------------------
+
+    void nodeChanged(NodeChanged event) {
+        RemoteNode node = remote.computeIfAbsent(event.node(), id -> new RemoteNode());
+        node.lastSeen = System.currentTimeMillis();
+        if (event.online()) {
+            node.users.put(event.userId(), event.username());
+        } else {
+            node.users.remove(event.userId());
+        }
+        syncAnnounced(event.userId());
+    }
+
+    void nodeSnapshot(NodeSnapshot event) {
+        RemoteNode node = remote.computeIfAbsent(event.node(), id -> new RemoteNode());
+        node.lastSeen = System.currentTimeMillis();
+
+        Set<UUID> changed = new HashSet<>(node.users.keySet());
+        changed.addAll(event.users().keySet());
+        changed.removeIf(id -> node.users.containsKey(id) == event.users().containsKey(id));
+
+        node.users.keySet().retainAll(event.users().keySet());
+        node.users.putAll(event.users());
+        changed.forEach(this::syncAnnounced);
+    }
+
+    // Los usuarios online en este nodo, para los demás
+    private void announceNode() {
+        if (!clusterEvents.isClustered()) {
+            return;
+        }
+        Map<UUID, String> online = new HashMap<>();
+        users.forEach((id, user) -> online.put(id, user.username()));
+        clusterEvents.publish(new NodeSnapshot(nodeId, online));
+    }
+
+    // Este nodo es el de menor id entre los que siguen vivos
+    private boolean isLowestNode() {
+        return remote.keySet().stream().allMatch(node -> nodeId.compareTo(node) < 0);
+    }
+
+    // El diff lo manda el nodo donde cambió el estado: acá solo se registra
+    // lo que ya vieron los amigos
+    private void syncAnnounced(UUID userId) {
+        if (isOnline(userId)) {
+            announced.add(userId);
+        } else {
+            announced.remove(userId);
+        }
+    }
+
+    // -------------------------------------------------------
+    // DIFFS A LOS AMIGOS
+    // -------------------------------------------------------
+
+    @Scheduled(fixedDelayString = "${presence.debounce-ms:2000}")
+    public void publish() {
+        // username del amigo conectado → diff que le corresponde
+        Map<String, Diff> diffs = new HashMap<>();
+
+        for (UUID userId : dirty) {
+            dirty.remove(userId);
+
+            boolean online = isOnline(userId);
+            boolean changed = online ? announced.add(userId) : announced.remove(userId);
+            if (!changed) {
+                continue; // volvió al estado que ya se había mandado
+            }
+
+            for (UUID friendId : friendGraph.friendIds(userId)) {
+                String friend = usernameOf(friendId); // conectado en cualquier nodo
+                if (friend == null) {
+                    continue;
+                }
+                Diff diff = diffs.computeIfAbsent(friend, name -> new Diff());
+                (online ? diff.online : diff.offline).add(userId);
+            }
+        }
+
+        diffs.forEach((username, diff) -> {
+            try {
+                messagingTemplate.convertAndSendToUser(username, DESTINATION,
+                        new PresenceDiffDto(diff.online, diff.offline));
+            } catch (RuntimeException e) {
+                log.warn("Presence: no se pudo mandar el diff a {}", username, e);
+            }
+        });
+        meterRegistry.counter("presence.diffs.sent").increment(diffs.size());
+    }
+
+    // --- Helpers ---
+
+    private UUID currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new UnauthorizedException("No autenticado");
+        }
+        return userIdOf(authentication);
+    }
+
+    // Del principal; la base solo si el principal no trae el id
+    private UUID userIdOf(Principal principal) {
+        UUID id = AuthenticatedUser.idOf(principal);
+        return id != null ? id : userIds.get(principal.getName(), this::loadUserId);
+    }
+
+    // Username de un usuario online en este nodo o en otro; null si no está
+    private String usernameOf(UUID userId) {
+        Online local = users.get(userId);
+        if (local != null) {
+            return local.username();
+        }
+        for (RemoteNode node : remote.values()) {
+            String username = node.users.get(userId);
+            if (username != null) {
+                return username;
+            }
+        }
+        return null;
+    }
+
+    private UUID loadUserId(String username) {
+        return userRepository.findByUsernameIgnoreCase(username)
+                .map(User::getId)
+                .orElseThrow(() -> new NotFoundException("Usuario no encontrado"));
+    }
+
+    private record Online(String username, int sessions) {
+    }
+
+    // Un usuario empezó o dejó de tener sesiones en node
+    record NodeChanged(String node, UUID userId, String username, boolean online) {
+    }
+
+    // Todos los usuarios online en node (en cada barrido)
+    record NodeSnapshot(String node, Map<UUID, String> users) {
+    }
+
+    private static final class RemoteNode {
+
+        // userId → username
+        private final Map<UUID, String> users = new ConcurrentHashMap<>();
+
+        private volatile long lastSeen = System.currentTimeMillis();
+    }
+
+    private static final class Session {
+
+        private final UUID userId;
+
+        // false: el cliente no manda heartbeats, solo cierra el DISCONNECT
+        private final boolean expires;
+
+        private volatile long lastSeen = System.currentTimeMillis();
+
+        private Session(UUID userId, boolean expires) {
+            this.userId = userId;
+            this.expires = expires;
+        }
+    }
+
+    private static final class Diff {
+
+        private final List<UUID> online = new ArrayList<>();
+
+        private final List<UUID> offline = new ArrayList<>();
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.service.relay;
+
+import static org.example.util.TransactionUtils.afterCommit;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Mutaciones del estado en memoria que los demás nodos tienen que aplicar.
+ *
+ * Grafo de amistades, timelines, evicciones de los caches de posts,
+ * contadores de no leídos, el buffer de reenvío del chat y la presencia se
+ * mantienen con cada mutación confirmada en el nodo que la hizo. Con varios nodos cada
+ * servicio publica acá la mutación (después del commit) y se suscribe a
+ * las de los demás: el relay las manda por el mismo canal que los frames
+ * ({@link PostgresNotifyRelay}) y cada nodo las aplica sin volver a
+ * publicarlas. En modo local no hay transporte y publicar no hace nada.
+ *
+ * Lo que un nodo no recibe mientras reconecta el LISTEN se recupera con
+ * {@link #onReconnect}: cada servicio vuelve a cargar su estado de la base
+ * (o lo descarta para que se cargue al leerse).
+ *
+ * Queda por nodo, a propósito: la ventana de mensajes por chat
+ * ({@code ConversationCache}, que se valida contra la base), el historial
+ * en memoria del chat público (con varios nodos se lee de la base), la
+ * ocupación de las salas públicas, los rate limits (el límite efectivo es
+ * por nodo) y las colas de salida de cada sesión.
+ */
+@Service
+@RequiredArgsConstructor
+public class ClusterEvents {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterEvents.class);
+
+    private final ObjectMapper objectMapper;
+
+    // nombre del tipo → quién aplica los eventos de los otros nodos
+    private final Map<String, Subscription<?>> subscriptions = new ConcurrentHashMap<>();
+
+    private final List<Runnable> reconnectHandlers = new CopyOnWriteArrayList<>();
+
+    // (tipo, json) → otros nodos; null con un solo nodo
+    private volatile BiConsumer<String, String> transport;
+
+    // -------------------------------------------------------
+    // SERVICIOS
+    // -------------------------------------------------------
+
+    public boolean isClustered() {
+        return transport != null;
+    }
+
+    // Publica a los otros nodos al confirmarse la transacción en curso
+    public void publish(Object event) {
+        BiConsumer<String, String> target = transport;
+        if (target == null) {
+            return;
+        }
+        String type = event.getClass().getName();
+        String json = toJson(event);
+        afterCommit(() -> target.accept(type, json));
+    }
+
+    // Un handler por tipo: lo aplica tal como lo aplicó el nodo que publicó
+    public <T> void subscribe(Class<T> type, Consumer<T> handler) {
+        if (subscriptions.putIfAbsent(type.getName(), new Subscription<>(type, handler)) != null) {
+            throw new IllegalStateException("Evento ya suscripto: " + type.getName());
+        }
+    }
+
+    // Después de un corte del transporte: pudieron perderse eventos
+    public void onReconnect(Runnable handler) {
+        reconnectHandlers.add(handler);
+    }
+
+    // -------------------------------------------------------
+    // TRANSPORTE (relay)
+    // -------------------------------------------------------
+
+    void connect(BiConsumer<String, String> transport) {
+        this.transport = transport;
+    }
+
+    void receive(String type, String json) {
+        Subscription<?> subscription = subscriptions.get(type);
+        if (subscription == null) {
+            log.warn("Evento de otro nodo sin suscriptor: {}", type);
+            return;
+        }
+        try {
+            subscription.accept(objectMapper, json);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Evento de otro nodo no aplicado: {}", type, e);
+        }
+    }
+
+    void reconnected() {
+        for (Runnable handler : reconnectHandlers) {
+            try {
+                handler.run();
+            } catch (RuntimeException e) {
+                log.warn("Resincronización después de reconectar falló", e);
+            }
+        }
+    }
+
+    // --- Helpers ---
+
+    private String toJson(Object event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Subscription<T>(Class<T> type, Consumer<T> handler) {
+
+        void accept(ObjectMapper objectMapper, String json) throws JsonProcessingException {
+            handler.accept(objectMapper.readValue(json, type));
+        }
+    }
+}
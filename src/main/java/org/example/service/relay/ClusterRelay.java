@@ -0,0 +1,30 @@
+package org.example.service.relay;
+
+import org.springframework.messaging.support.ChannelInterceptor;
+
+/**
+ * Difusión entre nodos para el broker simple.
+ *
+ * El broker simple guarda las suscripciones en memoria: con dos instancias
+ * detrás del balanceador, un {@code convertAndSend} solo llega a las
+ * sesiones del nodo que lo hizo. Una implementación se registra como
+ * interceptor del {@code brokerChannel}: publica a los demás nodos lo que
+ * la app manda a {@code /topic/**} y {@code /user/**}, y reinyecta en el
+ * broker local lo que recibe de ellos. Cada nodo entrega solo a sus
+ * sesiones.
+ *
+ * Se elige con {@code websocket.relay.mode}: {@code local} (un solo nodo,
+ * sin relay), {@code postgres} ({@link PostgresNotifyRelay}) o
+ * {@code artemis}, que no usa esta interfaz para los frames: reemplaza el
+ * broker simple por el relay STOMP de Spring a un Artemis compartido.
+ *
+ * Los frames no alcanzan: cada nodo también tiene estado en memoria que
+ * se mantiene con las mutaciones. Eso viaja como eventos de
+ * {@link ClusterEvents} por el canal de Postgres en los dos modos; ahí se
+ * lista qué queda por nodo.
+ */
+public interface ClusterRelay extends ChannelInterceptor {
+
+    // Header de los mensajes que llegaron de otro nodo: no se vuelven a publicar
+    String RELAYED_HEADER = "clusterRelayedFrom";
+}
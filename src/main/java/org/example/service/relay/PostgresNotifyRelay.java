@@ -0,0 +1,358 @@
+package org.example.service.relay;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Relay entre nodos con LISTEN/NOTIFY de Postgres: no suma infraestructura,
+ * alcanza con la base que ya comparten los nodos.
+ *
+ * Publicar no toca la base en el hilo que envía: el mensaje entra a una
+ * cola acotada y un hilo la vacía con un único {@code pg_notify} por batch.
+ * Otro hilo mantiene una conexión con {@code LISTEN} y reinyecta en el
+ * {@code brokerChannel} local lo que publican los demás nodos.
+ *
+ * Por el mismo canal van los eventos de {@link ClusterEvents} (mutaciones
+ * del estado en memoria de cada nodo). Con {@code mode=artemis} los frames
+ * van por Artemis y este relay queda solo para esos eventos.
+ *
+ * NOTIFY acepta hasta 8000 bytes: los payloads más grandes (frames en batch
+ * del chat público) se guardan en {@code ws_relay_payloads} y se notifica
+ * solo el id. Las filas se borran al minuto.
+ *
+ * Los frames que se publican mientras un nodo reconecta el LISTEN se
+ * pierden para ese nodo; los clientes los recuperan por historial o sync
+ * como en cualquier reconexión. Los eventos perdidos se cubren
+ * resincronizando el estado desde la base al reconectar.
+ */
+@Service
+@ConditionalOnExpression("!'${websocket.relay.mode:local}'.equalsIgnoreCase('local')")
+public class PostgresNotifyRelay implements ClusterRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresNotifyRelay.class);
+
+    // Margen bajo el límite de 8000 bytes de NOTIFY para el resto del sobre
+    private static final int MAX_INLINE_BYTES = 7000;
+
+    private static final String NOTIFY_SQL = "SELECT pg_notify(?, n) FROM unnest(?::text[]) AS n";
+
+    private static final String STORE_SQL = "INSERT INTO ws_relay_payloads (payload) VALUES (?) RETURNING id";
+
+    private static final String LOAD_SQL = "SELECT payload FROM ws_relay_payloads WHERE id = ?";
+
+    private static final String PURGE_SQL = "DELETE FROM ws_relay_payloads WHERE created_at < ?";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final MessageChannel brokerChannel;
+    private final ClusterEvents clusterEvents;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${websocket.relay.postgres.channel:ws_relay}")
+    private String channelName;
+
+    @Value("${websocket.relay.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${websocket.relay.batch-size:200}")
+    private int batchSize;
+
+    // Cada nodo ignora lo que él mismo publicó (NOTIFY llega a todos los LISTEN)
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private BlockingQueue<Envelope> queue;
+
+    private Thread publisher;
+
+    private Thread listener;
+
+    private volatile boolean running;
+
+    // El brokerChannel lo arma la configuración de WebSocket, que depende de
+    // este relay: se resuelve tarde para no armar un ciclo
+    public PostgresNotifyRelay(DataSource dataSource, JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+            @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel, ClusterEvents clusterEvents,
+            MeterRegistry meterRegistry) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.brokerChannel = brokerChannel;
+        this.clusterEvents = clusterEvents;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        // va sin comillas en LISTEN: solo identificadores simples
+        if (!channelName.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalStateException("websocket.relay.postgres.channel inválido: " + channelName);
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("websocket.relay.queued", queue, BlockingQueue::size)
+                .description("Mensajes esperando ser publicados a los otros nodos")
+                .register(meterRegistry);
+
+        this.running = true;
+        clusterEvents.connect(this::publishEvent);
+        this.publisher = daemon(this::publishLoop, "relay-publisher");
+        this.listener = daemon(this::listenLoop, "relay-listener");
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        listener.interrupt();
+        publisher.join(TimeUnit.SECONDS.toMillis(5)); // publica lo que quedó en la cola
+    }
+
+    // -------------------------------------------------------
+    // PUBLICAR (interceptor del brokerChannel)
+    // -------------------------------------------------------
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+
+        // lo que vino de otro nodo, frames dirigidos a una sesión (replay) y
+        // destinos ya resueltos por sesión (/queue/...-user...) no salen
+        if (headers.containsKey(RELAYED_HEADER)
+                || SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || SimpMessageHeaderAccessor.getSessionId(headers) != null
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination == null || !(destination.startsWith("/topic") || destination.startsWith("/user/"))) {
+            return message;
+        }
+
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        Envelope envelope = new Envelope(nodeId, destination, contentType == null ? null : contentType.toString(),
+                null, new String(payload, StandardCharsets.UTF_8), null, System.currentTimeMillis());
+
+        if (!queue.offer(envelope)) {
+            meterRegistry.counter("websocket.relay.dropped").increment();
+        }
+        return message; // la entrega local sigue igual
+    }
+
+    // Eventos de ClusterEvents, ya confirmados
+    private void publishEvent(String type, String json) {
+        if (!queue.offer(new Envelope(nodeId, null, null, type, json, null, System.currentTimeMillis()))) {
+            log.warn("Relay: cola llena, evento {} descartado", type);
+            meterRegistry.counter("websocket.relay.events.dropped").increment();
+        }
+    }
+
+    private void publishLoop() {
+        List<Envelope> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Envelope first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                publish(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Relay: no se pudieron publicar {} mensajes", batch.size(), e);
+                meterRegistry.counter("websocket.relay.failed").increment(batch.size());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void publish(List<Envelope> batch) {
+        List<String> notifications = new ArrayList<>(batch.size());
+        for (Envelope envelope : batch) {
+            String json = toJson(envelope);
+            if (json.getBytes(StandardCharsets.UTF_8).length > MAX_INLINE_BYTES) {
+                // la fila se confirma antes del NOTIFY: el que recibe el id la encuentra
+                Long ref = jdbcTemplate.queryForObject(STORE_SQL, Long.class, envelope.payload());
+                json = toJson(envelope.withRef(ref));
+                meterRegistry.counter("websocket.relay.stored").increment();
+            }
+            notifications.add(json);
+        }
+
+        jdbcTemplate.execute((Connection connection) -> {
+            Array payloads = connection.createArrayOf("text", notifications.toArray());
+            try (PreparedStatement ps = connection.prepareStatement(NOTIFY_SQL)) {
+                ps.setString(1, channelName);
+                ps.setArray(2, payloads);
+                ps.executeQuery().close();
+            } finally {
+                payloads.free();
+            }
+            return null;
+        });
+        long events = batch.stream().filter(envelope -> envelope.event() != null).count();
+        meterRegistry.counter("websocket.relay.published").increment(batch.size() - events);
+        meterRegistry.counter("websocket.relay.events.published").increment(events);
+    }
+
+    // -------------------------------------------------------
+    // RECIBIR (LISTEN)
+    // -------------------------------------------------------
+
+    // Una conexión del pool queda tomada por el LISTEN mientras el nodo vive
+    private void listenLoop() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channelName);
+                }
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                if (reconnecting) {
+                    clusterEvents.reconnected(); // lo que se perdió mientras tanto
+                }
+
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(500);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                reconnecting = true;
+                log.warn("Relay: se cortó el LISTEN, reconectando", e);
+                meterRegistry.counter("websocket.relay.reconnects").increment();
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    void receive(String json) {
+        Envelope envelope;
+        try {
+            envelope = objectMapper.readValue(json, Envelope.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Relay: notificación inválida descartada", e);
+            return;
+        }
+        if (nodeId.equals(envelope.node())) {
+            return;
+        }
+
+        String payload = envelope.payload();
+        if (envelope.ref() != null) {
+            List<String> stored = jdbcTemplate.queryForList(LOAD_SQL, String.class, envelope.ref());
+            if (stored.isEmpty()) {
+                meterRegistry.counter("websocket.relay.expired").increment();
+                return;
+            }
+            payload = stored.get(0);
+        }
+        if (envelope.event() != null) {
+            clusterEvents.receive(envelope.event(), payload);
+            meterRegistry.counter("websocket.relay.events.received").increment();
+            return;
+        }
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(envelope.destination());
+        if (envelope.contentType() != null) {
+            accessor.setContentType(MimeType.valueOf(envelope.contentType()));
+        }
+        accessor.setHeader(RELAYED_HEADER, envelope.node());
+
+        brokerChannel.send(MessageBuilder.createMessage(payload.getBytes(StandardCharsets.UTF_8),
+                accessor.getMessageHeaders()));
+
+        meterRegistry.counter("websocket.relay.received").increment();
+        meterRegistry.timer("websocket.relay.lag")
+                .record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - envelope.sentAt())));
+    }
+
+    // Payloads grandes ya entregados por todos
+    @Scheduled(fixedDelayString = "${websocket.relay.postgres.purge-interval-ms:60000}")
+    public void purge() {
+        jdbcTemplate.update(PURGE_SQL, Timestamp.from(Instant.now().minusSeconds(60)));
+    }
+
+    // --- Helpers ---
+
+    private String toJson(Envelope envelope) {
+        try {
+            return objectMapper.writeValueAsString(envelope);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    // Sobre de cada NOTIFY: un frame para destination o un evento (tipo en
+    // event), con el payload en línea o ref a ws_relay_payloads
+    record Envelope(String node, String destination, String contentType, String event, String payload, Long ref,
+            long sentAt) {
+
+        Envelope withRef(Long ref) {
+            return new Envelope(node, destination, contentType, event, null, ref, sentAt);
+        }
+    }
+}
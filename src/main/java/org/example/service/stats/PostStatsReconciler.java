@@ -0,0 +1,179 @@
+package org.example.service.stats;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.example.service.cache.CacheInvalidationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Corrige el drift de {@code post_stats} contra los COUNT reales.
+ *
+ * Los contadores se mantienen con incrementos, así que cualquier escritura
+ * que no pase por ahí (un borrado a mano, un flush de likes a medias, un
+ * driver que no informa filas afectadas) los deja corridos. Este job recorre
+ * la tabla por bloques de {@code post_id}, compara con los COUNT y recalcula
+ * solo las filas que difieren; también crea las filas que falten.
+ *
+ * La pasada frecuente solo mira los posts tocados hace poco (filas con
+ * {@code updated_at} dentro de {@code window-ms}, posts creados en ese
+ * lapso): ahí es donde aparece el drift, y cuesta lo mismo con cualquier
+ * tamaño de tabla. La tabla entera se recorre con un intervalo mucho más
+ * largo, para lo que se tocó por fuera de los incrementos.
+ */
+@Service
+@RequiredArgsConstructor
+public class PostStatsReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(PostStatsReconciler.class);
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final String INSERT_MISSING_SQL = """
+            INSERT INTO post_stats (post_id, comment_count, like_count, updated_at)
+            SELECT p.id,
+                   (SELECT COUNT(*) FROM comments c WHERE c.post_id = p.id),
+                   (SELECT COUNT(*) FROM post_likes l WHERE l.post_id = p.id),
+                   ?
+            FROM posts p
+            WHERE p.created_at >= ?
+              AND NOT EXISTS (SELECT 1 FROM post_stats s WHERE s.post_id = p.id)
+            """;
+
+    private static final String CHUNK_COLUMNS = """
+            SELECT s.post_id, s.comment_count, s.like_count,
+                   (SELECT COUNT(*) FROM comments c WHERE c.post_id = s.post_id) AS real_comments,
+                   (SELECT COUNT(*) FROM post_likes l WHERE l.post_id = s.post_id) AS real_likes
+            FROM post_stats s
+            """;
+
+    private static final String FIRST_CHUNK_SQL = CHUNK_COLUMNS
+            + "WHERE s.updated_at >= ? ORDER BY s.post_id LIMIT ?";
+
+    private static final String NEXT_CHUNK_SQL = CHUNK_COLUMNS
+            + "WHERE s.updated_at >= ? AND s.post_id > ? ORDER BY s.post_id LIMIT ?";
+
+    // Se recalcula dentro del UPDATE: no pisa incrementos confirmados entre
+    // la lectura del bloque y la reparación
+    private static final String REPAIR_SQL = """
+            UPDATE post_stats
+            SET comment_count = (SELECT COUNT(*) FROM comments c WHERE c.post_id = ?),
+                like_count = (SELECT COUNT(*) FROM post_likes l WHERE l.post_id = ?),
+                updated_at = ?
+            WHERE post_id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheInvalidationService cacheInvalidation;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${post-stats.reconcile-window-ms:900000}")
+    private long windowMs;
+
+    /**
+     * Pasada sobre los posts tocados en la última ventana. Devuelve cuántas
+     * filas se crearon o repararon.
+     */
+    @Scheduled(fixedDelayString = "${post-stats.reconcile-interval-ms:300000}", initialDelayString = "${post-stats.reconcile-interval-ms:300000}")
+    public int reconcile() {
+        return reconcile(Instant.now().minusMillis(windowMs));
+    }
+
+    /**
+     * Pasada sobre la tabla entera. Devuelve cuántas filas se crearon o
+     * repararon.
+     */
+    @Scheduled(fixedDelayString = "${post-stats.full-reconcile-interval-ms:86400000}", initialDelayString = "${post-stats.full-reconcile-interval-ms:86400000}")
+    public int reconcileAll() {
+        return reconcile(Instant.EPOCH);
+    }
+
+    private int reconcile(Instant since) {
+        Timestamp from = Timestamp.from(since);
+        int created = jdbcTemplate.update(INSERT_MISSING_SQL, Timestamp.from(Instant.now()), from);
+        if (created > 0) {
+            meterRegistry.counter("post_stats.reconciled", "cause", "missing").increment(created);
+        }
+
+        int repaired = 0;
+        UUID last = null;
+        while (true) {
+            List<Drift> chunk = last == null
+                    ? jdbcTemplate.query(FIRST_CHUNK_SQL, this::mapDrift, from, CHUNK_SIZE)
+                    : jdbcTemplate.query(NEXT_CHUNK_SQL, this::mapDrift, from, last, CHUNK_SIZE);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            last = chunk.get(chunk.size() - 1).postId();
+
+            List<Drift> drifted = chunk.stream().filter(Drift::drifted).toList();
+            if (!drifted.isEmpty()) {
+                repair(drifted);
+                repaired += drifted.size();
+            }
+            if (chunk.size() < CHUNK_SIZE) {
+                break;
+            }
+        }
+
+        if (created > 0 || repaired > 0) {
+            log.warn("post_stats reconciliado: {} filas creadas, {} reparadas", created, repaired);
+        }
+        return created + repaired;
+    }
+
+    // --- Helpers ---
+
+    private void repair(List<Drift> drifted) {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> args = new ArrayList<>(drifted.size());
+        for (Drift drift : drifted) {
+            args.add(new Object[] { drift.postId(), drift.postId(), now, drift.postId() });
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(REPAIR_SQL, args);
+            drifted.forEach(drift -> cacheInvalidation.onStatsRepaired(drift.postId()));
+        });
+
+        for (Drift drift : drifted) {
+            if (drift.comments() != drift.realComments()) {
+                meterRegistry.counter("post_stats.reconciled", "cause", "comments").increment();
+            }
+            if (drift.likes() != drift.realLikes()) {
+                meterRegistry.counter("post_stats.reconciled", "cause", "likes").increment();
+            }
+        }
+    }
+
+    private Drift mapDrift(ResultSet rs, int row) throws SQLException {
+        return new Drift(
+                rs.getObject("post_id", UUID.class),
+                rs.getLong("comment_count"),
+                rs.getLong("like_count"),
+                rs.getLong("real_comments"),
+                rs.getLong("real_likes"));
+    }
+
+    private record Drift(UUID postId, long comments, long likes, long realComments, long realLikes) {
+
+        boolean drifted() {
+            return comments != realComments || likes != realLikes;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+--
+-- Historial del chat público. Los ids se reservan de a 500 (se asignan en
+-- memoria al enviar) y las filas se escriben en batch después del broadcast
+--
+
+CREATE TABLE public.public_messages (
+    id bigint NOT NULL,
+    content character varying(2000) NOT NULL,
+    sent_at timestamp(6) with time zone NOT NULL,
+    sender_id uuid NOT NULL
+);
+
+ALTER TABLE ONLY public.public_messages
+    ADD CONSTRAINT public_messages_pkey PRIMARY KEY (id);
+
+ALTER TABLE ONLY public.public_messages
+    ADD CONSTRAINT fk_public_messages_sender FOREIGN KEY (sender_id) REFERENCES public.users(id) ON DELETE CASCADE;
+
+CREATE SEQUENCE public.public_messages_seq
+    START WITH 1
+    INCREMENT BY 500
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1;
@@ -0,0 +1,12 @@
+--
+-- Salas del chat público: cada mensaje pertenece a una sala y el historial
+-- se pagina por (room, id). Lo anterior queda en la sala por defecto
+--
+
+ALTER TABLE public.public_messages
+    ADD COLUMN room character varying(50) NOT NULL DEFAULT 'lobby';
+
+ALTER TABLE public.public_messages
+    ALTER COLUMN room DROP DEFAULT;
+
+CREATE INDEX idx_public_messages_room_id ON public.public_messages USING btree (room, id);
@@ -0,0 +1,9 @@
+-- Payloads del relay entre nodos que no entran en un NOTIFY (8000 bytes).
+-- Se borran al minuto; UNLOGGED: no hace falta que sobrevivan a un crash.
+CREATE UNLOGGED TABLE ws_relay_payloads (
+    id BIGSERIAL PRIMARY KEY,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_ws_relay_payloads_created_at ON ws_relay_payloads (created_at);
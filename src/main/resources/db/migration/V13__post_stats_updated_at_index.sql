@@ -0,0 +1,6 @@
+--
+-- La reconciliación frecuente de post_stats solo recorre las filas tocadas
+-- hace poco
+--
+
+CREATE INDEX idx_post_stats_updated_at ON public.post_stats USING btree (updated_at);
@@ -0,0 +1,20 @@
+--
+-- Ids de mensajes en orden de commit por chat: se toman de a uno, con la
+-- fila del chat (friends) bloqueada, en la misma transacción que inserta.
+-- Los bloques de 50 de varios nodos y del camino JPA dejaban confirmarse
+-- un id menor después de uno mayor, y los cursores id > ? (historial,
+-- sync, replay, no leídos) lo salteaban
+--
+
+ALTER SEQUENCE public.messages_seq INCREMENT BY 1;
+
+-- Después de todo bloque ya reservado
+SELECT setval('public.messages_seq', GREATEST(
+    (SELECT last_value FROM public.messages_seq),
+    COALESCE((SELECT MAX(id) FROM public.messages), 0)));
+
+-- El historial pagina por (friend_id, id): sent_at viene del reloj de cada
+-- nodo y no sirve de cursor
+CREATE INDEX idx_messages_friend_id_id ON public.messages USING btree (friend_id, id);
+
+DROP INDEX public.idx_messages_friend_sent_at_id;
@@ -0,0 +1,13 @@
+--
+-- Ids del chat público en orden de envío entre nodos: un nextval por
+-- mensaje. Con bloques de 500 por nodo los ids de dos nodos se
+-- intercalaban y el catch-up id > ? salteaba los del nodo con el bloque
+-- más bajo
+--
+
+ALTER SEQUENCE public.public_messages_seq INCREMENT BY 1;
+
+-- Después de todo bloque ya reservado
+SELECT setval('public.public_messages_seq', GREATEST(
+    (SELECT last_value FROM public.public_messages_seq),
+    COALESCE((SELECT MAX(id) FROM public.public_messages), 0)));
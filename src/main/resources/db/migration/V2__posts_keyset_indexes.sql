@@ -0,0 +1,7 @@
+--
+-- Índices para paginación keyset (cursor) de feed y timelines: (created_at, id)
+--
+
+CREATE INDEX idx_posts_created_at_id ON public.posts USING btree (created_at, id);
+
+CREATE INDEX idx_posts_user_created_at_id ON public.posts USING btree (user_id, created_at, id);
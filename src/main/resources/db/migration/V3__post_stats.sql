@@ -0,0 +1,23 @@
+--
+-- Contadores desnormalizados por post (comentarios y likes), con backfill
+--
+
+CREATE TABLE public.post_stats (
+    post_id uuid NOT NULL,
+    comment_count bigint DEFAULT 0 NOT NULL,
+    like_count bigint DEFAULT 0 NOT NULL,
+    updated_at timestamp(6) with time zone NOT NULL
+);
+
+ALTER TABLE ONLY public.post_stats
+    ADD CONSTRAINT post_stats_pkey PRIMARY KEY (post_id);
+
+ALTER TABLE ONLY public.post_stats
+    ADD CONSTRAINT fk_post_stats_post FOREIGN KEY (post_id) REFERENCES public.posts(id) ON DELETE CASCADE;
+
+INSERT INTO public.post_stats (post_id, comment_count, like_count, updated_at)
+SELECT p.id,
+       (SELECT COUNT(*) FROM public.comments c WHERE c.post_id = p.id),
+       (SELECT COUNT(*) FROM public.post_likes l WHERE l.post_id = p.id),
+       now()
+FROM public.posts p;
@@ -0,0 +1,10 @@
+--
+-- Índices compuestos para el feed por rangos (FeedQueryEngine): cada rama
+-- del UNION recorre uno ya ordenado por (created_at, id) y corta en el LIMIT
+--
+
+-- Posts PUBLIC
+CREATE INDEX idx_posts_privacy_created_at_id ON public.posts USING btree (privacy, created_at, id);
+
+-- Posts FRIENDS de cada amigo (user_id IN amigos AND privacy = 'FRIENDS')
+CREATE INDEX idx_posts_user_privacy_created_at_id ON public.posts USING btree (user_id, privacy, created_at, id);
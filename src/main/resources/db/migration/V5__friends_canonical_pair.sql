@@ -0,0 +1,54 @@
+--
+-- Par canónico (low_user_id, high_user_id) en friends: las búsquedas de
+-- relación entre dos usuarios pasan a ser un lookup al índice único en vez
+-- de un OR sobre (requester, receiver) en ambas direcciones
+--
+
+ALTER TABLE public.friends
+    ADD COLUMN low_user_id uuid,
+    ADD COLUMN high_user_id uuid;
+
+UPDATE public.friends
+SET low_user_id = LEAST(requester_id, receiver_id),
+    high_user_id = GREATEST(requester_id, receiver_id);
+
+ALTER TABLE public.friends
+    ALTER COLUMN low_user_id SET NOT NULL,
+    ALTER COLUMN high_user_id SET NOT NULL;
+
+-- Filas del mismo par en las dos direcciones (dos solicitudes cruzadas):
+-- queda la de estado más avanzado (BLOCKED > ACCEPTED > PENDING > REJECTED;
+-- a igual estado, la más vieja). Los mensajes del chat cuelgan de
+-- friends.id: se pasan a la fila que queda antes de borrar las otras
+CREATE TEMPORARY TABLE friends_pair_dedupe ON COMMIT DROP AS
+SELECT id,
+       FIRST_VALUE(id) OVER (
+           PARTITION BY low_user_id, high_user_id
+           ORDER BY CASE status
+                        WHEN 'BLOCKED' THEN 4
+                        WHEN 'ACCEPTED' THEN 3
+                        WHEN 'PENDING' THEN 2
+                        ELSE 1
+                    END DESC,
+                    created_at ASC NULLS LAST,
+                    id ASC) AS keep_id
+FROM public.friends;
+
+DELETE FROM friends_pair_dedupe WHERE id = keep_id;
+
+UPDATE public.messages m
+SET friend_id = d.keep_id
+FROM friends_pair_dedupe d
+WHERE m.friend_id = d.id;
+
+DELETE FROM public.friends f
+USING friends_pair_dedupe d
+WHERE f.id = d.id;
+
+DO $$
+BEGIN
+    RAISE NOTICE 'friends: % filas duplicadas por par resueltas', (SELECT COUNT(*) FROM friends_pair_dedupe);
+END $$;
+
+ALTER TABLE ONLY public.friends
+    ADD CONSTRAINT uk_friends_pair UNIQUE (low_user_id, high_user_id);
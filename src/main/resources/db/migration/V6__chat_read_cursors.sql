@@ -0,0 +1,26 @@
+--
+-- Cursor de lectura por (chat, participante) para los contadores de no
+-- leídos. Los chats existentes arrancan leídos hasta su último mensaje:
+-- antes no había contador y no tiene sentido mostrar todo el historial
+-- como pendiente
+--
+
+CREATE TABLE public.chat_read_cursors (
+    friend_id bigint NOT NULL,
+    user_id uuid NOT NULL,
+    last_read_message_id bigint NOT NULL,
+    read_at timestamp(6) with time zone NOT NULL
+);
+
+ALTER TABLE ONLY public.chat_read_cursors
+    ADD CONSTRAINT chat_read_cursors_pkey PRIMARY KEY (friend_id, user_id);
+
+ALTER TABLE ONLY public.chat_read_cursors
+    ADD CONSTRAINT fk_chat_read_cursors_friend FOREIGN KEY (friend_id) REFERENCES public.friends(id) ON DELETE CASCADE;
+
+INSERT INTO public.chat_read_cursors (friend_id, user_id, last_read_message_id, read_at)
+SELECT f.id, p.user_id, m.last_id, now()
+FROM public.friends f
+JOIN (SELECT friend_id, MAX(id) AS last_id FROM public.messages GROUP BY friend_id) m ON m.friend_id = f.id
+CROSS JOIN LATERAL (VALUES (f.requester_id), (f.receiver_id)) AS p(user_id)
+WHERE f.status = 'ACCEPTED';
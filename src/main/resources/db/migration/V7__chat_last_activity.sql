@@ -0,0 +1,30 @@
+--
+-- Resumen del chat en friends (último mensaje y última actividad) para
+-- listar los chats en una query ordenada, sin buscar el último mensaje de
+-- cada uno
+--
+
+ALTER TABLE public.friends
+    ADD COLUMN last_message_id bigint,
+    ADD COLUMN last_activity_at timestamp(6) with time zone;
+
+UPDATE public.friends f
+SET last_message_id = m.id,
+    last_activity_at = m.sent_at
+FROM (
+    SELECT DISTINCT ON (friend_id) friend_id, id, sent_at
+    FROM public.messages
+    ORDER BY friend_id, id DESC
+) m
+WHERE m.friend_id = f.id;
+
+-- Chats sin mensajes: la última actividad es la de la relación
+UPDATE public.friends
+SET last_activity_at = COALESCE(updated_at, created_at, now())
+WHERE last_activity_at IS NULL;
+
+ALTER TABLE public.friends
+    ALTER COLUMN last_activity_at SET NOT NULL;
+
+ALTER TABLE ONLY public.friends
+    ADD CONSTRAINT fk_friends_last_message FOREIGN KEY (last_message_id) REFERENCES public.messages(id) ON DELETE SET NULL;
@@ -0,0 +1,8 @@
+--
+-- Historial de mensajes paginado por cursor: (friend_id, sent_at, id)
+-- reemplaza al índice solo por friend_id (es su prefijo)
+--
+
+CREATE INDEX idx_messages_friend_sent_at_id ON public.messages USING btree (friend_id, sent_at, id);
+
+DROP INDEX public.idx_messages_friend;
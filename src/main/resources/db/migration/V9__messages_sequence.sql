@@ -0,0 +1,18 @@
+--
+-- messages.id pasa de IDENTITY a la secuencia pooled messages_seq (de a 50,
+-- igual que el resto de las tablas): los ids se reservan por bloque y los
+-- mensajes se insertan en batch
+--
+
+ALTER TABLE public.messages ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE public.messages_seq
+    START WITH 1
+    INCREMENT BY 50
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1;
+
+-- El próximo nextval devuelve max(id) + 50: el bloque reservado
+-- (max + 1 .. max + 50) no pisa ids existentes
+SELECT setval('public.messages_seq', COALESCE((SELECT MAX(id) FROM public.messages), 0) + 50, false);
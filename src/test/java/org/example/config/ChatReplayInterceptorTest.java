@@ -0,0 +1,145 @@
+package org.example.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.example.dto.MessageDto;
+import org.example.service.chat.RecentMessageBuffer;
+import org.example.service.relay.ClusterEvents;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Replay al suscribirse: qué guarda el buffer de mensajes recientes y qué
+ * se reenvía a la sesión que se suscribe con {@code last-seen-id}.
+ */
+class ChatReplayInterceptorTest {
+
+        private RecentMessageBuffer buffer;
+
+        private SimpMessagingTemplate template;
+
+        private SimpleMeterRegistry meterRegistry;
+
+        private ChatReplayInterceptor interceptor;
+
+        @BeforeEach
+        void setUp() {
+                buffer = new RecentMessageBuffer(new ClusterEvents(new ObjectMapper()));
+                ReflectionTestUtils.setField(buffer, "capacity", 3);
+                ReflectionTestUtils.setField(buffer, "maxUsers", 10);
+                buffer.init();
+
+                template = mock(SimpMessagingTemplate.class);
+                meterRegistry = new SimpleMeterRegistry();
+                interceptor = new ChatReplayInterceptor(buffer, template, meterRegistry);
+
+                // sin transacción: se registran en el momento
+                for (long id = 10; id <= 14; id++) {
+                        buffer.onDelivered("ana", message(id));
+                }
+        }
+
+        @Test
+        void buffer_answersOnlyWhenItCoversTheGap() {
+                // quedan 12..14 (se descartaron 10 y 11): quien vio el 11 recibe
+                // todo lo que falta; quien vio solo el 10 no
+                assertThat(buffer.since("ana", 11)).hasValueSatisfying(
+                                m -> assertThat(m).extracting(MessageDto::id).containsExactly(12L, 13L, 14L));
+                assertThat(buffer.since("ana", 10)).isEmpty();
+                assertThat(buffer.since("nadie", 0)).isEmpty();
+        }
+
+        @Test
+        void buffer_missesWhenItCannotPlaceTheLastSeenMessage() {
+                // ya descartado hace rato, o un id que este buffer no registró
+                // (otro chat, antes de que existiera el buffer)
+                assertThat(buffer.since("ana", 10)).isEmpty();
+                assertThat(buffer.since("ana", 100)).isEmpty();
+        }
+
+        @Test
+        void buffer_returnsWhatWasDeliveredAfter_evenWithALowerIdFromAnotherChat() {
+                ReflectionTestUtils.setField(buffer, "capacity", 10);
+                buffer.onDelivered("beto", message(20, 2L));
+                buffer.onDelivered("beto", message(15, 1L)); // otro chat, confirmado después
+                buffer.onDelivered("beto", message(21, 2L));
+
+                // quien vio el 20 no vio el 15
+                assertThat(buffer.since("beto", 20)).hasValueSatisfying(
+                                m -> assertThat(m).extracting(MessageDto::id).containsExactly(15L, 21L));
+                assertThat(buffer.since("beto", 15)).hasValueSatisfying(
+                                m -> assertThat(m).extracting(MessageDto::id).containsExactly(21L));
+                // 17 no se entregó: no se sabe dónde quedó el cliente
+                assertThat(buffer.since("beto", 17)).isEmpty();
+                assertThat(buffer.since("beto", -1)).isEmpty();
+        }
+
+        @Test
+        void subscribeWithLastSeen_replaysToThatSessionOnly() {
+                interceptor.afterMessageHandled(subscribe("13"), null, mock(UserDestinationMessageHandler.class), null);
+
+                ArgumentCaptor<MessageHeaders> headers = ArgumentCaptor.forClass(MessageHeaders.class);
+                verify(template).convertAndSendToUser(eq("ana"), eq("/queue/messages"), eq(message(14)),
+                                headers.capture());
+                assertThat(SimpMessageHeaderAccessor.getSessionId(headers.getValue())).isEqualTo("s1");
+                assertThat(meterRegistry.counter("chat.replay", "result", "hit").count()).isEqualTo(1);
+        }
+
+        @Test
+        void gapNotCovered_sendsNothing() {
+                interceptor.afterMessageHandled(subscribe("5"), null, mock(UserDestinationMessageHandler.class), null);
+
+                verify(template, never()).convertAndSendToUser(any(), any(), any(), any(MessageHeaders.class));
+                assertThat(meterRegistry.counter("chat.replay", "result", "miss").count()).isEqualTo(1);
+        }
+
+        @Test
+        void otherHandlers_areIgnored() {
+                interceptor.afterMessageHandled(subscribe("13"), null, mock(MessageHandler.class), null);
+
+                verify(template, never()).convertAndSendToUser(any(), any(), any(), any(MessageHeaders.class));
+        }
+
+        private static Message<byte[]> subscribe(String lastSeen) {
+                StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+                accessor.setDestination("/user/queue/messages");
+                accessor.setSessionId("s1");
+                accessor.setSubscriptionId("sub-0");
+                accessor.setUser(new UsernamePasswordAuthenticationToken("ana", null, List.of()));
+                accessor.setNativeHeader(ChatReplayInterceptor.LAST_SEEN_HEADER, lastSeen);
+                return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        }
+
+        private static MessageDto message(long id) {
+                return message(id, 1L);
+        }
+
+        private static MessageDto message(long id, Long chatId) {
+                return new MessageDto(id, chatId, null, "ana", "ana", "/api/v1/avatars/default.png",
+                                "m" + id, Instant.EPOCH);
+        }
+}
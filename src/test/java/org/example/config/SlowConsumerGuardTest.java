@@ -0,0 +1,155 @@
+package org.example.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Frames en cola por sesión: descarte o desalojo de clientes lentos.
+ */
+class SlowConsumerGuardTest {
+
+        private SimpleMeterRegistry meterRegistry;
+
+        private SlowConsumerGuard guard;
+
+        private WebSocketSession session;
+
+        @BeforeEach
+        void setUp() throws Exception {
+                meterRegistry = new SimpleMeterRegistry();
+                guard = new SlowConsumerGuard(meterRegistry);
+                ReflectionTestUtils.setField(guard, "maxPending", 2);
+                ReflectionTestUtils.setField(guard, "policy", SlowConsumerGuard.Policy.DROP);
+                guard.init();
+
+                session = mock(WebSocketSession.class);
+                when(session.getId()).thenReturn("s1");
+                guard.decorate(mock(WebSocketHandler.class)).afterConnectionEstablished(session);
+        }
+
+        @Test
+        void drop_discardsOnlyWhileBacklogged() {
+                Message<?> first = guard.preSend(frame(SimpMessageType.MESSAGE), null);
+                guard.preSend(frame(SimpMessageType.MESSAGE), null);
+
+                assertThat(guard.preSend(frame(SimpMessageType.MESSAGE), null)).isNull();
+                // heartbeats y demás frames de control pasan siempre
+                assertThat(guard.preSend(frame(SimpMessageType.HEARTBEAT), null)).isNotNull();
+                assertThat(meterRegistry.counter("websocket.outbound.dropped").count()).isEqualTo(1);
+
+                guard.afterMessageHandled(first, null, null, null);
+                assertThat(guard.preSend(frame(SimpMessageType.MESSAGE), null)).isNotNull();
+        }
+
+        @Test
+        void disconnect_closesTheSessionOnce() throws Exception {
+                ReflectionTestUtils.setField(guard, "policy", SlowConsumerGuard.Policy.DISCONNECT);
+
+                for (int i = 0; i < 4; i++) {
+                        guard.preSend(frame(SimpMessageType.MESSAGE), null);
+                }
+
+                verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+                assertThat(meterRegistry.counter("websocket.sessions.evicted", "reason", "backlog").count())
+                                .isEqualTo(1);
+        }
+
+        @Test
+        void saturatedOutboundExecutor_leavesNoFramesCounted() throws Exception {
+                ReflectionTestUtils.setField(guard, "maxPending", 10);
+
+                // un hilo y un lugar en cola, con la política por defecto (abort)
+                ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+                executor.setCorePoolSize(1);
+                executor.setMaxPoolSize(1);
+                executor.setQueueCapacity(1);
+                executor.setWaitForTasksToCompleteOnShutdown(true);
+                executor.initialize();
+
+                CountDownLatch writing = new CountDownLatch(2);
+                CountDownLatch release = new CountDownLatch(1);
+                ExecutorSubscribableChannel outbound = new ExecutorSubscribableChannel(executor);
+                outbound.addInterceptor(guard);
+                outbound.subscribe(message -> {
+                        writing.countDown();
+                        try {
+                                release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                        }
+                });
+
+                Thread sender = new Thread(() -> {
+                        for (int i = 0; i < 3; i++) {
+                                outbound.send(frame(SimpMessageType.MESSAGE)); // el tercero, rechazado
+                        }
+                });
+                try {
+                        sender.start();
+                        // uno escribiéndose en el pool y el rechazado en el hilo que manda
+                        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+                        assertThat(pending()).isEqualTo(3);
+
+                        release.countDown();
+                        sender.join(TimeUnit.SECONDS.toMillis(5));
+                        executor.shutdown();
+                        assertThat(executor.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+                        assertThat(pending()).isZero();
+                } finally {
+                        release.countDown();
+                        executor.shutdown();
+                }
+        }
+
+        @Test
+        void framesThatNeverReachTheExecutor_areReleased() {
+                ReflectionTestUtils.setField(guard, "maxPending", 10);
+                Message<?> rejected = guard.preSend(frame(SimpMessageType.MESSAGE), null);
+                Message<?> cut = guard.preSend(frame(SimpMessageType.MESSAGE), null);
+                Message<?> failed = guard.preSend(frame(SimpMessageType.MESSAGE), null);
+                Message<?> written = guard.preSend(frame(SimpMessageType.MESSAGE), null);
+
+                guard.afterSendCompletion(rejected, null, false,
+                                new MessageDeliveryException(rejected, new RejectedExecutionException("lleno")));
+                guard.afterSendCompletion(cut, null, false, null); // otro interceptor lo cortó
+                // el handler falló: ya lo descontó afterMessageHandled
+                guard.afterMessageHandled(failed, null, null, new IllegalStateException());
+                guard.afterSendCompletion(failed, null, false,
+                                new MessageDeliveryException(failed, new IllegalStateException()));
+                guard.afterSendCompletion(written, null, true, null);
+
+                assertThat(pending()).isEqualTo(1); // solo el que sigue en cola
+        }
+
+        private double pending() {
+                return meterRegistry.get("websocket.outbound.pending").gauge().value();
+        }
+
+        private static Message<byte[]> frame(SimpMessageType type) {
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+                accessor.setSessionId("s1");
+                return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        }
+}
@@ -0,0 +1,96 @@
+package org.example.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.example.exception.customs.httpstatus.TooManyRequestsException;
+import org.example.service.chat.ChatRateLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Límite de frames SEND: descarte con aviso y, si sigue, frame ERROR.
+ */
+class StompRateLimitInterceptorTest {
+
+        private SimpMessagingTemplate messagingTemplate;
+
+        private ChatRateLimiter rateLimiter;
+
+        private StompRateLimitInterceptor interceptor;
+
+        @BeforeEach
+        void setUp() {
+                SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+                messagingTemplate = mock(SimpMessagingTemplate.class);
+
+                rateLimiter = new ChatRateLimiter(meterRegistry);
+                ReflectionTestUtils.setField(rateLimiter, "windowSeconds", 60);
+                ReflectionTestUtils.setField(rateLimiter, "framesLimit", 2);
+                ReflectionTestUtils.setField(rateLimiter, "sendLimit", 1);
+                rateLimiter.init();
+
+                interceptor = new StompRateLimitInterceptor(rateLimiter, messagingTemplate, meterRegistry);
+                ReflectionTestUtils.setField(interceptor, "maxStrikes", 2);
+        }
+
+        @Test
+        void flood_isDroppedThenDisconnected() {
+                assertThat(interceptor.preSend(send("ana"), null)).isNotNull();
+                assertThat(interceptor.preSend(send("ana"), null)).isNotNull();
+
+                // primera infracción: se descarta y se avisa
+                assertThat(interceptor.preSend(send("ana"), null)).isNull();
+                verify(messagingTemplate).convertAndSendToUser(eq("ana"), eq("/queue/errors"), any(Object.class));
+
+                // otro usuario tiene su propio bucket
+                assertThat(interceptor.preSend(send("beto"), null)).isNotNull();
+
+                assertThatThrownBy(() -> interceptor.preSend(send("ana"), null))
+                                .isInstanceOf(MessageDeliveryException.class);
+        }
+
+        @Test
+        void otherFrames_areNotLimited() {
+                StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+                accessor.setSessionId("s1");
+                Message<byte[]> subscribe = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+
+                for (int i = 0; i < 10; i++) {
+                        assertThat(interceptor.preSend(subscribe, null)).isNotNull();
+                }
+        }
+
+        @Test
+        void services_get429() {
+                rateLimiter.check(ChatRateLimiter.Kind.PRIVATE, "ana");
+                rateLimiter.check(ChatRateLimiter.Kind.PUBLIC, "ana");
+
+                assertThatThrownBy(() -> rateLimiter.check(ChatRateLimiter.Kind.PRIVATE, "ana"))
+                                .isInstanceOf(TooManyRequestsException.class);
+        }
+
+        private static Message<byte[]> send(String username) {
+                StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+                accessor.setDestination("/topic/public/lobby");
+                accessor.setSessionId("s-" + username);
+                accessor.setUser(new UsernamePasswordAuthenticationToken(username, null, List.of()));
+                return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        }
+}
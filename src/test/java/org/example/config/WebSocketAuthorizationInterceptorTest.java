@@ -0,0 +1,71 @@
+package org.example.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.example.service.chat.PublicRooms;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * SUBSCRIBE/SEND de clientes: login para destinos privados y salas, salas
+ * inexistentes y destinos entre nodos rechazados.
+ */
+class WebSocketAuthorizationInterceptorTest {
+
+        private WebSocketAuthorizationInterceptor interceptor;
+
+        @BeforeEach
+        void setUp() {
+                PublicRooms rooms = new PublicRooms(new SimpleMeterRegistry());
+                ReflectionTestUtils.setField(rooms, "names", List.of("lobby"));
+                ReflectionTestUtils.setField(rooms, "defaultRoom", "lobby");
+                rooms.init();
+
+                interceptor = new WebSocketAuthorizationInterceptor(rooms);
+        }
+
+        @Test
+        void clusterDestinations_areDeniedToClients() {
+                // mensajes de otros usuarios sin sesión local y el registro de sesiones
+                for (String destination : List.of(WebSocketConfig.UNRESOLVED_USER_DESTINATION,
+                                WebSocketConfig.USER_REGISTRY_DESTINATION)) {
+                        assertThatThrownBy(() -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, destination), null))
+                                        .isInstanceOf(AccessDeniedException.class);
+                        assertThatThrownBy(() -> interceptor.preSend(frame(StompCommand.SEND, destination), null))
+                                        .isInstanceOf(AccessDeniedException.class);
+                }
+        }
+
+        @Test
+        void privateAndRoomDestinations_areAllowedWithLogin() {
+                assertThat(interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/user/queue/messages"), null))
+                                .isNotNull();
+                assertThat(interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/public/lobby"), null))
+                                .isNotNull();
+                assertThatThrownBy(() -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/public/otra"), null))
+                                .isInstanceOf(AccessDeniedException.class);
+        }
+
+        // --- Helpers ---
+
+        private static Message<byte[]> frame(StompCommand command, String destination) {
+                StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+                accessor.setDestination(destination);
+                accessor.setSessionId("s1");
+                accessor.setUser(new UsernamePasswordAuthenticationToken("ana", null, List.of()));
+                accessor.setLeaveMutable(true);
+                return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        }
+}
@@ -0,0 +1,124 @@
+package org.example.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import org.example.entity.Friend;
+import org.example.entity.Friend.FriendStatus;
+import org.example.entity.ThemeMode;
+import org.example.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Par canónico de friends: mismo orden en Java y en la base, una fila por
+ * par y búsquedas en cualquier dirección.
+ */
+@SpringBootTest
+@Transactional
+class FriendRepositoryTest {
+
+        @MockitoBean
+        private JwtDecoder googleJwtDecoder;
+
+        @Autowired
+        private FriendRepository friendRepo;
+
+        @Autowired
+        private UserRepository userRepo;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        private User ana;
+
+        private User beto;
+
+        @BeforeEach
+        void setUp() {
+                ana = userRepo.save(user("pairana"));
+                beto = userRepo.save(user("pairbeto"));
+        }
+
+        @Test
+        void pair_matchesDatabaseOrdering() {
+                // ids con el bit de signo en distintas mitades: el orden con signo
+                // de UUID.compareTo no coincide con el de la base
+                UUID low = UUID.fromString("7fffffff-ffff-ffff-ffff-ffffffffffff");
+                UUID high = UUID.fromString("80000000-0000-0000-0000-000000000000");
+
+                assertThat(Friend.Pair.of(high, low)).isEqualTo(new Friend.Pair(low, high));
+                UUID least = jdbcTemplate.queryForObject(
+                                "SELECT LEAST(CAST(? AS UUID), CAST(? AS UUID))", UUID.class, high, low);
+                assertThat(least).isEqualTo(low);
+        }
+
+        @Test
+        void relation_isFoundFromEitherSide() {
+                Friend saved = friendRepo.saveAndFlush(Friend.builder()
+                                .requester(beto)
+                                .receiver(ana)
+                                .status(FriendStatus.PENDING)
+                                .build());
+
+                assertThat(friendRepo.findRelationBetween(ana, beto)).contains(saved);
+                assertThat(friendRepo.findRelationBetweenUserIds(beto.getId(), ana.getId())).contains(saved);
+                assertThat(friendRepo.findPendingRequest(beto.getId(), ana.getId())).contains(saved);
+                assertThat(friendRepo.findPendingRequest(ana.getId(), beto.getId())).isEmpty();
+        }
+
+        @Test
+        void reversedRequester_keepsThePair() {
+                Friend relation = friendRepo.saveAndFlush(Friend.builder()
+                                .requester(ana)
+                                .receiver(beto)
+                                .status(FriendStatus.REJECTED)
+                                .build());
+                Friend.Pair pair = new Friend.Pair(relation.getLowUserId(), relation.getHighUserId());
+
+                relation.setRequester(beto);
+                relation.setReceiver(ana);
+                relation.setStatus(FriendStatus.BLOCKED);
+                friendRepo.saveAndFlush(relation);
+
+                assertThat(new Friend.Pair(relation.getLowUserId(), relation.getHighUserId())).isEqualTo(pair);
+        }
+
+        @Test
+        void secondRowForSamePair_isRejected() {
+                friendRepo.saveAndFlush(Friend.builder()
+                                .requester(ana)
+                                .receiver(beto)
+                                .status(FriendStatus.PENDING)
+                                .build());
+
+                assertThatThrownBy(() -> friendRepo.saveAndFlush(Friend.builder()
+                                .requester(beto)
+                                .receiver(ana)
+                                .status(FriendStatus.PENDING)
+                                .build()))
+                                .isInstanceOf(DataIntegrityViolationException.class);
+        }
+
+        private static User user(String username) {
+                return User.builder()
+                                .username(username)
+                                .email(username + "@test.com")
+                                .avatarKey("default.png")
+                                .password("secret")
+                                .displayName(username)
+                                .birthDate(LocalDate.of(2000, 1, 1))
+                                .themeMode(ThemeMode.LIGHT)
+                                .build();
+        }
+}
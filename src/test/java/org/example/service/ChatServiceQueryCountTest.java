@@ -0,0 +1,157 @@
+package org.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.example.dto.ChatPreviewDto;
+import org.example.entity.Friend;
+import org.example.entity.ThemeMode;
+import org.example.entity.User;
+import org.example.repository.FriendRepository;
+import org.example.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * La lista de chats sale en una query (más el usuario actual y el COUNT
+ * de la página), sin importar cuántos chats haya, ordenada por última
+ * actividad.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class ChatServiceQueryCountTest {
+
+        private static final int CHATS = 6;
+
+        @MockitoBean
+        private JwtDecoder googleJwtDecoder;
+
+        @Autowired
+        private ChatService chatService;
+
+        @Autowired
+        private MessageService messageService;
+
+        @Autowired
+        private UserRepository userRepo;
+
+        @Autowired
+        private FriendRepository friendRepo;
+
+        @Autowired
+        private EntityManagerFactory emf;
+
+        @Autowired
+        private EntityManager em;
+
+        private final List<Friend> chats = new ArrayList<>();
+
+        private Statistics statistics;
+
+        @BeforeEach
+        void setUp() {
+                User me = userRepo.save(user("chatlistme"));
+                for (int i = 0; i < CHATS; i++) {
+                        chats.add(friendRepo.save(Friend.builder()
+                                        .requester(i % 2 == 0 ? me : userRepo.save(user("chatlist" + i)))
+                                        .receiver(i % 2 == 0 ? userRepo.save(user("chatlist" + i)) : me)
+                                        .status(Friend.FriendStatus.ACCEPTED)
+                                        .build()));
+                }
+
+                login("chatlistme");
+                // en orden inverso: el chat 0 queda con la actividad más reciente
+                for (int i = CHATS - 1; i >= 0; i--) {
+                        messageService.sendMessage(chats.get(i).getId(), "hola " + i);
+                }
+
+                em.flush();
+                em.clear();
+
+                statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        }
+
+        @AfterEach
+        void tearDown() {
+                SecurityContextHolder.clearContext();
+        }
+
+        @Test
+        void chatList_isOrderedByLastActivity() {
+                Page<ChatPreviewDto> page = chatService.getChats(0, 20);
+
+                assertThat(page.getContent())
+                                .extracting(ChatPreviewDto::friendId)
+                                .containsExactlyElementsOf(chats.stream().map(Friend::getId).toList());
+                assertThat(page.getContent().get(0).lastMessage().content()).isEqualTo("hola 0");
+                assertThat(page.getContent().get(0).lastMessage().sender().username()).isEqualTo("chatlistme");
+        }
+
+        @Test
+        void newMessage_movesChatToTheTop() {
+                Friend oldest = chats.get(CHATS - 1);
+                messageService.sendMessage(oldest.getId(), "de vuelta");
+                em.flush();
+                em.clear();
+
+                assertThat(chatService.getChats(0, 1).getContent())
+                                .singleElement()
+                                .satisfies(chat -> assertThat(chat.friendId()).isEqualTo(oldest.getId()));
+        }
+
+        @Test
+        void chatList_queryCountIsConstant() {
+                long small = statementsFor(2);
+                long large = statementsFor(CHATS - 1);
+
+                // usuario actual (con roles) + chats con participantes + COUNT +
+                // últimos mensajes que no están en memoria (uno solo para todos):
+                // no crece con los chats de la página
+                assertThat(large).isEqualTo(small);
+                assertThat(large).isLessThanOrEqualTo(5);
+        }
+
+        private long statementsFor(int size) {
+                em.clear();
+                statistics.clear();
+                Page<ChatPreviewDto> page = chatService.getChats(0, size);
+
+                assertThat(page.getContent()).hasSize(size);
+                assertThat(page.getTotalElements()).isEqualTo(CHATS);
+                return statistics.getPrepareStatementCount();
+        }
+
+        private static void login(String username) {
+                SecurityContextHolder.getContext().setAuthentication(
+                                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+        }
+
+        private static User user(String username) {
+                return User.builder()
+                                .username(username)
+                                .email(username + "@test.com")
+                                .avatarKey("default.png")
+                                .password("secret")
+                                .displayName(username)
+                                .birthDate(LocalDate.of(2000, 1, 1))
+                                .themeMode(ThemeMode.LIGHT)
+                                .build();
+        }
+}
@@ -0,0 +1,147 @@
+package org.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.example.dto.CursorSliceDto;
+import org.example.dto.MessageDto;
+import org.example.entity.Friend;
+import org.example.entity.ThemeMode;
+import org.example.entity.User;
+import org.example.exception.customs.httpstatus.BadRequestException;
+import org.example.repository.FriendRepository;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Historial de mensajes por cursor: página acotada, contenido en orden
+ * cronológico y cursores en ambas direcciones.
+ */
+@SpringBootTest
+@Transactional
+class MessageHistoryTest {
+
+        @MockitoBean
+        private JwtDecoder googleJwtDecoder;
+
+        @Autowired
+        private MessageService messageService;
+
+        @Autowired
+        private UserRepository userRepo;
+
+        @Autowired
+        private FriendRepository friendRepo;
+
+        private Friend chat;
+
+        private Friend otherChat;
+
+        private final List<Long> ids = new ArrayList<>();
+
+        @BeforeEach
+        void setUp() {
+                User ana = userRepo.save(user("historyana"));
+                chat = friendRepo.save(Friend.builder()
+                                .requester(ana)
+                                .receiver(userRepo.save(user("historybeto")))
+                                .status(Friend.FriendStatus.ACCEPTED)
+                                .build());
+                otherChat = friendRepo.save(Friend.builder()
+                                .requester(userRepo.save(user("historycami")))
+                                .receiver(ana)
+                                .status(Friend.FriendStatus.ACCEPTED)
+                                .build());
+
+                SecurityContextHolder.getContext().setAuthentication(
+                                new UsernamePasswordAuthenticationToken("historyana", null, List.of()));
+
+                for (int i = 1; i <= 7; i++) {
+                        ids.add(messageService.sendMessage(chat.getId(), "m" + i).id());
+                }
+        }
+
+        @AfterEach
+        void tearDown() {
+                SecurityContextHolder.clearContext();
+        }
+
+        @Test
+        void noCursor_returnsNewestInChronologicalOrder() {
+                CursorSliceDto<MessageDto> page = messageService.getMessages(chat.getId(), null, null, 3);
+
+                assertThat(contents(page)).containsExactly("m5", "m6", "m7");
+                assertThat(page.hasNext()).isTrue();
+                assertThat(page.nextCursor()).isEqualTo(String.valueOf(ids.get(4)));
+        }
+
+        @Test
+        void before_walksBackUntilTheFirstMessage() {
+                CursorSliceDto<MessageDto> page = messageService.getMessages(chat.getId(), ids.get(4), null, 3);
+                assertThat(contents(page)).containsExactly("m2", "m3", "m4");
+
+                CursorSliceDto<MessageDto> last = messageService.getMessages(
+                                chat.getId(), Long.valueOf(page.nextCursor()), null, 3);
+                assertThat(contents(last)).containsExactly("m1");
+                assertThat(last.hasNext()).isFalse();
+                assertThat(last.nextCursor()).isNull();
+        }
+
+        @Test
+        void after_returnsNewerMessages() {
+                CursorSliceDto<MessageDto> page = messageService.getMessages(chat.getId(), null, ids.get(3), 2);
+
+                assertThat(contents(page)).containsExactly("m5", "m6");
+                assertThat(page.nextCursor()).isEqualTo(String.valueOf(ids.get(5)));
+        }
+
+        @Test
+        void pageSize_isBounded() {
+                CursorSliceDto<MessageDto> page = messageService.getMessages(chat.getId(), null, null, 0);
+
+                assertThat(page.size()).isEqualTo(1);
+        }
+
+        @Test
+        void invalidCursors_areRejected() {
+                assertThatThrownBy(() -> messageService.getMessages(chat.getId(), ids.get(1), ids.get(2), 10))
+                                .isInstanceOf(BadRequestException.class);
+                assertThatThrownBy(() -> messageService.getMessages(otherChat.getId(), ids.get(1), null, 10))
+                                .isInstanceOf(BadRequestException.class);
+        }
+
+        @Test
+        void lastMessageId_isReadWithoutLoadingTheChat() {
+                assertThat(friendRepo.findLastMessageId(chat.getId())).contains(ids.get(6));
+                assertThat(friendRepo.findLastMessageId(otherChat.getId())).isEmpty();
+        }
+
+        private static List<String> contents(CursorSliceDto<MessageDto> page) {
+                return page.content().stream().map(MessageDto::content).toList();
+        }
+
+        private static User user(String username) {
+                return User.builder()
+                                .username(username)
+                                .email(username + "@test.com")
+                                .avatarKey("default.png")
+                                .password("secret")
+                                .displayName(username)
+                                .birthDate(LocalDate.of(2000, 1, 1))
+                                .themeMode(ThemeMode.LIGHT)
+                                .build();
+        }
+}
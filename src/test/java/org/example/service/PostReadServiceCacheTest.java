@@ -0,0 +1,198 @@
+package org.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import org.example.entity.Post;
+import org.example.entity.Privacy;
+import org.example.entity.ThemeMode;
+import org.example.entity.User;
+import org.example.repository.PostRepository;
+import org.example.repository.UserRepository;
+import org.example.service.cache.CacheInvalidationService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Verifica que las lecturas cacheadas de posts realmente pegan en cache
+ * cuando se llaman desde PostService (sin self-invocation).
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class PostReadServiceCacheTest {
+
+        @MockitoBean
+        private JwtDecoder googleJwtDecoder;
+
+        @Autowired
+        private PostService postService;
+
+        @Autowired
+        private PostReadService postReadService;
+
+        @Autowired
+        private UserRepository userRepo;
+
+        @Autowired
+        private PostRepository postRepo;
+
+        @Autowired
+        private CacheManager cacheManager;
+
+        @Autowired
+        private MeterRegistry meterRegistry;
+
+        @Autowired
+        private EntityManagerFactory emf;
+
+        @Autowired
+        private EntityManager em;
+
+        private Statistics statistics;
+
+        private User viewer;
+
+        private Post post;
+
+        @BeforeEach
+        void setUp() {
+                viewer = userRepo.save(user("cacheviewer"));
+                User author = userRepo.save(user("cacheauthor"));
+
+                post = postRepo.save(Post.builder()
+                                .content("hola")
+                                .privacy(Privacy.PUBLIC)
+                                .user(author)
+                                .build());
+
+                em.flush();
+                em.clear();
+
+                SecurityContextHolder.getContext().setAuthentication(
+                                new UsernamePasswordAuthenticationToken("cacheviewer", null, List.of()));
+
+                statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        }
+
+        @AfterEach
+        void tearDown() {
+                SecurityContextHolder.clearContext();
+        }
+
+        @Test
+        void feed_secondCallIsServedFromCache() {
+                long hits = hits(CacheInvalidationService.FEEDS);
+
+                var first = postService.getFeed(0, 10);
+                var second = postService.getFeed(0, 10);
+
+                assertThat(second).isSameAs(first);
+                assertThat(hits(CacheInvalidationService.FEEDS)).isEqualTo(hits + 1);
+        }
+
+        @Test
+        void postById_secondCallIsServedFromBothLayers() {
+                long snapshotHits = hits(CacheInvalidationService.POST_SNAPSHOTS);
+                long overlayHits = hits(CacheInvalidationService.POST_OVERLAYS);
+
+                var first = postService.getPostById(post.getId());
+                var second = postService.getPostById(post.getId());
+
+                assertThat(second).isEqualTo(first);
+                assertThat(hits(CacheInvalidationService.POST_SNAPSHOTS)).isEqualTo(snapshotHits + 1);
+                assertThat(hits(CacheInvalidationService.POST_OVERLAYS)).isEqualTo(overlayHits + 1);
+        }
+
+        @Test
+        void postById_snapshotIsSharedBetweenViewers() {
+                User other = userRepo.save(user("cacheother"));
+                postReadService.getPostById(post.getId(), viewer.getId());
+
+                long snapshotHits = hits(CacheInvalidationService.POST_SNAPSHOTS);
+                long overlayHits = hits(CacheInvalidationService.POST_OVERLAYS);
+
+                var dto = postReadService.getPostById(post.getId(), other.getId());
+
+                // mismo snapshot, capa del viewer nueva
+                assertThat(dto.getId()).isEqualTo(post.getId());
+                assertThat(dto.isLiked()).isFalse();
+                assertThat(hits(CacheInvalidationService.POST_SNAPSHOTS)).isEqualTo(snapshotHits + 1);
+                assertThat(hits(CacheInvalidationService.POST_OVERLAYS)).isEqualTo(overlayHits);
+        }
+
+        @Test
+        void postsByUsername_secondCallIsServedFromCache() {
+                long hits = hits(CacheInvalidationService.POSTS_BY_USER);
+
+                var first = postService.getPostsByUsername("cacheauthor", 0, 10);
+                var second = postService.getPostsByUsername("cacheauthor", 0, 10);
+
+                assertThat(second.getContent()).isEqualTo(first.getContent());
+                assertThat(hits(CacheInvalidationService.POSTS_BY_USER)).isEqualTo(hits + 1);
+        }
+
+        @Test
+        void cacheHit_runsNoQueries() {
+                UUID viewerId = viewer.getId();
+                postReadService.getFeed(viewerId, 0, 5);
+
+                em.clear();
+                statistics.clear();
+                postReadService.getFeed(viewerId, 0, 5);
+
+                assertThat(statistics.getPrepareStatementCount()).isZero();
+        }
+
+        @Test
+        void hitRatioIsPublishedPerCache() {
+                postService.getFeed(0, 3);
+                postService.getFeed(0, 3);
+
+                for (String name : List.of(CacheInvalidationService.FEEDS,
+                                CacheInvalidationService.POST_SNAPSHOTS,
+                                CacheInvalidationService.POST_OVERLAYS,
+                                CacheInvalidationService.POSTS_BY_USER)) {
+                        assertThat(meterRegistry.find("cache.hit.ratio").tag("cache", name).gauge()).isNotNull();
+                }
+
+                double feedRatio = meterRegistry.get("cache.hit.ratio")
+                                .tag("cache", CacheInvalidationService.FEEDS)
+                                .gauge().value();
+                assertThat(feedRatio).isGreaterThan(0.0);
+        }
+
+        private long hits(String cacheName) {
+                return ((CaffeineCache) cacheManager.getCache(cacheName)).getNativeCache().stats().hitCount();
+        }
+
+        private static User user(String username) {
+                return User.builder()
+                                .username(username)
+                                .email(username + "@test.com")
+                                .avatarKey("default.png")
+                                .password("secret")
+                                .displayName(username)
+                                .birthDate(LocalDate.of(2000, 1, 1))
+                                .themeMode(ThemeMode.LIGHT)
+                                .build();
+        }
+}
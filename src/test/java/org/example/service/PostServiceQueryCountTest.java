@@ -0,0 +1,233 @@
+package org.example.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.example.dto.CursorSliceDto;
+import org.example.dto.PostDto;
+import org.example.entity.Comment;
+import org.example.entity.Friend;
+import org.example.entity.Post;
+import org.example.entity.PostLike;
+import org.example.entity.Privacy;
+import org.example.entity.ThemeMode;
+import org.example.entity.User;
+import org.example.repository.CommentRepository;
+import org.example.repository.FriendRepository;
+import org.example.repository.PostLikeRepository;
+import org.example.repository.PostRepository;
+import org.example.repository.UserRepository;
+import org.example.service.feed.TimelineService;
+import org.example.service.graph.FriendGraphService;
+import org.example.service.stats.PostStatsReconciler;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Verifica que los listados de posts ejecutan un número de queries
+ * constante por página (sin N+1 de comentarios, likes y "liked").
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class PostServiceQueryCountTest {
+
+        @MockitoBean
+        private JwtDecoder googleJwtDecoder;
+
+        @Autowired
+        private PostService postService;
+
+        @Autowired
+        private UserRepository userRepo;
+
+        @Autowired
+        private PostRepository postRepo;
+
+        @Autowired
+        private CommentRepository commentRepo;
+
+        @Autowired
+        private PostLikeRepository postLikeRepo;
+
+        @Autowired
+        private FriendRepository friendRepo;
+
+        @Autowired
+        private TimelineService timelineService;
+
+        @Autowired
+        private FriendGraphService friendGraph;
+
+        @Autowired
+        private PostStatsReconciler postStatsReconciler;
+
+        @Autowired
+        private EntityManagerFactory emf;
+
+        @Autowired
+        private EntityManager em;
+
+        private Statistics statistics;
+
+        @BeforeEach
+        void setUp() {
+                User viewer = userRepo.save(user("viewer"));
+                List<User> authors = List.of(
+                                viewer,
+                                userRepo.save(user("alice")),
+                                userRepo.save(user("bob")),
+                                userRepo.save(user("carol")));
+
+                friendRepo.save(Friend.builder()
+                                .requester(viewer)
+                                .receiver(authors.get(1))
+                                .status(Friend.FriendStatus.ACCEPTED)
+                                .build());
+
+                for (int i = 0; i < 12; i++) {
+                        User author = authors.get(i % authors.size());
+                        Post post = postRepo.save(Post.builder()
+                                        .content("post " + i)
+                                        .privacy(i % 3 == 0 ? Privacy.FRIENDS : Privacy.PUBLIC)
+                                        .user(author)
+                                        .build());
+
+                        commentRepo.save(Comment.builder().content("c").user(viewer).post(post).build());
+                        postLikeRepo.save(PostLike.builder().post(post).user(author).build());
+                        if (i % 2 == 0 && author != viewer) {
+                                postLikeRepo.save(PostLike.builder().post(post).user(viewer).build());
+                        }
+                }
+
+                em.flush();
+                em.clear();
+
+                // comentarios y likes sembrados por repositorio: post_stats se recalcula
+                postStatsReconciler.reconcile();
+
+                // timelines y grafo con los datos del test (se limpian después del rollback)
+                timelineService.rebuild();
+                friendGraph.rebuild();
+
+                SecurityContextHolder.getContext().setAuthentication(
+                                new UsernamePasswordAuthenticationToken("viewer", null, List.of()));
+
+                statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        }
+
+        @AfterEach
+        void tearDown() {
+                SecurityContextHolder.clearContext();
+        }
+
+        // El rebuild del setUp cargó filas que el rollback descartó: el grafo y
+        // los timelines son singletons, no pueden quedar para los tests siguientes
+        @AfterTransaction
+        void resetInMemoryState() {
+                timelineService.rebuild();
+                friendGraph.rebuild();
+        }
+
+        @Test
+        void feed_queryCountDoesNotDependOnPageSize() {
+                long small = countQueries(() -> postService.getFeed(0, 2).getContent().size());
+                long large = countQueries(() -> postService.getFeed(0, 10).getContent().size());
+
+                assertThat(large).isEqualTo(small);
+        }
+
+        @Test
+        void myPosts_queryCountDoesNotDependOnPageSize() {
+                long small = countQueries(() -> postService.getMyPosts(0, 1).getContent().size());
+                long large = countQueries(() -> postService.getMyPosts(0, 3).getContent().size());
+
+                assertThat(large).isEqualTo(small);
+        }
+
+        @Test
+        void postsByUsername_queryCountDoesNotDependOnPageSize() {
+                long small = countQueries(() -> postService.getPostsByUsername("alice", 0, 1).getContent().size());
+                long large = countQueries(() -> postService.getPostsByUsername("alice", 0, 3).getContent().size());
+
+                assertThat(large).isEqualTo(small);
+        }
+
+        @Test
+        void feed_statsComeFromGroupedQueries() {
+                var page = postService.getFeed(0, 10);
+
+                assertThat(page.getContent()).hasSize(10);
+                assertThat(page.getContent()).allSatisfy(dto -> {
+                        assertThat(dto.getCommentCount()).isEqualTo(1);
+                        assertThat(dto.getLikeCount()).isBetween(1L, 2L);
+                        assertThat(dto.isLiked()).isEqualTo(dto.getLikeCount() == 2
+                                        || dto.getAuthor().username().equals("viewer"));
+                });
+        }
+
+        @Test
+        void feedByCursor_walksEveryVisiblePostOnceWithoutCount() {
+                long offsetQueries = countQueries(() -> postService.getFeed(0, 5).getContent().size());
+                long total = postService.getFeed(0, 100).getTotalElements();
+
+                List<PostDto> walked = new ArrayList<>();
+                List<Long> queriesPerSlice = new ArrayList<>();
+                String cursor = "";
+                do {
+                        em.clear();
+                        statistics.clear();
+                        CursorSliceDto<PostDto> slice = postService.getFeedByCursor(cursor, 3);
+                        queriesPerSlice.add(statistics.getPrepareStatementCount());
+                        walked.addAll(slice.content());
+                        cursor = slice.nextCursor();
+                } while (cursor != null);
+
+                // constante en cualquier profundidad (la primera página además arma
+                // el timeline en memoria); los ids y el COUNT del feed por OFFSET
+                // van por JDBC (FeedQueryEngine), fuera de estas estadísticas
+                assertThat(queriesPerSlice.subList(1, queriesPerSlice.size())).containsOnly(offsetQueries);
+                assertThat(walked).hasSize((int) total);
+                assertThat(walked).extracting(PostDto::getId).doesNotHaveDuplicates();
+                assertThat(walked).extracting(PostDto::getCreatedAt)
+                                .isSortedAccordingTo(Comparator.reverseOrder());
+        }
+
+        private long countQueries(Supplier<Integer> call) {
+                em.clear();
+                statistics.clear();
+                int size = call.get();
+                assertThat(size).isPositive();
+                return statistics.getPrepareStatementCount();
+        }
+
+        private static User user(String username) {
+                return User.builder()
+                                .username(username)
+                                .email(username + "@test.com")
+                                .avatarKey("default.png")
+                                .password("secret")
+                                .displayName(username)
+                                .birthDate(LocalDate.of(2000, 1, 1))
+                                .themeMode(ThemeMode.LIGHT)
+                                .build();
+        }
+}
@@ -0,0 +1,153 @@
+package org.example.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.example.entity.Post;
+import org.example.entity.Privacy;
+import org.example.entity.User;
+import org.example.repository.FriendRepository;
+import org.example.service.relay.ClusterEvents;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Evicción por tags al confirmarse la transacción, puts que pierden contra
+ * una invalidación concurrente y entradas que caen con su vínculo.
+ */
+class CacheInvalidationServiceTest {
+
+        private static final UUID POST = UUID.randomUUID();
+        private static final UUID AUTHOR = UUID.randomUUID();
+
+        private CaffeineCacheManager cacheManager;
+
+        private CacheInvalidationService invalidation;
+
+        @BeforeEach
+        void setUp() {
+                cacheManager = new CaffeineCacheManager(CacheInvalidationService.POST_SNAPSHOTS,
+                                CacheInvalidationService.POSTS_BY_USER);
+                invalidation = newInvalidation(100L);
+        }
+
+        @AfterEach
+        void tearDown() {
+                if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                        TransactionSynchronizationManager.clearSynchronization();
+                }
+        }
+
+        @Test
+        void commentAndLike_evictThePostOnlyAfterCommit() {
+                snapshot(POST);
+                TransactionSynchronizationManager.initSynchronization();
+
+                invalidation.onCommentChanged(POST);
+                assertThat(snapshots().get(POST)).isNotNull();
+                commit();
+                assertThat(snapshots().get(POST)).isNull();
+
+                snapshot(POST);
+                TransactionSynchronizationManager.initSynchronization();
+                invalidation.onLikeChanged(POST);
+                commit();
+                assertThat(snapshots().get(POST)).isNull();
+        }
+
+        @Test
+        void postCreated_evictsTheAuthorsPagesAfterCommit() {
+                UUID other = UUID.randomUUID();
+                invalidation.put(CacheInvalidationService.POSTS_BY_USER, "page", List.of(),
+                                List.of(CacheInvalidationService.authorTag(AUTHOR)), invalidation.stamp());
+                invalidation.put(CacheInvalidationService.POSTS_BY_USER, "other", List.of(),
+                                List.of(CacheInvalidationService.authorTag(other)), invalidation.stamp());
+                TransactionSynchronizationManager.initSynchronization();
+
+                invalidation.onPostDeleted(post(Privacy.PUBLIC));
+                assertThat(byUser().get("page")).isNotNull();
+                commit();
+
+                assertThat(byUser().get("page")).isNull();
+                assertThat(byUser().get(POST)).isNull();
+                assertThat(byUser().get("other")).isNotNull();
+        }
+
+        @Test
+        void put_afterAConcurrentInvalidation_isDiscarded() {
+                long stamp = invalidation.stamp(); // se empieza a leer de la base
+                invalidation.onCommentChanged(POST); // sin transacción: evicta ya
+
+                invalidation.put(CacheInvalidationService.POST_SNAPSHOTS, POST, "viejo",
+                                List.of(CacheInvalidationService.postTag(POST)), stamp);
+
+                assertThat(snapshots().get(POST)).isNull();
+        }
+
+        @Test
+        void entriesFallWithTheirTagWhenTheIndexIsFull() {
+                invalidation = newInvalidation(1L);
+
+                UUID second = UUID.randomUUID();
+                snapshot(POST);
+                snapshot(second);
+
+                // solo un tag entra: el otro se evictó y su entrada con él
+                long cached = List.of(POST, second).stream().filter(id -> snapshots().get(id) != null).count();
+                assertThat(cached).isEqualTo(1);
+        }
+
+        // --- Helpers ---
+
+        private CacheInvalidationService newInvalidation(long maxTags) {
+                CacheInvalidationService service = new CacheInvalidationService(cacheManager,
+                                mock(FriendRepository.class), new ClusterEvents(new ObjectMapper()),
+                                new SimpleMeterRegistry());
+                ReflectionTestUtils.setField(service, "maxTags", maxTags);
+                service.init();
+                return service;
+        }
+
+        private void snapshot(UUID postId) {
+                invalidation.put(CacheInvalidationService.POST_SNAPSHOTS, postId, "snapshot",
+                                List.of(CacheInvalidationService.postTag(postId)), invalidation.stamp());
+        }
+
+        private Cache snapshots() {
+                return cacheManager.getCache(CacheInvalidationService.POST_SNAPSHOTS);
+        }
+
+        private Cache byUser() {
+                return cacheManager.getCache(CacheInvalidationService.POSTS_BY_USER);
+        }
+
+        private static void commit() {
+                List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager
+                                .getSynchronizations();
+                TransactionSynchronizationManager.clearSynchronization();
+                synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+
+        private static Post post(Privacy privacy) {
+                return Post.builder()
+                                .id(POST)
+                                .user(User.builder().id(AUTHOR).build())
+                                .privacy(privacy)
+                                .createdAt(Instant.now())
+                                .build();
+        }
+}
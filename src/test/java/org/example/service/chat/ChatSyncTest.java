@@ -0,0 +1,145 @@
+package org.example.service.chat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.example.dto.ChatSyncDto;
+import org.example.dto.MessageDto;
+import org.example.entity.Friend;
+import org.example.entity.ThemeMode;
+import org.example.entity.User;
+import org.example.exception.customs.httpstatus.ForbiddenException;
+import org.example.repository.FriendRepository;
+import org.example.repository.UserRepository;
+import org.example.service.MessageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Reconexión: mensajes faltantes de varios chats en una sola query, con
+ * tope por chat.
+ */
+@SpringBootTest
+@Transactional
+class ChatSyncTest {
+
+        @MockitoBean
+        private JwtDecoder googleJwtDecoder;
+
+        @Autowired
+        private MessageService messageService;
+
+        @Autowired
+        private UserRepository userRepo;
+
+        @Autowired
+        private FriendRepository friendRepo;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private EntityManager em;
+
+        private User ana;
+
+        private Friend withBeto;
+
+        private Friend withCami;
+
+        @BeforeEach
+        void setUp() {
+                ana = userRepo.save(user("syncana"));
+                withBeto = friendRepo.save(chat(ana, userRepo.save(user("syncbeto"))));
+                withCami = friendRepo.save(chat(userRepo.save(user("synccami")), ana));
+
+                SecurityContextHolder.getContext().setAuthentication(
+                                new UsernamePasswordAuthenticationToken("syncana", null, List.of()));
+        }
+
+        @AfterEach
+        void tearDown() {
+                SecurityContextHolder.clearContext();
+        }
+
+        @Test
+        void sync_returnsOnlyMissingMessagesPerChat() {
+                MessageDto seen = messageService.sendMessage(withBeto.getId(), "b1");
+                messageService.sendMessage(withBeto.getId(), "b2");
+                messageService.sendMessage(withCami.getId(), "c1");
+
+                Map<Long, Long> lastSeen = new HashMap<>();
+                lastSeen.put(withBeto.getId(), seen.id());
+                lastSeen.put(withCami.getId(), null);
+
+                ChatSyncDto sync = messageService.sync(lastSeen);
+
+                assertThat(contents(sync.messages().get(withBeto.getId()))).containsExactly("b2");
+                assertThat(contents(sync.messages().get(withCami.getId()))).containsExactly("c1");
+                assertThat(sync.truncated()).isEmpty();
+        }
+
+        @Test
+        void sync_capsEachChatAndFlagsIt() {
+                em.flush();
+                jdbcTemplate.update("""
+                                INSERT INTO messages (id, content, friend_id, sender_id, sent_at)
+                                SELECT 1000000 + x, 'm' || x, ?, ?, ? FROM SYSTEM_RANGE(1, 205)
+                                """, withBeto.getId(), ana.getId(), Instant.now());
+
+                ChatSyncDto sync = messageService.sync(Map.of(withBeto.getId(), 0L));
+
+                assertThat(sync.messages().get(withBeto.getId())).hasSize(200);
+                assertThat(sync.truncated()).containsExactly(withBeto.getId());
+        }
+
+        @Test
+        void sync_rejectsForeignChats() {
+                Friend foreign = friendRepo.save(chat(
+                                userRepo.save(user("syncdani")), userRepo.save(user("syncemi"))));
+
+                assertThatThrownBy(() -> messageService.sync(Map.of(withBeto.getId(), 0L, foreign.getId(), 0L)))
+                                .isInstanceOf(ForbiddenException.class);
+        }
+
+        private static List<String> contents(List<MessageDto> messages) {
+                return messages.stream().map(MessageDto::content).toList();
+        }
+
+        private static Friend chat(User requester, User receiver) {
+                return Friend.builder()
+                                .requester(requester)
+                                .receiver(receiver)
+                                .status(Friend.FriendStatus.ACCEPTED)
+                                .build();
+        }
+
+        private static User user(String username) {
+                return User.builder()
+                                .username(username)
+                                .email(username + "@test.com")
+                                .avatarKey("default.png")
+                                .password("secret")
+                                .displayName(username)
+                                .birthDate(LocalDate.of(2000, 1, 1))
+                                .themeMode(ThemeMode.LIGHT)
+                                .build();
+        }
+}
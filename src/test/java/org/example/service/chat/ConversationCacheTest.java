@@ -0,0 +1,122 @@
+package org.example.service.chat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.example.dto.MessageDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Ventanas de mensajes recientes por chat: cuándo cubren la página más
+ * nueva y cómo se combinan envíos con cargas desde la base.
+ */
+class ConversationCacheTest {
+
+        private static final UUID ANA = UUID.randomUUID();
+
+        private static final UUID BETO = UUID.randomUUID();
+
+        // La base no tiene nada más nuevo que la ventana
+        private static final Supplier<Long> NOTHING_NEWER = () -> null;
+
+        private ConversationCache cache;
+
+        private SimpleMeterRegistry meterRegistry;
+
+        @BeforeEach
+        void setUp() {
+                meterRegistry = new SimpleMeterRegistry();
+                cache = new ConversationCache(meterRegistry);
+                ReflectionTestUtils.setField(cache, "capacity", 5);
+                ReflectionTestUtils.setField(cache, "maxBytes", 1_000_000L);
+                ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+                cache.init();
+        }
+
+        @Test
+        void completeHistory_servesAnyPageItCovers() {
+                cache.onLoaded(1L, ANA, BETO, List.of(message(1), message(2), message(3)), true);
+
+                assertThat(cache.latest(1L, ANA, 2, NOTHING_NEWER)).hasValueSatisfying(page -> {
+                        assertThat(ids(page.ascending())).containsExactly(2L, 3L);
+                        assertThat(page.hasOlder()).isTrue();
+                });
+                assertThat(cache.latest(1L, BETO, 3, NOTHING_NEWER)).hasValueSatisfying(
+                                page -> assertThat(page.hasOlder()).isFalse());
+                assertThat(cache.latest(1L, ANA, 4, NOTHING_NEWER)).isEmpty();
+                assertThat(meterRegistry.counter("chat.cache", "result", "hit").count()).isEqualTo(2);
+        }
+
+        @Test
+        void partialWindow_needsOneMoreToKnowIfThereAreOlder() {
+                for (long id = 1; id <= 7; id++) {
+                        cache.onSent(1L, ANA, BETO, message(id));
+                }
+
+                // quedan 3..7: no sabe si antes del 3 hay algo
+                assertThat(cache.latest(1L, ANA, 5, NOTHING_NEWER)).isEmpty();
+                assertThat(cache.latest(1L, ANA, 4, NOTHING_NEWER)).hasValueSatisfying(page -> {
+                        assertThat(ids(page.ascending())).containsExactly(4L, 5L, 6L, 7L);
+                        assertThat(page.hasOlder()).isTrue();
+                });
+                assertThat(cache.lastMessage(1L)).hasValueSatisfying(m -> assertThat(m.id()).isEqualTo(7));
+        }
+
+        @Test
+        void sendsDuringLoad_areKeptInIdOrder() {
+                cache.onSent(1L, ANA, BETO, message(5));
+                cache.onSent(1L, ANA, BETO, message(4)); // confirmado fuera de orden
+                cache.onLoaded(1L, ANA, BETO, List.of(message(1), message(2), message(3), message(4)), true);
+
+                assertThat(cache.latest(1L, ANA, 5, NOTHING_NEWER)).hasValueSatisfying(
+                                page -> assertThat(ids(page.ascending())).containsExactly(1L, 2L, 3L, 4L, 5L));
+        }
+
+        @Test
+        void strangers_alwaysMiss() {
+                cache.onLoaded(1L, ANA, BETO, List.of(message(1)), true);
+
+                assertThat(cache.latest(1L, UUID.randomUUID(), 1, NOTHING_NEWER)).isEmpty();
+        }
+
+        @Test
+        void messageFromAnotherNode_dropsTheWindow() {
+                cache.onLoaded(1L, ANA, BETO, List.of(message(1), message(2)), true);
+
+                // otro nodo confirmó el 3: la base va adelante de la ventana
+                assertThat(cache.latest(1L, ANA, 2, () -> 3L)).isEmpty();
+                assertThat(cache.lastMessage(1L)).isEmpty();
+                assertThat(meterRegistry.counter("chat.cache", "result", "stale").count()).isEqualTo(1);
+
+                cache.onLoaded(1L, ANA, BETO, List.of(message(1), message(2), message(3)), true);
+                assertThat(cache.latest(1L, ANA, 3, () -> 3L)).hasValueSatisfying(
+                                page -> assertThat(ids(page.ascending())).containsExactly(1L, 2L, 3L));
+        }
+
+        @Test
+        void windowExpiresAfterTheTtlEvenWithSends() {
+                ReflectionTestUtils.setField(cache, "ttlMs", -1L);
+                cache.onLoaded(1L, ANA, BETO, List.of(message(1)), true);
+                cache.onSent(1L, ANA, BETO, message(2)); // no renueva la carga
+
+                assertThat(cache.latest(1L, ANA, 1, NOTHING_NEWER)).isEmpty();
+                assertThat(meterRegistry.counter("chat.cache", "result", "stale").count()).isEqualTo(1);
+        }
+
+        private static List<Long> ids(List<MessageDto> messages) {
+                return messages.stream().map(MessageDto::id).toList();
+        }
+
+        private static MessageDto message(long id) {
+                return new MessageDto(id, 1L, ANA, "ana", "ana", "/api/v1/avatars/default.png", "m" + id,
+                                Instant.EPOCH);
+        }
+}
@@ -0,0 +1,171 @@
+package org.example.service.chat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.example.dto.ChatSyncDto;
+import org.example.dto.MessageDto;
+import org.example.dto.ReadCursorDto;
+import org.example.entity.Friend;
+import org.example.entity.Friend.FriendStatus;
+import org.example.entity.ThemeMode;
+import org.example.entity.User;
+import org.example.repository.FriendRepository;
+import org.example.repository.UserRepository;
+import org.example.service.ChatService;
+import org.example.service.MessageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Camino inline (transacción del llamador) y {@link MessageWriter}
+ * escribiendo en el mismo chat a la vez: el writer espera al commit del
+ * inline y toma un id mayor, así sync y no leídos ({@code id > cursor}) ven
+ * los dos mensajes.
+ *
+ * Sin @Transactional: cada camino confirma en su propia transacción.
+ */
+@SpringBootTest
+class MessageOrderingTest {
+
+        @MockitoBean
+        private JwtDecoder googleJwtDecoder;
+
+        @Autowired
+        private MessageService messageService;
+
+        @Autowired
+        private ChatService chatService;
+
+        @Autowired
+        private UnreadCounters unreadCounters;
+
+        @Autowired
+        private TransactionTemplate transactionTemplate;
+
+        @Autowired
+        private UserRepository userRepo;
+
+        @Autowired
+        private FriendRepository friendRepo;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        private User ana;
+
+        private User beto;
+
+        private Friend chat;
+
+        @BeforeEach
+        void setUp() {
+                ana = userRepo.save(user("orderana"));
+                beto = userRepo.save(user("orderbeto"));
+                chat = friendRepo.save(Friend.builder()
+                                .requester(ana)
+                                .receiver(beto)
+                                .status(FriendStatus.ACCEPTED)
+                                .build());
+        }
+
+        @AfterEach
+        void tearDown() {
+                SecurityContextHolder.clearContext();
+                jdbcTemplate.update("DELETE FROM chat_read_cursors WHERE friend_id = ?", chat.getId());
+                jdbcTemplate.update("DELETE FROM messages WHERE friend_id = ?", chat.getId());
+                friendRepo.deleteById(chat.getId());
+                userRepo.deleteAll(List.of(ana, beto));
+        }
+
+        @Test
+        void writerSend_duringAnOpenInlineSend_getsAHigherIdAndIsSeenBySyncAndUnread() throws Exception {
+                CountDownLatch inlineSent = new CountDownLatch(1);
+                CountDownLatch release = new CountDownLatch(1);
+
+                // inline: id tomado y fila escrita, sin confirmar hasta release
+                CompletableFuture<MessageDto> inline = CompletableFuture.supplyAsync(() -> {
+                        login(ana);
+                        return transactionTemplate.execute(status -> {
+                                MessageDto sent = messageService.sendMessage(chat.getId(), "inline");
+                                inlineSent.countDown();
+                                await(release);
+                                return sent;
+                        });
+                });
+                assertThat(inlineSent.await(5, TimeUnit.SECONDS)).isTrue();
+
+                CompletableFuture<MessageDto> batched = CompletableFuture.supplyAsync(() -> {
+                        login(beto);
+                        return messageService.sendMessage(chat.getId(), "writer");
+                });
+
+                // el writer espera el lock del chat (menos que el lock timeout de H2)
+                Thread.sleep(300);
+                assertThat(batched).isNotDone();
+                release.countDown();
+
+                MessageDto first = inline.get(5, TimeUnit.SECONDS);
+                MessageDto second = batched.get(5, TimeUnit.SECONDS);
+                assertThat(second.id()).isGreaterThan(first.id());
+
+                // sync desde el principio y desde el mensaje inline
+                login(ana);
+                ChatSyncDto fromStart = messageService.sync(Map.of(chat.getId(), 0L));
+                assertThat(fromStart.messages().get(chat.getId()))
+                                .extracting(MessageDto::content)
+                                .containsExactly("inline", "writer");
+                ChatSyncDto fromInline = messageService.sync(Map.of(chat.getId(), first.id()));
+                assertThat(fromInline.messages().get(chat.getId()))
+                                .extracting(MessageDto::content)
+                                .containsExactly("writer");
+
+                // ana leyó hasta el inline (el suyo): queda el de beto
+                ReadCursorDto read = chatService.markRead(chat.getId(), first.id());
+                assertThat(read.unreadCount()).isEqualTo(1);
+                assertThat(unreadCounters.unread(chat.getId(), ana.getId())).isEqualTo(1);
+                assertThat(unreadCounters.unread(chat.getId(), beto.getId())).isEqualTo(1);
+        }
+
+        // --- Helpers ---
+
+        private static void await(CountDownLatch latch) {
+                try {
+                        latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                }
+        }
+
+        private static void login(User user) {
+                SecurityContextHolder.getContext().setAuthentication(
+                                new UsernamePasswordAuthenticationToken(user.getUsername(), null, List.of()));
+        }
+
+        private static User user(String username) {
+                return User.builder()
+                                .username(username)
+                                .email(username + "@test.com")
+                                .avatarKey("default.png")
+                                .password("secret")
+                                .displayName(username)
+                                .birthDate(LocalDate.of(2000, 1, 1))
+                                .themeMode(ThemeMode.LIGHT)
+                                .build();
+        }
+}
@@ -0,0 +1,244 @@
+package org.example.service.chat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.flywaydb.core.Flyway;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Escritura de mensajes a 5k msgs/s sobre un Postgres embebido: una
+ * transacción por mensaje (el camino anterior) contra {@link MessageWriter}.
+ *
+ * Carga abierta: cada mensaje tiene su momento de envío y la latencia se
+ * mide desde ahí hasta la confirmación, así un camino que se atrasa no se
+ * esconde enviando menos. 200 hilos "de request", como Tomcat.
+ *
+ * Es lento y depende de la máquina: solo corre con CHAT_BENCHMARK=true.
+ */
+@EnabledIfEnvironmentVariable(named = "CHAT_BENCHMARK", matches = "true")
+class MessageWriterBenchmarkTest {
+
+        private static final Logger log = LoggerFactory.getLogger(MessageWriterBenchmarkTest.class);
+
+        private static final int RATE = 5000;
+        private static final int SECONDS = 10;
+        private static final int CHATS = 100;
+        private static final int REQUEST_THREADS = 200;
+
+        private static EmbeddedPostgres postgres;
+
+        private static HikariDataSource dataSource;
+
+        private static JdbcTemplate jdbc;
+
+        private static TransactionTemplate tx;
+
+        private static List<Chat> chats;
+
+        @BeforeAll
+        static void startPostgres() {
+                try {
+                        postgres = EmbeddedPostgres.builder().start();
+                } catch (IOException | RuntimeException e) {
+                        Assumptions.abort("Postgres embebido no disponible: " + e.getMessage());
+                }
+
+                Flyway.configure()
+                                .dataSource(postgres.getPostgresDatabase())
+                                .locations("classpath:db/migration")
+                                .load()
+                                .migrate();
+
+                HikariConfig config = new HikariConfig();
+                config.setJdbcUrl(postgres.getJdbcUrl("postgres", "postgres"));
+                // igual que en prod: el batch de INSERT va como un INSERT multi-fila
+                config.addDataSourceProperty("reWriteBatchedInserts", "true");
+                config.setMaximumPoolSize(10);
+                dataSource = new HikariDataSource(config);
+
+                jdbc = new JdbcTemplate(dataSource);
+                tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+                seed();
+        }
+
+        @AfterAll
+        static void stopPostgres() throws IOException {
+                if (dataSource != null) {
+                        dataSource.close();
+                }
+                if (postgres != null) {
+                        postgres.close();
+                }
+        }
+
+        @Test
+        void batchedWriter_vsTransactionPerMessage() throws Exception {
+                Result legacy = run("transacción por mensaje", (chat, content) -> tx.executeWithoutResult(s -> {
+                        long id = jdbc.queryForObject("""
+                                        INSERT INTO messages (id, friend_id, sender_id, content, sent_at)
+                                        VALUES (nextval('messages_seq'), ?, ?, ?, ?) RETURNING id
+                                        """, Long.class, chat.id(), chat.sender(), content, Timestamp.from(Instant.now()));
+                        jdbc.update("""
+                                        UPDATE friends SET last_message_id = ?, last_activity_at = now()
+                                        WHERE id = ? AND (last_message_id IS NULL OR last_message_id < ?)
+                                        """, id, chat.id(), id);
+                }));
+
+                MessageWriter writer = writer();
+                Result batched;
+                try {
+                        batched = run("MessageWriter", (chat, content) -> {
+                                try {
+                                        writer.submit(chat.id(), chat.sender(), content).get(30, TimeUnit.SECONDS);
+                                } catch (Exception e) {
+                                        throw new IllegalStateException(e);
+                                }
+                        });
+                } finally {
+                        writer.shutdown();
+                }
+
+                log.info("{}", legacy);
+                log.info("{}", batched);
+
+                // todo lo confirmado quedó escrito
+                assertThat(batched.failed()).isZero();
+                // los valores absolutos dependen de la máquina; el orden no
+                assertThat(batched.throughput()).isGreaterThan(legacy.throughput());
+                assertThat(jdbc.queryForObject("SELECT count(*) FROM messages", Long.class))
+                                .isEqualTo((long) legacy.completed() + batched.completed());
+        }
+
+        private static Result run(String name, Sender sender) throws InterruptedException {
+                int total = RATE * SECONDS;
+                long[] latencies = new long[total];
+                AtomicInteger failed = new AtomicInteger();
+                AtomicLong lastDone = new AtomicLong();
+                CountDownLatch done = new CountDownLatch(total);
+                ExecutorService requests = Executors.newFixedThreadPool(REQUEST_THREADS);
+
+                long intervalNanos = TimeUnit.SECONDS.toNanos(1) / RATE;
+                long start = System.nanoTime();
+                for (int i = 0; i < total; i++) {
+                        long intended = start + i * intervalNanos;
+                        long wait = intended - System.nanoTime();
+                        if (wait > 0) {
+                                LockSupport.parkNanos(wait);
+                        }
+                        int n = i;
+                        Chat chat = chats.get(i % CHATS);
+                        requests.execute(() -> {
+                                try {
+                                        sender.send(chat, "m" + n);
+                                } catch (RuntimeException e) {
+                                        failed.incrementAndGet();
+                                }
+                                long now = System.nanoTime();
+                                latencies[n] = now - intended;
+                                lastDone.accumulateAndGet(now, Math::max);
+                                done.countDown();
+                        });
+                }
+                done.await(5, TimeUnit.MINUTES);
+                requests.shutdown();
+
+                Arrays.sort(latencies);
+                double seconds = (lastDone.get() - start) / 1e9;
+                return new Result(name, total - failed.get(), failed.get(), (total - failed.get()) / seconds,
+                                percentileMs(latencies, 0.50), percentileMs(latencies, 0.99));
+        }
+
+        private static double percentileMs(long[] sorted, double p) {
+                return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+        }
+
+        private static MessageWriter writer() {
+                SessionFactoryImplementor sessionFactory = mock(SessionFactoryImplementor.class, RETURNS_DEEP_STUBS);
+                when(sessionFactory.getJdbcServices().getDialect()).thenReturn(new PostgreSQLDialect());
+                EntityManagerFactory emf = mock(EntityManagerFactory.class);
+                when(emf.unwrap(SessionFactoryImplementor.class)).thenReturn(sessionFactory);
+
+                MessageWriter writer = new MessageWriter(jdbc, tx, emf, new SimpleMeterRegistry());
+                ReflectionTestUtils.setField(writer, "queueCapacity", 10000);
+                ReflectionTestUtils.setField(writer, "batchSize", 500);
+                writer.init();
+                return writer;
+        }
+
+        private static void seed() {
+                jdbc.update("""
+                                INSERT INTO users (id, auth_provider, avatar_key, birth_date, created_at, display_name,
+                                                   email, enabled, local_password_set, password, theme_mode, username)
+                                SELECT gen_random_uuid(), 'LOCAL', 'default.png', DATE '2000-01-01', now(), 'u' || i,
+                                       'u' || i || '@test.com', true, true, 'secret', 'LIGHT', 'u' || lpad(i::text, 5, '0')
+                                FROM generate_series(1, ?) AS i
+                                """, CHATS * 2);
+
+                // Usuarios de a pares: (u00001, u00002), (u00003, u00004), ...
+                jdbc.update("""
+                                INSERT INTO friends (id, created_at, status, requester_id, receiver_id,
+                                                     low_user_id, high_user_id, last_activity_at)
+                                SELECT a.n, now(), 'ACCEPTED', a.id, b.id, LEAST(a.id, b.id), GREATEST(a.id, b.id), now()
+                                FROM (SELECT id, row_number() OVER (ORDER BY username) AS n FROM users) a
+                                JOIN (SELECT id, row_number() OVER (ORDER BY username) AS n FROM users) b
+                                  ON b.n = a.n + 1
+                                WHERE a.n % 2 = 1
+                                """);
+
+                chats = jdbc.query("SELECT id, requester_id FROM friends ORDER BY id",
+                                (rs, row) -> new Chat(rs.getLong("id"), rs.getObject("requester_id", UUID.class)));
+        }
+
+        private interface Sender {
+                void send(Chat chat, String content);
+        }
+
+        private record Chat(long id, UUID sender) {
+        }
+
+        private record Result(String name, int completed, int failed, double throughput, double p50Ms,
+                        double p99Ms) {
+
+                @Override
+                public String toString() {
+                        return "%-24s %6d ok %4d error  %7.0f msgs/s  p50 %7.1f ms  p99 %7.1f ms"
+                                        .formatted(name, completed, failed, throughput, p50Ms, p99Ms);
+                }
+        }
+}
@@ -0,0 +1,247 @@
+package org.example.service.chat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.example.exception.customs.httpstatus.ServiceUnavailableException;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Writer en batch sin base: cola llena, reintento de a uno cuando falla el
+ * batch, bloqueo de chats, orden de ids y vaciado de la cola al apagar.
+ *
+ * Los tests @Transactional del resto de la suite escriben por el camino
+ * inline (JPA): el writer solo se ejercita acá y en el benchmark.
+ */
+class MessageWriterTest {
+
+        private static final long CHAT = 1L;
+        private static final long DELETED_CHAT = 2L; // el INSERT viola la FK
+        private static final UUID SENDER = UUID.randomUUID();
+
+        private JdbcTemplate jdbcTemplate;
+
+        // ids de cada batch confirmado, en orden de commit
+        private final List<Long> committed = Collections.synchronizedList(new ArrayList<>());
+
+        // Filas insertadas en la transacción en curso (solo el hilo del writer)
+        private final ThreadLocal<List<Long>> pendingIds = ThreadLocal.withInitial(ArrayList::new);
+
+        private final List<Integer> attemptedBatches = Collections.synchronizedList(new ArrayList<>());
+
+        // Chats bloqueados por cada transacción, en el orden del SELECT ... FOR UPDATE
+        private final List<List<Object>> lockedChats = Collections.synchronizedList(new ArrayList<>());
+
+        // Si está armado, la próxima transacción se queda esperando a release
+        private volatile CountDownLatch entered;
+        private volatile CountDownLatch release;
+
+        private MessageWriter writer;
+
+        @BeforeEach
+        void setUp() {
+                jdbcTemplate = mock(JdbcTemplate.class);
+                AtomicLong sequence = new AtomicLong();
+                when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(Object[].class)))
+                                .thenAnswer(inv -> {
+                                        String sql = inv.getArgument(0);
+                                        Object[] args = Arrays.copyOfRange(inv.getArguments(), 2, inv.getArguments().length);
+                                        if (sql.contains("FOR UPDATE")) {
+                                                lockedChats.add(List.of(args));
+                                                return List.of(args);
+                                        }
+                                        // n ids de la secuencia, desordenados como puede devolverlos la base
+                                        List<Long> ids = new ArrayList<>();
+                                        for (int i = 0; i < (Integer) args[0]; i++) {
+                                                ids.add(sequence.incrementAndGet());
+                                        }
+                                        Collections.reverse(ids);
+                                        return ids;
+                                });
+                when(jdbcTemplate.batchUpdate(argThat((String sql) -> sql.contains("INSERT INTO messages")), anyList()))
+                                .thenAnswer(inv -> {
+                                        List<Object[]> rows = inv.getArgument(1);
+                                        attemptedBatches.add(rows.size());
+                                        if (rows.stream().anyMatch(row -> DELETED_CHAT == (Long) row[1])) {
+                                                throw new DataIntegrityViolationException("fk_messages_friend");
+                                        }
+                                        rows.forEach(row -> pendingIds.get().add((Long) row[0]));
+                                        return new int[rows.size()];
+                                });
+
+                TransactionTemplate tx = mock(TransactionTemplate.class);
+                doAnswer(inv -> {
+                        CountDownLatch gate = release;
+                        if (gate != null) {
+                                release = null;
+                                entered.countDown();
+                                gate.await(10, TimeUnit.SECONDS);
+                        }
+                        pendingIds.set(new ArrayList<>());
+                        TransactionCallback<?> work = inv.getArgument(0);
+                        Object result = work.doInTransaction(null);
+                        committed.addAll(pendingIds.get()); // "commit"
+                        return result;
+                }).when(tx).execute(any());
+
+                SessionFactoryImplementor sessionFactory = mock(SessionFactoryImplementor.class, RETURNS_DEEP_STUBS);
+                when(sessionFactory.getJdbcServices().getDialect()).thenReturn(new PostgreSQLDialect());
+                EntityManagerFactory emf = mock(EntityManagerFactory.class);
+                when(emf.unwrap(SessionFactoryImplementor.class)).thenReturn(sessionFactory);
+
+                writer = new MessageWriter(jdbcTemplate, tx, emf, new SimpleMeterRegistry());
+                ReflectionTestUtils.setField(writer, "queueCapacity", 2);
+                ReflectionTestUtils.setField(writer, "batchSize", 500);
+        }
+
+        @AfterEach
+        void tearDown() throws InterruptedException {
+                CountDownLatch gate = release;
+                if (gate != null) {
+                        gate.countDown();
+                }
+                writer.shutdown();
+        }
+
+        @Test
+        void fullQueue_rejectsWith503() throws Exception {
+                writer.init();
+                CountDownLatch gate = blockNextBatch();
+
+                CompletableFuture<MessageWriter.NewMessage> first = submit(CHAT);
+                assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue(); // el writer ya lo sacó de la cola
+                CompletableFuture<MessageWriter.NewMessage> second = submit(CHAT);
+                CompletableFuture<MessageWriter.NewMessage> third = submit(CHAT);
+
+                assertThatThrownBy(() -> submit(CHAT)).isInstanceOf(ServiceUnavailableException.class);
+
+                gate.countDown();
+                assertThat(first.get(5, TimeUnit.SECONDS).id()).isLessThan(second.get(5, TimeUnit.SECONDS).id());
+                assertThat(third.get(5, TimeUnit.SECONDS)).isNotNull();
+        }
+
+        @Test
+        void failedBatch_isRetriedOneByOneAndOnlyTheBadMessageFails() throws Exception {
+                ReflectionTestUtils.setField(writer, "queueCapacity", 10);
+                writer.init();
+                CountDownLatch gate = blockNextBatch();
+
+                CompletableFuture<MessageWriter.NewMessage> first = submit(CHAT);
+                assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+                CompletableFuture<MessageWriter.NewMessage> before = submit(CHAT);
+                CompletableFuture<MessageWriter.NewMessage> bad = submit(DELETED_CHAT);
+                CompletableFuture<MessageWriter.NewMessage> after = submit(CHAT);
+                gate.countDown();
+
+                first.get(5, TimeUnit.SECONDS);
+                assertThat(before.get(5, TimeUnit.SECONDS)).isNotNull();
+                assertThat(after.get(5, TimeUnit.SECONDS)).isNotNull();
+                assertThatThrownBy(() -> bad.get(5, TimeUnit.SECONDS))
+                                .hasCauseInstanceOf(DataIntegrityViolationException.class);
+
+                // un intento con los tres juntos y después de a uno
+                assertThat(attemptedBatches).containsExactly(1, 3, 1, 1, 1);
+                // los chats del batch se bloquean en orden de id antes de tomar los ids
+                assertThat(lockedChats.get(1)).containsExactly(CHAT, DELETED_CHAT);
+                assertThat(committed).containsExactly(first.get().id(), before.get().id(), after.get().id());
+        }
+
+        @Test
+        void concurrentSenders_commitInIdOrder() throws Exception {
+                ReflectionTestUtils.setField(writer, "queueCapacity", 10_000);
+                writer.init();
+
+                List<CompletableFuture<MessageWriter.NewMessage>> futures = Collections.synchronizedList(new ArrayList<>());
+                ExecutorService senders = Executors.newFixedThreadPool(8);
+                for (int t = 0; t < 8; t++) {
+                        senders.submit(() -> {
+                                for (int i = 0; i < 200; i++) {
+                                        futures.add(submit(CHAT));
+                                }
+                        });
+                }
+                senders.shutdown();
+                assertThat(senders.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+                CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+                assertThat(committed).hasSize(1600).isSorted().doesNotHaveDuplicates();
+        }
+
+        @Test
+        void shutdown_writesWhatIsLeftInTheQueue() throws Exception {
+                ReflectionTestUtils.setField(writer, "queueCapacity", 10);
+                writer.init();
+                CountDownLatch gate = blockNextBatch();
+
+                List<CompletableFuture<MessageWriter.NewMessage>> futures = new ArrayList<>();
+                futures.add(submit(CHAT));
+                assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+                for (int i = 0; i < 5; i++) {
+                        futures.add(submit(CHAT));
+                }
+
+                Thread stopping = new Thread(() -> {
+                        try {
+                                writer.shutdown();
+                        } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                        }
+                });
+                stopping.start();
+                while (Boolean.TRUE.equals(ReflectionTestUtils.getField(writer, "running"))) {
+                        Thread.onSpinWait();
+                }
+                gate.countDown();
+                stopping.join(TimeUnit.SECONDS.toMillis(10));
+
+                for (CompletableFuture<MessageWriter.NewMessage> future : futures) {
+                        assertThat(future).isCompleted();
+                        assertThat(future.get()).isNotNull();
+                }
+                assertThat(committed).hasSize(6);
+        }
+
+        private CompletableFuture<MessageWriter.NewMessage> submit(long chatId) {
+                return writer.submit(chatId, SENDER, "hola");
+        }
+
+        private CountDownLatch blockNextBatch() {
+                entered = new CountDownLatch(1);
+                CountDownLatch gate = new CountDownLatch(1);
+                release = gate;
+                return gate;
+        }
+}
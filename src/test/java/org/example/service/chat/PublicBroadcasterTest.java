@@ -0,0 +1,101 @@
+package org.example.service.chat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.example.dto.PublicMessageDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Difusión del chat público: salas mensaje por mensaje y salas que juntan
+ * la ventana en un solo frame.
+ */
+class PublicBroadcasterTest {
+
+        private SimpMessagingTemplate messagingTemplate;
+
+        private SimpleMeterRegistry meterRegistry;
+
+        private PublicBroadcaster broadcaster;
+
+        @BeforeEach
+        void setUp() {
+                meterRegistry = new SimpleMeterRegistry();
+                messagingTemplate = mock(SimpMessagingTemplate.class);
+
+                PublicRooms rooms = new PublicRooms(meterRegistry);
+                ReflectionTestUtils.setField(rooms, "names", List.of("lobby", "games"));
+                ReflectionTestUtils.setField(rooms, "defaultRoom", "lobby");
+                rooms.init();
+
+                broadcaster = new PublicBroadcaster(messagingTemplate, rooms, meterRegistry);
+                ReflectionTestUtils.setField(broadcaster, "batchedRooms", List.of("games"));
+                ReflectionTestUtils.setField(broadcaster, "windowMs", 25L);
+                ReflectionTestUtils.setField(broadcaster, "maxBatch", 3);
+                broadcaster.init();
+        }
+
+        @AfterEach
+        void tearDown() {
+                broadcaster.shutdown();
+        }
+
+        @Test
+        void batchedRoom_sendsOneFrameInIdOrder() {
+                ReflectionTestUtils.setField(broadcaster, "windowMs", 60_000L);
+
+                broadcaster.publish("games", message(2, "games"));
+                broadcaster.publish("games", message(1, "games"));
+                verify(messagingTemplate, never()).convertAndSend(eq("/topic/public/games"), any(Object.class));
+
+                broadcaster.flush("games"); // cierre de la ventana
+
+                verify(messagingTemplate).convertAndSend(
+                                "/topic/public/games", List.of(message(1, "games"), message(2, "games")));
+                assertThat(meterRegistry.counter("public-chat.broadcast.frames", "room", "games", "mode", "batch")
+                                .count()).isEqualTo(1);
+                assertThat(meterRegistry.timer("public-chat.broadcast.delay", "room", "games").count())
+                                .isEqualTo(2);
+        }
+
+        @Test
+        void fullWindow_isSentWithoutWaiting() {
+                ReflectionTestUtils.setField(broadcaster, "windowMs", 60_000L);
+
+                for (long id = 1; id <= 3; id++) {
+                        broadcaster.publish("games", message(id, "games"));
+                }
+
+                verify(messagingTemplate).convertAndSend(eq("/topic/public/games"), any(List.class));
+        }
+
+        @Test
+        void defaultRoom_isSentPerMessageAndToLegacyTopic() {
+                PublicMessageDto message = message(1, "lobby");
+
+                broadcaster.publish("lobby", message);
+
+                verify(messagingTemplate).convertAndSend("/topic/public/lobby", message);
+                verify(messagingTemplate).convertAndSend("/topic/public", message);
+                verify(messagingTemplate, never()).convertAndSend(eq("/topic/public/lobby"), any(List.class));
+        }
+
+        private static PublicMessageDto message(long id, String room) {
+                return new PublicMessageDto(id, room, new UUID(0, 1), "ana", "ana", "/api/v1/avatars/default.png",
+                                "m" + id, Instant.EPOCH);
+        }
+}
@@ -0,0 +1,260 @@
+package org.example.service.chat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.example.dto.CursorSliceDto;
+import org.example.dto.PublicMessageDto;
+import org.example.entity.PublicMessage;
+import org.example.entity.ThemeMode;
+import org.example.entity.User;
+import org.example.exception.customs.httpstatus.NotFoundException;
+import org.example.repository.PublicMessageRepository;
+import org.example.repository.UserRepository;
+import org.example.service.PublicChatService;
+import org.example.service.relay.ClusterEvents;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Chat público con historial por sala: ids al enviar (en orden entre
+ * nodos), catch-up desde memoria y escritura diferida.
+ *
+ * Sin @Transactional: el flush escribe en su propia transacción.
+ */
+@SpringBootTest
+class PublicChatLogTest {
+
+        @MockitoBean
+        private JwtDecoder googleJwtDecoder;
+
+        @Autowired
+        private PublicChatService publicChatService;
+
+        @Autowired
+        private PublicChatLog publicChatLog;
+
+        @Autowired
+        private PublicMessageRepository publicMessageRepository;
+
+        @Autowired
+        private PublicRooms rooms;
+
+        @Autowired
+        private UserRepository userRepo;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private TransactionTemplate transactionTemplate;
+
+        @Autowired
+        private EntityManagerFactory emf;
+
+        @Autowired
+        private ClusterEvents clusterEvents;
+
+        private User ana;
+
+        @BeforeEach
+        void setUp() {
+                ana = userRepo.save(User.builder()
+                                .username("publicana")
+                                .email("publicana@test.com")
+                                .avatarKey("default.png")
+                                .password("secret")
+                                .displayName("publicana")
+                                .birthDate(LocalDate.of(2000, 1, 1))
+                                .themeMode(ThemeMode.LIGHT)
+                                .build());
+
+                SecurityContextHolder.getContext().setAuthentication(
+                                new UsernamePasswordAuthenticationToken("publicana", null, List.of()));
+        }
+
+        @AfterEach
+        void tearDown() {
+                SecurityContextHolder.clearContext();
+                publicChatLog.flush();
+                jdbcTemplate.update("DELETE FROM public_messages WHERE sender_id = ?", ana.getId());
+                userRepo.delete(ana);
+        }
+
+        @Test
+        void reconnect_getsOnlyTheGapFromMemory() {
+                PublicMessageDto seen = publicChatService.send("lobby", "uno");
+                PublicMessageDto second = publicChatService.send("lobby", "dos");
+                PublicMessageDto third = publicChatService.send("lobby", "tres");
+
+                assertThat(second.id()).isGreaterThan(seen.id());
+
+                CursorSliceDto<PublicMessageDto> gap = publicChatService.getMessages("lobby", null, seen.id(), 50);
+                assertThat(gap.content()).containsExactly(second, third);
+                assertThat(gap.hasNext()).isFalse();
+
+                CursorSliceDto<PublicMessageDto> latest = publicChatService.getMessages("lobby", null, null, 2);
+                assertThat(latest.content()).containsExactly(second, third);
+                assertThat(latest.nextCursor()).isEqualTo(String.valueOf(second.id()));
+        }
+
+        @Test
+        void rooms_haveSeparateHistories() {
+                PublicMessageDto inLobby = publicChatService.send("lobby", "hola lobby");
+                PublicMessageDto inGames = publicChatService.send("games", "hola games");
+
+                assertThat(publicChatService.getMessages("games", null, inLobby.id(), 50).content())
+                                .containsExactly(inGames);
+                assertThat(publicChatService.getMessages("lobby", null, inLobby.id(), 50).content()).isEmpty();
+                assertThatThrownBy(() -> publicChatService.send("nope", "hola"))
+                                .isInstanceOf(NotFoundException.class);
+        }
+
+        @Test
+        void flush_writesPendingMessagesInOneBatch() {
+                publicChatService.send("lobby", "uno");
+                publicChatService.send("lobby", "dos");
+
+                publicChatLog.flush();
+
+                assertThat(publicChatLog.pendingCount()).isZero();
+                assertThat(jdbcTemplate.queryForObject(
+                                "SELECT COUNT(*) FROM public_messages WHERE sender_id = ?", Long.class, ana.getId()))
+                                .isEqualTo(2);
+        }
+
+        @Test
+        void restart_reloadsRecentHistoryAndDefersOlderGapsToDb() {
+                PublicMessageDto first = publicChatService.send("lobby", "uno");
+                PublicMessageDto second = publicChatService.send("lobby", "dos");
+                PublicMessageDto third = publicChatService.send("lobby", "tres");
+                publicChatLog.flush();
+
+                PublicChatLog restarted = new PublicChatLog(jdbcTemplate, transactionTemplate, emf,
+                                publicMessageRepository, rooms, clusterEvents, new SimpleMeterRegistry());
+                ReflectionTestUtils.setField(restarted, "capacity", 2);
+                ReflectionTestUtils.setField(restarted, "maxPending", 100);
+                restarted.init();
+
+                assertThat(restarted.after("lobby", first.id(), 10)).isEmpty();
+                assertThat(restarted.after("lobby", second.id(), 10)).hasValueSatisfying(
+                                page -> assertThat(page.ascending()).extracting(PublicMessageDto::id)
+                                                .containsExactly(third.id()));
+        }
+
+        @Test
+        void failedFlush_discardsThePoisonMessageAndWritesTheRest() {
+                SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+                PublicChatLog log = newLog(transactionTemplate, meterRegistry);
+
+                PublicMessageDto before = log.append(message(ana.getId(), "antes"));
+                PublicMessageDto poison = log.append(message(UUID.randomUUID(), "remitente borrado"));
+                PublicMessageDto after = log.append(message(ana.getId(), "después"));
+
+                log.flush();
+
+                assertThat(log.pendingCount()).isZero();
+                assertThat(jdbcTemplate.queryForList(
+                                "SELECT id FROM public_messages WHERE sender_id = ? ORDER BY id", Long.class, ana.getId()))
+                                .containsExactly(before.id(), after.id());
+                assertThat(meterRegistry.counter("public-chat.discarded").count()).isEqualTo(1);
+                assertThat(meterRegistry.counter("public-chat.persisted").count()).isEqualTo(2);
+
+                // el descartado tampoco se sirve desde memoria
+                assertThat(log.after("lobby", before.id(), 10)).hasValueSatisfying(
+                                page -> assertThat(page.ascending()).extracting(PublicMessageDto::id)
+                                                .doesNotContain(poison.id())
+                                                .contains(after.id()));
+        }
+
+        @Test
+        void failedFlush_withTheDatabaseDown_keepsEverythingInOrder() {
+                AtomicBoolean down = new AtomicBoolean(true);
+                TransactionTemplate flaky = new TransactionTemplate(transactionTemplate.getTransactionManager()) {
+                        @Override
+                        public <T> T execute(TransactionCallback<T> action) {
+                                if (down.get()) {
+                                        throw new TransientDataAccessResourceException("sin conexión");
+                                }
+                                return super.execute(action);
+                        }
+                };
+                SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+                PublicChatLog log = newLog(flaky, meterRegistry);
+
+                PublicMessageDto first = log.append(message(ana.getId(), "uno"));
+                log.append(message(ana.getId(), "dos"));
+
+                log.flush();
+
+                assertThat(log.pendingCount()).isEqualTo(2);
+                assertThat(meterRegistry.counter("public-chat.discarded").count()).isZero();
+
+                // vuelta la base, se escriben en orden y antes que los nuevos
+                down.set(false);
+                log.append(message(ana.getId(), "tres"));
+                log.flush();
+                assertThat(jdbcTemplate.queryForList(
+                                "SELECT content FROM public_messages WHERE sender_id = ? AND id >= ? ORDER BY id",
+                                String.class, ana.getId(), first.id()))
+                                .containsExactly("uno", "dos", "tres");
+        }
+
+        @Test
+        void twoNodes_interleavedSends_getIdsInSendOrderAndCatchUpFromDbSeesAll() {
+                PublicChatLog nodeA = newLog(transactionTemplate, new SimpleMeterRegistry());
+                PublicChatLog nodeB = newLog(transactionTemplate, new SimpleMeterRegistry());
+
+                PublicMessageDto a1 = nodeA.append(message(ana.getId(), "a1"));
+                PublicMessageDto b1 = nodeB.append(message(ana.getId(), "b1"));
+                PublicMessageDto a2 = nodeA.append(message(ana.getId(), "a2"));
+                PublicMessageDto b2 = nodeB.append(message(ana.getId(), "b2"));
+
+                assertThat(List.of(a1.id(), b1.id(), a2.id(), b2.id())).isSorted().doesNotHaveDuplicates();
+
+                // un cliente que vio b1 (por B) reconecta: lo de A posterior también
+                nodeA.flush();
+                nodeB.flush();
+                assertThat(publicMessageRepository.findAfter("lobby", b1.id(), PageRequest.of(0, 10)).getContent())
+                                .extracting(PublicMessage::getContent)
+                                .containsExactly("a2", "b2");
+        }
+
+        // --- Helpers ---
+
+        private PublicChatLog newLog(TransactionTemplate tx, SimpleMeterRegistry meterRegistry) {
+                PublicChatLog log = new PublicChatLog(jdbcTemplate, tx, emf, publicMessageRepository, rooms,
+                                clusterEvents, meterRegistry);
+                ReflectionTestUtils.setField(log, "capacity", 100);
+                ReflectionTestUtils.setField(log, "maxPending", 100);
+                log.init();
+                return log;
+        }
+
+        private static PublicMessageDto message(UUID senderId, String content) {
+                return new PublicMessageDto(null, "lobby", senderId, "publicana", "publicana",
+                                "/api/v1/avatars/default.png", content, Instant.now());
+        }
+}
@@ -0,0 +1,83 @@
+package org.example.service.chat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.example.config.WebSocketAuthorizationInterceptor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Salas del chat público: ocupación por sesión y validación de las
+ * suscripciones por sala.
+ */
+class PublicRoomsTest {
+
+        private SimpleMeterRegistry meterRegistry;
+
+        private PublicRooms rooms;
+
+        @BeforeEach
+        void setUp() {
+                meterRegistry = new SimpleMeterRegistry();
+                rooms = new PublicRooms(meterRegistry);
+                ReflectionTestUtils.setField(rooms, "names", List.of("lobby", "games"));
+                ReflectionTestUtils.setField(rooms, "defaultRoom", "lobby");
+                rooms.init();
+        }
+
+        @Test
+        void occupancy_countsSessionsNotSubscriptions() {
+                rooms.join("s1", "sub-0", "lobby");
+                rooms.join("s1", "sub-1", rooms.roomOf("/topic/public")); // alias de lobby
+                rooms.join("s2", "sub-0", "lobby");
+                rooms.join("s2", "sub-1", "games");
+
+                assertThat(rooms.occupancy("lobby")).isEqualTo(2);
+                assertThat(meterRegistry.get("public-chat.room.occupancy").tag("room", "games").gauge().value())
+                                .isEqualTo(1);
+
+                rooms.leave("s1", "sub-0");
+                assertThat(rooms.occupancy("lobby")).isEqualTo(2); // s1 sigue por el alias
+
+                rooms.leave("s1", "sub-1");
+                rooms.leaveAll("s2");
+                assertThat(rooms.occupancy("lobby")).isZero();
+                assertThat(rooms.occupancy("games")).isZero();
+        }
+
+        @Test
+        void subscribe_isValidatedPerRoom() {
+                WebSocketAuthorizationInterceptor interceptor = new WebSocketAuthorizationInterceptor(rooms);
+
+                interceptor.preSend(subscribe("/topic/public/games", true), null);
+                interceptor.preSend(subscribe("/topic/public", true), null);
+
+                assertThatThrownBy(() -> interceptor.preSend(subscribe("/topic/public/nope", true), null))
+                                .isInstanceOf(AccessDeniedException.class);
+                assertThatThrownBy(() -> interceptor.preSend(subscribe("/topic/public/games", false), null))
+                                .isInstanceOf(AccessDeniedException.class);
+        }
+
+        private static Message<byte[]> subscribe(String destination, boolean authenticated) {
+                StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+                accessor.setDestination(destination);
+                accessor.setSessionId("s1");
+                accessor.setSubscriptionId("sub-0");
+                if (authenticated) {
+                        accessor.setUser(new UsernamePasswordAuthenticationToken("ana", null, List.of()));
+                }
+                return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        }
+}
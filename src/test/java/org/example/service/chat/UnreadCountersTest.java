@@ -0,0 +1,219 @@
+package org.example.service.chat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.example.dto.MessageDto;
+import org.example.dto.ReadCursorDto;
+import org.example.entity.Friend;
+import org.example.entity.Friend.FriendStatus;
+import org.example.entity.ThemeMode;
+import org.example.entity.User;
+import org.example.exception.customs.httpstatus.BadRequestException;
+import org.example.repository.FriendRepository;
+import org.example.repository.UserRepository;
+import org.example.service.ChatService;
+import org.example.service.MessageService;
+import org.example.service.relay.ClusterEvents;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Contadores de no leídos: incremento al enviar, reset al leer y rebuild
+ * desde los cursores de la base.
+ *
+ * Sin @Transactional: los contadores se actualizan al confirmar cada
+ * transacción de servicio.
+ */
+@SpringBootTest
+class UnreadCountersTest {
+
+        @MockitoBean
+        private JwtDecoder googleJwtDecoder;
+
+        @Autowired
+        private UnreadCounters unreadCounters;
+
+        @Autowired
+        private MessageService messageService;
+
+        @Autowired
+        private ChatService chatService;
+
+        @Autowired
+        private UserRepository userRepo;
+
+        @Autowired
+        private FriendRepository friendRepo;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        private User ana;
+
+        private User beto;
+
+        private Friend chat;
+
+        @BeforeEach
+        void setUp() {
+                ana = userRepo.save(user("unreadana"));
+                beto = userRepo.save(user("unreadbeto"));
+                chat = friendRepo.save(Friend.builder()
+                                .requester(ana)
+                                .receiver(beto)
+                                .status(FriendStatus.ACCEPTED)
+                                .build());
+        }
+
+        @AfterEach
+        void tearDown() {
+                SecurityContextHolder.clearContext();
+                jdbcTemplate.update("DELETE FROM chat_read_cursors WHERE friend_id = ?", chat.getId());
+                jdbcTemplate.update("DELETE FROM messages WHERE friend_id = ?", chat.getId());
+                friendRepo.deleteById(chat.getId());
+                userRepo.deleteAll(List.of(ana, beto));
+        }
+
+        @Test
+        void send_incrementsOnlyTheRecipient() {
+                send(ana, "hola");
+                send(ana, "¿estás?");
+
+                assertThat(unreadCounters.unread(chat.getId(), beto.getId())).isEqualTo(2);
+                assertThat(unreadCounters.unread(chat.getId(), ana.getId())).isZero();
+
+                login(beto);
+                assertThat(chatService.getChats(0, 20).getContent())
+                                .singleElement()
+                                .satisfies(preview -> assertThat(preview.unreadCount()).isEqualTo(2));
+        }
+
+        @Test
+        void send_retriedWithTheSameClientId_isWrittenOnce() {
+                login(ana);
+                MessageDto first = messageService.sendMessage(chat.getId(), "hola", "c-1");
+                MessageDto retry = messageService.sendMessage(chat.getId(), "hola", "c-1");
+
+                assertThat(retry.id()).isEqualTo(first.id());
+                assertThat(unreadCounters.unread(chat.getId(), beto.getId())).isEqualTo(1);
+                assertThat(jdbcTemplate.queryForObject(
+                                "SELECT COUNT(*) FROM messages WHERE friend_id = ?", Long.class, chat.getId()))
+                                .isEqualTo(1);
+        }
+
+        @Test
+        void markRead_resetsAndNeverMovesBack() {
+                MessageDto first = send(ana, "uno");
+                send(ana, "dos");
+
+                login(beto);
+                ReadCursorDto partial = chatService.markRead(chat.getId(), first.id());
+                assertThat(partial.unreadCount()).isEqualTo(1);
+                assertThat(unreadCounters.unread(chat.getId(), beto.getId())).isEqualTo(1);
+
+                ReadCursorDto all = chatService.markRead(chat.getId(), null);
+                assertThat(all.unreadCount()).isZero();
+
+                // una marca vieja que llega tarde no vuelve a abrir pendientes
+                ReadCursorDto stale = chatService.markRead(chat.getId(), first.id());
+                assertThat(stale.lastReadMessageId()).isEqualTo(all.lastReadMessageId());
+                assertThat(unreadCounters.unread(chat.getId(), beto.getId())).isZero();
+        }
+
+        @Test
+        void markRead_concurrentFirstReadsDoNotCollide() throws Exception {
+                send(ana, "uno");
+                MessageDto last = send(ana, "dos");
+
+                // sin cursor previo: todos intentan crear la fila a la vez
+                ExecutorService pool = Executors.newFixedThreadPool(8);
+                try {
+                        List<Future<ReadCursorDto>> reads = new ArrayList<>();
+                        for (int i = 0; i < 8; i++) {
+                                reads.add(pool.submit(() -> {
+                                        login(beto);
+                                        try {
+                                                return chatService.markRead(chat.getId(), null);
+                                        } finally {
+                                                SecurityContextHolder.clearContext();
+                                        }
+                                }));
+                        }
+                        for (Future<ReadCursorDto> read : reads) {
+                                assertThat(read.get(10, TimeUnit.SECONDS).lastReadMessageId()).isEqualTo(last.id());
+                        }
+                } finally {
+                        pool.shutdownNow();
+                }
+
+                assertThat(jdbcTemplate.queryForObject(
+                                "SELECT COUNT(*) FROM chat_read_cursors WHERE friend_id = ?", Long.class, chat.getId()))
+                                .isEqualTo(1);
+                assertThat(unreadCounters.unread(chat.getId(), beto.getId())).isZero();
+        }
+
+        @Test
+        void rebuild_restoresCountsFromCursors() {
+                MessageDto first = send(ana, "uno");
+                send(ana, "dos");
+                send(beto, "respuesta");
+
+                login(beto);
+                chatService.markRead(chat.getId(), first.id());
+
+                UnreadCounters restarted = new UnreadCounters(jdbcTemplate, new ClusterEvents(new ObjectMapper()));
+                restarted.init();
+
+                assertThat(restarted.unread(chat.getId(), beto.getId())).isEqualTo(1);
+                assertThat(restarted.unread(chat.getId(), ana.getId())).isEqualTo(1);
+        }
+
+        @Test
+        void markRead_rejectsMessageFromAnotherChat() {
+                login(beto);
+
+                assertThatThrownBy(() -> chatService.markRead(chat.getId(), Long.MAX_VALUE))
+                                .isInstanceOf(BadRequestException.class);
+        }
+
+        private MessageDto send(User sender, String content) {
+                login(sender);
+                return messageService.sendMessage(chat.getId(), content);
+        }
+
+        private static void login(User user) {
+                SecurityContextHolder.getContext().setAuthentication(
+                                new UsernamePasswordAuthenticationToken(user.getUsername(), null, List.of()));
+        }
+
+        private static User user(String username) {
+                return User.builder()
+                                .username(username)
+                                .email(username + "@test.com")
+                                .avatarKey("default.png")
+                                .password("secret")
+                                .displayName(username)
+                                .birthDate(LocalDate.of(2000, 1, 1))
+                                .themeMode(ThemeMode.LIGHT)
+                                .build();
+        }
+}
@@ -0,0 +1,76 @@
+package org.example.service.feed;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.example.dto.FeedCursor;
+import org.example.dto.TimelineEntry;
+import org.junit.jupiter.api.Test;
+
+class FeedMergerTest {
+
+        private static final UUID AUTHOR = UUID.randomUUID();
+
+        @Test
+        void merge_interleavesSourcesNewestFirstWithoutDuplicates() {
+                TimelineEntry e1 = entry(1);
+                TimelineEntry e2 = entry(2);
+                TimelineEntry e3 = entry(3);
+                TimelineEntry e4 = entry(4);
+
+                List<TimelineBuffer.Window> sources = List.of(
+                                window(null, e4, e1),
+                                window(null, e3),
+                                window(null, e4, e2));
+
+                assertThat(FeedMerger.merge(sources, 10)).contains(List.of(e4, e3, e2, e1));
+        }
+
+        @Test
+        void merge_resumesFromCursor() {
+                TimelineBuffer pushed = new TimelineBuffer(10);
+                TimelineBuffer pulled = new TimelineBuffer(10);
+                TimelineEntry e1 = entry(1);
+                TimelineEntry e2 = entry(2);
+                TimelineEntry e3 = entry(3);
+                pushed.add(e1);
+                pushed.add(e3);
+                pulled.add(e2);
+
+                List<TimelineEntry> first = FeedMerger.merge(List.of(
+                                pushed.before(FeedCursor.START, 2),
+                                pulled.before(FeedCursor.START, 2)), 2).orElseThrow();
+                FeedCursor cursor = first.get(first.size() - 1).toCursor();
+                List<TimelineEntry> second = FeedMerger.merge(List.of(
+                                pushed.before(cursor, 2),
+                                pulled.before(cursor, 2)), 2).orElseThrow();
+
+                assertThat(first).containsExactly(e3, e2);
+                assertThat(second).containsExactly(e1);
+        }
+
+        @Test
+        void merge_belowAnyHorizon_isNotAnswerable() {
+                TimelineEntry e1 = entry(1);
+                TimelineEntry e2 = entry(2);
+                TimelineEntry e3 = entry(3);
+
+                List<TimelineBuffer.Window> sources = List.of(
+                                window(null, e3, e1),
+                                window(e2.toCursor()));
+
+                assertThat(FeedMerger.merge(sources, 1)).contains(List.of(e3));
+                assertThat(FeedMerger.merge(sources, 2)).isEmpty();
+        }
+
+        private static TimelineBuffer.Window window(FeedCursor horizon, TimelineEntry... newestFirst) {
+                return new TimelineBuffer.Window(List.of(newestFirst), horizon);
+        }
+
+        private static TimelineEntry entry(int second) {
+                return new TimelineEntry(UUID.randomUUID(), AUTHOR, Instant.ofEpochSecond(1_700_000_000L + second));
+        }
+}
@@ -0,0 +1,131 @@
+package org.example.service.feed;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.example.dto.FeedCursor;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Regresión de planes del feed sobre un Postgres embebido con el esquema
+ * de Flyway: cada rama del UNION tiene que usar su índice compuesto y
+ * ninguna puede recorrer {@code posts} entera.
+ *
+ * Si el Postgres embebido no puede arrancar en la máquina, el test se saltea.
+ */
+class FeedQueryPlanTest {
+
+        private static final int USERS = 1500;
+        private static final int POSTS = 100_000;
+
+        private static EmbeddedPostgres postgres;
+
+        private static NamedParameterJdbcTemplate jdbc;
+
+        private static UUID viewer;
+
+        private static List<UUID> friends;
+
+        @BeforeAll
+        static void startPostgres() {
+                try {
+                        postgres = EmbeddedPostgres.builder().start();
+                } catch (IOException | RuntimeException e) {
+                        Assumptions.abort("Postgres embebido no disponible: " + e.getMessage());
+                }
+
+                DataSource dataSource = postgres.getPostgresDatabase();
+                Flyway.configure()
+                                .dataSource(dataSource)
+                                .locations("classpath:db/migration")
+                                .load()
+                                .migrate();
+
+                JdbcTemplate template = new JdbcTemplate(dataSource);
+                seed(template);
+                jdbc = new NamedParameterJdbcTemplate(template);
+
+                viewer = template.queryForObject("SELECT id FROM users ORDER BY username LIMIT 1", UUID.class);
+                friends = template.queryForList(
+                                "SELECT id FROM users ORDER BY username OFFSET 1 LIMIT 40", UUID.class);
+        }
+
+        @AfterAll
+        static void stopPostgres() throws IOException {
+                if (postgres != null) {
+                        postgres.close();
+                }
+        }
+
+        @Test
+        void firstPage_usesCompositeIndexPerBranch() {
+                String plan = explain(FeedQueryEngine.feedSql(viewer, friends, null, 0, 20));
+
+                // ramas ya ordenadas: se mezclan sin ordenar el resultado completo
+                assertThat(plan).contains("Merge Append");
+                assertThat(plan).contains("idx_posts_privacy_created_at_id");
+                assertThat(plan).containsAnyOf("idx_posts_user_created_at_id", "idx_posts_user_privacy_created_at_id");
+                assertThat(plan).doesNotContain("Seq Scan on posts");
+        }
+
+        @Test
+        void keysetPage_staysOnIndexRanges() {
+                FeedCursor cursor = new FeedCursor(Instant.now().minusSeconds(3600), new UUID(-1L, -1L));
+                String plan = explain(FeedQueryEngine.feedSql(viewer, friends, cursor, 0, 20));
+
+                assertThat(plan).contains("idx_posts_privacy_created_at_id");
+                assertThat(plan).doesNotContain("Seq Scan on posts");
+        }
+
+        @Test
+        void manyFriends_splitIntoBranchesWithoutSeqScan() {
+                List<UUID> everyone = jdbc.getJdbcTemplate().queryForList(
+                                "SELECT id FROM users WHERE id <> ?", UUID.class, viewer);
+                FeedQueryEngine.FeedSql sql = FeedQueryEngine.feedSql(viewer, everyone, null, 0, 20);
+
+                assertThat(everyone.size()).isGreaterThan(FeedQueryEngine.MAX_IN_LIST);
+                assertThat(explain(sql)).doesNotContain("Seq Scan on posts");
+        }
+
+        private static String explain(FeedQueryEngine.FeedSql sql) {
+                return String.join("\n", jdbc.queryForList("EXPLAIN " + sql.sql(), sql.params(), String.class));
+        }
+
+        private static void seed(JdbcTemplate template) {
+                template.update("""
+                                INSERT INTO users (id, auth_provider, avatar_key, birth_date, created_at, display_name,
+                                                   email, enabled, local_password_set, password, theme_mode, username)
+                                SELECT gen_random_uuid(), 'LOCAL', 'default.png', DATE '2000-01-01', now(), 'u' || i,
+                                       'u' || i || '@test.com', true, true, 'secret', 'LIGHT', 'u' || lpad(i::text, 5, '0')
+                                FROM generate_series(1, ?) AS i
+                                """, USERS);
+
+                // Privacidades repartidas 60/30/10 y fechas a lo largo de un año
+                template.update("""
+                                INSERT INTO posts (id, content, created_at, privacy, user_id)
+                                SELECT gen_random_uuid(), 'post ' || i,
+                                       now() - (i || ' minutes')::interval,
+                                       CASE WHEN i % 10 < 6 THEN 'PUBLIC' WHEN i % 10 < 9 THEN 'FRIENDS' ELSE 'PRIVATE' END,
+                                       u.id
+                                FROM generate_series(1, ?) AS i
+                                JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM users) u
+                                  ON u.n = i % ?
+                                """, POSTS, USERS);
+
+                template.execute("ANALYZE");
+        }
+}
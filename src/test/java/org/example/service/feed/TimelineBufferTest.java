@@ -0,0 +1,87 @@
+package org.example.service.feed;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.example.dto.FeedCursor;
+import org.example.dto.TimelineEntry;
+import org.junit.jupiter.api.Test;
+
+class TimelineBufferTest {
+
+        private static final UUID AUTHOR = UUID.randomUUID();
+        private static final UUID OTHER = UUID.randomUUID();
+
+        @Test
+        void before_returnsNewestFirstAndSkipsDuplicates() {
+                TimelineBuffer buffer = new TimelineBuffer(10);
+                TimelineEntry e1 = entry(1, AUTHOR);
+                TimelineEntry e2 = entry(2, AUTHOR);
+                TimelineEntry e3 = entry(3, OTHER);
+
+                buffer.add(e2);
+                buffer.add(e3);
+                buffer.add(e1);
+                buffer.add(e2);
+
+                TimelineBuffer.Window window = buffer.before(FeedCursor.START, 10);
+
+                assertThat(window.entries()).containsExactly(e3, e2, e1);
+                assertThat(window.horizon()).isNull();
+                assertThat(buffer.before(e3.toCursor(), 10).entries()).containsExactly(e2, e1);
+        }
+
+        @Test
+        void overflow_dropsOldestAndMovesHorizon() {
+                TimelineBuffer buffer = new TimelineBuffer(3);
+                List<TimelineEntry> entries = new ArrayList<>();
+                for (int i = 1; i <= 5; i++) {
+                        entries.add(entry(i, AUTHOR));
+                        buffer.add(entries.get(i - 1));
+                }
+
+                TimelineBuffer.Window window = buffer.before(FeedCursor.START, 10);
+
+                assertThat(window.entries()).containsExactly(entries.get(4), entries.get(3), entries.get(2));
+                assertThat(window.horizon()).isEqualTo(entries.get(1).toCursor());
+                assertThat(window.covers(entries.get(2))).isTrue();
+                assertThat(window.covers(entries.get(1))).isFalse();
+
+                // más viejo que el horizonte: se ignora
+                buffer.add(entries.get(0));
+                assertThat(buffer.size()).isEqualTo(3);
+        }
+
+        @Test
+        void addAll_withMoreHistory_usesOldestAsHorizon() {
+                TimelineBuffer buffer = new TimelineBuffer(10);
+                List<TimelineEntry> newestFirst = List.of(entry(3, AUTHOR), entry(2, AUTHOR), entry(1, AUTHOR));
+
+                buffer.addAll(newestFirst, true);
+
+                TimelineBuffer.Window window = buffer.before(FeedCursor.START, 10);
+                assertThat(window.entries()).containsExactly(newestFirst.get(0), newestFirst.get(1));
+                assertThat(window.horizon()).isEqualTo(newestFirst.get(2).toCursor());
+        }
+
+        @Test
+        void removeAuthor_prunesOnlyThatAuthor() {
+                TimelineBuffer buffer = new TimelineBuffer(10);
+                TimelineEntry mine = entry(1, AUTHOR);
+                buffer.add(mine);
+                buffer.add(entry(2, OTHER));
+                buffer.add(entry(3, OTHER));
+
+                buffer.removeAuthor(OTHER);
+
+                assertThat(buffer.before(FeedCursor.START, 10).entries()).containsExactly(mine);
+        }
+
+        private static TimelineEntry entry(int second, UUID author) {
+                return new TimelineEntry(UUID.randomUUID(), author, Instant.ofEpochSecond(1_700_000_000L + second));
+        }
+}
@@ -0,0 +1,120 @@
+package org.example.service.feed;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.example.dto.FeedCursor;
+import org.example.dto.TimelineEntry;
+import org.example.entity.Post;
+import org.example.entity.Privacy;
+import org.example.entity.User;
+import org.example.repository.PostRepository;
+import org.example.service.graph.FriendGraphService;
+import org.example.service.relay.ClusterEvents;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Clasificación de autores pesados desde el grafo y feed con push (autores
+ * livianos) más pull del índice de los pesados.
+ */
+class TimelineServiceTest {
+
+        private static final UUID ANA = UUID.randomUUID(); // pesada: 2 amigos
+        private static final UUID BETO = UUID.randomUUID();
+        private static final UUID CARLA = UUID.randomUUID();
+        private static final UUID DANI = UUID.randomUUID(); // liviano: 1 amigo
+
+        private PostRepository postRepo;
+
+        private FriendGraphService friendGraph;
+
+        private TimelineService timelines;
+
+        @BeforeEach
+        void setUp() {
+                postRepo = mock(PostRepository.class);
+                friendGraph = mock(FriendGraphService.class);
+
+                when(friendGraph.friendIds(ANA)).thenReturn(List.of(BETO, CARLA));
+                when(friendGraph.friendIds(BETO)).thenReturn(List.of(ANA, DANI));
+                when(friendGraph.friendIds(DANI)).thenReturn(List.of(BETO));
+                when(friendGraph.friendCount(ANA)).thenReturn(2);
+                when(friendGraph.friendCount(BETO)).thenReturn(2);
+                when(friendGraph.friendCount(DANI)).thenReturn(1);
+
+                timelines = new TimelineService(postRepo, friendGraph, new ClusterEvents(new ObjectMapper()));
+                ReflectionTestUtils.setField(timelines, "capacity", 10);
+                ReflectionTestUtils.setField(timelines, "publicCapacity", 10);
+                ReflectionTestUtils.setField(timelines, "maxUsers", 100);
+                ReflectionTestUtils.setField(timelines, "heavyAuthorThreshold", 2L);
+                ReflectionTestUtils.setField(timelines, "authorIndexCapacity", 10);
+                timelines.init();
+        }
+
+        @Test
+        void heavyAuthor_isClassifiedFromTheGraph() {
+                assertThat(timelines.isHeavyAuthor(ANA)).isTrue();
+                assertThat(timelines.isHeavyAuthor(DANI)).isFalse();
+        }
+
+        @Test
+        void homeTimeline_mergesPushedPostsWithHeavyAuthorsIndex() {
+                // el timeline de beto ya está en memoria (vacío en la base)
+                assertThat(timelines.homeTimeline(BETO, FeedCursor.START, 10)).contains(List.of());
+
+                Post fromDani = post(DANI, 1);
+                Post fromAna = post(ANA, 2);
+                TimelineEntry anaEntry = entry(fromAna);
+                when(postRepo.findFriendsOnlyEntriesByAuthor(eq(ANA), any())).thenReturn(List.of(anaEntry));
+
+                timelines.onPostCreated(fromDani); // push al timeline de beto
+                timelines.onPostCreated(fromAna); // sin fan-out
+
+                assertThat(timelines.homeTimeline(BETO, FeedCursor.START, 10))
+                                .contains(List.of(anaEntry, entry(fromDani)));
+
+                // el liviano no se lee por índice
+                verify(postRepo, never()).findFriendsOnlyEntriesByAuthor(eq(DANI), any());
+        }
+
+        @Test
+        void rebuild_forgetsAuthorsThatDroppedBelowTheThreshold() {
+                timelines.onPostCreated(post(ANA, 1));
+                when(friendGraph.friendCount(ANA)).thenReturn(1);
+
+                timelines.homeTimeline(BETO, FeedCursor.START, 10);
+                verify(postRepo).findFriendsOnlyEntriesByAuthor(eq(ANA), any());
+
+                timelines.rebuild();
+                timelines.homeTimeline(BETO, FeedCursor.START, 10);
+                verify(postRepo).findFriendsOnlyEntriesByAuthor(eq(ANA), any()); // no se volvió a cargar
+        }
+
+        // --- Helpers ---
+
+        private static Post post(UUID authorId, long second) {
+                return Post.builder()
+                                .id(UUID.randomUUID())
+                                .user(User.builder().id(authorId).build())
+                                .privacy(Privacy.FRIENDS)
+                                .createdAt(Instant.ofEpochSecond(1_700_000_000L + second))
+                                .build();
+        }
+
+        private static TimelineEntry entry(Post post) {
+                return new TimelineEntry(post.getId(), post.getUser().getId(), post.getCreatedAt());
+        }
+}
@@ -0,0 +1,90 @@
+package org.example.service.graph;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.example.entity.Friend.FriendStatus;
+import org.junit.jupiter.api.Test;
+
+class FriendGraphTest {
+
+        private static final UUID ANA = UUID.randomUUID();
+        private static final UUID BETO = UUID.randomUUID();
+        private static final UUID CARLA = UUID.randomUUID();
+
+        @Test
+        void accepted_isSymmetric() {
+                FriendGraph graph = new FriendGraph();
+                graph.setRelation(ANA, BETO, FriendStatus.ACCEPTED);
+
+                assertThat(graph.areFriends(ANA, BETO)).isTrue();
+                assertThat(graph.areFriends(BETO, ANA)).isTrue();
+                assertThat(graph.areFriends(ANA, CARLA)).isFalse();
+                assertThat(graph.friendCount(ANA)).isEqualTo(1);
+                assertThat(graph.friendCount(CARLA)).isZero();
+        }
+
+        @Test
+        void pendingAndBlocked_areDirected() {
+                FriendGraph graph = new FriendGraph();
+                graph.setRelation(ANA, BETO, FriendStatus.PENDING);
+                graph.setRelation(CARLA, ANA, FriendStatus.BLOCKED);
+
+                assertThat(graph.hasPendingRequest(ANA, BETO)).isTrue();
+                assertThat(graph.hasPendingRequest(BETO, ANA)).isFalse();
+                assertThat(graph.hasBlocked(CARLA, ANA)).isTrue();
+                assertThat(graph.hasBlocked(ANA, CARLA)).isFalse();
+                assertThat(graph.areFriends(ANA, BETO)).isFalse();
+        }
+
+        @Test
+        void setRelation_replacesPreviousState() {
+                FriendGraph graph = new FriendGraph();
+                graph.setRelation(ANA, BETO, FriendStatus.PENDING);
+                graph.setRelation(ANA, BETO, FriendStatus.ACCEPTED);
+
+                assertThat(graph.hasPendingRequest(ANA, BETO)).isFalse();
+                assertThat(graph.areFriends(ANA, BETO)).isTrue();
+
+                // bloquear reemplaza la amistad, en cualquier dirección
+                graph.setRelation(BETO, ANA, FriendStatus.BLOCKED);
+
+                assertThat(graph.areFriends(ANA, BETO)).isFalse();
+                assertThat(graph.hasBlocked(BETO, ANA)).isTrue();
+                assertThat(graph.friendCount(ANA)).isZero();
+        }
+
+        @Test
+        void removeRelation_clearsEveryEdgeOfThePair() {
+                FriendGraph graph = new FriendGraph();
+                graph.setRelation(ANA, BETO, FriendStatus.ACCEPTED);
+                graph.setRelation(ANA, CARLA, FriendStatus.ACCEPTED);
+
+                graph.removeRelation(BETO, ANA);
+
+                assertThat(graph.areFriends(ANA, BETO)).isFalse();
+                assertThat(graph.areFriends(ANA, CARLA)).isTrue();
+                assertThat(graph.friendCount(ANA)).isEqualTo(1);
+                assertThat(graph.friendsOf(ANA)).containsExactly(CARLA);
+                assertThat(graph.friendsOf(BETO)).isEmpty();
+        }
+
+        @Test
+        void manyUsers_growsBeyondInitialCapacity() {
+                FriendGraph graph = new FriendGraph();
+                List<UUID> friends = new ArrayList<>();
+                for (int i = 0; i < 3000; i++) {
+                        UUID friend = UUID.randomUUID();
+                        friends.add(friend);
+                        graph.setRelation(ANA, friend, FriendStatus.ACCEPTED);
+                }
+
+                assertThat(graph.friendCount(ANA)).isEqualTo(3000);
+                assertThat(friends).allMatch(f -> graph.areFriends(f, ANA));
+                assertThat(graph.friendsOf(ANA)).containsExactlyInAnyOrderElementsOf(friends);
+                assertThat(graph.areFriends(ANA, UUID.randomUUID())).isFalse();
+        }
+}
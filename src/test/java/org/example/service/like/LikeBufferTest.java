@@ -0,0 +1,289 @@
+package org.example.service.like;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.example.entity.Post;
+import org.example.entity.Privacy;
+import org.example.entity.ThemeMode;
+import org.example.entity.User;
+import org.example.repository.PostLikeRepository;
+import org.example.repository.PostRepository;
+import org.example.repository.UserRepository;
+import org.example.service.PostService;
+import org.example.service.cache.CacheInvalidationService;
+import org.example.service.stats.PostStatsReconciler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Likes write-behind: coalescing, flush en batch y qué pasa si el proceso
+ * se cae.
+ *
+ * Historia de recuperación ante caídas:
+ * - Lo que ya se escribió en un flush es durable y consistente (cada flush
+ * es una transacción).
+ * - Los toggles que todavía estaban en memoria se pierden (como mucho un
+ * intervalo de flush); el shutdown ordenado hace un último flush.
+ * - Al arrancar no hay nada que reconstruir: el buffer nuevo empieza vacío
+ * y toma el estado de cada like desde la base.
+ * - Si un flush falla se reintenta fila por fila: una fila inválida se
+ * descarta y el resto se escribe; ante un error transitorio los toggles
+ * vuelven al buffer.
+ *
+ * El flush programado se desactiva para que el test controle cuándo corre.
+ */
+@SpringBootTest(properties = {
+                "likes.flush-interval-ms=3600000",
+                "likes.reconcile-interval-ms=3600000" })
+@Transactional
+class LikeBufferTest {
+
+        @MockitoBean
+        private JwtDecoder googleJwtDecoder;
+
+        @Autowired
+        private LikeBuffer likeBuffer;
+
+        @Autowired
+        private PostService postService;
+
+        @Autowired
+        private UserRepository userRepo;
+
+        @Autowired
+        private PostRepository postRepo;
+
+        @Autowired
+        private PostLikeRepository postLikeRepo;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private TransactionTemplate transactionTemplate;
+
+        @Autowired
+        private EntityManagerFactory emf;
+
+        @Autowired
+        private CacheInvalidationService cacheInvalidation;
+
+        @Autowired
+        private MeterRegistry meterRegistry;
+
+        @Autowired
+        private PostStatsReconciler statsReconciler;
+
+        @Autowired
+        private EntityManager em;
+
+        private List<User> fans;
+
+        private Post post;
+
+        @BeforeEach
+        void setUp() {
+                User author = userRepo.save(user("likeauthor"));
+                fans = List.of(
+                                userRepo.save(user("fan0")),
+                                userRepo.save(user("fan1")),
+                                userRepo.save(user("fan2")));
+
+                post = postRepo.save(Post.builder()
+                                .content("viral")
+                                .privacy(Privacy.PUBLIC)
+                                .user(author)
+                                .build());
+
+                // el flush usa JDBC en la misma transacción: tiene que ver estas filas
+                em.flush();
+
+                SecurityContextHolder.getContext().setAuthentication(
+                                new UsernamePasswordAuthenticationToken("fan0", null, List.of()));
+        }
+
+        @AfterEach
+        void tearDown() {
+                SecurityContextHolder.clearContext();
+        }
+
+        @Test
+        void toggleTwice_coalescesToNothing() {
+                postService.toggleLike(post.getId());
+                postService.toggleLike(post.getId());
+
+                assertThat(likeBuffer.pendingState(post.getId(), fans.get(0).getId())).isEmpty();
+                assertThat(likeBuffer.pendingDelta(post.getId())).isZero();
+
+                likeBuffer.flush();
+
+                assertThat(likesInDb()).isZero();
+        }
+
+        @Test
+        void countsAreServedFromBufferUntilFlush() {
+                LikeBuffer buffer = newBuffer();
+                fans.forEach(fan -> toggle(buffer, fan));
+
+                assertThat(likesInDb()).isZero();
+                assertThat(buffer.pendingDelta(post.getId())).isEqualTo(3);
+                assertThat(buffer.pendingState(post.getId(), fans.get(0).getId())).contains(true);
+
+                buffer.flush();
+
+                assertThat(likesInDb()).isEqualTo(3);
+                assertThat(buffer.pendingDelta(post.getId())).isZero();
+                assertThat(buffer.pendingCount()).isZero();
+        }
+
+        @Test
+        void unlikeAfterFlush_startsFromDatabaseState() {
+                LikeBuffer buffer = newBuffer();
+                assertThat(toggle(buffer, fans.get(0))).isTrue();
+                buffer.flush();
+
+                assertThat(toggle(buffer, fans.get(0))).isFalse();
+                assertThat(buffer.pendingDelta(post.getId())).isEqualTo(-1);
+                buffer.flush();
+
+                assertThat(likesInDb()).isZero();
+        }
+
+        @Test
+        void crashBeforeFlush_losesOnlyUnflushedToggles() {
+                LikeBuffer beforeCrash = newBuffer();
+                toggle(beforeCrash, fans.get(0));
+                beforeCrash.flush(); // durable
+                toggle(beforeCrash, fans.get(1)); // solo en memoria
+
+                // "caída": la instancia se pierde sin flush y arranca otra
+                LikeBuffer afterRestart = newBuffer();
+
+                assertThat(likesInDb()).isEqualTo(1);
+                assertThat(afterRestart.pendingDelta(post.getId())).isZero();
+                assertThat(afterRestart.pendingState(post.getId(), fans.get(1).getId())).isEmpty();
+
+                // el estado previo sale de la base: fan0 ya tenía like, el toggle lo quita
+                assertThat(toggle(afterRestart, fans.get(0))).isFalse();
+                afterRestart.flush();
+
+                assertThat(likesInDb()).isZero();
+        }
+
+        @Test
+        void toggle_readsTheDatabaseOutsideTheLockAndRechecks() {
+                LikeBuffer buffer = newBuffer();
+                UUID fan = fans.get(0).getId();
+                AtomicBoolean raced = new AtomicBoolean();
+
+                // mientras se lee la base, otro request hace toggle sobre el mismo par
+                boolean liked = buffer.toggle(post.getId(), fan, () -> {
+                        if (raced.compareAndSet(false, true)) {
+                                assertThat(buffer.toggle(post.getId(), fan, () -> false)).isTrue();
+                        }
+                        return false;
+                });
+
+                // el segundo toggle parte del like pendiente, no de la lectura vieja
+                assertThat(liked).isFalse();
+                assertThat(buffer.pendingCount()).isZero();
+                assertThat(buffer.pendingDelta(post.getId())).isZero();
+        }
+
+        @Test
+        void failedFlush_discardsThePoisonRowAndWritesTheRest() {
+                LikeBuffer buffer = newBuffer();
+                UUID ghost = UUID.randomUUID(); // viola la FK de user_id
+
+                buffer.toggle(post.getId(), ghost, () -> false);
+                toggle(buffer, fans.get(0));
+                buffer.flush();
+
+                assertThat(likesInDb()).isEqualTo(1);
+                assertThat(buffer.pendingState(post.getId(), ghost)).isEmpty();
+                assertThat(buffer.pendingCount()).isZero();
+                assertThat(buffer.pendingDelta(post.getId())).isZero();
+
+                // el próximo flush no arrastra la fila descartada
+                toggle(buffer, fans.get(1));
+                buffer.flush();
+                assertThat(likesInDb()).isEqualTo(2);
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        void reconcile_repairsDriftedCounters() {
+                LikeBuffer buffer = newBuffer();
+                toggle(buffer, fans.get(0));
+                toggle(buffer, fans.get(1));
+                toggle(buffer, fans.get(1)); // compensado
+
+                // deriva en memoria: un delta que no sale de ningún toggle pendiente
+                Map<UUID, LongAdder> deltas = (Map<UUID, LongAdder>) ReflectionTestUtils.getField(buffer,
+                                "pendingDeltas");
+                deltas.get(post.getId()).add(5);
+                assertThat(buffer.pendingDelta(post.getId())).isEqualTo(6);
+
+                buffer.reconcile();
+                assertThat(buffer.pendingDelta(post.getId())).isEqualTo(1);
+
+                // deriva en la base: el contador persistido no coincide con las filas
+                buffer.flush();
+                jdbcTemplate.update("UPDATE post_stats SET like_count = 40 WHERE post_id = ?", post.getId());
+
+                statsReconciler.reconcile();
+                assertThat(jdbcTemplate.queryForObject("SELECT like_count FROM post_stats WHERE post_id = ?",
+                                Long.class, post.getId())).isEqualTo(likesInDb()).isEqualTo(1);
+        }
+
+        private boolean toggle(LikeBuffer buffer, User fan) {
+                return buffer.toggle(post.getId(), fan.getId(),
+                                () -> postLikeRepo.existsByPostIdAndUserId(post.getId(), fan.getId()));
+        }
+
+        private LikeBuffer newBuffer() {
+                LikeBuffer buffer = new LikeBuffer(jdbcTemplate, transactionTemplate, emf, cacheInvalidation,
+                                meterRegistry);
+                buffer.init();
+                return buffer;
+        }
+
+        private long likesInDb() {
+                return jdbcTemplate.queryForObject(
+                                "SELECT COUNT(*) FROM post_likes WHERE post_id = ?", Long.class, post.getId());
+        }
+
+        private static User user(String username) {
+                return User.builder()
+                                .username(username)
+                                .email(username + "@test.com")
+                                .avatarKey("default.png")
+                                .password("secret")
+                                .displayName(username)
+                                .birthDate(LocalDate.of(2000, 1, 1))
+                                .themeMode(ThemeMode.LIGHT)
+                                .build();
+        }
+}
@@ -0,0 +1,242 @@
+package org.example.service.presence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.example.dto.PresenceDiffDto;
+import org.example.repository.UserRepository;
+import org.example.security.AuthenticatedUser;
+import org.example.service.graph.FriendGraphService;
+import org.example.service.relay.ClusterEvents;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Sesiones por usuario, vencimiento por TTL, diffs a los amigos, usuarios
+ * de otros nodos y consulta de amigos online sin ir a la base.
+ */
+class PresenceServiceTest {
+
+        private static final UUID ANA = UUID.randomUUID();
+        private static final UUID BETO = UUID.randomUUID();
+        private static final UUID CARLA = UUID.randomUUID();
+
+        private UserRepository userRepository;
+
+        private FriendGraphService friendGraph;
+
+        private SimpMessagingTemplate messagingTemplate;
+
+        private PresenceService presence;
+
+        @BeforeEach
+        void setUp() {
+                userRepository = mock(UserRepository.class);
+                friendGraph = mock(FriendGraphService.class);
+                messagingTemplate = mock(SimpMessagingTemplate.class);
+
+                // ana y beto son amigos; carla no es amiga de nadie
+                when(friendGraph.friendIds(ANA)).thenReturn(List.of(BETO));
+                when(friendGraph.friendIds(BETO)).thenReturn(List.of(ANA));
+                when(friendGraph.areFriends(ANA, BETO)).thenReturn(true);
+                when(friendGraph.areFriends(BETO, ANA)).thenReturn(true);
+
+                presence = new PresenceService(userRepository, friendGraph, messagingTemplate,
+                                new ClusterEvents(new ObjectMapper()), new SimpleMeterRegistry());
+                ReflectionTestUtils.setField(presence, "sessionTtlMs", 60_000L);
+                ReflectionTestUtils.setField(presence, "maxQueryIds", 10);
+                presence.init();
+        }
+
+        @AfterEach
+        void tearDown() {
+                SecurityContextHolder.clearContext();
+        }
+
+        @Test
+        void onlineUntilTheLastSessionCloses() {
+                presence.connect("a1", ANA, "ana", true);
+                presence.connect("a2", ANA, "ana", true);
+
+                presence.disconnect("a1");
+                assertThat(presence.isOnline(ANA)).isTrue();
+
+                presence.disconnect("a2");
+                presence.disconnect("a2"); // evento repetido
+                assertThat(presence.isOnline(ANA)).isFalse();
+        }
+
+        @Test
+        void sweep_expiresSilentSessionsOnly() {
+                presence.connect("a1", ANA, "ana", true);
+                presence.connect("b1", BETO, "beto", false); // sin heartbeat del cliente
+                ReflectionTestUtils.setField(presence, "sessionTtlMs", -1L);
+
+                presence.sweep();
+
+                assertThat(presence.isOnline(ANA)).isFalse();
+                assertThat(presence.isOnline(BETO)).isTrue();
+        }
+
+        @Test
+        void publish_sendsOneDiffPerConnectedFriend() {
+                presence.connect("b1", BETO, "beto", true);
+                presence.publish();
+
+                presence.connect("a1", ANA, "ana", true);
+                presence.connect("c1", CARLA, "carla", true);
+                presence.publish();
+
+                verify(messagingTemplate).convertAndSendToUser("beto", PresenceService.DESTINATION,
+                                new PresenceDiffDto(List.of(ANA), List.of()));
+                verify(messagingTemplate, never()).convertAndSendToUser(eq("carla"), anyString(), any());
+
+                presence.disconnect("a1");
+                presence.publish();
+
+                verify(messagingTemplate).convertAndSendToUser("beto", PresenceService.DESTINATION,
+                                new PresenceDiffDto(List.of(), List.of(ANA)));
+        }
+
+        @Test
+        void publish_skipsReconnectsWithinTheWindow() {
+                presence.connect("b1", BETO, "beto", true);
+                presence.connect("a1", ANA, "ana", true);
+                presence.publish();
+
+                // recarga: sale y vuelve antes del próximo diff
+                presence.disconnect("a1");
+                presence.connect("a2", ANA, "ana", true);
+                presence.publish();
+
+                verify(messagingTemplate).convertAndSendToUser("beto", PresenceService.DESTINATION,
+                                new PresenceDiffDto(List.of(ANA), List.of()));
+                verify(messagingTemplate, never()).convertAndSendToUser("beto", PresenceService.DESTINATION,
+                                new PresenceDiffDto(List.of(), List.of(ANA)));
+        }
+
+        @Test
+        void onlineFriends_answersFromMemory() {
+                presence.connect("a1", ANA, "ana", true);
+                presence.connect("b1", BETO, "beto", true);
+                presence.connect("c1", CARLA, "carla", true);
+                SecurityContextHolder.getContext().setAuthentication(
+                                new UsernamePasswordAuthenticationToken("ana", null, List.of()));
+
+                // carla está online pero no es amiga: no se informa
+                assertThat(presence.onlineFriends(List.of(BETO, CARLA, BETO))).containsExactly(BETO);
+                verifyNoInteractions(userRepository);
+        }
+
+        @Test
+        void onlineFriends_forACallerWhoNeverConnected_takesTheIdFromThePrincipal() {
+                presence.connect("b1", BETO, "beto", true);
+                AuthenticatedUser ana = new AuthenticatedUser(ANA, "ana", "secret", true, List.of());
+                SecurityContextHolder.getContext().setAuthentication(
+                                new UsernamePasswordAuthenticationToken(ana, null, List.of()));
+
+                assertThat(presence.onlineFriends(List.of(BETO))).containsExactly(BETO);
+                verifyNoInteractions(userRepository);
+        }
+
+        @Test
+        void friendOnAnotherNode_getsTheDiffAndCountsAsOnline() {
+                presence.nodeChanged(new PresenceService.NodeChanged("otro", BETO, "beto", true));
+                assertThat(presence.isOnline(BETO)).isTrue();
+
+                presence.connect("a1", ANA, "ana", true);
+                presence.publish();
+
+                // el relay lo lleva al nodo de beto
+                verify(messagingTemplate).convertAndSendToUser("beto", PresenceService.DESTINATION,
+                                new PresenceDiffDto(List.of(ANA), List.of()));
+        }
+
+        @Test
+        void changeOnAnotherNode_isAnnouncedThereNotHere() {
+                presence.connect("b1", BETO, "beto", true);
+                presence.publish();
+
+                presence.nodeChanged(new PresenceService.NodeChanged("otro", ANA, "ana", true));
+                presence.connect("a1", ANA, "ana", true); // segunda pestaña, en este nodo
+                presence.publish();
+
+                verify(messagingTemplate, never()).convertAndSendToUser(eq("beto"), anyString(), any());
+        }
+
+        @Test
+        void silentNode_isDroppedAndItsUsersGoOffline() {
+                presence.connect("a1", ANA, "ana", false);
+                presence.nodeSnapshot(new PresenceService.NodeSnapshot("otro", Map.of(BETO, "beto")));
+                presence.publish();
+                assertThat(presence.isOnline(BETO)).isTrue();
+
+                ReflectionTestUtils.setField(presence, "sessionTtlMs", -1L);
+                presence.sweep();
+                presence.publish();
+
+                assertThat(presence.isOnline(BETO)).isFalse();
+                verify(messagingTemplate).convertAndSendToUser("ana", PresenceService.DESTINATION,
+                                new PresenceDiffDto(List.of(), List.of(BETO)));
+        }
+
+        @Test
+        void deadNode_withALowerSurvivor_isLeftToThatNode() {
+                presence.connect("a1", ANA, "ana", false);
+                presence.nodeSnapshot(new PresenceService.NodeSnapshot("muerto", Map.of(BETO, "beto")));
+                // "0" ordena antes que cualquier nodeId (UUID)
+                presence.nodeSnapshot(new PresenceService.NodeSnapshot("0", Map.of()));
+                presence.publish();
+
+                silence("muerto");
+                presence.sweep();
+                presence.publish();
+
+                assertThat(presence.isOnline(BETO)).isFalse();
+                verify(messagingTemplate, never()).convertAndSendToUser(eq("ana"), anyString(), any());
+        }
+
+        @Test
+        void deadNode_withOnlyHigherSurvivors_isAnnouncedHere() {
+                presence.connect("a1", ANA, "ana", false);
+                presence.nodeSnapshot(new PresenceService.NodeSnapshot("muerto", Map.of(BETO, "beto")));
+                // "z" ordena después que cualquier nodeId (UUID)
+                presence.nodeSnapshot(new PresenceService.NodeSnapshot("z", Map.of()));
+                presence.publish();
+
+                silence("muerto");
+                presence.sweep();
+                presence.publish();
+
+                verify(messagingTemplate).convertAndSendToUser("ana", PresenceService.DESTINATION,
+                                new PresenceDiffDto(List.of(), List.of(BETO)));
+        }
+
+        // --- Helpers ---
+
+        // El nodo no mandó nada en el TTL
+        private void silence(String node) {
+                Map<?, ?> remote = (Map<?, ?>) ReflectionTestUtils.getField(presence, "remote");
+                ReflectionTestUtils.setField(remote.get(node), "lastSeen", 0L);
+        }
+}
@@ -0,0 +1,300 @@
+package org.example.service.relay;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.example.entity.User;
+import org.example.repository.UserRepository;
+import org.example.security.JwtUtil;
+import org.example.service.PublicChatService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Dos nodos de la app en el mismo proceso sobre un Postgres embebido, con
+ * clientes STOMP repartidos entre ambos: cada mensaje del chat público
+ * (enviado desde cualquiera de los dos) y cada mensaje a un usuario tiene
+ * que llegar a las sesiones de los dos nodos. Se corre con el relay de
+ * Postgres (LISTEN/NOTIFY) y con el de Artemis (embebido en la prueba).
+ *
+ * La latencia se mide desde el envío hasta que el cliente recibe el frame,
+ * separada entre sesiones del mismo nodo y del otro.
+ *
+ * Es lento y depende de la máquina: solo corre con CHAT_BENCHMARK=true.
+ */
+@EnabledIfEnvironmentVariable(named = "CHAT_BENCHMARK", matches = "true")
+class ClusterFanOutLoadTest {
+
+        private static final Logger log = LoggerFactory.getLogger(ClusterFanOutLoadTest.class);
+
+        private static final int CLIENTS_PER_NODE = 50;
+        private static final int RATE = 200;
+        private static final int SECONDS = 5;
+
+        private static EmbeddedPostgres postgres;
+
+        @BeforeAll
+        static void startPostgres() {
+                postgres = ClusterNodes.startPostgres();
+        }
+
+        @AfterAll
+        static void stopPostgres() throws IOException {
+                if (postgres != null) {
+                        postgres.close();
+                }
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = { "postgres", "artemis" })
+        void fanOut_reachesSessionsOnBothNodes(String mode) throws Exception {
+                int artemisPort = freePort();
+                String run = mode.substring(0, 2) + System.nanoTime() % 100_000;
+
+                try (AutoCloseable broker = broker(mode, artemisPort);
+                                ConfigurableApplicationContext nodeA = node(mode, artemisPort);
+                                ConfigurableApplicationContext nodeB = node(mode, artemisPort)) {
+
+                        UserRepository users = nodeA.getBean(UserRepository.class);
+                        User sender = users.save(ClusterNodes.user(run + "-sender"));
+
+                        List<Client> clients = new ArrayList<>();
+                        for (int i = 0; i < 2 * CLIENTS_PER_NODE; i++) {
+                                ConfigurableApplicationContext owner = i % 2 == 0 ? nodeA : nodeB;
+                                User user = users.save(ClusterNodes.user(run + "-" + i));
+                                clients.add(connect(owner, i % 2 == 0 ? "A" : "B", user.getUsername()));
+                        }
+
+                        // hasta que los dos nodos llegan a todas las sesiones (suscripciones
+                        // y, con Artemis, registro de usuarios propagados)
+                        warmUp(nodeA, nodeB, sender, clients);
+
+                        long start = System.nanoTime();
+                        Thread fromA = sender(nodeA, "A", sender, RATE / 2);
+                        Thread fromB = sender(nodeB, "B", sender, RATE / 2);
+                        fromA.join();
+                        fromB.join();
+
+                        // un mensaje privado a cada usuario, desde el nodo que no es el suyo
+                        for (Client client : clients) {
+                                ConfigurableApplicationContext other = client.node().equals("A") ? nodeB : nodeA;
+                                other.getBean(SimpMessagingTemplate.class).convertAndSendToUser(client.username(),
+                                                "/queue/messages", Map.of("content", "p:" + System.nanoTime()));
+                        }
+
+                        int expected = RATE * SECONDS;
+                        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+                        while (System.nanoTime() < deadline && clients.stream()
+                                        .anyMatch(c -> c.publicCount().get() < expected || c.privateCount().get() < 1)) {
+                                Thread.sleep(100);
+                        }
+                        double elapsed = (System.nanoTime() - start) / 1e9;
+
+                        List<Long> local = new ArrayList<>();
+                        List<Long> remote = new ArrayList<>();
+                        clients.forEach(c -> {
+                                local.addAll(c.localLatencies());
+                                remote.addAll(c.remoteLatencies());
+                        });
+
+                        log.info("{}: {} clientes, {} mensajes públicos en {} s, {} entregas", mode,
+                                        clients.size(), expected, String.format("%.1f", elapsed),
+                                        local.size() + remote.size());
+                        log.info("  mismo nodo: {}", percentiles(local));
+                        log.info("  otro nodo:  {}", percentiles(remote));
+
+                        clients.forEach(c -> {
+                                assertThat(c.publicCount()).as("públicos de %s", c.username()).hasValue(expected);
+                                assertThat(c.privateCount()).as("privados de %s", c.username()).hasValue(1);
+                        });
+
+                        clients.forEach(c -> c.session().disconnect());
+                }
+        }
+
+        // -------------------------------------------------------
+        // NODOS
+        // -------------------------------------------------------
+
+        // Artemis aparte de los nodos, como en producción
+        private static AutoCloseable broker(String mode, int port) throws Exception {
+                return mode.equals("artemis") ? new EmbeddedArtemisBroker(port) : () -> {
+                };
+        }
+
+        private static ConfigurableApplicationContext node(String mode, int artemisPort) {
+                return ClusterNodes.node(postgres, mode, artemisPort);
+        }
+
+        private static void warmUp(ConfigurableApplicationContext nodeA, ConfigurableApplicationContext nodeB,
+                        User sender, List<Client> clients) throws InterruptedException {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+                while (clients.stream().anyMatch(c -> !c.warm())) {
+                        assertThat(System.nanoTime()).as("warm-up").isLessThan(deadline);
+                        send(nodeA, sender, "w:A:" + System.nanoTime());
+                        send(nodeB, sender, "w:B:" + System.nanoTime());
+                        for (Client client : clients) {
+                                ConfigurableApplicationContext other = client.node().equals("A") ? nodeB : nodeA;
+                                other.getBean(SimpMessagingTemplate.class).convertAndSendToUser(client.username(),
+                                                "/queue/messages", Map.of("content", "w"));
+                        }
+                        Thread.sleep(500);
+                }
+                Thread.sleep(500); // que terminen de llegar los del último intento
+                clients.forEach(Client::reset);
+        }
+
+        private static Thread sender(ConfigurableApplicationContext node, String name, User sender, int rate) {
+                Thread thread = new Thread(() -> {
+                        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+                        long start = System.nanoTime();
+                        for (int i = 0; i < rate * SECONDS; i++) {
+                                LockSupport.parkNanos(start + i * interval - System.nanoTime());
+                                send(node, sender, "m:" + name + ":" + System.nanoTime());
+                        }
+                }, "sender-" + name);
+                thread.start();
+                return thread;
+        }
+
+        private static void send(ConfigurableApplicationContext node, User sender, String content) {
+                SecurityContextHolder.getContext().setAuthentication(
+                                new UsernamePasswordAuthenticationToken(sender.getUsername(), null, List.of()));
+                try {
+                        node.getBean(PublicChatService.class).send("lobby", content);
+                } finally {
+                        SecurityContextHolder.clearContext();
+                }
+        }
+
+        // -------------------------------------------------------
+        // CLIENTES
+        // -------------------------------------------------------
+
+        private static Client connect(ConfigurableApplicationContext node, String name, String username)
+                        throws Exception {
+                int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+                String token = node.getBean(JwtUtil.class).generateToken(username, List.of());
+
+                WebSocketStompClient stomp = new WebSocketStompClient(new StandardWebSocketClient());
+                stomp.setMessageConverter(new MappingJackson2MessageConverter());
+
+                StompSession session = stomp
+                                .connectAsync("ws://localhost:" + port + "/ws/websocket?token=" + token,
+                                                new StompSessionHandlerAdapter() {
+                                                })
+                                .get(10, TimeUnit.SECONDS);
+
+                Client client = new Client(name, username, session);
+                session.subscribe("/topic/public/lobby", client.handler(true));
+                session.subscribe("/user/queue/messages", client.handler(false));
+                return client;
+        }
+
+        private record Client(String node, String username, StompSession session, AtomicInteger publicCount,
+                        AtomicInteger privateCount, boolean[] warmFrom, ConcurrentLinkedQueue<Long> localLatencies,
+                        ConcurrentLinkedQueue<Long> remoteLatencies) {
+
+                Client(String node, String username, StompSession session) {
+                        this(node, username, session, new AtomicInteger(), new AtomicInteger(), new boolean[3],
+                                        new ConcurrentLinkedQueue<>(), new ConcurrentLinkedQueue<>());
+                }
+
+                StompFrameHandler handler(boolean publicChat) {
+                        return new StompFrameHandler() {
+
+                                @Override
+                                public Type getPayloadType(StompHeaders headers) {
+                                        return JsonNode.class;
+                                }
+
+                                @Override
+                                public void handleFrame(StompHeaders headers, Object payload) {
+                                        long now = System.nanoTime();
+                                        String content = ((JsonNode) payload).path("content").asText();
+                                        if (!publicChat) {
+                                                if (content.equals("w")) {
+                                                        warmFrom[2] = true;
+                                                } else {
+                                                        privateCount.incrementAndGet();
+                                                }
+                                                return;
+                                        }
+
+                                        String[] parts = content.split(":");
+                                        if (parts[0].equals("w")) {
+                                                warmFrom[parts[1].equals("A") ? 0 : 1] = true;
+                                                return;
+                                        }
+                                        publicCount.incrementAndGet();
+                                        long latency = now - Long.parseLong(parts[2]);
+                                        (parts[1].equals(node) ? localLatencies : remoteLatencies).add(latency);
+                                }
+                        };
+                }
+
+                synchronized boolean warm() {
+                        return warmFrom[0] && warmFrom[1] && warmFrom[2];
+                }
+
+                void reset() {
+                        publicCount.set(0);
+                        privateCount.set(0);
+                        localLatencies.clear();
+                        remoteLatencies.clear();
+                }
+        }
+
+        // --- Helpers ---
+
+        private static int freePort() throws IOException {
+                try (ServerSocket socket = new ServerSocket(0)) {
+                        return socket.getLocalPort();
+                }
+        }
+
+        private static String percentiles(List<Long> latencies) {
+                if (latencies.isEmpty()) {
+                        return "sin entregas";
+                }
+                long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+                return String.format("p50 %.1f ms, p99 %.1f ms, max %.1f ms", ms(sorted, 0.50), ms(sorted, 0.99),
+                                sorted[sorted.length - 1] / 1e6);
+        }
+
+        private static double ms(long[] sorted, double percentile) {
+                return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))] / 1e6;
+        }
+}
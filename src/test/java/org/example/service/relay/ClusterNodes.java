@@ -0,0 +1,84 @@
+package org.example.service.relay;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+import org.example.App;
+import org.example.entity.ThemeMode;
+import org.example.entity.User;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Assumptions;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Nodos de la app en el mismo proceso, sobre un Postgres embebido con el
+ * esquema de Flyway (el de producción, no el create-drop de H2).
+ */
+final class ClusterNodes {
+
+        private ClusterNodes() {
+        }
+
+        static EmbeddedPostgres startPostgres() {
+                EmbeddedPostgres postgres = null;
+                try {
+                        postgres = EmbeddedPostgres.builder().start();
+                } catch (IOException | RuntimeException e) {
+                        Assumptions.abort("Postgres embebido no disponible: " + e.getMessage());
+                }
+
+                Flyway.configure()
+                                .dataSource(postgres.getPostgresDatabase())
+                                .locations("classpath:db/migration")
+                                .load()
+                                .migrate();
+                return postgres;
+        }
+
+        static ConfigurableApplicationContext node(EmbeddedPostgres postgres, String mode, int artemisPort) {
+                return new SpringApplicationBuilder(App.class, NodeOverrides.class).run(
+                                "--server.port=0",
+                                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                                "--spring.datasource.username=postgres",
+                                "--spring.datasource.password=",
+                                "--spring.datasource.driver-class-name=org.postgresql.Driver",
+                                "--spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+                                "--spring.jpa.hibernate.ddl-auto=validate",
+                                "--spring.flyway.enabled=false",
+                                "--websocket.relay.mode=" + mode,
+                                "--websocket.relay.artemis.port=" + artemisPort,
+                                "--chat.rate-limit.send.limit=1000000",
+                                "--websocket.slow-consumer.max-pending=100000");
+        }
+
+        // Sin red en la prueba: el decoder de Google no se usa
+        @TestConfiguration
+        static class NodeOverrides {
+
+                @Bean
+                JwtDecoder googleJwtDecoder() {
+                        return token -> {
+                                throw new BadJwtException("Google no disponible en la prueba");
+                        };
+                }
+        }
+
+        static User user(String username) {
+                return User.builder()
+                                .username(username)
+                                .email(username + "@test.com")
+                                .avatarKey("default.png")
+                                .password("secret")
+                                .displayName(username)
+                                .birthDate(LocalDate.of(2000, 1, 1))
+                                .themeMode(ThemeMode.LIGHT)
+                                .build();
+        }
+}
@@ -0,0 +1,44 @@
+package org.example.service.relay;
+
+import java.nio.file.Path;
+
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+
+/**
+ * Artemis embebido con un acceptor STOMP para probar
+ * {@code websocket.relay.mode=artemis} sin broker aparte. En memoria: sin
+ * persistencia ni seguridad. En producción (o en desarrollo, con
+ * {@code -PartemisRelay}) el broker corre aparte.
+ *
+ * Los prefijos del acceptor mapean los destinos de Spring: {@code /topic/...}
+ * es multicast (cada suscripción recibe todo) y {@code /queue/...} anycast.
+ */
+class EmbeddedArtemisBroker implements AutoCloseable {
+
+        private final EmbeddedActiveMQ server;
+
+        EmbeddedArtemisBroker(int port) throws Exception {
+                Path dataDir = Path.of(System.getProperty("java.io.tmpdir"), "artemis-" + port);
+
+                Configuration config = new ConfigurationImpl()
+                                .setPersistenceEnabled(false)
+                                .setSecurityEnabled(false)
+                                .setJMXManagementEnabled(false)
+                                .setPagingDirectory(dataDir.resolve("paging").toString())
+                                .setBindingsDirectory(dataDir.resolve("bindings").toString())
+                                .setJournalDirectory(dataDir.resolve("journal").toString())
+                                .setLargeMessagesDirectory(dataDir.resolve("large-messages").toString())
+                                .addAcceptorConfiguration("stomp", "tcp://localhost:" + port
+                                                + "?protocols=STOMP;anycastPrefix=/queue/;multicastPrefix=/topic/");
+
+                server = new EmbeddedActiveMQ().setConfiguration(config);
+                server.start();
+        }
+
+        @Override
+        public void close() throws Exception {
+                server.stop();
+        }
+}
@@ -0,0 +1,261 @@
+package org.example.service.relay;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.example.entity.Friend.FriendStatus;
+import org.example.entity.User;
+import org.example.repository.UserRepository;
+import org.example.security.JwtUtil;
+import org.example.service.graph.FriendGraphService;
+import org.example.service.presence.PresenceService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.WebSocketContainer;
+
+/**
+ * Dos nodos con {@code mode=postgres} sobre un Postgres embebido: frames a
+ * {@code /topic} y a {@code /user/} que cruzan de nodo, sin eco (el nodo
+ * que publica no se reinyecta lo suyo y lo recibido no se vuelve a
+ * publicar), payloads de más de 7000 bytes por {@code ws_relay_payloads} y
+ * eventos de {@link ClusterEvents} (grafo y presencia) aplicados en el otro
+ * nodo.
+ *
+ * La prueba de carga con los dos relays es {@link ClusterFanOutLoadTest}.
+ */
+class PostgresNotifyRelayTest {
+
+        private static final String TOPIC = "/topic/relay-test";
+
+        private static EmbeddedPostgres postgres;
+
+        private static ConfigurableApplicationContext nodeA;
+
+        private static ConfigurableApplicationContext nodeB;
+
+        @BeforeAll
+        static void startNodes() {
+                postgres = ClusterNodes.startPostgres();
+                nodeA = ClusterNodes.node(postgres, "postgres", 0);
+                nodeB = ClusterNodes.node(postgres, "postgres", 0);
+        }
+
+        @AfterAll
+        static void stopNodes() throws IOException {
+                if (nodeB != null) {
+                        nodeB.close();
+                }
+                if (nodeA != null) {
+                        nodeA.close();
+                }
+                if (postgres != null) {
+                        postgres.close();
+                }
+        }
+
+        @Test
+        void topicFrame_reachesTheOtherNodeOnce() throws Exception {
+                Inbox onA = subscribe(nodeA, newUser(), TOPIC);
+                Inbox onB = subscribe(nodeB, newUser(), TOPIC);
+                warmUp(onA, () -> sendToTopic(nodeA, "w"));
+                warmUp(onB, () -> sendToTopic(nodeA, "w"));
+                onA.drain();
+                onB.drain();
+
+                double receivedOnA = count(nodeA, "websocket.relay.received");
+                double publishedByB = count(nodeB, "websocket.relay.published");
+
+                sendToTopic(nodeA, "hola");
+
+                assertThat(onB.next()).isEqualTo("hola");
+                assertThat(onA.next()).isEqualTo("hola");
+                assertThat(onA.nothingMore()).as("eco del propio NOTIFY").isTrue();
+                assertThat(onB.nothingMore()).isTrue();
+
+                // A ignora su propia notificación y B no republica el frame
+                // reinyectado (lleva RELAYED_HEADER)
+                assertThat(count(nodeA, "websocket.relay.received")).isEqualTo(receivedOnA);
+                assertThat(count(nodeB, "websocket.relay.published")).isEqualTo(publishedByB);
+        }
+
+        @Test
+        void userFrame_reachesTheSessionOnTheOtherNode() throws Exception {
+                String username = newUser();
+                Inbox onB = subscribe(nodeB, username, "/user/queue/messages");
+                warmUp(onB, () -> sendToUser(nodeA, username, "w"));
+                onB.drain();
+
+                sendToUser(nodeA, username, "privado");
+
+                assertThat(onB.next()).isEqualTo("privado");
+                assertThat(onB.nothingMore()).isTrue();
+        }
+
+        @Test
+        void largePayload_goesThroughTheTable() throws Exception {
+                Inbox onB = subscribe(nodeB, newUser(), TOPIC);
+                warmUp(onB, () -> sendToTopic(nodeA, "w"));
+                onB.drain();
+
+                double stored = count(nodeA, "websocket.relay.stored");
+                String content = "x".repeat(10_000);
+
+                sendToTopic(nodeA, content);
+
+                assertThat(onB.next()).isEqualTo(content);
+                assertThat(count(nodeA, "websocket.relay.stored")).isEqualTo(stored + 1);
+                Integer rows = nodeA.getBean(JdbcTemplate.class)
+                                .queryForObject("SELECT count(*) FROM ws_relay_payloads", Integer.class);
+                assertThat(rows).isPositive();
+        }
+
+        @Test
+        void friendshipAccepted_isAppliedOnTheOtherNode() throws InterruptedException {
+                UUID ana = UUID.randomUUID();
+                UUID beto = UUID.randomUUID();
+
+                // sin transacción: se publica en el momento
+                nodeA.getBean(FriendGraphService.class).onRelationChanged(ana, beto, FriendStatus.ACCEPTED);
+
+                FriendGraphService graphOnB = nodeB.getBean(FriendGraphService.class);
+                awaitTrue(() -> graphOnB.areFriends(ana, beto));
+                assertThat(graphOnB.friendIds(beto)).containsExactly(ana);
+        }
+
+        @Test
+        void sessionOnOneNode_isOnlineOnTheOther() throws Exception {
+                User user = newUser("presence");
+                PresenceService presenceOnB = nodeB.getBean(PresenceService.class);
+
+                subscribe(nodeA, user.getUsername(), PresenceService.DESTINATION);
+
+                awaitTrue(() -> presenceOnB.isOnline(user.getId()));
+        }
+
+        // -------------------------------------------------------
+        // CLIENTES
+        // -------------------------------------------------------
+
+        private static Inbox subscribe(ConfigurableApplicationContext node, String username, String destination)
+                        throws Exception {
+                int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+                String token = node.getBean(JwtUtil.class).generateToken(username, List.of());
+
+                // el frame de la prueba de payload grande no entra en los 8 KB por defecto
+                WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+                container.setDefaultMaxTextMessageBufferSize(64 * 1024);
+                WebSocketStompClient stomp = new WebSocketStompClient(new StandardWebSocketClient(container));
+                stomp.setMessageConverter(new MappingJackson2MessageConverter());
+
+                StompSession session = stomp
+                                .connectAsync("ws://localhost:" + port + "/ws/websocket?token=" + token,
+                                                new StompSessionHandlerAdapter() {
+                                                })
+                                .get(10, TimeUnit.SECONDS);
+
+                Inbox inbox = new Inbox(new LinkedBlockingQueue<>());
+                session.subscribe(destination, inbox);
+                return inbox;
+        }
+
+        // Contenido de cada frame recibido por una suscripción
+        private record Inbox(BlockingQueue<String> contents) implements StompFrameHandler {
+
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                        return JsonNode.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                        contents.add(((JsonNode) payload).path("content").asText());
+                }
+
+                String next() throws InterruptedException {
+                        String content = contents.poll(10, TimeUnit.SECONDS);
+                        assertThat(content).as("frame recibido").isNotNull();
+                        return content;
+                }
+
+                boolean nothingMore() throws InterruptedException {
+                        return contents.poll(500, TimeUnit.MILLISECONDS) == null;
+                }
+
+                // Lo que sigue llegando de los intentos del warm-up
+                void drain() throws InterruptedException {
+                        while (!nothingMore()) {
+                        }
+                }
+        }
+
+        // La suscripción se registra en el broker después del SUBSCRIBE: se
+        // manda hasta que llega uno
+        private static void warmUp(Inbox inbox, Runnable send) throws InterruptedException {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+                do {
+                        assertThat(System.nanoTime()).as("warm-up").isLessThan(deadline);
+                        send.run();
+                } while (inbox.contents().poll(200, TimeUnit.MILLISECONDS) == null);
+        }
+
+        // --- Helpers ---
+
+        private static String newUser() {
+                return newUser("relay").getUsername();
+        }
+
+        private static User newUser(String prefix) {
+                User user = ClusterNodes.user(prefix + System.nanoTime() % 1_000_000_000);
+                return nodeA.getBean(UserRepository.class).save(user);
+        }
+
+        private static void sendToTopic(ConfigurableApplicationContext node, String content) {
+                node.getBean(SimpMessagingTemplate.class).convertAndSend(TOPIC, Map.of("content", content));
+        }
+
+        private static void sendToUser(ConfigurableApplicationContext node, String username, String content) {
+                node.getBean(SimpMessagingTemplate.class).convertAndSendToUser(username, "/queue/messages",
+                                Map.of("content", content));
+        }
+
+        private static double count(ConfigurableApplicationContext node, String name) {
+                Counter counter = node.getBean(MeterRegistry.class).find(name).counter();
+                return counter == null ? 0 : counter.count();
+        }
+
+        private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (!condition.getAsBoolean()) {
+                        assertThat(System.nanoTime()).as("esperando al otro nodo").isLessThan(deadline);
+                        Thread.sleep(50);
+                }
+        }
+}
@@ -0,0 +1,169 @@
+package org.example.service.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.example.entity.Post;
+import org.example.entity.Privacy;
+import org.example.entity.ThemeMode;
+import org.example.entity.User;
+import org.example.repository.PostRepository;
+import org.example.repository.UserRepository;
+import org.example.service.CommentService;
+import org.example.service.PostService;
+import org.example.service.like.LikeBuffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * post_stats: fila creada con el post, incrementos de comentarios y likes,
+ * y reparación del drift.
+ */
+@SpringBootTest(properties = {
+                "likes.flush-interval-ms=3600000",
+                "likes.reconcile-interval-ms=3600000",
+                "post-stats.reconcile-interval-ms=3600000" })
+@Transactional
+class PostStatsReconcilerTest {
+
+        @MockitoBean
+        private JwtDecoder googleJwtDecoder;
+
+        @Autowired
+        private PostStatsReconciler reconciler;
+
+        @Autowired
+        private CommentService commentService;
+
+        @Autowired
+        private PostService postService;
+
+        @Autowired
+        private LikeBuffer likeBuffer;
+
+        @Autowired
+        private UserRepository userRepo;
+
+        @Autowired
+        private PostRepository postRepo;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private EntityManager em;
+
+        private Post post;
+
+        @BeforeEach
+        void setUp() {
+                User author = userRepo.save(user("statsauthor"));
+                post = postRepo.save(Post.builder()
+                                .content("contadores")
+                                .privacy(Privacy.PUBLIC)
+                                .user(author)
+                                .build());
+                em.flush();
+
+                SecurityContextHolder.getContext().setAuthentication(
+                                new UsernamePasswordAuthenticationToken("statsauthor", null, List.of()));
+        }
+
+        @AfterEach
+        void tearDown() {
+                SecurityContextHolder.clearContext();
+        }
+
+        @Test
+        void newPost_startsWithZeroedRow() {
+                assertThat(stat("comment_count")).isZero();
+                assertThat(stat("like_count")).isZero();
+        }
+
+        @Test
+        void comments_areCountedIncrementally() {
+                var first = commentService.createComment(post.getId(), "uno");
+                commentService.createComment(post.getId(), "dos");
+                em.flush();
+                assertThat(stat("comment_count")).isEqualTo(2);
+
+                commentService.deleteComment(first.getId());
+                em.flush();
+                assertThat(stat("comment_count")).isEqualTo(1);
+                assertThat(commentService.countComments(post.getId())).isEqualTo(1);
+        }
+
+        @Test
+        void likeFlush_updatesLikeCount() {
+                postService.toggleLike(post.getId());
+                assertThat(stat("like_count")).isZero();
+
+                likeBuffer.flush();
+
+                assertThat(stat("like_count")).isEqualTo(1);
+        }
+
+        @Test
+        void reconcile_repairsDriftAndMissingRows() {
+                commentService.createComment(post.getId(), "uno");
+                em.flush();
+                jdbcTemplate.update("UPDATE post_stats SET comment_count = 7, like_count = -2 WHERE post_id = ?",
+                                post.getId());
+
+                assertThat(reconciler.reconcile()).isEqualTo(1);
+                assertThat(stat("comment_count")).isEqualTo(1);
+                assertThat(stat("like_count")).isZero();
+
+                jdbcTemplate.update("DELETE FROM post_stats WHERE post_id = ?", post.getId());
+
+                assertThat(reconciler.reconcile()).isEqualTo(1);
+                assertThat(stat("comment_count")).isEqualTo(1);
+                assertThat(reconciler.reconcile()).isZero();
+        }
+
+        @Test
+        void reconcile_onlyLooksAtRecentlyTouchedPosts() {
+                // drift en un post que nadie toca hace días
+                jdbcTemplate.update("UPDATE post_stats SET like_count = 9, updated_at = ? WHERE post_id = ?",
+                                Timestamp.from(Instant.now().minus(3, ChronoUnit.DAYS)), post.getId());
+
+                assertThat(reconciler.reconcile()).isZero();
+                assertThat(stat("like_count")).isEqualTo(9);
+
+                assertThat(reconciler.reconcileAll()).isEqualTo(1);
+                assertThat(stat("like_count")).isZero();
+        }
+
+        private long stat(String column) {
+                return jdbcTemplate.queryForObject(
+                                "SELECT " + column + " FROM post_stats WHERE post_id = ?", Long.class, post.getId());
+        }
+
+        private static User user(String username) {
+                return User.builder()
+                                .username(username)
+                                .email(username + "@test.com")
+                                .avatarKey("default.png")
+                                .password("secret")
+                                .displayName(username)
+                                .birthDate(LocalDate.of(2000, 1, 1))
+                                .themeMode(ThemeMode.LIGHT)
+                                .build();
+        }
+}